@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.jraft;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A batch of committed tasks with contiguous log indexes.
+ * @see StateMachine#onApplyBatch(ApplyBatch)
+ *
+ * @author agent (agent@local)
+ */
+public interface ApplyBatch {
+
+    /**
+     * Returns the number of tasks in this batch.
+     */
+    int size();
+
+    /**
+     * Returns the log index of the first task, the index of the i-th task is
+     * {@code getFirstIndex() + i}.
+     */
+    long getFirstIndex();
+
+    /**
+     * Returns the term of the i-th task.
+     */
+    long getTerm(final int i);
+
+    /**
+     * Returns the data of the i-th task, it's a read view of the log entry, don't change it.
+     */
+    ByteBuffer getData(final int i);
+
+    /**
+     * Returns the closure of the i-th task, see {@link Iterator#done()}.
+     */
+    Closure done(final int i);
+
+    /**
+     * Invoked when some critical error occurred. The tasks since {@code appliedCount} are
+     * regarded as not applied, and the state machine will be set into error, see
+     * {@link Iterator#setErrorAndRollback(long, Status)}.
+     *
+     * @param appliedCount the number of tasks that have been applied
+     * @param st           the error status
+     */
+    void setErrorAndRollback(final int appliedCount, final Status st);
+}
@@ -0,0 +1,45 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.jraft;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A state machine whose tasks of different partitions are commutative, e.g. a KV state
+ * machine whose tasks on different keys don't depend on each other.
+ *
+ * When {@link com.alipay.sofa.jraft.option.RaftOptions#getApplyLanes()} is greater than 1,
+ * the committed tasks are dispatched to the apply lanes by their partition key, the tasks of
+ * one lane are applied in log order, but {@link #onApply(Iterator)} is called concurrently
+ * by different lanes, so it must be thread safe across the partitions. The non-data entries
+ * (such as configuration changes) are still barriers: all the tasks before them are applied
+ * before they are handled.
+ *
+ * @author agent (agent@local)
+ */
+public interface PartitionedStateMachine extends StateMachine {
+
+    /**
+     * Returns the partition key of a committed task, the tasks with the same key are
+     * always applied in log order by the same lane.
+     *
+     * @param index the log index of the task
+     * @param data  the data of the task, don't change its position
+     * @return partition key
+     */
+    int partitionKey(final long index, final ByteBuffer data);
+}
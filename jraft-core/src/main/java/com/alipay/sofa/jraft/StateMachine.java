@@ -17,6 +17,7 @@
 package com.alipay.sofa.jraft;
 
 import com.alipay.sofa.jraft.conf.Configuration;
+import com.alipay.sofa.jraft.core.ApplyBatchIterator;
 import com.alipay.sofa.jraft.entity.LeaderChangeContext;
 import com.alipay.sofa.jraft.error.RaftException;
 import com.alipay.sofa.jraft.storage.snapshot.SnapshotReader;
@@ -52,6 +53,21 @@ public interface StateMachine {
      */
     void onApply(final Iterator iter);
 
+    /**
+     * Update the StateMachine with a batch of committed tasks, it's called instead of
+     * {@link #onApply(Iterator)} when {@link com.alipay.sofa.jraft.option.RaftOptions#isEnableBatchApply()}
+     * is true, so the state machine can apply the whole batch at once, e.g. by one write batch.
+     *
+     * Once this function returns to the caller, we will regard all the tasks in the batch have
+     * been successfully applied unless {@link ApplyBatch#setErrorAndRollback(int, Status)} is called.
+     * Default: apply the batch by {@link #onApply(Iterator)}.
+     *
+     * @param batch the committed tasks
+     */
+    default void onApplyBatch(final ApplyBatch batch) {
+        ApplyBatchIterator.applyBy(this, batch);
+    }
+
     /**
      * Invoked once when the raft node was shut down.
      * Default do nothing
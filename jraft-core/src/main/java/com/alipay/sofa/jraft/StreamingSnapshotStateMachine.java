@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.jraft;
+
+import com.alipay.sofa.jraft.entity.RaftOutter.SnapshotMeta;
+import com.google.protobuf.Message;
+
+/**
+ * A state machine that loads the files of a snapshot while the snapshot is being installed
+ * from the leader, so downloading and loading overlap, e.g. ingesting SST files once they
+ * are received.
+ *
+ * The callbacks are called by the snapshot copier thread, concurrently with the other
+ * methods of the state machine, so the received files must be staged aside and only take
+ * effect in {@link #onSnapshotLoad(com.alipay.sofa.jraft.storage.snapshot.SnapshotReader)},
+ * which is still called after all the files are received. The files belong to the snapshot
+ * storage and are renamed when the install completes: read or hard link them in the callback
+ * (hard links don't take extra disk space), but never modify, move or remove them.
+ *
+ * @author agent (agent@local)
+ */
+public interface StreamingSnapshotStateMachine extends StateMachine {
+
+    /**
+     * Called when a snapshot starts to be installed, before any file is received.
+     *
+     * @param meta the meta of the snapshot
+     */
+    void onSnapshotStreamStart(final SnapshotMeta meta);
+
+    /**
+     * Called when a file of the snapshot is received completely, the files that are reused
+     * from the last local snapshot are received too. A failure aborts the install.
+     *
+     * @param path     the directory of the snapshot being installed
+     * @param fileName the file name in the snapshot
+     * @param fileMeta the file meta
+     * @throws Exception if the file fails to be loaded
+     */
+    void onSnapshotFileReceived(final String path, final String fileName, final Message fileMeta) throws Exception;
+
+    /**
+     * Called when the install fails or is cancelled after {@link #onSnapshotStreamStart(SnapshotMeta)},
+     * the staged files should be dropped.
+     *
+     * @param status the failure status
+     */
+    void onSnapshotStreamAborted(final Status status);
+}
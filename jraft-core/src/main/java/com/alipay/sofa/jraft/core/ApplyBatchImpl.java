@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.jraft.core;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import com.alipay.sofa.jraft.ApplyBatch;
+import com.alipay.sofa.jraft.Closure;
+import com.alipay.sofa.jraft.Status;
+import com.alipay.sofa.jraft.entity.LogEntry;
+import com.alipay.sofa.jraft.util.Requires;
+
+/**
+ * The apply batch implementation, backed by the log entries.
+ *
+ * @author agent (agent@local)
+ */
+public class ApplyBatchImpl implements ApplyBatch {
+
+    private final List<LogEntry> entries;
+    private final List<Closure>  dones;
+    private final long           firstIndex;
+    private int                  appliedCount;
+    private Status               error;
+
+    public ApplyBatchImpl(final List<LogEntry> entries, final List<Closure> dones) {
+        super();
+        Requires.requireTrue(!entries.isEmpty(), "Empty batch");
+        this.entries = entries;
+        this.dones = dones;
+        this.firstIndex = entries.get(0).getId().getIndex();
+        this.appliedCount = entries.size();
+    }
+
+    @Override
+    public int size() {
+        return this.entries.size();
+    }
+
+    @Override
+    public long getFirstIndex() {
+        return this.firstIndex;
+    }
+
+    @Override
+    public long getTerm(final int i) {
+        return this.entries.get(i).getId().getTerm();
+    }
+
+    @Override
+    public ByteBuffer getData(final int i) {
+        return this.entries.get(i).getData();
+    }
+
+    @Override
+    public Closure done(final int i) {
+        return this.dones.get(i);
+    }
+
+    @Override
+    public void setErrorAndRollback(final int appliedCount, final Status st) {
+        Requires.requireTrue(appliedCount >= 0 && appliedCount < size(), "Invalid appliedCount=" + appliedCount);
+        this.appliedCount = Math.min(this.appliedCount, appliedCount);
+        if (this.error == null) {
+            this.error = st != null ? st : new Status(-1, "none");
+        }
+    }
+
+    /**
+     * Returns the number of tasks that have been applied.
+     */
+    public int getAppliedCount() {
+        return this.appliedCount;
+    }
+
+    public Status getError() {
+        return this.error;
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.jraft.core;
+
+import java.nio.ByteBuffer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.alipay.sofa.jraft.ApplyBatch;
+import com.alipay.sofa.jraft.Closure;
+import com.alipay.sofa.jraft.Iterator;
+import com.alipay.sofa.jraft.StateMachine;
+import com.alipay.sofa.jraft.Status;
+import com.alipay.sofa.jraft.util.Requires;
+
+/**
+ * Iterator over an apply batch.
+ *
+ * @author agent (agent@local)
+ */
+public class ApplyBatchIterator implements Iterator {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ApplyBatchIterator.class);
+
+    private final ApplyBatch batch;
+    private int              pos;
+    private boolean          error;
+
+    public ApplyBatchIterator(final ApplyBatch batch) {
+        super();
+        this.batch = batch;
+    }
+
+    /**
+     * Applies the batch by {@link StateMachine#onApply(Iterator)}, it's the default of
+     * {@link StateMachine#onApplyBatch(ApplyBatch)}.
+     */
+    public static void applyBy(final StateMachine fsm, final ApplyBatch batch) {
+        final ApplyBatchIterator iter = new ApplyBatchIterator(batch);
+        while (iter.hasNext()) {
+            fsm.onApply(iter);
+            if (iter.hasNext()) {
+                LOG.error("Iterator is still valid, did you return before iterator reached the end?");
+                // Try move to next in case that we pass the same log twice.
+                iter.next();
+            }
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !this.error && this.pos < this.batch.size();
+    }
+
+    @Override
+    public ByteBuffer next() {
+        final ByteBuffer data = getData();
+        if (hasNext()) {
+            this.pos++;
+        }
+        return data;
+    }
+
+    @Override
+    public ByteBuffer getData() {
+        return this.pos < this.batch.size() ? this.batch.getData(this.pos) : null;
+    }
+
+    @Override
+    public long getIndex() {
+        return this.batch.getFirstIndex() + this.pos;
+    }
+
+    @Override
+    public long getTerm() {
+        return this.pos < this.batch.size() ? this.batch.getTerm(this.pos) : 0;
+    }
+
+    @Override
+    public Closure done() {
+        return this.pos < this.batch.size() ? this.batch.done(this.pos) : null;
+    }
+
+    @Override
+    public void setErrorAndRollback(final long ntail, final Status st) {
+        Requires.requireTrue(ntail > 0, "Invalid ntail=" + ntail);
+        final long appliedCount = this.pos < this.batch.size() ? this.pos - (ntail - 1) : this.pos - ntail;
+        this.error = true;
+        this.batch.setErrorAndRollback((int) Math.max(appliedCount, 0), st);
+    }
+}
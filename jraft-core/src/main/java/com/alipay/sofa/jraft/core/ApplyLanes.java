@@ -0,0 +1,246 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.jraft.core;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.alipay.sofa.jraft.Closure;
+import com.alipay.sofa.jraft.Iterator;
+import com.alipay.sofa.jraft.PartitionedStateMachine;
+import com.alipay.sofa.jraft.Status;
+import com.alipay.sofa.jraft.entity.LogEntry;
+import com.alipay.sofa.jraft.error.RaftError;
+import com.alipay.sofa.jraft.util.ExecutorServiceHelper;
+import com.alipay.sofa.jraft.util.NamedThreadFactory;
+import com.alipay.sofa.jraft.util.Requires;
+
+/**
+ * Applies a batch of committed data entries to a {@link PartitionedStateMachine} by parallel
+ * lanes, entries are dispatched to the lanes by their partition key and the batch is done when
+ * all the lanes pass its last entry. The first lane runs in the caller(FSMCaller) thread.
+ *
+ * Not thread-safe, it is only accessed by the FSMCaller thread.
+ *
+ * @author agent (agent@local)
+ */
+public class ApplyLanes {
+
+    private static final Logger           LOG = LoggerFactory.getLogger(ApplyLanes.class);
+
+    private final PartitionedStateMachine fsm;
+    private final LaneIterator[]          lanes;
+    private final ExecutorService[]       executors;
+
+    public ApplyLanes(final PartitionedStateMachine fsm, final int laneCount) {
+        Requires.requireTrue(laneCount > 1, "laneCount must be greater than 1");
+        this.fsm = fsm;
+        this.lanes = new LaneIterator[laneCount];
+        this.executors = new ExecutorService[laneCount - 1];
+        for (int i = 0; i < laneCount; i++) {
+            this.lanes[i] = new LaneIterator();
+        }
+        for (int i = 0; i < this.executors.length; i++) {
+            this.executors[i] = Executors.newSingleThreadExecutor(new NamedThreadFactory("JRaft-FSMCaller-ApplyLane-"
+                                                                                         + (i + 1) + "-", true));
+        }
+    }
+
+    public int getLaneCount() {
+        return this.lanes.length;
+    }
+
+    /**
+     * Applies the data entries and waits for all the lanes.
+     *
+     * @param entries the data entries to apply, in log order
+     * @param dones   the closures of the entries, an element may be null
+     * @param applied marks the entries that are applied successfully
+     * @return the status of the state machine error of the first entry that is not applied,
+     *         or null if all the entries are applied.
+     */
+    public Status apply(final List<LogEntry> entries, final List<Closure> dones, final boolean[] applied)
+                                                                                                        throws InterruptedException {
+        final int laneCount = this.lanes.length;
+        for (final LaneIterator lane : this.lanes) {
+            lane.reset(entries, dones);
+        }
+        for (int i = 0, size = entries.size(); i < size; i++) {
+            final LogEntry entry = entries.get(i);
+            final ByteBuffer data = entry.getData();
+            final int key = this.fsm.partitionKey(entry.getId().getIndex(), data != null ? data.duplicate() : null);
+            this.lanes[(key & Integer.MAX_VALUE) % laneCount].add(i);
+        }
+        int forked = 0;
+        for (int i = 1; i < laneCount; i++) {
+            if (!this.lanes[i].isEmpty()) {
+                forked++;
+            }
+        }
+        final CountDownLatch latch = new CountDownLatch(forked);
+        for (int i = 1; i < laneCount; i++) {
+            final LaneIterator lane = this.lanes[i];
+            if (!lane.isEmpty()) {
+                this.executors[i - 1].execute(() -> {
+                    try {
+                        lane.run();
+                    } finally {
+                        latch.countDown();
+                    }
+                });
+            }
+        }
+        this.lanes[0].run();
+        latch.await();
+
+        Status error = null;
+        int firstFailedPos = Integer.MAX_VALUE;
+        for (final LaneIterator lane : this.lanes) {
+            for (int i = 0; i < lane.pos; i++) {
+                applied[lane.positions[i]] = true;
+            }
+            if (lane.error != null && lane.pos < lane.size && lane.positions[lane.pos] < firstFailedPos) {
+                firstFailedPos = lane.positions[lane.pos];
+                error = lane.error;
+            }
+        }
+        for (final LaneIterator lane : this.lanes) {
+            lane.reset(null, null);
+        }
+        return error;
+    }
+
+    public void shutdown() {
+        for (final ExecutorService executor : this.executors) {
+            ExecutorServiceHelper.shutdownAndAwaitTermination(executor);
+        }
+    }
+
+    /**
+     * The iterator over the entries of one lane.
+     */
+    private class LaneIterator implements Iterator {
+
+        private List<LogEntry> entries;
+        private List<Closure>  dones;
+        // Positions of the lane's entries in the batch
+        private int[]          positions = new int[16];
+        private int            size;
+        private int            pos;
+        private Status         error;
+
+        void reset(final List<LogEntry> entries, final List<Closure> dones) {
+            this.entries = entries;
+            this.dones = dones;
+            this.size = 0;
+            this.pos = 0;
+            this.error = null;
+        }
+
+        void add(final int batchPos) {
+            if (this.size == this.positions.length) {
+                this.positions = Arrays.copyOf(this.positions, this.size << 1);
+            }
+            this.positions[this.size++] = batchPos;
+        }
+
+        boolean isEmpty() {
+            return this.size == 0;
+        }
+
+        void run() {
+            try {
+                while (hasNext()) {
+                    ApplyLanes.this.fsm.onApply(this);
+                    if (hasNext()) {
+                        LOG.error("Iterator is still valid, did you return before iterator reached the end?");
+                        // Try move to next in case that we pass the same log twice.
+                        next();
+                    }
+                }
+            } catch (final Throwable t) {
+                LOG.error("Fail to apply tasks at index={}.", getIndex(), t);
+                if (this.error == null) {
+                    this.error = new Status(RaftError.ESTATEMACHINE, "Fail to apply tasks: %s", t.getMessage());
+                }
+            }
+        }
+
+        private LogEntry current() {
+            return this.pos < this.size ? this.entries.get(this.positions[this.pos]) : null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.error == null && this.pos < this.size;
+        }
+
+        @Override
+        public ByteBuffer next() {
+            final ByteBuffer data = getData();
+            if (hasNext()) {
+                this.pos++;
+            }
+            return data;
+        }
+
+        @Override
+        public ByteBuffer getData() {
+            final LogEntry entry = current();
+            return entry != null ? entry.getData() : null;
+        }
+
+        @Override
+        public long getIndex() {
+            final LogEntry entry = current();
+            if (entry != null) {
+                return entry.getId().getIndex();
+            }
+            return this.size > 0 ? this.entries.get(this.positions[this.size - 1]).getId().getIndex() + 1 : 0;
+        }
+
+        @Override
+        public long getTerm() {
+            final LogEntry entry = current();
+            return entry != null ? entry.getId().getTerm() : 0;
+        }
+
+        @Override
+        public Closure done() {
+            return this.pos < this.size ? this.dones.get(this.positions[this.pos]) : null;
+        }
+
+        @Override
+        public void setErrorAndRollback(final long ntail, final Status st) {
+            Requires.requireTrue(ntail > 0, "Invalid ntail=" + ntail);
+            if (this.pos < this.size) {
+                this.pos -= (int) ntail - 1;
+            } else {
+                this.pos -= (int) ntail;
+            }
+            this.pos = Math.max(this.pos, 0);
+            this.error = st != null ? st : new Status(RaftError.ESTATEMACHINE, "none");
+        }
+    }
+}
@@ -25,6 +25,7 @@ import com.alipay.sofa.jraft.option.RaftOptions;
 import com.alipay.sofa.jraft.storage.LogStorage;
 import com.alipay.sofa.jraft.storage.RaftMetaStorage;
 import com.alipay.sofa.jraft.storage.SnapshotStorage;
+import com.alipay.sofa.jraft.storage.impl.JournalRaftMetaStorage;
 import com.alipay.sofa.jraft.storage.impl.LocalRaftMetaStorage;
 import com.alipay.sofa.jraft.storage.impl.RocksDBLogStorage;
 import com.alipay.sofa.jraft.storage.snapshot.local.LocalSnapshotStorage;
@@ -59,6 +60,9 @@ public class DefaultJRaftServiceFactory implements JRaftServiceFactory {
     @Override
     public RaftMetaStorage createRaftMetaStorage(final String uri, final RaftOptions raftOptions) {
         Requires.requireTrue(!StringUtils.isBlank(uri), "Blank raft meta storage uri.");
+        if (raftOptions.isEnableMetaJournal()) {
+            return new JournalRaftMetaStorage(uri, raftOptions);
+        }
         return new LocalRaftMetaStorage(uri, raftOptions);
     }
 
@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.jraft.core;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import com.google.protobuf.ByteString;
+
+/**
+ * Reads the entry data of an AppendEntries request in order. The data of a coalesced
+ * request is a rope of the original requests' data, its buffers are read in turn
+ * instead of being flattened into one buffer, so they are not copied.
+ *
+ * @author agent (agent@local)
+ */
+final class EntryDataReader {
+
+    private final ByteString       data;
+    private final List<ByteBuffer> buffers;
+    private int                    bufferIndex;
+    private ByteBuffer             current;
+
+    EntryDataReader(final ByteString data) {
+        this.data = data;
+        this.buffers = data.asReadOnlyByteBufferList();
+        this.current = this.buffers.isEmpty() ? ByteString.EMPTY.asReadOnlyByteBuffer() : this.buffers.get(0);
+    }
+
+    /**
+     * Returns the buffer whose remaining bytes start with the next dataLen bytes of the data,
+     * the caller advances its position after reading them.
+     */
+    ByteBuffer next(final long dataLen) {
+        while (!this.current.hasRemaining() && this.bufferIndex + 1 < this.buffers.size()) {
+            this.current = this.buffers.get(++this.bufferIndex);
+        }
+        if (this.current.remaining() < dataLen && this.bufferIndex + 1 < this.buffers.size()) {
+            // The data of an entry is split across the buffers, it doesn't happen to the coalesced
+            // requests whose buffers hold whole requests, flattens the rest of the data.
+            int rest = this.current.remaining();
+            for (int i = this.bufferIndex + 1; i < this.buffers.size(); i++) {
+                rest += this.buffers.get(i).remaining();
+            }
+            this.current = this.data.substring(this.data.size() - rest).asReadOnlyByteBuffer();
+            this.bufferIndex = this.buffers.size();
+        }
+        return this.current;
+    }
+}
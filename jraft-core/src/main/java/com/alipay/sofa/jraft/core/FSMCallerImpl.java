@@ -27,6 +27,7 @@ import org.slf4j.LoggerFactory;
 
 import com.alipay.sofa.jraft.Closure;
 import com.alipay.sofa.jraft.FSMCaller;
+import com.alipay.sofa.jraft.PartitionedStateMachine;
 import com.alipay.sofa.jraft.StateMachine;
 import com.alipay.sofa.jraft.Status;
 import com.alipay.sofa.jraft.closure.ClosureQueue;
@@ -154,6 +155,9 @@ public class FSMCallerImpl implements FSMCaller {
     private ClosureQueue                                            closureQueue;
     private final AtomicLong                                        lastAppliedIndex;
     private long                                                    lastAppliedTerm;
+    private ApplyLanes                                              applyLanes;
+    private boolean                                                 enableBatchApply;
+    private int                                                     maxApplyBatchEntries;
     private Closure                                                 afterShutdown;
     private NodeImpl                                                node;
     private volatile TaskType                                       currTask;
@@ -183,6 +187,12 @@ public class FSMCallerImpl implements FSMCaller {
         this.lastAppliedIndex.set(opts.getBootstrapId().getIndex());
         notifyLastAppliedIndexUpdated(this.lastAppliedIndex.get());
         this.lastAppliedTerm = opts.getBootstrapId().getTerm();
+        this.enableBatchApply = opts.isEnableBatchApply();
+        this.maxApplyBatchEntries = opts.getMaxApplyBatchEntries();
+        if (opts.getApplyLanes() > 1 && this.fsm instanceof PartitionedStateMachine) {
+            this.applyLanes = new ApplyLanes((PartitionedStateMachine) this.fsm, opts.getApplyLanes());
+            LOG.info("Applies the committed tasks by {} parallel lanes.", opts.getApplyLanes());
+        }
         this.disruptor = DisruptorBuilder.<ApplyTask> newInstance() //
             .setEventFactory(new ApplyTaskFactory()) //
             .setRingBufferSize(opts.getDisruptorBufferSize()) //
@@ -359,6 +369,10 @@ public class FSMCallerImpl implements FSMCaller {
         if (this.shutdownLatch != null) {
             this.shutdownLatch.await();
             this.disruptor.shutdown();
+            if (this.applyLanes != null) {
+                // The lanes are only used by the disruptor thread.
+                this.applyLanes.shutdown();
+            }
             if (this.afterShutdown != null) {
                 this.afterShutdown.run(Status.OK());
                 this.afterShutdown = null;
@@ -507,7 +521,13 @@ public class FSMCallerImpl implements FSMCaller {
                 }
 
                 // Apply data task to user state machine
-                doApplyTasks(iterImpl);
+                if (this.applyLanes != null) {
+                    doApplyTasksInLanes(iterImpl);
+                } else if (this.enableBatchApply) {
+                    doApplyBatch(iterImpl);
+                } else {
+                    doApplyTasks(iterImpl);
+                }
             }
 
             if (iterImpl.hasError()) {
@@ -550,6 +570,76 @@ public class FSMCallerImpl implements FSMCaller {
         iter.next();
     }
 
+    private void doApplyTasksInLanes(final IteratorImpl iterImpl) {
+        iterImpl.prefetch(this.maxApplyBatchEntries);
+        final List<LogEntry> entries = new ArrayList<>();
+        final List<Closure> dones = new ArrayList<>();
+        // Collects the data entries until the next barrier(non-data entry), the end or the max batch size.
+        while (iterImpl.isGood() && iterImpl.entry().getType() == EnumOutter.EntryType.ENTRY_TYPE_DATA
+               && entries.size() < this.maxApplyBatchEntries) {
+            entries.add(iterImpl.entry());
+            dones.add(iterImpl.done());
+            iterImpl.next();
+        }
+        if (entries.isEmpty()) {
+            return;
+        }
+        final boolean[] applied = new boolean[entries.size()];
+        final long startApplyMs = Utils.monotonicMs();
+        Status error;
+        try {
+            error = this.applyLanes.apply(entries, dones, applied);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            error = new Status(RaftError.EINTR, "Interrupted while applying tasks");
+        } finally {
+            this.nodeMetrics.recordLatency("fsm-apply-tasks", Utils.monotonicMs() - startApplyMs);
+            this.nodeMetrics.recordSize("fsm-apply-tasks-count", entries.size());
+        }
+        if (error == null) {
+            return;
+        }
+        // Rolls back to the first entry that is not applied, the closures of the entries after it
+        // that are applied by the other lanes have been run already.
+        int firstFailedPos = 0;
+        while (applied[firstFailedPos]) {
+            firstFailedPos++;
+        }
+        for (int i = firstFailedPos + 1; i < applied.length; i++) {
+            if (applied[i]) {
+                iterImpl.clearClosure(entries.get(i).getId().getIndex());
+            }
+        }
+        iterImpl.setErrorAndRollbackTo(entries.get(firstFailedPos).getId().getIndex(), error);
+    }
+
+    private void doApplyBatch(final IteratorImpl iterImpl) {
+        iterImpl.prefetch(this.maxApplyBatchEntries);
+        final List<LogEntry> entries = new ArrayList<>();
+        final List<Closure> dones = new ArrayList<>();
+        // Collects the data entries until the next non-data entry, the end or the max batch size.
+        while (iterImpl.isGood() && iterImpl.entry().getType() == EnumOutter.EntryType.ENTRY_TYPE_DATA
+               && entries.size() < this.maxApplyBatchEntries) {
+            entries.add(iterImpl.entry());
+            dones.add(iterImpl.done());
+            iterImpl.next();
+        }
+        if (entries.isEmpty()) {
+            return;
+        }
+        final ApplyBatchImpl batch = new ApplyBatchImpl(entries, dones);
+        final long startApplyMs = Utils.monotonicMs();
+        try {
+            this.fsm.onApplyBatch(batch);
+        } finally {
+            this.nodeMetrics.recordLatency("fsm-apply-tasks", Utils.monotonicMs() - startApplyMs);
+            this.nodeMetrics.recordSize("fsm-apply-tasks-count", entries.size());
+        }
+        if (batch.getError() != null) {
+            iterImpl.setErrorAndRollbackTo(batch.getFirstIndex() + batch.getAppliedCount(), batch.getError());
+        }
+    }
+
     private void doSnapshotSave(final SaveSnapshotClosure done) {
         Requires.requireNonNull(done, "SaveSnapshotClosure is null");
         final long lastAppliedIndex = this.lastAppliedIndex.get();
@@ -49,6 +49,9 @@ public class IteratorImpl {
     private LogEntry            currEntry = new LogEntry(); // blank entry
     private final AtomicLong    applyingIndex;
     private RaftException       error;
+    // Entries after currentIndex fetched by one batched read
+    private List<LogEntry>      prefetched;
+    private int                 prefetchPos;
 
     public IteratorImpl(final StateMachine fsm, final LogManager logManager, final List<Closure> closures,
                         final long firstClosureIndex, final long lastAppliedIndex, final long committedIndex,
@@ -98,7 +101,10 @@ public class IteratorImpl {
             ++this.currentIndex;
             if (this.currentIndex <= this.committedIndex) {
                 try {
-                    this.currEntry = this.logManager.getEntry(this.currentIndex);
+                    this.currEntry = pollPrefetched(this.currentIndex);
+                    if (this.currEntry == null) {
+                        this.currEntry = this.logManager.getEntry(this.currentIndex);
+                    }
                     if (this.currEntry == null) {
                         getOrCreateError().setType(EnumOutter.ErrorType.ERROR_TYPE_LOG);
                         getOrCreateError().getStatus().setError(-1,
@@ -114,6 +120,43 @@ public class IteratorImpl {
         }
     }
 
+    /**
+     * Fetches the following committed entries, at most maxCount, by one batched read, so that
+     * {@link #next()} doesn't look them up one by one.
+     */
+    void prefetch(final int maxCount) {
+        if (this.prefetched != null && this.prefetchPos < this.prefetched.size()) {
+            return;
+        }
+        this.prefetched = null;
+        final long lastIndex = Math.min(this.committedIndex, this.currentIndex + maxCount);
+        if (lastIndex <= this.currentIndex) {
+            return;
+        }
+        try {
+            this.prefetched = this.logManager.getEntries(this.currentIndex + 1, lastIndex);
+            this.prefetchPos = 0;
+        } catch (final LogEntryCorruptedException e) {
+            // Ignore it, next() will report the error when reaching the corrupted entry.
+            this.prefetched = null;
+        }
+    }
+
+    private LogEntry pollPrefetched(final long index) {
+        if (this.prefetched == null) {
+            return null;
+        }
+        if (this.prefetchPos < this.prefetched.size()) {
+            final LogEntry entry = this.prefetched.get(this.prefetchPos);
+            if (entry.getId().getIndex() == index) {
+                this.prefetchPos++;
+                return entry;
+            }
+        }
+        this.prefetched = null;
+        return null;
+    }
+
     public long getIndex() {
         return this.currentIndex;
     }
@@ -125,6 +168,15 @@ public class IteratorImpl {
         return this.closures.get((int) (this.currentIndex - this.firstClosureIndex));
     }
 
+    /**
+     * Clears the closure at index, it has been run by the one that applied the entry.
+     */
+    void clearClosure(final long index) {
+        if (index >= this.firstClosureIndex) {
+            this.closures.set((int) (index - this.firstClosureIndex), null);
+        }
+    }
+
     protected void runTheRestClosureWithError() {
         for (long i = Math.max(this.currentIndex, this.firstClosureIndex); i <= this.committedIndex; i++) {
             final Closure done = this.closures.get((int) (i - this.firstClosureIndex));
@@ -137,8 +189,20 @@ public class IteratorImpl {
         }
     }
 
+    /**
+     * Sets error and rolls back to index, the entries since index are regarded as not applied.
+     */
+    void setErrorAndRollbackTo(final long index, final Status st) {
+        if (this.currEntry == null || this.currEntry.getType() != EnumOutter.EntryType.ENTRY_TYPE_DATA) {
+            setErrorAndRollback(this.currentIndex - index, st);
+        } else {
+            setErrorAndRollback(this.currentIndex - index + 1, st);
+        }
+    }
+
     public void setErrorAndRollback(final long ntail, final Status st) {
         Requires.requireTrue(ntail > 0, "Invalid ntail=" + ntail);
+        this.prefetched = null;
         if (this.currEntry == null || this.currEntry.getType() != EnumOutter.EntryType.ENTRY_TYPE_DATA) {
             this.currentIndex -= ntail;
         } else {
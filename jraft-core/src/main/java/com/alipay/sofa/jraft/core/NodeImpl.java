@@ -100,6 +100,7 @@ import com.alipay.sofa.jraft.storage.LogStorage;
 import com.alipay.sofa.jraft.storage.RaftMetaStorage;
 import com.alipay.sofa.jraft.storage.SnapshotExecutor;
 import com.alipay.sofa.jraft.storage.impl.LogManagerImpl;
+import com.alipay.sofa.jraft.storage.impl.RaftMetaWriter;
 import com.alipay.sofa.jraft.storage.snapshot.SnapshotExecutorImpl;
 import com.alipay.sofa.jraft.util.Describer;
 import com.alipay.sofa.jraft.util.DisruptorBuilder;
@@ -191,6 +192,7 @@ public class NodeImpl implements Node, RaftServerService {
     private final ConfigurationCtx                                         confCtx;
     private LogStorage                                                     logStorage;
     private RaftMetaStorage                                                metaStorage;
+    private RaftMetaWriter                                                 metaWriter;
     private ClosureQueue                                                   closureQueue;
     private ConfigurationManager                                           configManager;
     private LogManager                                                     logManager;
@@ -225,6 +227,19 @@ public class NodeImpl implements Node, RaftServerService {
     private volatile int                                                   targetPriority;
     /** The number of elections time out for current node */
     private volatile int                                                   electionTimeoutCounter;
+    /** Hibernation of the idle group, see NodeOptions#getHibernateTimeoutMs() */
+    private volatile HibernateState                                        hibernateState           = HibernateState.AWAKE;
+    private volatile long                                                  lastActiveMs;
+    private int                                                            hibernateVersion;
+
+    /**
+     * The hibernation state of the node.
+     */
+    private enum HibernateState {
+        AWAKE, // not hibernating
+        REQUESTED, // the leader is waiting for the acks of hibernation
+        HIBERNATING // hibernating, the heartbeats are parked
+    }
 
     private static class NodeReadWriteLock extends LongHeldDetectingReadWriteLock {
 
@@ -599,6 +614,7 @@ public class NodeImpl implements Node, RaftServerService {
         }
         this.currTerm = this.metaStorage.getTerm();
         this.votedId = this.metaStorage.getVotedFor().copy();
+        this.metaWriter = new RaftMetaWriter(this.metaStorage);
         return true;
     }
 
@@ -625,6 +641,7 @@ public class NodeImpl implements Node, RaftServerService {
             if (isCurrentLeaderValid()) {
                 return;
             }
+            unsafeWakeUp();
             resetLeaderId(PeerId.emptyPeer(), new Status(RaftError.ERAFTTIMEDOUT, "Lost connection from leader %s.",
                 this.leaderId));
 
@@ -765,6 +782,9 @@ public class NodeImpl implements Node, RaftServerService {
         opts.setNode(this);
         opts.setBootstrapId(bootstrapId);
         opts.setDisruptorBufferSize(this.raftOptions.getDisruptorBufferSize());
+        opts.setApplyLanes(this.raftOptions.getApplyLanes());
+        opts.setEnableBatchApply(this.raftOptions.isEnableBatchApply());
+        opts.setMaxApplyBatchEntries(this.raftOptions.getMaxEntriesSize());
         return this.fsmCaller.init(opts);
     }
 
@@ -903,6 +923,12 @@ public class NodeImpl implements Node, RaftServerService {
             return false;
         }
 
+        if (opts.getHibernateTimeoutMs() > 0 && opts.getHibernateElectionTimeoutMs() < opts.getElectionTimeoutMs()) {
+            LOG.error("Node {} hibernateElectionTimeoutMs={} is less than electionTimeoutMs={}.", getNodeId(),
+                opts.getHibernateElectionTimeoutMs(), opts.getElectionTimeoutMs());
+            return false;
+        }
+
         if (!NodeManager.getInstance().serverExists(this.serverId.getEndpoint())) {
             LOG.error("No RPC server attached to, did you forget to call addService?");
             return false;
@@ -1123,13 +1149,15 @@ public class NodeImpl implements Node, RaftServerService {
 
     // should be in writeLock
     private void electSelf() {
-        long oldTerm;
+        long oldTerm = 0;
+        long metaVersion = 0;
         try {
             LOG.info("Node {} start vote and grant vote self, term={}.", getNodeId(), this.currTerm);
             if (!this.conf.contains(this.serverId)) {
                 LOG.warn("Node {} can't do electSelf as it is not in {}.", getNodeId(), this.conf);
                 return;
             }
+            unsafeWakeUp();
             if (this.state == State.STATE_FOLLOWER) {
                 LOG.debug("Node {} stop election timer, term={}.", getNodeId(), this.currTerm);
                 this.electionTimer.stop();
@@ -1142,20 +1170,9 @@ public class NodeImpl implements Node, RaftServerService {
             LOG.debug("Node {} start vote timer, term={} .", getNodeId(), this.currTerm);
             this.voteTimer.start();
             this.voteCtx.init(this.conf.getConf(), this.conf.isStable() ? null : this.conf.getOldConf());
-            oldTerm = this.currTerm;
-        } finally {
-            this.writeLock.unlock();
-        }
 
-        final LogId lastLogId = this.logManager.getLastLogId(true);
-
-        this.writeLock.lock();
-        try {
-            // vote need defense ABA after unlock&writeLock
-            if (oldTerm != this.currTerm) {
-                LOG.warn("Node {} raise term {} when getLastLogId.", getNodeId(), this.currTerm);
-                return;
-            }
+            // The published last log id, the vote is not delayed by the pending disk tasks.
+            final LogId lastLogId = this.logManager.getLastLogId(false);
             for (final PeerId peer : this.conf.listPeers()) {
                 if (peer.equals(this.serverId)) {
                     continue;
@@ -1177,7 +1194,27 @@ public class NodeImpl implements Node, RaftServerService {
                 this.rpcService.requestVote(peer.getEndpoint(), done.request, done);
             }
 
-            this.metaStorage.setTermAndVotedFor(this.currTerm, this.serverId);
+            // The meta is saved out of the lock, and the vote of itself is granted after it's durable.
+            metaVersion = this.metaWriter.submit(this.currTerm, this.serverId);
+            oldTerm = this.currTerm;
+        } finally {
+            this.writeLock.unlock();
+        }
+        if (metaVersion == 0) {
+            return;
+        }
+        if (!this.metaWriter.await(metaVersion)) {
+            LOG.error("Node {} fail to save the vote of itself, term={}.", getNodeId(), oldTerm);
+            return;
+        }
+
+        this.writeLock.lock();
+        try {
+            // vote need defense ABA after unlock&writeLock
+            if (oldTerm != this.currTerm || this.state != State.STATE_CANDIDATE) {
+                LOG.warn("Node {} raise term {} when saving the vote of itself.", getNodeId(), this.currTerm);
+                return;
+            }
             this.voteCtx.grant(this.serverId);
             if (this.voteCtx.isGranted()) {
                 becomeLeader();
@@ -1256,6 +1293,7 @@ public class NodeImpl implements Node, RaftServerService {
             throw new IllegalStateException();
         }
         this.confCtx.flush(this.conf.getConf(), this.conf.getOldConf());
+        this.lastActiveMs = Utils.monotonicMs();
         this.stepDownTimer.start();
     }
 
@@ -1281,6 +1319,7 @@ public class NodeImpl implements Node, RaftServerService {
 
         // soft state in memory
         this.state = State.STATE_FOLLOWER;
+        unsafeWakeUp();
         this.confCtx.reset();
         updateLastLeaderTimestamp(Utils.monotonicMs());
         if (this.snapshotExecutor != null) {
@@ -1291,7 +1330,8 @@ public class NodeImpl implements Node, RaftServerService {
         if (term > this.currTerm) {
             this.currTerm = term;
             this.votedId = PeerId.emptyPeer();
-            this.metaStorage.setTermAndVotedFor(term, this.votedId);
+            // Saved in background, a vote or an ack of the new term waits for it to be durable.
+            this.metaWriter.submit(term, this.votedId);
         }
 
         if (wakeupCandidate) {
@@ -1353,8 +1393,17 @@ public class NodeImpl implements Node, RaftServerService {
         }
     }
 
+    /**
+     * Appends a batch of user tasks as the leader.
+     *
+     * It is only called by the single apply disruptor thread and holds the read lock
+     * rather than the write lock: every path that changes term, state or configuration,
+     * or appends entries on its own (e.g. configuration changes), runs in the write lock,
+     * so term/conf are stable here and the ballot box keeps the same order as the log,
+     * while read-only operations such as read index requests are not blocked by applying.
+     */
     private void executeApplyingTasks(final List<LogEntryAndClosure> tasks) {
-        this.writeLock.lock();
+        this.readLock.lock();
         try {
             final int size = tasks.size();
             if (this.state != State.STATE_LEADER) {
@@ -1399,11 +1448,11 @@ public class NodeImpl implements Node, RaftServerService {
                 entries.add(task.entry);
                 task.reset();
             }
+            // There is no need to check and set configuration here, data entries never change
+            // it and configuration entries are appended by unsafeApplyConfiguration in write lock.
             this.logManager.appendEntries(entries, new LeaderStableClosure(entries));
-            // update conf.first
-            checkAndSetConfiguration(true);
         } finally {
-            this.writeLock.unlock();
+            this.readLock.unlock();
         }
     }
 
@@ -1493,6 +1542,7 @@ public class NodeImpl implements Node, RaftServerService {
     @Override
     public void handleReadIndexRequest(final ReadIndexRequest request, final RpcResponseClosure<ReadIndexResponse> done) {
         final long startMs = Utils.monotonicMs();
+        onActive();
         this.readLock.lock();
         try {
             switch (this.state) {
@@ -1608,6 +1658,7 @@ public class NodeImpl implements Node, RaftServerService {
             throw new IllegalStateException("Node is shutting down");
         }
         Requires.requireNonNull(task, "Null task");
+        onActive();
 
         final LogEntry entry = new LogEntry();
         entry.setData(task.getData());
@@ -1643,7 +1694,6 @@ public class NodeImpl implements Node, RaftServerService {
 
     @Override
     public Message handlePreVoteRequest(final RequestVoteRequest request) {
-        boolean doUnlock = true;
         this.writeLock.lock();
         try {
             if (!this.state.isActive()) {
@@ -1687,13 +1737,7 @@ public class NodeImpl implements Node, RaftServerService {
                 // check replicator state
                 checkReplicator(candidateId);
 
-                doUnlock = false;
-                this.writeLock.unlock();
-
-                final LogId lastLogId = this.logManager.getLastLogId(true);
-
-                doUnlock = true;
-                this.writeLock.lock();
+                final LogId lastLogId = this.logManager.getLastLogId(false);
                 final LogId requestLastLogId = new LogId(request.getLastLogIndex(), request.getLastLogTerm());
                 granted = requestLastLogId.compareTo(lastLogId) >= 0;
 
@@ -1708,9 +1752,32 @@ public class NodeImpl implements Node, RaftServerService {
                 .setGranted(granted) //
                 .build();
         } finally {
-            if (doUnlock) {
-                this.writeLock.unlock();
+            this.writeLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the read index of a lease based read if this node is a leader that has
+     * committed a log entry at its term and holds a valid lease, so the read can be
+     * answered locally without a ReadIndex request and heartbeats, otherwise returns
+     * {@link ReadIndexClosure#INVALID_LOG_INDEX}.
+     */
+    long getLeaseReadIndex() {
+        this.readLock.lock();
+        try {
+            if (this.state != State.STATE_LEADER) {
+                return ReadIndexClosure.INVALID_LOG_INDEX;
+            }
+            final long lastCommittedIndex = this.ballotBox.getLastCommittedIndex();
+            if (this.logManager.getTerm(lastCommittedIndex) != this.currTerm) {
+                return ReadIndexClosure.INVALID_LOG_INDEX;
             }
+            if (getQuorum() > 1 && !isLeaderLeaseValid()) {
+                return ReadIndexClosure.INVALID_LOG_INDEX;
+            }
+            return lastCommittedIndex;
+        } finally {
+            this.readLock.unlock();
         }
     }
 
@@ -1729,7 +1796,10 @@ public class NodeImpl implements Node, RaftServerService {
     }
 
     private boolean isCurrentLeaderValid() {
-        return Utils.monotonicMs() - this.lastLeaderTimestamp < this.options.getElectionTimeoutMs();
+        // A hibernating leader only keeps its followers alive every half of the hibernate election timeout.
+        final int electionTimeoutMs = this.hibernateState == HibernateState.HIBERNATING ? this.options
+            .getHibernateElectionTimeoutMs() : this.options.getElectionTimeoutMs();
+        return Utils.monotonicMs() - this.lastLeaderTimestamp < electionTimeoutMs;
     }
 
     private void updateLastLeaderTimestamp(final long lastLeaderTimestamp) {
@@ -1744,7 +1814,8 @@ public class NodeImpl implements Node, RaftServerService {
 
     @Override
     public Message handleRequestVoteRequest(final RequestVoteRequest request) {
-        boolean doUnlock = true;
+        final RequestVoteResponse response;
+        long metaVersion = 0;
         this.writeLock.lock();
         try {
             if (!this.state.isActive()) {
@@ -1781,19 +1852,8 @@ public class NodeImpl implements Node, RaftServerService {
                         request.getServerId(), request.getTerm(), this.currTerm);
                     break;
                 }
-                doUnlock = false;
-                this.writeLock.unlock();
-
-                final LogId lastLogId = this.logManager.getLastLogId(true);
-
-                doUnlock = true;
-                this.writeLock.lock();
-                // vote need ABA check after unlock&writeLock
-                if (request.getTerm() != this.currTerm) {
-                    LOG.warn("Node {} raise term {} when get lastLogId.", getNodeId(), this.currTerm);
-                    break;
-                }
-
+                // The published last log id, the vote reply is not delayed by the pending disk tasks.
+                final LogId lastLogId = this.logManager.getLastLogId(false);
                 final boolean logIsOk = new LogId(request.getLastLogIndex(), request.getLastLogTerm())
                     .compareTo(lastLogId) >= 0;
 
@@ -1801,19 +1861,28 @@ public class NodeImpl implements Node, RaftServerService {
                     stepDown(request.getTerm(), false, new Status(RaftError.EVOTEFORCANDIDATE,
                         "Raft node votes for some candidate, step down to restart election_timer."));
                     this.votedId = candidateId.copy();
-                    this.metaStorage.setVotedFor(candidateId);
+                    this.metaWriter.submit(this.currTerm, candidateId);
                 }
             } while (false);
 
-            return RequestVoteResponse.newBuilder() //
+            final boolean granted = request.getTerm() == this.currTerm && candidateId.equals(this.votedId);
+            if (granted) {
+                // The meta is saved out of the lock, the vote is replied after it's durable.
+                metaVersion = this.metaWriter.getSubmittedVersion();
+            }
+            response = RequestVoteResponse.newBuilder() //
                 .setTerm(this.currTerm) //
-                .setGranted(request.getTerm() == this.currTerm && candidateId.equals(this.votedId)) //
+                .setGranted(granted) //
                 .build();
         } finally {
-            if (doUnlock) {
-                this.writeLock.unlock();
-            }
+            this.writeLock.unlock();
+        }
+        if (metaVersion > 0 && !this.metaWriter.await(metaVersion)) {
+            LOG.error("Node {} fail to save the vote for {}, term={}.", getNodeId(), request.getServerId(),
+                response.getTerm());
+            return response.toBuilder().setGranted(false).build();
         }
+        return response;
     }
 
     private static class FollowerStableClosure extends LogManager.StableClosure {
@@ -1823,10 +1892,12 @@ public class NodeImpl implements Node, RaftServerService {
         final NodeImpl                      node;
         final RpcRequestClosure             done;
         final long                          term;
+        // The meta version of the term, the entries are acked after it's durable.
+        final long                          metaVersion;
 
         public FollowerStableClosure(final AppendEntriesRequest request,
                                      final AppendEntriesResponse.Builder responseBuilder, final NodeImpl node,
-                                     final RpcRequestClosure done, final long term) {
+                                     final RpcRequestClosure done, final long term, final long metaVersion) {
             super(null);
             this.committedIndex = Math.min(
             // committed index is likely less than the lastLogIndex
@@ -1837,6 +1908,7 @@ public class NodeImpl implements Node, RaftServerService {
             this.node = node;
             this.done = done;
             this.term = term;
+            this.metaVersion = metaVersion;
         }
 
         @Override
@@ -1874,6 +1946,11 @@ public class NodeImpl implements Node, RaftServerService {
                 this.node.readLock.unlock();
             }
 
+            if (!this.node.metaWriter.await(this.metaVersion)) {
+                this.done.run(new Status(RaftError.EIO, "Fail to save the raft meta of term %d.", this.term));
+                return;
+            }
+
             // Don't touch node any more.
             this.responseBuilder.setSuccess(true).setTerm(this.term);
 
@@ -1935,6 +2012,10 @@ public class NodeImpl implements Node, RaftServerService {
             }
 
             updateLastLeaderTimestamp(Utils.monotonicMs());
+            final boolean hibernateRequest = request.getHibernate();
+            if (!hibernateRequest) {
+                unsafeWakeUp();
+            }
 
             if (entriesCount > 0 && this.snapshotExecutor != null && this.snapshotExecutor.isInstallingSnapshot()) {
                 LOG.warn("Node {} received AppendEntriesRequest while installing snapshot.", getNodeId());
@@ -1968,8 +2049,20 @@ public class NodeImpl implements Node, RaftServerService {
                     .setSuccess(true) //
                     .setTerm(this.currTerm) //
                     .setLastLogIndex(this.logManager.getLastLogIndex());
+                if (hibernateRequest) {
+                    unsafeHibernate();
+                    respBuilder.setHibernateAcked(true);
+                }
+                // The term may be raised but not durable yet, it's acked after the meta is saved.
+                final long metaVersion = this.metaWriter.getSubmittedVersion();
                 doUnlock = false;
                 this.writeLock.unlock();
+                if (!this.metaWriter.await(metaVersion)) {
+                    return RpcFactoryHelper //
+                        .responseFactory() //
+                        .newResponse(AppendEntriesResponse.getDefaultInstance(), RaftError.EIO,
+                            "Fail to save the raft meta of term %d.", respBuilder.getTerm());
+                }
                 // see the comments at FollowerStableClosure#run()
                 this.ballotBox.setLastCommittedIndex(Math.min(request.getCommittedIndex(), prevLogIndex));
                 return respBuilder.build();
@@ -1978,9 +2071,9 @@ public class NodeImpl implements Node, RaftServerService {
             // Parse request
             long index = prevLogIndex;
             final List<LogEntry> entries = new ArrayList<>(entriesCount);
-            ByteBuffer allData = null;
+            EntryDataReader dataReader = null;
             if (request.hasData()) {
-                allData = request.getData().asReadOnlyByteBuffer();
+                dataReader = new EntryDataReader(request.getData());
             }
 
             final List<RaftOutter.EntryMeta> entriesList = request.getEntriesList();
@@ -1988,7 +2081,8 @@ public class NodeImpl implements Node, RaftServerService {
                 index++;
                 final RaftOutter.EntryMeta entry = entriesList.get(i);
 
-                final LogEntry logEntry = logEntryFromMeta(index, allData, entry);
+                final LogEntry logEntry = logEntryFromMeta(index,
+                    dataReader != null ? dataReader.next(entry.getDataLen()) : null, entry);
 
                 if (logEntry != null) {
                     // Validate checksum
@@ -2010,7 +2104,7 @@ public class NodeImpl implements Node, RaftServerService {
             }
 
             final FollowerStableClosure closure = new FollowerStableClosure(request, AppendEntriesResponse.newBuilder()
-                .setTerm(this.currTerm), this, done, this.currTerm);
+                .setTerm(this.currTerm), this, done, this.currTerm, this.metaWriter.getSubmittedVersion());
             this.logManager.appendEntries(entries, closure);
             // update configuration after _log_manager updated its memory status
             checkAndSetConfiguration(true);
@@ -2034,10 +2128,19 @@ public class NodeImpl implements Node, RaftServerService {
             }
             final long dataLen = entry.getDataLen();
             if (dataLen > 0) {
-                final byte[] bs = new byte[(int) dataLen];
                 assert allData != null;
-                allData.get(bs, 0, bs.length);
-                logEntry.setData(ByteBuffer.wrap(bs));
+                if (this.raftOptions.isEnableZeroCopyAppendEntries()) {
+                    // The request data is immutable, so the entry can share it with a read-only
+                    // slice, the backing memory is kept alive as long as any entry references it.
+                    final ByteBuffer data = allData.slice();
+                    data.limit((int) dataLen);
+                    allData.position(allData.position() + (int) dataLen);
+                    logEntry.setData(data);
+                } else {
+                    final byte[] bs = new byte[(int) dataLen];
+                    allData.get(bs, 0, bs.length);
+                    logEntry.setData(ByteBuffer.wrap(bs));
+                }
             }
 
             if (entry.getPeersCount() > 0) {
@@ -2245,6 +2348,9 @@ public class NodeImpl implements Node, RaftServerService {
 
     @SuppressWarnings({ "LoopStatementThatDoesntLoop", "ConstantConditions" })
     private void handleStepDownTimeout() {
+        if (this.options.getHibernateTimeoutMs() > 0 && handleHibernateTimeout()) {
+            return;
+        }
         do {
             this.readLock.lock();
             try {
@@ -2284,6 +2390,210 @@ public class NodeImpl implements Node, RaftServerService {
         }
     }
 
+    /**
+     * Hibernates the idle group, or keeps the followers of the hibernating group alive.
+     *
+     * @return true if the group is hibernating, the dead nodes are not checked then
+     */
+    private boolean handleHibernateTimeout() {
+        this.writeLock.lock();
+        try {
+            if (this.state != State.STATE_LEADER) {
+                return false;
+            }
+            if (this.hibernateState == HibernateState.HIBERNATING) {
+                sendHibernateHeartbeats(false);
+                return true;
+            }
+            if (canHibernate()) {
+                sendHibernateHeartbeats(true);
+            }
+            return false;
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    // should be in writeLock
+    private boolean canHibernate() {
+        if (this.confCtx.isBusy() || !this.conf.isStable() || this.stopTransferArg != null) {
+            return false;
+        }
+        if (Utils.monotonicMs() - this.lastActiveMs < this.options.getHibernateTimeoutMs()) {
+            return false;
+        }
+        final long lastLogIndex = this.logManager.getLastLogIndex();
+        if (this.ballotBox.getLastCommittedIndex() != lastLogIndex) {
+            return false;
+        }
+        for (final PeerId peer : listHibernatePeers()) {
+            final ThreadId rid = this.replicatorGroup.getReplicator(peer);
+            if (rid == null || Replicator.getNextIndex(rid) - 1 != lastLogIndex) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // should be in writeLock
+    private List<PeerId> listHibernatePeers() {
+        final List<PeerId> peers = new ArrayList<>(this.conf.getConf().listPeers());
+        peers.remove(this.serverId);
+        peers.addAll(this.conf.getConf().listLearners());
+        return peers;
+    }
+
+    /**
+     * Sends the flagged heartbeats to all the followers, the group hibernates once all of them
+     * acknowledge if it's a request, or they are just kept alive.
+     */
+    // should be in writeLock
+    private void sendHibernateHeartbeats(final boolean request) {
+        final List<PeerId> peers = listHibernatePeers();
+        if (request) {
+            this.hibernateState = HibernateState.REQUESTED;
+            this.hibernateVersion++;
+            if (peers.isEmpty()) {
+                unsafeHibernate();
+                return;
+            }
+        }
+        final AtomicInteger acks = request ? new AtomicInteger(0) : null;
+        for (final PeerId peer : peers) {
+            this.replicatorGroup.sendHeartbeat(peer, new HibernateHeartbeatResponseClosure(peer, this.currTerm,
+                this.hibernateVersion, acks, peers.size()));
+        }
+    }
+
+    private void onHibernateAcked(final long term, final int version) {
+        this.writeLock.lock();
+        try {
+            if (this.state != State.STATE_LEADER || this.currTerm != term
+                || this.hibernateState != HibernateState.REQUESTED || this.hibernateVersion != version) {
+                return;
+            }
+            if (canHibernate()) {
+                unsafeHibernate();
+            } else {
+                this.hibernateState = HibernateState.AWAKE;
+            }
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    private class HibernateHeartbeatResponseClosure extends RpcResponseClosureAdapter<AppendEntriesResponse> {
+        final PeerId        peer;
+        final long          term;
+        final int           version;
+        final AtomicInteger acks;
+        final int           peersCount;
+
+        HibernateHeartbeatResponseClosure(final PeerId peer, final long term, final int version,
+                                          final AtomicInteger acks, final int peersCount) {
+            super();
+            this.peer = peer;
+            this.term = term;
+            this.version = version;
+            this.acks = acks;
+            this.peersCount = peersCount;
+        }
+
+        @Override
+        public void run(final Status status) {
+            if (!status.isOk()) {
+                return;
+            }
+            final AppendEntriesResponse response = getResponse();
+            if (response.getTerm() > this.term) {
+                increaseTermTo(response.getTerm(), new Status(RaftError.EHIGHERTERMRESPONSE,
+                    "Leader receives higher term heartbeat_response from peer:%s", this.peer));
+                return;
+            }
+            if (this.acks != null && response.getSuccess() && response.getHibernateAcked()
+                && this.acks.incrementAndGet() == this.peersCount) {
+                onHibernateAcked(this.term, this.version);
+            }
+        }
+    }
+
+    /**
+     * Parks the timers of the node, a leader keeps its followers alive by the step-down timer,
+     * and a follower waits for the leader by the hibernate election timeout.
+     */
+    // should be in writeLock
+    private void unsafeHibernate() {
+        final boolean hibernating = this.hibernateState == HibernateState.HIBERNATING;
+        this.hibernateState = HibernateState.HIBERNATING;
+        if (this.state == State.STATE_LEADER) {
+            this.stepDownTimer.reset(this.options.getHibernateElectionTimeoutMs() >> 1);
+        } else {
+            this.electionTimer.reset(this.options.getHibernateElectionTimeoutMs());
+        }
+        if (!hibernating) {
+            this.snapshotTimer.stop();
+            LOG.info("Node {} hibernates, term={}, state={}.", getNodeId(), this.currTerm, this.state);
+        }
+    }
+
+    /**
+     * Resumes the timers of the node if it's hibernating.
+     */
+    // should be in writeLock
+    private void unsafeWakeUp() {
+        final HibernateState prevState = this.hibernateState;
+        if (prevState == HibernateState.AWAKE) {
+            return;
+        }
+        this.hibernateState = HibernateState.AWAKE;
+        if (prevState != HibernateState.HIBERNATING) {
+            return;
+        }
+        LOG.info("Node {} wakes up, term={}, state={}.", getNodeId(), this.currTerm, this.state);
+        // The timers are only rescheduled if they are running.
+        this.electionTimer.reset(this.options.getElectionTimeoutMs());
+        this.stepDownTimer.reset(this.options.getElectionTimeoutMs() >> 1);
+        if (this.snapshotExecutor != null && this.options.getSnapshotIntervalSecs() > 0) {
+            this.snapshotTimer.restart();
+        }
+        if (this.state == State.STATE_LEADER) {
+            for (final PeerId peer : listHibernatePeers()) {
+                final ThreadId rid = this.replicatorGroup.getReplicator(peer);
+                if (rid != null) {
+                    Replicator.resumeHeartbeat(rid);
+                }
+            }
+        }
+    }
+
+    /**
+     * Marks the node active and wakes it up, should not be in the lock.
+     */
+    private void onActive() {
+        if (this.options.getHibernateTimeoutMs() > 0) {
+            this.lastActiveMs = Utils.monotonicMs();
+        }
+        if (this.hibernateState != HibernateState.AWAKE) {
+            this.writeLock.lock();
+            try {
+                unsafeWakeUp();
+            } finally {
+                this.writeLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Whether the heartbeats ask the followers to hibernate.
+     */
+    boolean isHibernateRequested() {
+        return this.hibernateState != HibernateState.AWAKE;
+    }
+
+    boolean isHibernating() {
+        return this.hibernateState == HibernateState.HIBERNATING;
+    }
+
     /**
      * Configuration changed callback.
      *
@@ -2343,6 +2653,8 @@ public class NodeImpl implements Node, RaftServerService {
         // The new conf entry(will be stored in log manager) should be valid
         Requires.requireTrue(new ConfigurationEntry(null, newConf, oldConf).isValid(), "Invalid conf entry: %s",
             newConf);
+        this.lastActiveMs = Utils.monotonicMs();
+        unsafeWakeUp();
 
         if (this.state != State.STATE_LEADER) {
             LOG.warn("Node {} refused configuration changing as the state={}.", getNodeId(), this.state);
@@ -2629,7 +2941,7 @@ public class NodeImpl implements Node, RaftServerService {
 
     // in writeLock
     private void preVote() {
-        long oldTerm;
+        boolean doUnlock = true;
         try {
             LOG.info("Node {} term {} start preVote.", getNodeId(), this.currTerm);
             if (this.snapshotExecutor != null && this.snapshotExecutor.isInstallingSnapshot()) {
@@ -2642,21 +2954,9 @@ public class NodeImpl implements Node, RaftServerService {
                 LOG.warn("Node {} can't do preVote as it is not in conf <{}>.", getNodeId(), this.conf);
                 return;
             }
-            oldTerm = this.currTerm;
-        } finally {
-            this.writeLock.unlock();
-        }
 
-        final LogId lastLogId = this.logManager.getLastLogId(true);
-
-        boolean doUnlock = true;
-        this.writeLock.lock();
-        try {
-            // pre_vote need defense ABA after unlock&writeLock
-            if (oldTerm != this.currTerm) {
-                LOG.warn("Node {} raise term {} when get lastLogId.", getNodeId(), this.currTerm);
-                return;
-            }
+            // The published last log id, the pre-vote is not delayed by the pending disk tasks.
+            final LogId lastLogId = this.logManager.getLastLogId(false);
             this.prevVoteCtx.init(this.conf.getConf(), this.conf.isStable() ? null : this.conf.getOldConf());
             for (final PeerId peer : this.conf.listPeers()) {
                 if (peer.equals(this.serverId)) {
@@ -2753,7 +3053,10 @@ public class NodeImpl implements Node, RaftServerService {
                 if (this.logManager != null) {
                     this.logManager.shutdown();
                 }
-                if (this.metaStorage != null) {
+                if (this.metaWriter != null) {
+                    // Shutdown the meta storage after the pending metas are saved.
+                    this.metaWriter.shutdown();
+                } else if (this.metaStorage != null) {
                     this.metaStorage.shutdown();
                 }
                 if (this.snapshotExecutor != null) {
@@ -2848,6 +3151,9 @@ public class NodeImpl implements Node, RaftServerService {
             if (this.wakingCandidate != null) {
                 Replicator.join(this.wakingCandidate);
             }
+            if (this.metaWriter != null) {
+                this.metaWriter.join();
+            }
             this.shutdownLatch.await();
             this.applyDisruptor.shutdown();
             this.shutdownLatch = null;
@@ -3136,6 +3442,8 @@ public class NodeImpl implements Node, RaftServerService {
         Requires.requireNonNull(peer, "Null peer");
         this.writeLock.lock();
         try {
+            this.lastActiveMs = Utils.monotonicMs();
+            unsafeWakeUp();
             if (this.state != State.STATE_LEADER) {
                 LOG.warn("Node {} can't transfer leadership to peer {} as it is in state {}.", getNodeId(), peer,
                     this.state);
@@ -3268,6 +3576,7 @@ public class NodeImpl implements Node, RaftServerService {
                     "Parse serverId failed: %s", request.getServerId());
         }
 
+        final long metaVersion;
         this.writeLock.lock();
         try {
             if (!this.state.isActive()) {
@@ -3302,10 +3611,17 @@ public class NodeImpl implements Node, RaftServerService {
                     .setSuccess(false) //
                     .build();
             }
-
+            // The term may be raised but not durable yet, the snapshot is installed after the meta is saved.
+            metaVersion = this.metaWriter.getSubmittedVersion();
         } finally {
             this.writeLock.unlock();
         }
+        if (!this.metaWriter.await(metaVersion)) {
+            return RpcFactoryHelper //
+                .responseFactory() //
+                .newResponse(InstallSnapshotResponse.getDefaultInstance(), RaftError.EIO,
+                    "Fail to save the raft meta of term %d.", request.getTerm());
+        }
         final long startMs = Utils.monotonicMs();
         try {
             if (LOG.isInfoEnabled()) {
@@ -3411,6 +3727,7 @@ public class NodeImpl implements Node, RaftServerService {
         final long _currTerm;
         final String _conf;
         final int _targetPriority;
+        final String _hibernateState;
         this.readLock.lock();
         try {
             _nodeId = String.valueOf(getNodeId());
@@ -3419,6 +3736,7 @@ public class NodeImpl implements Node, RaftServerService {
             _currTerm = this.currTerm;
             _conf = String.valueOf(this.conf);
             _targetPriority = this.targetPriority;
+            _hibernateState = String.valueOf(this.hibernateState);
         } finally {
             this.readLock.unlock();
         }
@@ -3434,6 +3752,8 @@ public class NodeImpl implements Node, RaftServerService {
             .println(_conf);
         out.print("targetPriority: ") //
             .println(_targetPriority);
+        out.print("hibernateState: ") //
+            .println(_hibernateState);
 
         // timers
         out.println("electionTimer: ");
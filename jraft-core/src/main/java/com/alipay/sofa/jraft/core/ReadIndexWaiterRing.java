@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.jraft.core;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.alipay.sofa.jraft.entity.ReadIndexStatus;
+import com.alipay.sofa.jraft.util.Requires;
+
+/**
+ * The pending read index statuses waiting for their index to be applied, ordered by log index.
+ *
+ * The statuses whose index is in the window {@code [base, base + capacity)} are chained in the
+ * ring slot of their index, where base is the next index to be applied, so adding and draining
+ * only links and unlinks the statuses, without boxing the index or allocating a list per index.
+ * The statuses beyond the window spill to an overflow map, it only happens when the read index
+ * is far ahead of the applied index.
+ *
+ * The lock is only held to link/unlink the chains, the drained statuses are returned as a chain
+ * to be notified out of the lock.
+ *
+ * @author agent (agent@local)
+ */
+class ReadIndexWaiterRing {
+
+    private final ReadIndexStatus[]                  heads;
+    private final ReadIndexStatus[]                  tails;
+    private final int                                mask;
+    private final TreeMap<Long, ReadIndexStatus>     overflow = new TreeMap<>();
+    private final Lock                               lock     = new ReentrantLock();
+    // The next index to be applied, the statuses below it are ready.
+    private long                                     base;
+    private int                                      size;
+
+    ReadIndexWaiterRing(final int capacity, final long appliedIndex) {
+        Requires.requireTrue(capacity > 0 && (capacity & (capacity - 1)) == 0, "capacity must be a power of 2");
+        this.heads = new ReadIndexStatus[capacity];
+        this.tails = new ReadIndexStatus[capacity];
+        this.mask = capacity - 1;
+        this.base = appliedIndex + 1;
+    }
+
+    /**
+     * Adds a pending status.
+     *
+     * @return false if the index of the status is already applied, the status is not added
+     * and the caller should notify it.
+     */
+    boolean add(final ReadIndexStatus status) {
+        final long index = status.getIndex();
+        status.setNext(null);
+        this.lock.lock();
+        try {
+            if (index < this.base) {
+                return false;
+            }
+            if (index - this.base < this.heads.length) {
+                final int slot = (int) (index & this.mask);
+                if (this.tails[slot] == null) {
+                    this.heads[slot] = status;
+                } else {
+                    this.tails[slot].setNext(status);
+                }
+                this.tails[slot] = status;
+            } else {
+                final ReadIndexStatus head = this.overflow.get(index);
+                if (head != null) {
+                    status.setNext(head);
+                }
+                this.overflow.put(index, status);
+            }
+            this.size++;
+            return true;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the statuses whose index is less than or equal to appliedIndex.
+     *
+     * @return the chain of the removed statuses, or null if there is none.
+     */
+    ReadIndexStatus drain(final long appliedIndex) {
+        this.lock.lock();
+        try {
+            if (appliedIndex < this.base) {
+                return null;
+            }
+            ReadIndexStatus head = null;
+            ReadIndexStatus tail = null;
+            if (this.size > 0) {
+                final long end = Math.min(appliedIndex, this.base + this.heads.length - 1);
+                for (long index = this.base; index <= end; index++) {
+                    final int slot = (int) (index & this.mask);
+                    final ReadIndexStatus slotHead = this.heads[slot];
+                    if (slotHead == null) {
+                        continue;
+                    }
+                    if (head == null) {
+                        head = slotHead;
+                    } else {
+                        tail.setNext(slotHead);
+                    }
+                    tail = this.tails[slot];
+                    this.heads[slot] = null;
+                    this.tails[slot] = null;
+                }
+                if (!this.overflow.isEmpty()) {
+                    final Iterator<Map.Entry<Long, ReadIndexStatus>> it = this.overflow.headMap(appliedIndex, true)
+                        .entrySet().iterator();
+                    while (it.hasNext()) {
+                        ReadIndexStatus s = it.next().getValue();
+                        it.remove();
+                        if (head == null) {
+                            head = s;
+                        } else {
+                            tail.setNext(s);
+                        }
+                        while (s.getNext() != null) {
+                            s = s.getNext();
+                        }
+                        tail = s;
+                    }
+                }
+            }
+            this.base = appliedIndex + 1;
+            this.size -= count(head);
+            return head;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Removes all the pending statuses.
+     *
+     * @return the chain of the removed statuses, or null if there is none.
+     */
+    ReadIndexStatus drainAll() {
+        this.lock.lock();
+        try {
+            if (this.size == 0) {
+                return null;
+            }
+            final long appliedIndex = this.base;
+            ReadIndexStatus head = drain(this.overflow.isEmpty() ? this.base + this.heads.length - 1 : this.overflow
+                .lastKey());
+            // Keeps the base, these statuses are not applied.
+            this.base = appliedIndex;
+            return head;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private static int count(ReadIndexStatus status) {
+        int n = 0;
+        while (status != null) {
+            n++;
+            status = status.getNext();
+        }
+        return n;
+    }
+
+    int size() {
+        this.lock.lock();
+        try {
+            return this.size;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+}
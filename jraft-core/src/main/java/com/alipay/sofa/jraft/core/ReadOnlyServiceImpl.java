@@ -17,16 +17,11 @@
 package com.alipay.sofa.jraft.core;
 
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-import java.util.TreeMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -41,6 +36,7 @@ import com.alipay.sofa.jraft.entity.ReadIndexStatus;
 import com.alipay.sofa.jraft.error.RaftError;
 import com.alipay.sofa.jraft.error.RaftException;
 import com.alipay.sofa.jraft.option.RaftOptions;
+import com.alipay.sofa.jraft.option.ReadOnlyOption;
 import com.alipay.sofa.jraft.option.ReadOnlyServiceOptions;
 import com.alipay.sofa.jraft.rpc.RpcRequests.ReadIndexRequest;
 import com.alipay.sofa.jraft.rpc.RpcRequests.ReadIndexResponse;
@@ -70,12 +66,13 @@ import com.lmax.disruptor.dsl.ProducerType;
 public class ReadOnlyServiceImpl implements ReadOnlyService, LastAppliedLogIndexListener {
 
     private static final int                           MAX_ADD_REQUEST_RETRY_TIMES = 3;
+    /** Capacity of the pending-notify waiter ring, in log indexes. */
+    private static final int                           WAITER_RING_CAPACITY        = 1024;
     /** Disruptor to run readonly service. */
     private Disruptor<ReadIndexEvent>                  readIndexDisruptor;
     private RingBuffer<ReadIndexEvent>                 readIndexQueue;
     private RaftOptions                                raftOptions;
     private NodeImpl                                   node;
-    private final Lock                                 lock                        = new ReentrantLock();
     private FSMCaller                                  fsmCaller;
     private volatile CountDownLatch                    shutdownLatch;
 
@@ -85,8 +82,8 @@ public class ReadOnlyServiceImpl implements ReadOnlyService, LastAppliedLogIndex
 
     private volatile RaftException                     error;
 
-    // <logIndex, statusList>
-    private final TreeMap<Long, List<ReadIndexStatus>> pendingNotifyStatus         = new TreeMap<>();
+    // Statuses waiting for their index to be applied, ordered by log index.
+    private ReadIndexWaiterRing                        pendingNotifyStatus;
 
     private static final Logger                        LOG                         = LoggerFactory
                                                                                        .getLogger(ReadOnlyServiceImpl.class);
@@ -181,25 +178,7 @@ public class ReadOnlyServiceImpl implements ReadOnlyService, LastAppliedLogIndex
                 state.setIndex(readIndexResponse.getIndex());
             }
 
-            boolean doUnlock = true;
-            ReadOnlyServiceImpl.this.lock.lock();
-            try {
-                if (readIndexStatus.isApplied(ReadOnlyServiceImpl.this.fsmCaller.getLastAppliedIndex())) {
-                    // Already applied, notify readIndex request.
-                    ReadOnlyServiceImpl.this.lock.unlock();
-                    doUnlock = false;
-                    notifySuccess(readIndexStatus);
-                } else {
-                    // Not applied, add it to pending-notify cache.
-                    ReadOnlyServiceImpl.this.pendingNotifyStatus
-                        .computeIfAbsent(readIndexStatus.getIndex(), k -> new ArrayList<>(10)) //
-                        .add(readIndexStatus);
-                }
-            } finally {
-                if (doUnlock) {
-                    ReadOnlyServiceImpl.this.lock.unlock();
-                }
-            }
+            notifyOrPending(readIndexStatus);
         }
 
         private void notifyFail(final Status status) {
@@ -215,6 +194,46 @@ public class ReadOnlyServiceImpl implements ReadOnlyService, LastAppliedLogIndex
         }
     }
 
+    /**
+     * Notifies the status if its index is already applied, otherwise adds it to the
+     * pending-notify cache.
+     */
+    private void notifyOrPending(final ReadIndexStatus readIndexStatus) {
+        // Not applied, add it to pending-notify cache, the cache refuses it if it has been applied
+        // in the meantime.
+        if (readIndexStatus.isApplied(this.fsmCaller.getLastAppliedIndex())
+            || !this.pendingNotifyStatus.add(readIndexStatus)) {
+            // Already applied, notify readIndex request.
+            notifySuccess(readIndexStatus);
+        }
+    }
+
+    /**
+     * Lease read fast path: the leader holds a valid lease, so the read index is its
+     * committed index and the request is answered in the caller thread as soon as the
+     * index is applied, without going through the disruptor and the ReadIndex heartbeats.
+     *
+     * @return true if the request is accepted by the fast path
+     */
+    private boolean tryLeaseRead(final byte[] reqCtx, final ReadIndexClosure closure) {
+        if (this.raftOptions.getReadOnlyOptions() != ReadOnlyOption.ReadOnlyLeaseBased || this.error != null) {
+            return false;
+        }
+        final long startTime = Utils.monotonicMs();
+        final long readIndex = this.node.getLeaseReadIndex();
+        if (readIndex == ReadIndexClosure.INVALID_LOG_INDEX) {
+            return false;
+        }
+        final ReadIndexState state = new ReadIndexState(new Bytes(reqCtx), closure, startTime);
+        state.setIndex(readIndex);
+        final List<ReadIndexState> states = new ArrayList<>(1);
+        states.add(state);
+        final ReadIndexStatus readIndexStatus = new ReadIndexStatus(states, null, readIndex);
+        this.nodeMetrics.recordTimes("read-index-lease-fast-path", 1);
+        notifyOrPending(readIndexStatus);
+        return true;
+    }
+
     private void executeReadIndexEvents(final List<ReadIndexEvent> events) {
         if (events.isEmpty()) {
             return;
@@ -235,16 +254,11 @@ public class ReadOnlyServiceImpl implements ReadOnlyService, LastAppliedLogIndex
     }
 
     private void resetPendingStatusError(final Status st) {
-        this.lock.lock();
-        try {
-            for (final List<ReadIndexStatus> statuses : this.pendingNotifyStatus.values()) {
-                for (final ReadIndexStatus status : statuses) {
-                    reportError(status, st);
-                }
-            }
-            this.pendingNotifyStatus.clear();
-        } finally {
-            this.lock.unlock();
+        ReadIndexStatus status = this.pendingNotifyStatus.drainAll();
+        while (status != null) {
+            final ReadIndexStatus next = status.getNext();
+            reportError(status, st);
+            status = next;
         }
     }
 
@@ -254,6 +268,7 @@ public class ReadOnlyServiceImpl implements ReadOnlyService, LastAppliedLogIndex
         this.nodeMetrics = this.node.getNodeMetrics();
         this.fsmCaller = opts.getFsmCaller();
         this.raftOptions = opts.getRaftOptions();
+        this.pendingNotifyStatus = new ReadIndexWaiterRing(WAITER_RING_CAPACITY, this.fsmCaller.getLastAppliedIndex());
 
         this.scheduledExecutorService = Executors
             .newSingleThreadScheduledExecutor(new NamedThreadFactory("ReadOnlyService-PendingNotify-Scanner", true));
@@ -315,6 +330,9 @@ public class ReadOnlyServiceImpl implements ReadOnlyService, LastAppliedLogIndex
             Utils.runClosureInThread(closure, new Status(RaftError.EHOSTDOWN, "Was stopped"));
             throw new IllegalStateException("Service already shutdown.");
         }
+        if (tryLeaseRead(reqCtx, closure)) {
+            return;
+        }
         try {
             EventTranslator<ReadIndexEvent> translator = (event, sequence) -> {
                 event.done = closure;
@@ -349,44 +367,21 @@ public class ReadOnlyServiceImpl implements ReadOnlyService, LastAppliedLogIndex
      */
     @Override
     public void onApplied(final long appliedIndex) {
-        // TODO reuse pendingStatuses list?
-        List<ReadIndexStatus> pendingStatuses = null;
-        this.lock.lock();
-        try {
-            if (this.pendingNotifyStatus.isEmpty()) {
-                return;
-            }
-            // Find all statuses that log index less than or equal to appliedIndex.
-            final Map<Long, List<ReadIndexStatus>> statuses = this.pendingNotifyStatus.headMap(appliedIndex, true);
-            if (statuses != null) {
-                pendingStatuses = new ArrayList<>(statuses.size() << 1);
-
-                final Iterator<Map.Entry<Long, List<ReadIndexStatus>>> it = statuses.entrySet().iterator();
-                while (it.hasNext()) {
-                    final Map.Entry<Long, List<ReadIndexStatus>> entry = it.next();
-                    pendingStatuses.addAll(entry.getValue());
-                    // Remove the entry from statuses, it will also be removed in pendingNotifyStatus.
-                    it.remove();
-                }
-
-            }
-
-            /*
-             * Remaining pending statuses are notified by error if it is presented.
-             * When the node is in error state, consider following situations:
-             * 1. If commitIndex > appliedIndex, then all pending statuses should be notified by error status.
-             * 2. When commitIndex == appliedIndex, there will be no more pending statuses.
-             */
-            if (this.error != null) {
-                resetPendingStatusError(this.error.getStatus());
-            }
-        } finally {
-            this.lock.unlock();
-            if (pendingStatuses != null && !pendingStatuses.isEmpty()) {
-                for (final ReadIndexStatus status : pendingStatuses) {
-                    notifySuccess(status);
-                }
-            }
+        // Find all statuses that log index less than or equal to appliedIndex.
+        ReadIndexStatus status = this.pendingNotifyStatus.drain(appliedIndex);
+        /*
+         * Remaining pending statuses are notified by error if it is presented.
+         * When the node is in error state, consider following situations:
+         * 1. If commitIndex > appliedIndex, then all pending statuses should be notified by error status.
+         * 2. When commitIndex == appliedIndex, there will be no more pending statuses.
+         */
+        if (this.error != null) {
+            resetPendingStatusError(this.error.getStatus());
+        }
+        while (status != null) {
+            final ReadIndexStatus next = status.getNext();
+            notifySuccess(status);
+            status = next;
         }
     }
 
@@ -401,7 +396,7 @@ public class ReadOnlyServiceImpl implements ReadOnlyService, LastAppliedLogIndex
     }
 
     @OnlyForTest
-    TreeMap<Long, List<ReadIndexStatus>> getPendingNotifyStatus() {
+    ReadIndexWaiterRing getPendingNotifyStatus() {
         return this.pendingNotifyStatus;
     }
 
@@ -112,6 +112,8 @@ public class Replicator implements ThreadId.OnError {
     private final RaftOptions                raftOptions;
 
     private ScheduledFuture<?>               heartbeatTimer;
+    // Whether the heartbeat timer is parked as the node is hibernating
+    private boolean                          heartbeatParked;
     private volatile SnapshotReader          reader;
     private CatchUpClosure                   catchUpClosure;
     private final Scheduler                  timerManager;
@@ -765,6 +767,10 @@ public class Replicator implements ThreadId.OnError {
             final long monotonicSendTimeMs = Utils.monotonicMs();
 
             if (isHeartbeat) {
+                if (this.options.getNode().isHibernateRequested()) {
+                    // A follower of old version ignores the flag and never acks, the group never hibernates.
+                    rb.setHibernate(true);
+                }
                 final AppendEntriesRequest request = rb.build();
                 // Sending a heartbeat request
                 this.heartbeatCounter++;
@@ -781,8 +787,14 @@ public class Replicator implements ThreadId.OnError {
                         }
                     };
                 }
-                this.heartbeatInFly = this.rpcService.appendEntries(this.options.getPeerId().getEndpoint(), request,
-                    this.options.getElectionTimeoutMs() / 2, heartbeatDone);
+                if (this.inflights.isEmpty()) {
+                    // May be coalesced with other groups, as it can't overtake any append entries request.
+                    this.heartbeatInFly = this.rpcService.heartbeat(this.options.getPeerId().getEndpoint(), request,
+                        this.options.getElectionTimeoutMs() / 2, heartbeatDone);
+                } else {
+                    this.heartbeatInFly = this.rpcService.appendEntries(this.options.getPeerId().getEndpoint(),
+                        request, this.options.getElectionTimeoutMs() / 2, heartbeatDone);
+                }
             } else {
                 // No entries and has empty data means a probe request.
                 // TODO(boyan) refactor, adds a new flag field?
@@ -1616,7 +1628,11 @@ public class Replicator implements ThreadId.OnError {
                 waitMoreEntries(nextSendingIndex);
                 return false;
             }
-            if (byteBufList.getCapacity() > 0) {
+            if (byteBufList.getCapacity() > 0 && this.raftOptions.isEnableScatterGatherAppendEntries()) {
+                // A rope of the entry data slices, each one is written to the wire when the
+                // request is serialized, saves copying all of them into one buffer here.
+                rb.setData(ZeroByteStringHelper.concatenate(byteBufList));
+            } else if (byteBufList.getCapacity() > 0) {
                 dataBuf = ByteBufferCollector.allocateByRecyclers(byteBufList.getCapacity());
                 for (final ByteBuffer b : byteBufList) {
                     dataBuf.put(b);
@@ -1684,6 +1700,29 @@ public class Replicator implements ThreadId.OnError {
         if (r == null) {
             return;
         }
+        if (r.options.getNode().isHibernating()) {
+            // Resumed by resumeHeartbeat when the node wakes up.
+            r.heartbeatParked = true;
+            id.unlock();
+            return;
+        }
+        // unlock in sendEmptyEntries
+        r.sendEmptyEntries(true);
+    }
+
+    /**
+     * Sends a heartbeat and restarts the heartbeat timer if it's parked by hibernation.
+     */
+    static void resumeHeartbeat(final ThreadId id) {
+        final Replicator r = (Replicator) id.lock();
+        if (r == null) {
+            return;
+        }
+        if (!r.heartbeatParked) {
+            id.unlock();
+            return;
+        }
+        r.heartbeatParked = false;
         // unlock in sendEmptyEntries
         r.sendEmptyEntries(true);
     }
@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.jraft.core;
+
+import java.util.function.Function;
+
+import org.apache.commons.lang.StringUtils;
+
+import com.alipay.sofa.jraft.option.LogArchiveOptions;
+import com.alipay.sofa.jraft.option.RaftOptions;
+import com.alipay.sofa.jraft.storage.LogStorage;
+import com.alipay.sofa.jraft.storage.log.SegmentLogStorage;
+import com.alipay.sofa.jraft.util.Requires;
+
+/**
+ * A factory for JRaft services which stores the logs in pure files by {@link SegmentLogStorage}
+ * instead of rocksdb, set it by {@code NodeOptions#setServiceFactory}.
+ *
+ * The cold segments are archived when an archive options factory is given, it's called with
+ * the log storage uri of every node, and the returned archive store must not be shared.
+ *
+ * @author agent (agent@local)
+ */
+public class SegmentLogJRaftServiceFactory extends DefaultJRaftServiceFactory {
+
+    private final Function<String, LogArchiveOptions> archiveOptionsFactory;
+
+    public SegmentLogJRaftServiceFactory() {
+        this(null);
+    }
+
+    public SegmentLogJRaftServiceFactory(final Function<String, LogArchiveOptions> archiveOptionsFactory) {
+        super();
+        this.archiveOptionsFactory = archiveOptionsFactory;
+    }
+
+    @Override
+    public LogStorage createLogStorage(final String uri, final RaftOptions raftOptions) {
+        Requires.requireTrue(StringUtils.isNotBlank(uri), "Blank log storage uri.");
+        if (this.archiveOptionsFactory == null) {
+            return new SegmentLogStorage(uri, raftOptions);
+        }
+        return new SegmentLogStorage(uri, raftOptions, SegmentLogStorage.MAX_SEGMENT_FILE_SIZE, null,
+            this.archiveOptionsFactory.apply(uri));
+    }
+}
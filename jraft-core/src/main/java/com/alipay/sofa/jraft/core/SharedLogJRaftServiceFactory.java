@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.jraft.core;
+
+import org.apache.commons.lang.StringUtils;
+
+import com.alipay.sofa.jraft.option.RaftOptions;
+import com.alipay.sofa.jraft.storage.LogStorage;
+import com.alipay.sofa.jraft.storage.impl.RocksDBSharedLogEngine;
+import com.alipay.sofa.jraft.util.Requires;
+
+/**
+ * A factory for JRaft services which stores the logs of all the raft groups created by it
+ * in one {@link RocksDBSharedLogEngine}, the log uri of each node is used as its group name
+ * in the shared engine. It's useful when one process hosts a lot of raft groups, e.g.
+ * the regions of a RheaKV store, set it by {@code NodeOptions#setServiceFactory}.
+ *
+ * @author agent (agent@local)
+ */
+public class SharedLogJRaftServiceFactory extends DefaultJRaftServiceFactory {
+
+    private final String                    sharedLogPath;
+    private volatile RocksDBSharedLogEngine engine;
+
+    public SharedLogJRaftServiceFactory(final String sharedLogPath) {
+        Requires.requireTrue(StringUtils.isNotBlank(sharedLogPath), "Blank shared log path.");
+        this.sharedLogPath = sharedLogPath;
+    }
+
+    @Override
+    public LogStorage createLogStorage(final String uri, final RaftOptions raftOptions) {
+        Requires.requireTrue(StringUtils.isNotBlank(uri), "Blank log storage uri.");
+        return getEngine(raftOptions).createLogStorage(uri);
+    }
+
+    private RocksDBSharedLogEngine getEngine(final RaftOptions raftOptions) {
+        RocksDBSharedLogEngine engine = this.engine;
+        if (engine == null) {
+            synchronized (this) {
+                engine = this.engine;
+                if (engine == null) {
+                    // The first created node decides the sync options of the shared engine.
+                    engine = new RocksDBSharedLogEngine(this.sharedLogPath, raftOptions);
+                    this.engine = engine;
+                }
+            }
+        }
+        return engine;
+    }
+
+    public String getSharedLogPath() {
+        return this.sharedLogPath;
+    }
+}
@@ -163,6 +163,24 @@ public class LogEntry implements Checksum {
         this.hasChecksum = true;
     }
 
+    /**
+     * Resets all the fields of the log entry so that it can be reused, the data is reset
+     * to {@link #EMPTY_DATA}.
+     * @since 1.3.8
+     */
+    public void reset() {
+        this.type = null;
+        this.id.setIndex(0);
+        this.id.setTerm(0);
+        this.peers = null;
+        this.oldPeers = null;
+        this.learners = null;
+        this.oldLearners = null;
+        this.data = EMPTY_DATA;
+        this.checksum = 0;
+        this.hasChecksum = false;
+    }
+
     public EnumOutter.EntryType getType() {
         return this.type;
     }
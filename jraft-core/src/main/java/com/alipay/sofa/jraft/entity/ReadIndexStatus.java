@@ -30,6 +30,7 @@ public class ReadIndexStatus {
     private final ReadIndexRequest     request; // raw request
     private final List<ReadIndexState> states; // read index requests in batch.
     private final long                 index;  // committed log index.
+    private ReadIndexStatus            next;   // next pending status in the same waiter slot.
 
     public ReadIndexStatus(List<ReadIndexState> states, ReadIndexRequest request, long index) {
         super();
@@ -54,4 +55,12 @@ public class ReadIndexStatus {
         return states;
     }
 
+    public ReadIndexStatus getNext() {
+        return next;
+    }
+
+    public void setNext(ReadIndexStatus next) {
+        this.next = next;
+    }
+
 }
\ No newline at end of file
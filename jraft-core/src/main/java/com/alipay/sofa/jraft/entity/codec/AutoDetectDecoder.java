@@ -16,6 +16,8 @@
  */
 package com.alipay.sofa.jraft.entity.codec;
 
+import java.nio.ByteBuffer;
+
 import com.alipay.sofa.jraft.entity.LogEntry;
 import com.alipay.sofa.jraft.entity.codec.v1.V1Decoder;
 import com.alipay.sofa.jraft.entity.codec.v2.LogEntryV2CodecFactory;
@@ -47,4 +49,17 @@ public class AutoDetectDecoder implements LogEntryDecoder {
         }
     }
 
+    @Override
+    public boolean decode(final ByteBuffer buf, final LogEntry log) {
+        if (!buf.hasRemaining()) {
+            return false;
+        }
+
+        if (buf.get(buf.position()) == LogEntryV2CodecFactory.MAGIC_BYTES[0]) {
+            return V2Decoder.INSTANCE.decode(buf, log);
+        } else {
+            return LogEntryDecoder.super.decode(buf, log);
+        }
+    }
+
 }
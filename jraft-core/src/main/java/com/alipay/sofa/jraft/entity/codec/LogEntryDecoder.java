@@ -16,6 +16,8 @@
  */
 package com.alipay.sofa.jraft.entity.codec;
 
+import java.nio.ByteBuffer;
+
 import com.alipay.sofa.jraft.entity.LogEntry;
 
 /**
@@ -32,4 +34,36 @@ public interface LogEntryDecoder {
      * @return
      */
     LogEntry decode(byte[] bs);
+
+    /**
+     * Decode a log entry from the remaining bytes of the buffer into the given log entry,
+     * the fields of the entry are all overwritten and its data buffer is reused when it
+     * is large enough. The position of the buffer is not changed.
+     * Returns false when fail to decode, the content of the entry is undefined then.
+     * @param buf the buffer to read from
+     * @param log the log entry to decode into
+     * @return whether success to decode
+     * @since 1.3.8
+     */
+    default boolean decode(final ByteBuffer buf, final LogEntry log) {
+        final byte[] bs = new byte[buf.remaining()];
+        buf.duplicate().get(bs);
+        final LogEntry decoded = decode(bs);
+        if (decoded == null) {
+            return false;
+        }
+        log.reset();
+        log.setType(decoded.getType());
+        log.getId().setIndex(decoded.getId().getIndex());
+        log.getId().setTerm(decoded.getId().getTerm());
+        log.setPeers(decoded.getPeers());
+        log.setOldPeers(decoded.getOldPeers());
+        log.setLearners(decoded.getLearners());
+        log.setOldLearners(decoded.getOldLearners());
+        if (decoded.hasChecksum()) {
+            log.setChecksum(decoded.getChecksum());
+        }
+        log.setData(decoded.getData());
+        return true;
+    }
 }
@@ -16,6 +16,8 @@
  */
 package com.alipay.sofa.jraft.entity.codec;
 
+import java.nio.ByteBuffer;
+
 import com.alipay.sofa.jraft.entity.LogEntry;
 
 /**
@@ -32,4 +34,27 @@ public interface LogEntryEncoder {
      * @return encoded byte array
      */
     byte[] encode(LogEntry log);
+
+    /**
+     * Returns the size in bytes of the encoded log entry.
+     * @param log log entry
+     * @return encoded size
+     * @since 1.3.8
+     */
+    default int encodedSize(final LogEntry log) {
+        return encode(log).length;
+    }
+
+    /**
+     * Encode a log entry into the buffer at its current position, the position is
+     * advanced by {@link #encodedSize(LogEntry)}. The buffer may be a heap or a
+     * direct one.
+     * @param log log entry
+     * @param buf the buffer to write into
+     * @throws java.nio.BufferOverflowException if the buffer has not enough room
+     * @since 1.3.8
+     */
+    default void encode(final LogEntry log, final ByteBuffer buf) {
+        buf.put(encode(log));
+    }
 }
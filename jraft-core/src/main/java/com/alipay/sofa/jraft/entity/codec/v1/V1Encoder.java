@@ -122,7 +122,8 @@ public final class V1Encoder implements LogEntryEncoder {
         }
         // data
         if (data != null) {
-            System.arraycopy(data.array(), data.position(), content, pos, data.remaining());
+            // the data may be a read-only or direct buffer, so don't touch its backing array
+            data.duplicate().get(content, pos, bodyLen);
         }
 
         return content;
@@ -24,96 +24,239 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.alipay.sofa.jraft.JRaftUtils;
+import com.alipay.sofa.jraft.entity.EnumOutter.EntryType;
 import com.alipay.sofa.jraft.entity.LogEntry;
 import com.alipay.sofa.jraft.entity.PeerId;
 import com.alipay.sofa.jraft.entity.codec.LogEntryDecoder;
-import com.alipay.sofa.jraft.entity.codec.v2.LogOutter.PBLogEntry;
 import com.alipay.sofa.jraft.util.AsciiStringUtil;
-import com.google.protobuf.ByteString;
-import com.google.protobuf.InvalidProtocolBufferException;
-import com.google.protobuf.ZeroByteStringHelper;
+import com.google.protobuf.WireFormat;
 
 /**
  * V2 log entry decoder based on protobuf, see src/main/resources/log.proto
  *
+ * The PBLogEntry message is parsed field by field straight from the source buffer
+ * into the log entry, without an intermediate PBLogEntry.
+ *
  * @author boyan(boyan@antfin.com)
  */
 public class V2Decoder implements LogEntryDecoder {
 
-    private static final Logger   LOG      = LoggerFactory.getLogger(V2Decoder.class);
+    private static final Logger   LOG           = LoggerFactory.getLogger(V2Decoder.class);
+
+    public static final V2Decoder INSTANCE      = new V2Decoder();
 
-    public static final V2Decoder INSTANCE = new V2Decoder();
+    private static final int      REQUIRED_MASK = (1 << V2Encoder.TYPE_FIELD) | (1 << V2Encoder.TERM_FIELD)
+                                                  | (1 << V2Encoder.INDEX_FIELD) | (1 << V2Encoder.DATA_FIELD);
 
     @Override
     public LogEntry decode(final byte[] bs) {
-        if (bs == null || bs.length < LogEntryV2CodecFactory.HEADER_SIZE) {
+        if (bs == null) {
             return null;
         }
+        final LogEntry log = new LogEntry();
+        return decode(ByteBuffer.wrap(bs), log) ? log : null;
+    }
+
+    @Override
+    public boolean decode(final ByteBuffer buf, final LogEntry log) {
+        if (buf == null || buf.remaining() < LogEntryV2CodecFactory.HEADER_SIZE) {
+            return false;
+        }
 
+        final int start = buf.position();
         int i = 0;
         for (; i < LogEntryV2CodecFactory.MAGIC_BYTES.length; i++) {
-            if (bs[i] != LogEntryV2CodecFactory.MAGIC_BYTES[i]) {
-                return null;
+            if (buf.get(start + i) != LogEntryV2CodecFactory.MAGIC_BYTES[i]) {
+                return false;
             }
         }
 
-        if (bs[i++] != LogEntryV2CodecFactory.VERSION) {
-            return null;
+        if (buf.get(start + i++) != LogEntryV2CodecFactory.VERSION) {
+            return false;
         }
         // Ignored reserved
         i += LogEntryV2CodecFactory.RESERVED.length;
-        try {
-            final PBLogEntry entry = PBLogEntry.parseFrom(ZeroByteStringHelper.wrap(bs, i, bs.length - i));
-
-            final LogEntry log = new LogEntry();
-            log.setType(entry.getType());
-            log.getId().setIndex(entry.getIndex());
-            log.getId().setTerm(entry.getTerm());
 
-            if (entry.hasChecksum()) {
-                log.setChecksum(entry.getChecksum());
+        final ByteBuffer reusableData = log.getData();
+        log.reset();
+        buf.position(start + i);
+        try {
+            if (!decodeBody(buf, log, reusableData)) {
+                LOG.error("Fail to decode pb log entry, missing required fields or invalid entry type.");
+                return false;
             }
-            if (entry.getPeersCount() > 0) {
-                final List<PeerId> peers = new ArrayList<>(entry.getPeersCount());
-                for (final ByteString bstring : entry.getPeersList()) {
-                    peers.add(JRaftUtils.getPeerId(AsciiStringUtil.unsafeDecode(bstring)));
-                }
-                log.setPeers(peers);
+            return true;
+        } catch (final RuntimeException e) {
+            // BufferUnderflowException and IllegalArgumentException for truncated or malformed input.
+            LOG.error("Fail to decode pb log entry", e);
+            return false;
+        } finally {
+            buf.position(start);
+        }
+    }
+
+    private static boolean decodeBody(final ByteBuffer buf, final LogEntry log, final ByteBuffer reusableData) {
+        int present = 0;
+        while (buf.hasRemaining()) {
+            final int tag = readVarint32(buf);
+            final int field = WireFormat.getTagFieldNumber(tag);
+            final int wireType = WireFormat.getTagWireType(tag);
+            switch (field) {
+                case V2Encoder.TYPE_FIELD:
+                    if (wireType != WireFormat.WIRETYPE_VARINT) {
+                        return false;
+                    }
+                    final EntryType type = EntryType.forNumber((int) readVarint64(buf));
+                    if (type == null) {
+                        return false;
+                    }
+                    log.setType(type);
+                    break;
+                case V2Encoder.TERM_FIELD:
+                    if (wireType != WireFormat.WIRETYPE_VARINT) {
+                        return false;
+                    }
+                    log.getId().setTerm(readVarint64(buf));
+                    break;
+                case V2Encoder.INDEX_FIELD:
+                    if (wireType != WireFormat.WIRETYPE_VARINT) {
+                        return false;
+                    }
+                    log.getId().setIndex(readVarint64(buf));
+                    break;
+                case V2Encoder.CHECKSUM_FIELD:
+                    if (wireType != WireFormat.WIRETYPE_VARINT) {
+                        return false;
+                    }
+                    log.setChecksum(readVarint64(buf));
+                    break;
+                case V2Encoder.DATA_FIELD:
+                    if (wireType != WireFormat.WIRETYPE_LENGTH_DELIMITED) {
+                        return false;
+                    }
+                    log.setData(readData(buf, reusableData));
+                    break;
+                case V2Encoder.PEERS_FIELD:
+                case V2Encoder.OLD_PEERS_FIELD:
+                case V2Encoder.LEARNERS_FIELD:
+                case V2Encoder.OLD_LEARNERS_FIELD:
+                    if (wireType != WireFormat.WIRETYPE_LENGTH_DELIMITED) {
+                        return false;
+                    }
+                    addPeer(log, field, readPeer(buf));
+                    break;
+                default:
+                    if (!skipField(buf, wireType)) {
+                        return false;
+                    }
+                    break;
             }
-            if (entry.getOldPeersCount() > 0) {
-                final List<PeerId> peers = new ArrayList<>(entry.getOldPeersCount());
-                for (final ByteString bstring : entry.getOldPeersList()) {
-                    peers.add(JRaftUtils.getPeerId(AsciiStringUtil.unsafeDecode(bstring)));
-                }
-                log.setOldPeers(peers);
+            if (field < Integer.SIZE) {
+                present |= 1 << field;
             }
+        }
+        return (present & REQUIRED_MASK) == REQUIRED_MASK;
+    }
 
-            if (entry.getLearnersCount() > 0) {
-                final List<PeerId> peers = new ArrayList<>(entry.getLearnersCount());
-                for (final ByteString bstring : entry.getLearnersList()) {
-                    peers.add(JRaftUtils.getPeerId(AsciiStringUtil.unsafeDecode(bstring)));
-                }
-                log.setLearners(peers);
-            }
+    private static ByteBuffer readData(final ByteBuffer buf, final ByteBuffer reusableData) {
+        final int len = readLength(buf);
+        if (len == 0 && reusableData == LogEntry.EMPTY_DATA) {
+            return LogEntry.EMPTY_DATA;
+        }
+        final ByteBuffer data;
+        if (reusableData != null && reusableData != LogEntry.EMPTY_DATA && !reusableData.isReadOnly()
+            && reusableData.capacity() >= len) {
+            data = reusableData;
+            data.clear();
+        } else {
+            data = ByteBuffer.allocate(len);
+        }
+        final int limit = buf.limit();
+        buf.limit(buf.position() + len);
+        try {
+            data.put(buf);
+        } finally {
+            buf.limit(limit);
+        }
+        data.flip();
+        return data;
+    }
 
-            if (entry.getOldLearnersCount() > 0) {
-                final List<PeerId> peers = new ArrayList<>(entry.getOldLearnersCount());
-                for (final ByteString bstring : entry.getOldLearnersList()) {
-                    peers.add(JRaftUtils.getPeerId(AsciiStringUtil.unsafeDecode(bstring)));
+    private static PeerId readPeer(final ByteBuffer buf) {
+        final byte[] bs = new byte[readLength(buf)];
+        buf.get(bs);
+        return JRaftUtils.getPeerId(AsciiStringUtil.unsafeDecode(bs));
+    }
+
+    private static void addPeer(final LogEntry log, final int field, final PeerId peer) {
+        List<PeerId> peers;
+        switch (field) {
+            case V2Encoder.PEERS_FIELD:
+                if ((peers = log.getPeers()) == null) {
+                    log.setPeers(peers = new ArrayList<>());
                 }
-                log.setOldLearners(peers);
-            }
+                break;
+            case V2Encoder.OLD_PEERS_FIELD:
+                if ((peers = log.getOldPeers()) == null) {
+                    log.setOldPeers(peers = new ArrayList<>());
+                }
+                break;
+            case V2Encoder.LEARNERS_FIELD:
+                if ((peers = log.getLearners()) == null) {
+                    log.setLearners(peers = new ArrayList<>());
+                }
+                break;
+            default:
+                if ((peers = log.getOldLearners()) == null) {
+                    log.setOldLearners(peers = new ArrayList<>());
+                }
+                break;
+        }
+        peers.add(peer);
+    }
 
-            final ByteString data = entry.getData();
-            if (!data.isEmpty()) {
-                log.setData(ByteBuffer.wrap(ZeroByteStringHelper.getByteArray(data)));
-            }
+    private static boolean skipField(final ByteBuffer buf, final int wireType) {
+        switch (wireType) {
+            case WireFormat.WIRETYPE_VARINT:
+                readVarint64(buf);
+                return true;
+            case WireFormat.WIRETYPE_FIXED64:
+                buf.position(buf.position() + 8);
+                return true;
+            case WireFormat.WIRETYPE_LENGTH_DELIMITED:
+                final int len = readLength(buf);
+                buf.position(buf.position() + len);
+                return true;
+            case WireFormat.WIRETYPE_FIXED32:
+                buf.position(buf.position() + 4);
+                return true;
+            default:
+                return false;
+        }
+    }
 
-            return log;
-        } catch (final InvalidProtocolBufferException e) {
-            LOG.error("Fail to decode pb log entry", e);
-            return null;
+    private static int readLength(final ByteBuffer buf) {
+        final int len = readVarint32(buf);
+        if (len < 0 || len > buf.remaining()) {
+            throw new IllegalArgumentException("Invalid length: " + len);
+        }
+        return len;
+    }
+
+    private static int readVarint32(final ByteBuffer buf) {
+        return (int) readVarint64(buf);
+    }
+
+    private static long readVarint64(final ByteBuffer buf) {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            final byte b = buf.get();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
         }
+        throw new IllegalArgumentException("Malformed varint.");
     }
 
     private V2Decoder() {
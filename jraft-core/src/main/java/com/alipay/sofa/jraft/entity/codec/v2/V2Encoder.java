@@ -16,7 +16,7 @@
  */
 package com.alipay.sofa.jraft.entity.codec.v2;
 
-import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Collection;
 import java.util.List;
 
@@ -24,120 +24,170 @@ import com.alipay.sofa.jraft.entity.LogEntry;
 import com.alipay.sofa.jraft.entity.LogId;
 import com.alipay.sofa.jraft.entity.PeerId;
 import com.alipay.sofa.jraft.entity.codec.LogEntryEncoder;
-import com.alipay.sofa.jraft.entity.codec.v2.LogOutter.PBLogEntry;
 import com.alipay.sofa.jraft.error.LogEntryCorruptedException;
-import com.alipay.sofa.jraft.util.AsciiStringUtil;
 import com.alipay.sofa.jraft.util.Requires;
-import com.google.protobuf.ByteString;
 import com.google.protobuf.CodedOutputStream;
-import com.google.protobuf.ZeroByteStringHelper;
+import com.google.protobuf.WireFormat;
 
 /**
  * V2 log entry encoder based on protobuf, see src/main/resources/log.proto
  *
+ * The PBLogEntry message is written field by field straight into the target buffer
+ * in the same wire format (and the same field order) protobuf generates, so neither
+ * an intermediate PBLogEntry nor a temporary byte array is created.
+ *
  * @author boyan(boyan@antfin.com)
  */
 public class V2Encoder implements LogEntryEncoder {
 
-    public static final V2Encoder INSTANCE = new V2Encoder();
+    public static final V2Encoder INSTANCE           = new V2Encoder();
+
+    static final int              TYPE_FIELD         = 1;
+    static final int              TERM_FIELD         = 2;
+    static final int              INDEX_FIELD        = 3;
+    static final int              PEERS_FIELD        = 4;
+    static final int              OLD_PEERS_FIELD    = 5;
+    static final int              DATA_FIELD         = 6;
+    static final int              CHECKSUM_FIELD     = 7;
+    static final int              LEARNERS_FIELD     = 8;
+    static final int              OLD_LEARNERS_FIELD = 9;
 
     private static boolean hasPeers(final Collection<PeerId> peers) {
         return peers != null && !peers.isEmpty();
     }
 
-    private void encodePeers(final PBLogEntry.Builder builder, final List<PeerId> peers) {
-        final int size = peers.size();
-        for (int i = 0; i < size; i++) {
-            builder.addPeers(ZeroByteStringHelper.wrap(AsciiStringUtil.unsafeEncode(peers.get(i).toString())));
-        }
+    static int tag(final int field, final int wireType) {
+        // same as WireFormat.makeTag, which is not public
+        return (field << 3) | wireType;
     }
 
-    private void encodeOldPeers(final PBLogEntry.Builder builder, final List<PeerId> peers) {
-        final int size = peers.size();
-        for (int i = 0; i < size; i++) {
-            builder.addOldPeers(ZeroByteStringHelper.wrap(AsciiStringUtil.unsafeEncode(peers.get(i).toString())));
+    private static int peersSize(final int field, final List<PeerId> peers) {
+        if (!hasPeers(peers)) {
+            return 0;
         }
+        int size = 0;
+        final int tagSize = CodedOutputStream.computeTagSize(field);
+        for (int i = 0; i < peers.size(); i++) {
+            final int len = peers.get(i).toString().length();
+            size += tagSize + CodedOutputStream.computeUInt32SizeNoTag(len) + len;
+        }
+        return size;
     }
 
-    private void encodeLearners(final PBLogEntry.Builder builder, final List<PeerId> learners) {
-        final int size = learners.size();
-        for (int i = 0; i < size; i++) {
-            builder.addLearners(ZeroByteStringHelper.wrap(AsciiStringUtil.unsafeEncode(learners.get(i).toString())));
+    private static int bodySize(final LogEntry log) {
+        final LogId logId = log.getId();
+        final ByteBuffer data = log.getData();
+        final int dataLen = data != null ? data.remaining() : 0;
+        int size = CodedOutputStream.computeEnumSize(TYPE_FIELD, log.getType().getNumber())
+                   + CodedOutputStream.computeInt64Size(TERM_FIELD, logId.getTerm())
+                   + CodedOutputStream.computeInt64Size(INDEX_FIELD, logId.getIndex())
+                   + peersSize(PEERS_FIELD, log.getPeers()) //
+                   + peersSize(OLD_PEERS_FIELD, log.getOldPeers()) //
+                   + CodedOutputStream.computeTagSize(DATA_FIELD)
+                   + CodedOutputStream.computeUInt32SizeNoTag(dataLen) + dataLen
+                   + peersSize(LEARNERS_FIELD, log.getLearners()) //
+                   + peersSize(OLD_LEARNERS_FIELD, log.getOldLearners());
+        if (log.hasChecksum()) {
+            size += CodedOutputStream.computeInt64Size(CHECKSUM_FIELD, log.getChecksum());
         }
+        return size;
     }
 
-    private void encodeOldLearners(final PBLogEntry.Builder builder, final List<PeerId> learners) {
-        final int size = learners.size();
-        for (int i = 0; i < size; i++) {
-            builder.addOldLearners(ZeroByteStringHelper.wrap(AsciiStringUtil.unsafeEncode(learners.get(i).toString())));
+    private static void writeVarint32(final ByteBuffer buf, int value) {
+        while ((value & ~0x7F) != 0) {
+            buf.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
         }
+        buf.put((byte) value);
     }
 
-    @Override
-    public byte[] encode(final LogEntry log) {
-        Requires.requireNonNull(log, "Null log");
-
-        final LogId logId = log.getId();
-        final PBLogEntry.Builder builder = PBLogEntry.newBuilder() //
-            .setType(log.getType()) //
-            .setIndex(logId.getIndex()) //
-            .setTerm(logId.getTerm());
-
-        final List<PeerId> peers = log.getPeers();
-        if (hasPeers(peers)) {
-            encodePeers(builder, peers);
+    private static void writeVarint64(final ByteBuffer buf, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buf.put((byte) (((int) value & 0x7F) | 0x80));
+            value >>>= 7;
         }
+        buf.put((byte) value);
+    }
 
-        final List<PeerId> oldPeers = log.getOldPeers();
-        if (hasPeers(oldPeers)) {
-            encodeOldPeers(builder, oldPeers);
-        }
+    private static void writeInt64(final ByteBuffer buf, final int field, final long value) {
+        writeVarint32(buf, tag(field, WireFormat.WIRETYPE_VARINT));
+        writeVarint64(buf, value);
+    }
 
-        final List<PeerId> learners = log.getLearners();
-        if (hasPeers(learners)) {
-            encodeLearners(builder, learners);
+    private static void writePeers(final ByteBuffer buf, final int field, final List<PeerId> peers) {
+        if (!hasPeers(peers)) {
+            return;
         }
-        final List<PeerId> oldLearners = log.getOldLearners();
-        if (hasPeers(oldLearners)) {
-            encodeOldLearners(builder, oldLearners);
+        for (int i = 0; i < peers.size(); i++) {
+            // Same as AsciiStringUtil.unsafeEncode, without the temporary array.
+            final String peer = peers.get(i).toString();
+            final int len = peer.length();
+            writeVarint32(buf, tag(field, WireFormat.WIRETYPE_LENGTH_DELIMITED));
+            writeVarint32(buf, len);
+            for (int j = 0; j < len; j++) {
+                buf.put((byte) peer.charAt(j));
+            }
         }
+    }
 
-        if (log.hasChecksum()) {
-            builder.setChecksum(log.getChecksum());
-        }
-
-        builder.setData(log.getData() != null ? ZeroByteStringHelper.wrap(log.getData()) : ByteString.EMPTY);
-
-        final PBLogEntry pbLogEntry = builder.build();
-        final int bodyLen = pbLogEntry.getSerializedSize();
-        final byte[] ret = new byte[LogEntryV2CodecFactory.HEADER_SIZE + bodyLen];
-
-        // write header
-        int i = 0;
-        for (; i < LogEntryV2CodecFactory.MAGIC_BYTES.length; i++) {
-            ret[i] = LogEntryV2CodecFactory.MAGIC_BYTES[i];
+    private static void writeData(final ByteBuffer buf, final ByteBuffer data) {
+        final int dataLen = data != null ? data.remaining() : 0;
+        writeVarint32(buf, tag(DATA_FIELD, WireFormat.WIRETYPE_LENGTH_DELIMITED));
+        writeVarint32(buf, dataLen);
+        if (dataLen == 0) {
+            return;
         }
-        ret[i++] = LogEntryV2CodecFactory.VERSION;
-        // avoid memory copy for only 3 bytes
-        for (; i < LogEntryV2CodecFactory.HEADER_SIZE; i++) {
-            ret[i] = LogEntryV2CodecFactory.RESERVED[i - LogEntryV2CodecFactory.MAGIC_BYTES.length - 1];
+        // Never touch the position of the log data, it may be read concurrently.
+        if (data.hasArray()) {
+            buf.put(data.array(), data.arrayOffset() + data.position(), dataLen);
+        } else {
+            buf.put(data.duplicate());
         }
+    }
 
-        // write body
-        writeToByteArray(pbLogEntry, ret, i, bodyLen);
+    @Override
+    public int encodedSize(final LogEntry log) {
+        Requires.requireNonNull(log, "Null log");
+        return LogEntryV2CodecFactory.HEADER_SIZE + bodySize(log);
+    }
 
+    @Override
+    public byte[] encode(final LogEntry log) {
+        final byte[] ret = new byte[encodedSize(log)];
+        final ByteBuffer buf = ByteBuffer.wrap(ret);
+        encode(log, buf);
+        if (buf.hasRemaining()) {
+            throw new LogEntryCorruptedException("Encoded log entry size mismatch, expect " + ret.length
+                                                 + ", but was " + buf.position());
+        }
         return ret;
     }
 
-    private void writeToByteArray(final PBLogEntry pbLogEntry, final byte[] array, final int offset, final int len) {
-        final CodedOutputStream output = CodedOutputStream.newInstance(array, offset, len);
-        try {
-            pbLogEntry.writeTo(output);
-            output.checkNoSpaceLeft();
-        } catch (final IOException e) {
-            throw new LogEntryCorruptedException(
-                "Serializing PBLogEntry to a byte array threw an IOException (should never happen).", e);
+    @Override
+    public void encode(final LogEntry log, final ByteBuffer buf) {
+        Requires.requireNonNull(log, "Null log");
+        Requires.requireNonNull(buf, "Null buf");
+
+        // write header
+        buf.put(LogEntryV2CodecFactory.MAGIC_BYTES);
+        buf.put(LogEntryV2CodecFactory.VERSION);
+        buf.put(LogEntryV2CodecFactory.RESERVED);
+
+        // write body, in field number order as protobuf does
+        final LogId logId = log.getId();
+        writeVarint32(buf, tag(TYPE_FIELD, WireFormat.WIRETYPE_VARINT));
+        // enum values are written as int32, the negative ones are sign-extended
+        writeVarint64(buf, log.getType().getNumber());
+        writeInt64(buf, TERM_FIELD, logId.getTerm());
+        writeInt64(buf, INDEX_FIELD, logId.getIndex());
+        writePeers(buf, PEERS_FIELD, log.getPeers());
+        writePeers(buf, OLD_PEERS_FIELD, log.getOldPeers());
+        writeData(buf, log.getData());
+        if (log.hasChecksum()) {
+            writeInt64(buf, CHECKSUM_FIELD, log.getChecksum());
         }
+        writePeers(buf, LEARNERS_FIELD, log.getLearners());
+        writePeers(buf, OLD_LEARNERS_FIELD, log.getOldLearners());
     }
 
     private V2Encoder() {
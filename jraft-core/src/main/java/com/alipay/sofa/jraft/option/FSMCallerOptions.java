@@ -40,7 +40,43 @@ public class FSMCallerOptions {
     /**
      * disruptor buffer size.
      */
-    private int          disruptorBufferSize = 1024;
+    private int          disruptorBufferSize  = 1024;
+    /**
+     * The number of parallel apply lanes.
+     */
+    private int          applyLanes           = 1;
+    /**
+     * Whether to apply the committed tasks by StateMachine#onApplyBatch.
+     */
+    private boolean      enableBatchApply;
+    /**
+     * The max number of tasks in an apply batch.
+     */
+    private int          maxApplyBatchEntries = 1024;
+
+    public boolean isEnableBatchApply() {
+        return this.enableBatchApply;
+    }
+
+    public void setEnableBatchApply(boolean enableBatchApply) {
+        this.enableBatchApply = enableBatchApply;
+    }
+
+    public int getMaxApplyBatchEntries() {
+        return this.maxApplyBatchEntries;
+    }
+
+    public void setMaxApplyBatchEntries(int maxApplyBatchEntries) {
+        this.maxApplyBatchEntries = maxApplyBatchEntries;
+    }
+
+    public int getApplyLanes() {
+        return this.applyLanes;
+    }
+
+    public void setApplyLanes(int applyLanes) {
+        this.applyLanes = applyLanes;
+    }
 
     public int getDisruptorBufferSize() {
         return this.disruptorBufferSize;
@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.jraft.option;
+
+import com.alipay.sofa.jraft.storage.io.DeflateFileChunkCodec;
+import com.alipay.sofa.jraft.storage.log.LogArchiveStore;
+
+/**
+ * Options of archiving the cold log segments of
+ * {@link com.alipay.sofa.jraft.storage.log.SegmentLogStorage} into a {@link LogArchiveStore}.
+ *
+ * @author agent (agent@local)
+ */
+public class LogArchiveOptions {
+
+    // The store of the archived segments, it must not be shared by log storages.
+    private LogArchiveStore archiveStore;
+    // The count of the latest segments which are kept in the log storage, at least 1.
+    private int             hotSegments        = 2;
+    // The max count of the cold segments waiting for the background archiving, beyond it the
+    // appender archives them itself, so the count of the mapped segments is bounded.
+    private int             maxPendingSegments = 8;
+    // The name of the FileChunkCodec to compress the blocks, they are not compressed when it's blank.
+    private String          codecName          = DeflateFileChunkCodec.NAME;
+    // The max uncompressed bytes of a block, a log is read by fetching and decompressing its block.
+    private int             blockBytes         = 64 * 1024;
+
+    public LogArchiveStore getArchiveStore() {
+        return this.archiveStore;
+    }
+
+    public void setArchiveStore(final LogArchiveStore archiveStore) {
+        this.archiveStore = archiveStore;
+    }
+
+    public int getHotSegments() {
+        return this.hotSegments;
+    }
+
+    public void setHotSegments(final int hotSegments) {
+        this.hotSegments = hotSegments;
+    }
+
+    public int getMaxPendingSegments() {
+        return this.maxPendingSegments;
+    }
+
+    public void setMaxPendingSegments(final int maxPendingSegments) {
+        this.maxPendingSegments = maxPendingSegments;
+    }
+
+    public String getCodecName() {
+        return this.codecName;
+    }
+
+    public void setCodecName(final String codecName) {
+        this.codecName = codecName;
+    }
+
+    public int getBlockBytes() {
+        return this.blockBytes;
+    }
+
+    public void setBlockBytes(final int blockBytes) {
+        this.blockBytes = blockBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "LogArchiveOptions{" + "archiveStore=" + this.archiveStore + ", hotSegments=" + this.hotSegments
+               + ", maxPendingSegments=" + this.maxPendingSegments + ", codecName='" + this.codecName + '\''
+               + ", blockBytes=" + this.blockBytes + '}';
+    }
+}
@@ -35,37 +35,37 @@ import com.alipay.sofa.jraft.util.Utils;
  */
 public class NodeOptions extends RpcOptions implements Copiable<NodeOptions> {
 
-    public static final JRaftServiceFactory defaultServiceFactory  = JRaftServiceLoader.load(JRaftServiceFactory.class) //
-                                                                       .first();
+    public static final JRaftServiceFactory defaultServiceFactory      = JRaftServiceLoader.load(JRaftServiceFactory.class) //
+                                                                           .first();
 
     // A follower would become a candidate if it doesn't receive any message
     // from the leader in |election_timeout_ms| milliseconds
     // Default: 1000 (1s)
-    private int                             electionTimeoutMs      = 1000;                                         // follower to candidate timeout
+    private int                             electionTimeoutMs          = 1000;                                         // follower to candidate timeout
 
     // One node's local priority value would be set to | electionPriority |
     // value when it starts up.If this value is set to 0,the node will never be a leader.
     // If this node doesn't support priority election,then set this value to -1.
     // Default: -1
-    private int                             electionPriority       = ElectionPriority.Disabled;
+    private int                             electionPriority           = ElectionPriority.Disabled;
 
     // If next leader is not elected until next election timeout, it exponentially
     // decay its local target priority, for example target_priority = target_priority - gap
     // Default: 10
-    private int                             decayPriorityGap       = 10;
+    private int                             decayPriorityGap           = 10;
 
     // Leader lease time's ratio of electionTimeoutMs,
     // To minimize the effects of clock drift, we should make that:
     // clockDrift + leaderLeaseTimeoutMs < electionTimeout
     // Default: 90, Max: 100
-    private int                             leaderLeaseTimeRatio   = 90;
+    private int                             leaderLeaseTimeRatio       = 90;
 
     // A snapshot saving would be triggered every |snapshot_interval_s| seconds
     // if this was reset as a positive number
     // If |snapshot_interval_s| <= 0, the time based snapshot would be disabled.
     //
     // Default: 3600 (1 hour)
-    private int                             snapshotIntervalSecs   = 3600;
+    private int                             snapshotIntervalSecs       = 3600;
 
     // A snapshot saving would be triggered every |snapshot_interval_s| seconds,
     // and at this moment when state machine's lastAppliedIndex value
@@ -74,14 +74,32 @@ public class NodeOptions extends RpcOptions implements Copiable<NodeOptions> {
     // If |snapshotLogIndexMargin| <= 0, the distance based snapshot would be disable.
     //
     // Default: 0
-    private int                             snapshotLogIndexMargin = 0;
+    private int                             snapshotLogIndexMargin     = 0;
 
     // We will regard a adding peer as caught up if the margin between the
     // last_log_index of this peer and the last_log_index of leader is less than
     // |catchup_margin|
     //
     // Default: 1000
-    private int                             catchupMargin          = 1000;
+    private int                             catchupMargin              = 1000;
+
+    // A leader hibernates the group if there is no write, read index request or
+    // configuration change for |hibernate_timeout_ms| and all the followers have
+    // caught up, the heartbeats, step-down and snapshot timers of the group are
+    // parked until it's woken up by any of them.
+    // If |hibernate_timeout_ms| <= 0, the group never hibernates. All the peers
+    // must be of versions supporting hibernation, or the group never hibernates.
+    //
+    // Default: 0
+    private int                             hibernateTimeoutMs         = 0;
+
+    // A hibernating follower starts an election if it hears nothing from the
+    // leader in |hibernate_election_timeout_ms|, it's how a crashed leader of a
+    // hibernating group is detected. It must be at least |election_timeout_ms|
+    // when the group hibernates, or the node fails to init.
+    //
+    // Default: 60000 (1 minute)
+    private int                             hibernateElectionTimeoutMs = 60000;
 
     // If node is starting from a empty environment (both LogStorage and
     // SnapshotStorage are empty), it would use |initial_conf| as the
@@ -89,7 +107,7 @@ public class NodeOptions extends RpcOptions implements Copiable<NodeOptions> {
     // the existing environment.
     //
     // Default: A empty group
-    private Configuration                   initialConf            = new Configuration();
+    private Configuration                   initialConf                = new Configuration();
 
     // The specific StateMachine implemented your business logic, which must be
     // a valid instance.
@@ -108,7 +126,7 @@ public class NodeOptions extends RpcOptions implements Copiable<NodeOptions> {
     // to avoid useless transmission. Two files in local and remote are duplicate,
     // only if they has the same filename and the same checksum (stored in file meta).
     // Default: false
-    private boolean                         filterBeforeCopyRemote = false;
+    private boolean                         filterBeforeCopyRemote     = false;
 
     // If non-null, we will pass this throughput_snapshot_throttle to SnapshotExecutor
     // Default: NULL
@@ -116,29 +134,29 @@ public class NodeOptions extends RpcOptions implements Copiable<NodeOptions> {
 
     // If true, RPCs through raft_cli will be denied.
     // Default: false
-    private boolean                         disableCli             = false;
+    private boolean                         disableCli                 = false;
 
     /**
      * Whether use global timer pool, if true, the {@code timerPoolSize} will be invalid.
      */
-    private boolean                         sharedTimerPool        = false;
+    private boolean                         sharedTimerPool            = false;
     /**
      * Timer manager thread pool size
      */
-    private int                             timerPoolSize          = Utils.cpus() * 3 > 20 ? 20 : Utils.cpus() * 3;
+    private int                             timerPoolSize              = Utils.cpus() * 3 > 20 ? 20 : Utils.cpus() * 3;
 
     /**
      * CLI service request RPC executor pool size, use default executor if -1.
      */
-    private int                             cliRpcThreadPoolSize   = Utils.cpus();
+    private int                             cliRpcThreadPoolSize       = Utils.cpus();
     /**
      * RAFT request RPC executor pool size, use default executor if -1.
      */
-    private int                             raftRpcThreadPoolSize  = Utils.cpus() * 6;
+    private int                             raftRpcThreadPoolSize      = Utils.cpus() * 6;
     /**
      * Whether to enable metrics for node.
      */
-    private boolean                         enableMetrics          = false;
+    private boolean                         enableMetrics              = false;
 
     /**
      *  If non-null, we will pass this SnapshotThrottle to SnapshotExecutor
@@ -149,24 +167,24 @@ public class NodeOptions extends RpcOptions implements Copiable<NodeOptions> {
     /**
      * Whether use global election timer
      */
-    private boolean                         sharedElectionTimer    = false;
+    private boolean                         sharedElectionTimer        = false;
     /**
      * Whether use global vote timer
      */
-    private boolean                         sharedVoteTimer        = false;
+    private boolean                         sharedVoteTimer            = false;
     /**
      * Whether use global step down timer
      */
-    private boolean                         sharedStepDownTimer    = false;
+    private boolean                         sharedStepDownTimer        = false;
     /**
      * Whether use global snapshot timer
      */
-    private boolean                         sharedSnapshotTimer    = false;
+    private boolean                         sharedSnapshotTimer        = false;
 
     /**
      * Custom service factory.
      */
-    private JRaftServiceFactory             serviceFactory         = defaultServiceFactory;
+    private JRaftServiceFactory             serviceFactory             = defaultServiceFactory;
 
     public JRaftServiceFactory getServiceFactory() {
         return this.serviceFactory;
@@ -297,6 +315,22 @@ public class NodeOptions extends RpcOptions implements Copiable<NodeOptions> {
         this.snapshotIntervalSecs = snapshotIntervalSecs;
     }
 
+    public int getHibernateTimeoutMs() {
+        return this.hibernateTimeoutMs;
+    }
+
+    public void setHibernateTimeoutMs(final int hibernateTimeoutMs) {
+        this.hibernateTimeoutMs = hibernateTimeoutMs;
+    }
+
+    public int getHibernateElectionTimeoutMs() {
+        return this.hibernateElectionTimeoutMs;
+    }
+
+    public void setHibernateElectionTimeoutMs(final int hibernateElectionTimeoutMs) {
+        this.hibernateElectionTimeoutMs = hibernateElectionTimeoutMs;
+    }
+
     public int getSnapshotLogIndexMargin() {
         return snapshotLogIndexMargin;
     }
@@ -410,6 +444,8 @@ public class NodeOptions extends RpcOptions implements Copiable<NodeOptions> {
         nodeOptions.setSnapshotIntervalSecs(this.snapshotIntervalSecs);
         nodeOptions.setSnapshotLogIndexMargin(this.snapshotLogIndexMargin);
         nodeOptions.setCatchupMargin(this.catchupMargin);
+        nodeOptions.setHibernateTimeoutMs(this.hibernateTimeoutMs);
+        nodeOptions.setHibernateElectionTimeoutMs(this.hibernateElectionTimeoutMs);
         nodeOptions.setFilterBeforeCopyRemote(this.filterBeforeCopyRemote);
         nodeOptions.setDisableCli(this.disableCli);
         nodeOptions.setSharedTimerPool(this.sharedTimerPool);
@@ -430,7 +466,8 @@ public class NodeOptions extends RpcOptions implements Copiable<NodeOptions> {
         return "NodeOptions{" + "electionTimeoutMs=" + electionTimeoutMs + ", electionPriority=" + electionPriority
                + ", decayPriorityGap=" + decayPriorityGap + ", leaderLeaseTimeRatio=" + leaderLeaseTimeRatio
                + ", snapshotIntervalSecs=" + snapshotIntervalSecs + ", snapshotLogIndexMargin="
-               + snapshotLogIndexMargin + ", catchupMargin=" + catchupMargin + ", initialConf=" + initialConf
+               + snapshotLogIndexMargin + ", catchupMargin=" + catchupMargin + ", hibernateTimeoutMs=" + hibernateTimeoutMs
+               + ", hibernateElectionTimeoutMs=" + hibernateElectionTimeoutMs + ", initialConf=" + initialConf
                + ", fsm=" + fsm + ", logUri='" + logUri + '\'' + ", raftMetaUri='" + raftMetaUri + '\''
                + ", snapshotUri='" + snapshotUri + '\'' + ", filterBeforeCopyRemote=" + filterBeforeCopyRemote
                + ", disableCli=" + disableCli + ", sharedTimerPool=" + sharedTimerPool + ", timerPoolSize="
@@ -38,6 +38,31 @@ public class RaftOptions implements Copiable<RaftOptions> {
     private int            maxBodySize                          = 512 * 1024;
     /** Flush buffer to LogStorage if the buffer size reaches the limit */
     private int            maxAppendBufferSize                  = 256 * 1024;
+    /**
+     * The maximum time in microseconds the log manager waits for more appends to join
+     * the same write and fsync(group commit) when the disk queue is drained, the real
+     * window adapts to the observed fsync latency and never exceeds this value.
+     * Only takes effect when {@link #sync} is true, default is 0(disabled).
+     * @since 1.3.8
+     */
+    private int            groupCommitMaxDelayUs                = 0;
+    /** Flush a group commit to LogStorage if its size reaches the limit */
+    private int            groupCommitMaxBytes                  = 1024 * 1024;
+    /**
+     * The max number of log batches submitted to LogStorage#appendEntriesAsync but not durable yet,
+     * the log manager writes the next batch while the previous one is being synced. 1 means appending
+     * batches one by one. Default is 2.
+     * @since 1.3.8
+     */
+    private int            maxInflightLogAppends                = 2;
+    /**
+     * The max memory in bytes of the decoded log entries cache shared by all the replicators of a
+     * leader, the entries that are not in memory any more are read from log storage in batch and
+     * cached, so that the lagging followers don't read the same entries from disk one by one.
+     * Default is 0(disabled).
+     * @since 1.3.8
+     */
+    private long           logEntryCacheBytes                   = 0;
     /** Maximum election delay time allowed by user */
     private int            maxElectionDelayMs                   = 1000;
     /** Raft election:heartbeat timeout factor */
@@ -54,6 +79,56 @@ public class RaftOptions implements Copiable<RaftOptions> {
     private boolean        replicatorPipeline                   = true;
     /** The maximum replicator pipeline in-flight requests/responses, only valid when enable replicator pipeline. */
     private int            maxReplicatorInflightMsgs            = 256;
+    /**
+     * Whether followers coalesce the consecutive pipelined AppendEntries requests that are queued
+     * from the same leader into one request, so they are handled by one log append and their
+     * responses are still sent in order, only valid when enable replicator pipeline.
+     * Default is false(disabled).
+     * @since 1.3.8
+     */
+    private boolean        enableAppendEntriesCoalescing        = false;
+    /**
+     * The number of lanes to apply the committed tasks in parallel, only valid when the
+     * state machine is a {@link com.alipay.sofa.jraft.PartitionedStateMachine}.
+     * Default is 1(disabled).
+     * @since 1.3.8
+     */
+    private int            applyLanes                           = 1;
+    /**
+     * Whether to apply the committed tasks by {@link com.alipay.sofa.jraft.StateMachine#onApplyBatch},
+     * the committed entries are fetched by batched reads and handed over at most
+     * maxEntriesSize at a time.
+     * Default is false(disabled).
+     * @since 1.3.8
+     */
+    private boolean        enableBatchApply                     = false;
+    /**
+     * The max number of concurrent GetFile requests when installing a snapshot, the files are
+     * copied at once and a large file is copied as several concurrent byte ranges.
+     * Default is 1(copy the files one by one).
+     * @since 1.3.8
+     */
+    private int            snapshotCopyConcurrency              = 1;
+    /**
+     * The max bytes of in-flight GetFile requests when installing a snapshot in parallel, it
+     * bounds snapshotCopyConcurrency * maxByteCountPerRpc. Default is 8MB.
+     * @since 1.3.8
+     */
+    private long           maxSnapshotCopyInflightBytes         = 8 * 1024 * 1024;
+    /**
+     * Whether to copy only the changed blocks of a snapshot file when the file in last snapshot
+     * has the same name but a different checksum, it takes effect with
+     * {@link NodeOptions#isFilterBeforeCopyRemote()}. Default is false.
+     * @since 1.3.8
+     */
+    private boolean        enableSnapshotDeltaCopy              = false;
+    /**
+     * The name of the {@link com.alipay.sofa.jraft.storage.io.FileChunkCodec} to compress the
+     * file chunks when copying snapshots from the leader, e.g. "deflate". The chunks are not
+     * compressed if it's blank or the leader doesn't have the codec. Default is null.
+     * @since 1.3.8
+     */
+    private String         snapshotCopyCodec;
     /** Internal disruptor buffers size for Node/FSMCaller/LogManager etc. */
     private int            disruptorBufferSize                  = 16384;
     /**
@@ -86,6 +161,36 @@ public class RaftOptions implements Copiable<RaftOptions> {
      * @since 1.3.0
      */
     private boolean        stepDownWhenVoteTimedout             = true;
+    /**
+     * When true, followers keep the data of the received log entries as read-only
+     * slices of the AppendEntriesRequest payload instead of copying every entry
+     * into a new byte array, default is false(disabled).
+     * Note that the {@link java.nio.ByteBuffer} returned by {@link com.alipay.sofa.jraft.Iterator#getData()}
+     * is read-only in this mode, the state machine must not call {@code array()} on it.
+     * @since 1.3.8
+     */
+    private boolean        enableZeroCopyAppendEntries          = false;
+    /**
+     * When true, the default service factory saves term and votedFor by appending records to a
+     * journal instead of rewriting the whole meta file on every change, default is false(disabled).
+     * @since 1.3.8
+     */
+    private boolean        enableMetaJournal                    = false;
+    /**
+     * When true, the heartbeats of idle replicators of all the groups in the process to the same
+     * endpoint are sent in one request per tick, default is false(disabled). The peers of old
+     * versions are detected and sent the heartbeats one by one.
+     * @since 1.3.8
+     */
+    private boolean        enableHeartbeatCoalescing            = false;
+    /**
+     * When true, the leader sends the data of the log entries in an AppendEntriesRequest as
+     * a list of the original entry buffers instead of copying them into one buffer first,
+     * the buffers are written one by one when the RPC layer serializes the request.
+     * The data of the applied tasks must not be modified in this mode, default is false(disabled).
+     * @since 1.3.8
+     */
+    private boolean        enableScatterGatherAppendEntries     = false;
 
     public boolean isStepDownWhenVoteTimedout() {
         return this.stepDownWhenVoteTimedout;
@@ -95,6 +200,38 @@ public class RaftOptions implements Copiable<RaftOptions> {
         this.stepDownWhenVoteTimedout = stepDownWhenVoteTimeout;
     }
 
+    public boolean isEnableZeroCopyAppendEntries() {
+        return this.enableZeroCopyAppendEntries;
+    }
+
+    public void setEnableZeroCopyAppendEntries(final boolean enableZeroCopyAppendEntries) {
+        this.enableZeroCopyAppendEntries = enableZeroCopyAppendEntries;
+    }
+
+    public boolean isEnableMetaJournal() {
+        return this.enableMetaJournal;
+    }
+
+    public void setEnableMetaJournal(final boolean enableMetaJournal) {
+        this.enableMetaJournal = enableMetaJournal;
+    }
+
+    public boolean isEnableHeartbeatCoalescing() {
+        return this.enableHeartbeatCoalescing;
+    }
+
+    public void setEnableHeartbeatCoalescing(final boolean enableHeartbeatCoalescing) {
+        this.enableHeartbeatCoalescing = enableHeartbeatCoalescing;
+    }
+
+    public boolean isEnableScatterGatherAppendEntries() {
+        return this.enableScatterGatherAppendEntries;
+    }
+
+    public void setEnableScatterGatherAppendEntries(final boolean enableScatterGatherAppendEntries) {
+        this.enableScatterGatherAppendEntries = enableScatterGatherAppendEntries;
+    }
+
     public int getDisruptorPublishEventWaitTimeoutSecs() {
         return this.disruptorPublishEventWaitTimeoutSecs;
     }
@@ -135,6 +272,62 @@ public class RaftOptions implements Copiable<RaftOptions> {
         this.maxReplicatorInflightMsgs = maxReplicatorPiplelinePendingResponses;
     }
 
+    public boolean isEnableAppendEntriesCoalescing() {
+        return this.enableAppendEntriesCoalescing;
+    }
+
+    public void setEnableAppendEntriesCoalescing(final boolean enableAppendEntriesCoalescing) {
+        this.enableAppendEntriesCoalescing = enableAppendEntriesCoalescing;
+    }
+
+    public int getApplyLanes() {
+        return this.applyLanes;
+    }
+
+    public void setApplyLanes(final int applyLanes) {
+        this.applyLanes = applyLanes;
+    }
+
+    public boolean isEnableBatchApply() {
+        return this.enableBatchApply;
+    }
+
+    public void setEnableBatchApply(final boolean enableBatchApply) {
+        this.enableBatchApply = enableBatchApply;
+    }
+
+    public int getSnapshotCopyConcurrency() {
+        return this.snapshotCopyConcurrency;
+    }
+
+    public void setSnapshotCopyConcurrency(final int snapshotCopyConcurrency) {
+        this.snapshotCopyConcurrency = snapshotCopyConcurrency;
+    }
+
+    public long getMaxSnapshotCopyInflightBytes() {
+        return this.maxSnapshotCopyInflightBytes;
+    }
+
+    public void setMaxSnapshotCopyInflightBytes(final long maxSnapshotCopyInflightBytes) {
+        this.maxSnapshotCopyInflightBytes = maxSnapshotCopyInflightBytes;
+    }
+
+    public boolean isEnableSnapshotDeltaCopy() {
+        return this.enableSnapshotDeltaCopy;
+    }
+
+    public void setEnableSnapshotDeltaCopy(final boolean enableSnapshotDeltaCopy) {
+        this.enableSnapshotDeltaCopy = enableSnapshotDeltaCopy;
+    }
+
+    public String getSnapshotCopyCodec() {
+        return this.snapshotCopyCodec;
+    }
+
+    public void setSnapshotCopyCodec(final String snapshotCopyCodec) {
+        this.snapshotCopyCodec = snapshotCopyCodec;
+    }
+
     public int getDisruptorBufferSize() {
         return this.disruptorBufferSize;
     }
@@ -183,6 +376,38 @@ public class RaftOptions implements Copiable<RaftOptions> {
         this.maxAppendBufferSize = maxAppendBufferSize;
     }
 
+    public int getGroupCommitMaxDelayUs() {
+        return this.groupCommitMaxDelayUs;
+    }
+
+    public void setGroupCommitMaxDelayUs(final int groupCommitMaxDelayUs) {
+        this.groupCommitMaxDelayUs = groupCommitMaxDelayUs;
+    }
+
+    public int getGroupCommitMaxBytes() {
+        return this.groupCommitMaxBytes;
+    }
+
+    public void setGroupCommitMaxBytes(final int groupCommitMaxBytes) {
+        this.groupCommitMaxBytes = groupCommitMaxBytes;
+    }
+
+    public int getMaxInflightLogAppends() {
+        return this.maxInflightLogAppends;
+    }
+
+    public void setMaxInflightLogAppends(final int maxInflightLogAppends) {
+        this.maxInflightLogAppends = maxInflightLogAppends;
+    }
+
+    public long getLogEntryCacheBytes() {
+        return this.logEntryCacheBytes;
+    }
+
+    public void setLogEntryCacheBytes(final long logEntryCacheBytes) {
+        this.logEntryCacheBytes = logEntryCacheBytes;
+    }
+
     public int getMaxElectionDelayMs() {
         return this.maxElectionDelayMs;
     }
@@ -239,6 +464,10 @@ public class RaftOptions implements Copiable<RaftOptions> {
         raftOptions.setMaxEntriesSize(this.maxEntriesSize);
         raftOptions.setMaxBodySize(this.maxBodySize);
         raftOptions.setMaxAppendBufferSize(this.maxAppendBufferSize);
+        raftOptions.setGroupCommitMaxDelayUs(this.groupCommitMaxDelayUs);
+        raftOptions.setGroupCommitMaxBytes(this.groupCommitMaxBytes);
+        raftOptions.setMaxInflightLogAppends(this.maxInflightLogAppends);
+        raftOptions.setLogEntryCacheBytes(this.logEntryCacheBytes);
         raftOptions.setMaxElectionDelayMs(this.maxElectionDelayMs);
         raftOptions.setElectionHeartbeatFactor(this.electionHeartbeatFactor);
         raftOptions.setApplyBatch(this.applyBatch);
@@ -247,10 +476,21 @@ public class RaftOptions implements Copiable<RaftOptions> {
         raftOptions.setOpenStatistics(this.openStatistics);
         raftOptions.setReplicatorPipeline(this.replicatorPipeline);
         raftOptions.setMaxReplicatorInflightMsgs(this.maxReplicatorInflightMsgs);
+        raftOptions.setEnableAppendEntriesCoalescing(this.enableAppendEntriesCoalescing);
+        raftOptions.setApplyLanes(this.applyLanes);
+        raftOptions.setEnableBatchApply(this.enableBatchApply);
+        raftOptions.setSnapshotCopyConcurrency(this.snapshotCopyConcurrency);
+        raftOptions.setMaxSnapshotCopyInflightBytes(this.maxSnapshotCopyInflightBytes);
+        raftOptions.setEnableSnapshotDeltaCopy(this.enableSnapshotDeltaCopy);
+        raftOptions.setSnapshotCopyCodec(this.snapshotCopyCodec);
         raftOptions.setDisruptorBufferSize(this.disruptorBufferSize);
         raftOptions.setDisruptorPublishEventWaitTimeoutSecs(this.disruptorPublishEventWaitTimeoutSecs);
         raftOptions.setEnableLogEntryChecksum(this.enableLogEntryChecksum);
         raftOptions.setReadOnlyOptions(this.readOnlyOptions);
+        raftOptions.setEnableZeroCopyAppendEntries(this.enableZeroCopyAppendEntries);
+        raftOptions.setEnableMetaJournal(this.enableMetaJournal);
+        raftOptions.setEnableHeartbeatCoalescing(this.enableHeartbeatCoalescing);
+        raftOptions.setEnableScatterGatherAppendEntries(this.enableScatterGatherAppendEntries);
         return raftOptions;
     }
 
@@ -258,13 +498,22 @@ public class RaftOptions implements Copiable<RaftOptions> {
     public String toString() {
         return "RaftOptions{" + "maxByteCountPerRpc=" + this.maxByteCountPerRpc + ", fileCheckHole="
                + this.fileCheckHole + ", maxEntriesSize=" + this.maxEntriesSize + ", maxBodySize=" + this.maxBodySize
-               + ", maxAppendBufferSize=" + this.maxAppendBufferSize + ", maxElectionDelayMs="
+               + ", maxAppendBufferSize=" + this.maxAppendBufferSize + ", groupCommitMaxDelayUs="
+               + this.groupCommitMaxDelayUs + ", groupCommitMaxBytes=" + this.groupCommitMaxBytes
+               + ", maxInflightLogAppends=" + this.maxInflightLogAppends + ", logEntryCacheBytes=" + this.logEntryCacheBytes + ", maxElectionDelayMs="
                + this.maxElectionDelayMs + ", electionHeartbeatFactor=" + this.electionHeartbeatFactor
                + ", applyBatch=" + this.applyBatch + ", sync=" + this.sync + ", syncMeta=" + this.syncMeta
                + ", openStatistics=" + this.openStatistics + ", replicatorPipeline=" + this.replicatorPipeline
-               + ", maxReplicatorInflightMsgs=" + this.maxReplicatorInflightMsgs + ", disruptorBufferSize="
-               + this.disruptorBufferSize + ", disruptorPublishEventWaitTimeoutSecs="
+               + ", maxReplicatorInflightMsgs=" + this.maxReplicatorInflightMsgs
+               + ", enableAppendEntriesCoalescing=" + this.enableAppendEntriesCoalescing + ", applyLanes="
+               + this.applyLanes + ", enableBatchApply=" + this.enableBatchApply + ", snapshotCopyConcurrency="
+               + this.snapshotCopyConcurrency + ", maxSnapshotCopyInflightBytes=" + this.maxSnapshotCopyInflightBytes
+               + ", enableSnapshotDeltaCopy=" + this.enableSnapshotDeltaCopy + ", snapshotCopyCodec="
+               + this.snapshotCopyCodec + ", disruptorBufferSize=" + this.disruptorBufferSize + ", disruptorPublishEventWaitTimeoutSecs="
                + this.disruptorPublishEventWaitTimeoutSecs + ", enableLogEntryChecksum=" + this.enableLogEntryChecksum
-               + ", readOnlyOptions=" + this.readOnlyOptions + '}';
+               + ", readOnlyOptions=" + this.readOnlyOptions + ", enableZeroCopyAppendEntries="
+               + this.enableZeroCopyAppendEntries + ", enableMetaJournal=" + this.enableMetaJournal
+               + ", enableHeartbeatCoalescing=" + this.enableHeartbeatCoalescing
+               + ", enableScatterGatherAppendEntries=" + this.enableScatterGatherAppendEntries + '}';
     }
 }
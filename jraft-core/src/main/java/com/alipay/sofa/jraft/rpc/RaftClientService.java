@@ -63,6 +63,23 @@ public interface RaftClientService extends ClientService {
     Future<Message> appendEntries(final Endpoint endpoint, final RpcRequests.AppendEntriesRequest request,
                                   final int timeoutMs, final RpcResponseClosure<RpcRequests.AppendEntriesResponse> done);
 
+    /**
+     * Sends a heartbeat request and handle the response with done, it may be coalesced with the
+     * heartbeats of other groups to the same endpoint. The default implementation sends it by
+     * {@link #appendEntries(Endpoint, RpcRequests.AppendEntriesRequest, int, RpcResponseClosure)}.
+     *
+     * @param endpoint destination address (ip, port)
+     * @param request  heartbeat request data
+     * @param done     callback
+     * @return a future with result
+     * @since 1.3.8
+     */
+    default Future<Message> heartbeat(final Endpoint endpoint, final RpcRequests.AppendEntriesRequest request,
+                                      final int timeoutMs,
+                                      final RpcResponseClosure<RpcRequests.AppendEntriesResponse> done) {
+        return appendEntries(endpoint, request, timeoutMs, done);
+    }
+
     /**
      * Sends a install-snapshot request and handle the response with done.
      *
@@ -8352,6 +8352,51 @@ public final class RpcRequests {
          * <code>optional bytes data = 9;</code>
          */
         com.google.protobuf.ByteString getData();
+
+        /**
+         * <pre>
+         * the serialized heartbeats carried by a coalesced heartbeat request, see HeartbeatCoalescer
+         * </pre>
+         *
+         * <code>repeated bytes heartbeats = 100;</code>
+         */
+        java.util.List<com.google.protobuf.ByteString> getHeartbeatsList();
+
+        /**
+         * <pre>
+         * the serialized heartbeats carried by a coalesced heartbeat request, see HeartbeatCoalescer
+         * </pre>
+         *
+         * <code>repeated bytes heartbeats = 100;</code>
+         */
+        int getHeartbeatsCount();
+
+        /**
+         * <pre>
+         * the serialized heartbeats carried by a coalesced heartbeat request, see HeartbeatCoalescer
+         * </pre>
+         *
+         * <code>repeated bytes heartbeats = 100;</code>
+         */
+        com.google.protobuf.ByteString getHeartbeats(int index);
+
+        /**
+         * <pre>
+         * set on a heartbeat to ask the follower to hibernate
+         * </pre>
+         *
+         * <code>optional bool hibernate = 101;</code>
+         */
+        boolean hasHibernate();
+
+        /**
+         * <pre>
+         * set on a heartbeat to ask the follower to hibernate
+         * </pre>
+         *
+         * <code>optional bool hibernate = 101;</code>
+         */
+        boolean getHibernate();
     }
 
     /**
@@ -8377,6 +8422,8 @@ public final class RpcRequests {
             entries_ = java.util.Collections.emptyList();
             committedIndex_ = 0L;
             data_ = com.google.protobuf.ByteString.EMPTY;
+            heartbeats_ = java.util.Collections.emptyList();
+            hibernate_ = false;
         }
 
         @java.lang.Override
@@ -8460,6 +8507,19 @@ public final class RpcRequests {
                             data_ = input.readBytes();
                             break;
                         }
+                        case 802: {
+                            if (!((mutable_bitField0_ & 0x00000200) == 0x00000200)) {
+                                heartbeats_ = new java.util.ArrayList<com.google.protobuf.ByteString>();
+                                mutable_bitField0_ |= 0x00000200;
+                            }
+                            heartbeats_.add(input.readBytes());
+                            break;
+                        }
+                        case 808: {
+                            bitField0_ |= 0x00000100;
+                            hibernate_ = input.readBool();
+                            break;
+                        }
                     }
                 }
             } catch (com.google.protobuf.InvalidProtocolBufferException e) {
@@ -8470,6 +8530,9 @@ public final class RpcRequests {
                 if (((mutable_bitField0_ & 0x00000040) == 0x00000040)) {
                     entries_ = java.util.Collections.unmodifiableList(entries_);
                 }
+                if (((mutable_bitField0_ & 0x00000200) == 0x00000200)) {
+                    heartbeats_ = java.util.Collections.unmodifiableList(heartbeats_);
+                }
                 this.unknownFields = unknownFields.build();
                 makeExtensionsImmutable();
             }
@@ -8732,6 +8795,67 @@ public final class RpcRequests {
             return data_;
         }
 
+        public static final int HEARTBEATS_FIELD_NUMBER = 100;
+        private java.util.List<com.google.protobuf.ByteString> heartbeats_;
+
+        /**
+         * <pre>
+         * the serialized heartbeats carried by a coalesced heartbeat request, see HeartbeatCoalescer
+         * </pre>
+         *
+         * <code>repeated bytes heartbeats = 100;</code>
+         */
+        public java.util.List<com.google.protobuf.ByteString> getHeartbeatsList() {
+            return heartbeats_;
+        }
+
+        /**
+         * <pre>
+         * the serialized heartbeats carried by a coalesced heartbeat request, see HeartbeatCoalescer
+         * </pre>
+         *
+         * <code>repeated bytes heartbeats = 100;</code>
+         */
+        public int getHeartbeatsCount() {
+            return heartbeats_.size();
+        }
+
+        /**
+         * <pre>
+         * the serialized heartbeats carried by a coalesced heartbeat request, see HeartbeatCoalescer
+         * </pre>
+         *
+         * <code>repeated bytes heartbeats = 100;</code>
+         */
+        public com.google.protobuf.ByteString getHeartbeats(int index) {
+            return heartbeats_.get(index);
+        }
+
+        public static final int HIBERNATE_FIELD_NUMBER = 101;
+        private boolean hibernate_;
+
+        /**
+         * <pre>
+         * set on a heartbeat to ask the follower to hibernate
+         * </pre>
+         *
+         * <code>optional bool hibernate = 101;</code>
+         */
+        public boolean hasHibernate() {
+            return ((bitField0_ & 0x00000100) == 0x00000100);
+        }
+
+        /**
+         * <pre>
+         * set on a heartbeat to ask the follower to hibernate
+         * </pre>
+         *
+         * <code>optional bool hibernate = 101;</code>
+         */
+        public boolean getHibernate() {
+            return hibernate_;
+        }
+
         private byte memoizedIsInitialized = -1;
 
         public final boolean isInitialized() {
@@ -8807,6 +8931,12 @@ public final class RpcRequests {
             if (((bitField0_ & 0x00000080) == 0x00000080)) {
                 output.writeBytes(9, data_);
             }
+            for (int i = 0; i < heartbeats_.size(); i++) {
+                output.writeBytes(100, heartbeats_.get(i));
+            }
+            if (((bitField0_ & 0x00000100) == 0x00000100)) {
+                output.writeBool(101, hibernate_);
+            }
             unknownFields.writeTo(output);
         }
 
@@ -8843,6 +8973,17 @@ public final class RpcRequests {
             if (((bitField0_ & 0x00000080) == 0x00000080)) {
                 size += com.google.protobuf.CodedOutputStream.computeBytesSize(9, data_);
             }
+            {
+                int dataSize = 0;
+                for (int i = 0; i < heartbeats_.size(); i++) {
+                    dataSize += com.google.protobuf.CodedOutputStream.computeBytesSizeNoTag(heartbeats_.get(i));
+                }
+                size += dataSize;
+                size += 2 * getHeartbeatsList().size();
+            }
+            if (((bitField0_ & 0x00000100) == 0x00000100)) {
+                size += com.google.protobuf.CodedOutputStream.computeBoolSize(101, hibernate_);
+            }
             size += unknownFields.getSerializedSize();
             memoizedSize = size;
             return size;
@@ -8892,6 +9033,11 @@ public final class RpcRequests {
             if (hasData()) {
                 result = result && getData().equals(other.getData());
             }
+            result = result && getHeartbeatsList().equals(other.getHeartbeatsList());
+            result = result && (hasHibernate() == other.hasHibernate());
+            if (hasHibernate()) {
+                result = result && (getHibernate() == other.getHibernate());
+            }
             result = result && unknownFields.equals(other.unknownFields);
             return result;
         }
@@ -8939,6 +9085,14 @@ public final class RpcRequests {
                 hash = (37 * hash) + DATA_FIELD_NUMBER;
                 hash = (53 * hash) + getData().hashCode();
             }
+            if (getHeartbeatsCount() > 0) {
+                hash = (37 * hash) + HEARTBEATS_FIELD_NUMBER;
+                hash = (53 * hash) + getHeartbeatsList().hashCode();
+            }
+            if (hasHibernate()) {
+                hash = (37 * hash) + HIBERNATE_FIELD_NUMBER;
+                hash = (53 * hash) + com.google.protobuf.Internal.hashBoolean(getHibernate());
+            }
             hash = (29 * hash) + unknownFields.hashCode();
             memoizedHashCode = hash;
             return hash;
@@ -9090,6 +9244,10 @@ public final class RpcRequests {
                 bitField0_ = (bitField0_ & ~0x00000080);
                 data_ = com.google.protobuf.ByteString.EMPTY;
                 bitField0_ = (bitField0_ & ~0x00000100);
+                heartbeats_ = java.util.Collections.emptyList();
+                bitField0_ = (bitField0_ & ~0x00000200);
+                hibernate_ = false;
+                bitField0_ = (bitField0_ & ~0x00000400);
                 return this;
             }
 
@@ -9155,6 +9313,15 @@ public final class RpcRequests {
                     to_bitField0_ |= 0x00000080;
                 }
                 result.data_ = data_;
+                if (((bitField0_ & 0x00000200) == 0x00000200)) {
+                    heartbeats_ = java.util.Collections.unmodifiableList(heartbeats_);
+                    bitField0_ = (bitField0_ & ~0x00000200);
+                }
+                result.heartbeats_ = heartbeats_;
+                if (((from_bitField0_ & 0x00000400) == 0x00000400)) {
+                    to_bitField0_ |= 0x00000100;
+                }
+                result.hibernate_ = hibernate_;
                 result.bitField0_ = to_bitField0_;
                 onBuilt();
                 return result;
@@ -9253,6 +9420,19 @@ public final class RpcRequests {
                 if (other.hasData()) {
                     setData(other.getData());
                 }
+                if (!other.heartbeats_.isEmpty()) {
+                    if (heartbeats_.isEmpty()) {
+                        heartbeats_ = other.heartbeats_;
+                        bitField0_ = (bitField0_ & ~0x00000200);
+                    } else {
+                        ensureHeartbeatsIsMutable();
+                        heartbeats_.addAll(other.heartbeats_);
+                    }
+                    onChanged();
+                }
+                if (other.hasHibernate()) {
+                    setHibernate(other.getHibernate());
+                }
                 this.mergeUnknownFields(other.unknownFields);
                 onChanged();
                 return this;
@@ -9965,6 +10145,162 @@ public final class RpcRequests {
                 return this;
             }
 
+            private java.util.List<com.google.protobuf.ByteString> heartbeats_ = java.util.Collections.emptyList();
+
+            private void ensureHeartbeatsIsMutable() {
+                if (!((bitField0_ & 0x00000200) == 0x00000200)) {
+                    heartbeats_ = new java.util.ArrayList<com.google.protobuf.ByteString>(heartbeats_);
+                    bitField0_ |= 0x00000200;
+                }
+            }
+
+            /**
+             * <pre>
+             * the serialized heartbeats carried by a coalesced heartbeat request, see HeartbeatCoalescer
+             * </pre>
+             *
+             * <code>repeated bytes heartbeats = 100;</code>
+             */
+            public java.util.List<com.google.protobuf.ByteString> getHeartbeatsList() {
+                return java.util.Collections.unmodifiableList(heartbeats_);
+            }
+
+            /**
+             * <pre>
+             * the serialized heartbeats carried by a coalesced heartbeat request, see HeartbeatCoalescer
+             * </pre>
+             *
+             * <code>repeated bytes heartbeats = 100;</code>
+             */
+            public int getHeartbeatsCount() {
+                return heartbeats_.size();
+            }
+
+            /**
+             * <pre>
+             * the serialized heartbeats carried by a coalesced heartbeat request, see HeartbeatCoalescer
+             * </pre>
+             *
+             * <code>repeated bytes heartbeats = 100;</code>
+             */
+            public com.google.protobuf.ByteString getHeartbeats(int index) {
+                return heartbeats_.get(index);
+            }
+
+            /**
+             * <pre>
+             * the serialized heartbeats carried by a coalesced heartbeat request, see HeartbeatCoalescer
+             * </pre>
+             *
+             * <code>repeated bytes heartbeats = 100;</code>
+             */
+            public Builder setHeartbeats(int index, com.google.protobuf.ByteString value) {
+                if (value == null) {
+                    throw new NullPointerException();
+                }
+                ensureHeartbeatsIsMutable();
+                heartbeats_.set(index, value);
+                onChanged();
+                return this;
+            }
+
+            /**
+             * <pre>
+             * the serialized heartbeats carried by a coalesced heartbeat request, see HeartbeatCoalescer
+             * </pre>
+             *
+             * <code>repeated bytes heartbeats = 100;</code>
+             */
+            public Builder addHeartbeats(com.google.protobuf.ByteString value) {
+                if (value == null) {
+                    throw new NullPointerException();
+                }
+                ensureHeartbeatsIsMutable();
+                heartbeats_.add(value);
+                onChanged();
+                return this;
+            }
+
+            /**
+             * <pre>
+             * the serialized heartbeats carried by a coalesced heartbeat request, see HeartbeatCoalescer
+             * </pre>
+             *
+             * <code>repeated bytes heartbeats = 100;</code>
+             */
+            public Builder addAllHeartbeats(java.lang.Iterable<? extends com.google.protobuf.ByteString> values) {
+                ensureHeartbeatsIsMutable();
+                com.google.protobuf.AbstractMessageLite.Builder.addAll(values, heartbeats_);
+                onChanged();
+                return this;
+            }
+
+            /**
+             * <pre>
+             * the serialized heartbeats carried by a coalesced heartbeat request, see HeartbeatCoalescer
+             * </pre>
+             *
+             * <code>repeated bytes heartbeats = 100;</code>
+             */
+            public Builder clearHeartbeats() {
+                heartbeats_ = java.util.Collections.emptyList();
+                bitField0_ = (bitField0_ & ~0x00000200);
+                onChanged();
+                return this;
+            }
+
+            private boolean hibernate_;
+
+            /**
+             * <pre>
+             * set on a heartbeat to ask the follower to hibernate
+             * </pre>
+             *
+             * <code>optional bool hibernate = 101;</code>
+             */
+            public boolean hasHibernate() {
+                return ((bitField0_ & 0x00000400) == 0x00000400);
+            }
+
+            /**
+             * <pre>
+             * set on a heartbeat to ask the follower to hibernate
+             * </pre>
+             *
+             * <code>optional bool hibernate = 101;</code>
+             */
+            public boolean getHibernate() {
+                return hibernate_;
+            }
+
+            /**
+             * <pre>
+             * set on a heartbeat to ask the follower to hibernate
+             * </pre>
+             *
+             * <code>optional bool hibernate = 101;</code>
+             */
+            public Builder setHibernate(boolean value) {
+                bitField0_ |= 0x00000400;
+                hibernate_ = value;
+                onChanged();
+                return this;
+            }
+
+            /**
+             * <pre>
+             * set on a heartbeat to ask the follower to hibernate
+             * </pre>
+             *
+             * <code>optional bool hibernate = 101;</code>
+             */
+            public Builder clearHibernate() {
+                bitField0_ = (bitField0_ & ~0x00000400);
+                hibernate_ = false;
+                onChanged();
+                return this;
+            }
+
             public final Builder setUnknownFields(final com.google.protobuf.UnknownFieldSet unknownFields) {
                 return super.setUnknownFields(unknownFields);
             }
@@ -10060,6 +10396,51 @@ public final class RpcRequests {
          * <code>optional .jraft.ErrorResponse errorResponse = 99;</code>
          */
         com.alipay.sofa.jraft.rpc.RpcRequests.ErrorResponseOrBuilder getErrorResponseOrBuilder();
+
+        /**
+         * <pre>
+         * the serialized responses of the coalesced heartbeats, in the order of the heartbeats
+         * </pre>
+         *
+         * <code>repeated bytes heartbeat_responses = 100;</code>
+         */
+        java.util.List<com.google.protobuf.ByteString> getHeartbeatResponsesList();
+
+        /**
+         * <pre>
+         * the serialized responses of the coalesced heartbeats, in the order of the heartbeats
+         * </pre>
+         *
+         * <code>repeated bytes heartbeat_responses = 100;</code>
+         */
+        int getHeartbeatResponsesCount();
+
+        /**
+         * <pre>
+         * the serialized responses of the coalesced heartbeats, in the order of the heartbeats
+         * </pre>
+         *
+         * <code>repeated bytes heartbeat_responses = 100;</code>
+         */
+        com.google.protobuf.ByteString getHeartbeatResponses(int index);
+
+        /**
+         * <pre>
+         * set on a heartbeat response to acknowledge the hibernation
+         * </pre>
+         *
+         * <code>optional bool hibernate_acked = 101;</code>
+         */
+        boolean hasHibernateAcked();
+
+        /**
+         * <pre>
+         * set on a heartbeat response to acknowledge the hibernation
+         * </pre>
+         *
+         * <code>optional bool hibernate_acked = 101;</code>
+         */
+        boolean getHibernateAcked();
     }
 
     /**
@@ -10079,6 +10460,8 @@ public final class RpcRequests {
             term_ = 0L;
             success_ = false;
             lastLogIndex_ = 0L;
+            heartbeatResponses_ = java.util.Collections.emptyList();
+            hibernateAcked_ = false;
         }
 
         @java.lang.Override
@@ -10139,6 +10522,19 @@ public final class RpcRequests {
                             bitField0_ |= 0x00000008;
                             break;
                         }
+                        case 802: {
+                            if (!((mutable_bitField0_ & 0x00000010) == 0x00000010)) {
+                                heartbeatResponses_ = new java.util.ArrayList<com.google.protobuf.ByteString>();
+                                mutable_bitField0_ |= 0x00000010;
+                            }
+                            heartbeatResponses_.add(input.readBytes());
+                            break;
+                        }
+                        case 808: {
+                            bitField0_ |= 0x00000010;
+                            hibernateAcked_ = input.readBool();
+                            break;
+                        }
                     }
                 }
             } catch (com.google.protobuf.InvalidProtocolBufferException e) {
@@ -10146,6 +10542,9 @@ public final class RpcRequests {
             } catch (java.io.IOException e) {
                 throw new com.google.protobuf.InvalidProtocolBufferException(e).setUnfinishedMessage(this);
             } finally {
+                if (((mutable_bitField0_ & 0x00000010) == 0x00000010)) {
+                    heartbeatResponses_ = java.util.Collections.unmodifiableList(heartbeatResponses_);
+                }
                 this.unknownFields = unknownFields.build();
                 makeExtensionsImmutable();
             }
@@ -10239,6 +10638,67 @@ public final class RpcRequests {
                 : errorResponse_;
         }
 
+        public static final int HEARTBEAT_RESPONSES_FIELD_NUMBER = 100;
+        private java.util.List<com.google.protobuf.ByteString> heartbeatResponses_;
+
+        /**
+         * <pre>
+         * the serialized responses of the coalesced heartbeats, in the order of the heartbeats
+         * </pre>
+         *
+         * <code>repeated bytes heartbeat_responses = 100;</code>
+         */
+        public java.util.List<com.google.protobuf.ByteString> getHeartbeatResponsesList() {
+            return heartbeatResponses_;
+        }
+
+        /**
+         * <pre>
+         * the serialized responses of the coalesced heartbeats, in the order of the heartbeats
+         * </pre>
+         *
+         * <code>repeated bytes heartbeat_responses = 100;</code>
+         */
+        public int getHeartbeatResponsesCount() {
+            return heartbeatResponses_.size();
+        }
+
+        /**
+         * <pre>
+         * the serialized responses of the coalesced heartbeats, in the order of the heartbeats
+         * </pre>
+         *
+         * <code>repeated bytes heartbeat_responses = 100;</code>
+         */
+        public com.google.protobuf.ByteString getHeartbeatResponses(int index) {
+            return heartbeatResponses_.get(index);
+        }
+
+        public static final int HIBERNATE_ACKED_FIELD_NUMBER = 101;
+        private boolean hibernateAcked_;
+
+        /**
+         * <pre>
+         * set on a heartbeat response to acknowledge the hibernation
+         * </pre>
+         *
+         * <code>optional bool hibernate_acked = 101;</code>
+         */
+        public boolean hasHibernateAcked() {
+            return ((bitField0_ & 0x00000010) == 0x00000010);
+        }
+
+        /**
+         * <pre>
+         * set on a heartbeat response to acknowledge the hibernation
+         * </pre>
+         *
+         * <code>optional bool hibernate_acked = 101;</code>
+         */
+        public boolean getHibernateAcked() {
+            return hibernateAcked_;
+        }
+
         private byte memoizedIsInitialized = -1;
 
         public final boolean isInitialized() {
@@ -10279,6 +10739,12 @@ public final class RpcRequests {
             if (((bitField0_ & 0x00000008) == 0x00000008)) {
                 output.writeMessage(99, getErrorResponse());
             }
+            for (int i = 0; i < heartbeatResponses_.size(); i++) {
+                output.writeBytes(100, heartbeatResponses_.get(i));
+            }
+            if (((bitField0_ & 0x00000010) == 0x00000010)) {
+                output.writeBool(101, hibernateAcked_);
+            }
             unknownFields.writeTo(output);
         }
 
@@ -10300,6 +10766,17 @@ public final class RpcRequests {
             if (((bitField0_ & 0x00000008) == 0x00000008)) {
                 size += com.google.protobuf.CodedOutputStream.computeMessageSize(99, getErrorResponse());
             }
+            {
+                int dataSize = 0;
+                for (int i = 0; i < heartbeatResponses_.size(); i++) {
+                    dataSize += com.google.protobuf.CodedOutputStream.computeBytesSizeNoTag(heartbeatResponses_.get(i));
+                }
+                size += dataSize;
+                size += 2 * getHeartbeatResponsesList().size();
+            }
+            if (((bitField0_ & 0x00000010) == 0x00000010)) {
+                size += com.google.protobuf.CodedOutputStream.computeBoolSize(101, hibernateAcked_);
+            }
             size += unknownFields.getSerializedSize();
             memoizedSize = size;
             return size;
@@ -10332,6 +10809,11 @@ public final class RpcRequests {
             if (hasErrorResponse()) {
                 result = result && getErrorResponse().equals(other.getErrorResponse());
             }
+            result = result && getHeartbeatResponsesList().equals(other.getHeartbeatResponsesList());
+            result = result && (hasHibernateAcked() == other.hasHibernateAcked());
+            if (hasHibernateAcked()) {
+                result = result && (getHibernateAcked() == other.getHibernateAcked());
+            }
             result = result && unknownFields.equals(other.unknownFields);
             return result;
         }
@@ -10359,6 +10841,14 @@ public final class RpcRequests {
                 hash = (37 * hash) + ERRORRESPONSE_FIELD_NUMBER;
                 hash = (53 * hash) + getErrorResponse().hashCode();
             }
+            if (getHeartbeatResponsesCount() > 0) {
+                hash = (37 * hash) + HEARTBEAT_RESPONSES_FIELD_NUMBER;
+                hash = (53 * hash) + getHeartbeatResponsesList().hashCode();
+            }
+            if (hasHibernateAcked()) {
+                hash = (37 * hash) + HIBERNATE_ACKED_FIELD_NUMBER;
+                hash = (53 * hash) + com.google.protobuf.Internal.hashBoolean(getHibernateAcked());
+            }
             hash = (29 * hash) + unknownFields.hashCode();
             memoizedHashCode = hash;
             return hash;
@@ -10500,6 +10990,10 @@ public final class RpcRequests {
                     errorResponseBuilder_.clear();
                 }
                 bitField0_ = (bitField0_ & ~0x00000008);
+                heartbeatResponses_ = java.util.Collections.emptyList();
+                bitField0_ = (bitField0_ & ~0x00000010);
+                hibernateAcked_ = false;
+                bitField0_ = (bitField0_ & ~0x00000020);
                 return this;
             }
 
@@ -10544,6 +11038,15 @@ public final class RpcRequests {
                 } else {
                     result.errorResponse_ = errorResponseBuilder_.build();
                 }
+                if (((bitField0_ & 0x00000010) == 0x00000010)) {
+                    heartbeatResponses_ = java.util.Collections.unmodifiableList(heartbeatResponses_);
+                    bitField0_ = (bitField0_ & ~0x00000010);
+                }
+                result.heartbeatResponses_ = heartbeatResponses_;
+                if (((from_bitField0_ & 0x00000020) == 0x00000020)) {
+                    to_bitField0_ |= 0x00000010;
+                }
+                result.hibernateAcked_ = hibernateAcked_;
                 result.bitField0_ = to_bitField0_;
                 onBuilt();
                 return result;
@@ -10599,6 +11102,19 @@ public final class RpcRequests {
                 if (other.hasErrorResponse()) {
                     mergeErrorResponse(other.getErrorResponse());
                 }
+                if (!other.heartbeatResponses_.isEmpty()) {
+                    if (heartbeatResponses_.isEmpty()) {
+                        heartbeatResponses_ = other.heartbeatResponses_;
+                        bitField0_ = (bitField0_ & ~0x00000010);
+                    } else {
+                        ensureHeartbeatResponsesIsMutable();
+                        heartbeatResponses_.addAll(other.heartbeatResponses_);
+                    }
+                    onChanged();
+                }
+                if (other.hasHibernateAcked()) {
+                    setHibernateAcked(other.getHibernateAcked());
+                }
                 this.mergeUnknownFields(other.unknownFields);
                 onChanged();
                 return this;
@@ -10867,6 +11383,162 @@ public final class RpcRequests {
                 return errorResponseBuilder_;
             }
 
+            private java.util.List<com.google.protobuf.ByteString> heartbeatResponses_ = java.util.Collections.emptyList();
+
+            private void ensureHeartbeatResponsesIsMutable() {
+                if (!((bitField0_ & 0x00000010) == 0x00000010)) {
+                    heartbeatResponses_ = new java.util.ArrayList<com.google.protobuf.ByteString>(heartbeatResponses_);
+                    bitField0_ |= 0x00000010;
+                }
+            }
+
+            /**
+             * <pre>
+             * the serialized responses of the coalesced heartbeats, in the order of the heartbeats
+             * </pre>
+             *
+             * <code>repeated bytes heartbeat_responses = 100;</code>
+             */
+            public java.util.List<com.google.protobuf.ByteString> getHeartbeatResponsesList() {
+                return java.util.Collections.unmodifiableList(heartbeatResponses_);
+            }
+
+            /**
+             * <pre>
+             * the serialized responses of the coalesced heartbeats, in the order of the heartbeats
+             * </pre>
+             *
+             * <code>repeated bytes heartbeat_responses = 100;</code>
+             */
+            public int getHeartbeatResponsesCount() {
+                return heartbeatResponses_.size();
+            }
+
+            /**
+             * <pre>
+             * the serialized responses of the coalesced heartbeats, in the order of the heartbeats
+             * </pre>
+             *
+             * <code>repeated bytes heartbeat_responses = 100;</code>
+             */
+            public com.google.protobuf.ByteString getHeartbeatResponses(int index) {
+                return heartbeatResponses_.get(index);
+            }
+
+            /**
+             * <pre>
+             * the serialized responses of the coalesced heartbeats, in the order of the heartbeats
+             * </pre>
+             *
+             * <code>repeated bytes heartbeat_responses = 100;</code>
+             */
+            public Builder setHeartbeatResponses(int index, com.google.protobuf.ByteString value) {
+                if (value == null) {
+                    throw new NullPointerException();
+                }
+                ensureHeartbeatResponsesIsMutable();
+                heartbeatResponses_.set(index, value);
+                onChanged();
+                return this;
+            }
+
+            /**
+             * <pre>
+             * the serialized responses of the coalesced heartbeats, in the order of the heartbeats
+             * </pre>
+             *
+             * <code>repeated bytes heartbeat_responses = 100;</code>
+             */
+            public Builder addHeartbeatResponses(com.google.protobuf.ByteString value) {
+                if (value == null) {
+                    throw new NullPointerException();
+                }
+                ensureHeartbeatResponsesIsMutable();
+                heartbeatResponses_.add(value);
+                onChanged();
+                return this;
+            }
+
+            /**
+             * <pre>
+             * the serialized responses of the coalesced heartbeats, in the order of the heartbeats
+             * </pre>
+             *
+             * <code>repeated bytes heartbeat_responses = 100;</code>
+             */
+            public Builder addAllHeartbeatResponses(java.lang.Iterable<? extends com.google.protobuf.ByteString> values) {
+                ensureHeartbeatResponsesIsMutable();
+                com.google.protobuf.AbstractMessageLite.Builder.addAll(values, heartbeatResponses_);
+                onChanged();
+                return this;
+            }
+
+            /**
+             * <pre>
+             * the serialized responses of the coalesced heartbeats, in the order of the heartbeats
+             * </pre>
+             *
+             * <code>repeated bytes heartbeat_responses = 100;</code>
+             */
+            public Builder clearHeartbeatResponses() {
+                heartbeatResponses_ = java.util.Collections.emptyList();
+                bitField0_ = (bitField0_ & ~0x00000010);
+                onChanged();
+                return this;
+            }
+
+            private boolean hibernateAcked_;
+
+            /**
+             * <pre>
+             * set on a heartbeat response to acknowledge the hibernation
+             * </pre>
+             *
+             * <code>optional bool hibernate_acked = 101;</code>
+             */
+            public boolean hasHibernateAcked() {
+                return ((bitField0_ & 0x00000020) == 0x00000020);
+            }
+
+            /**
+             * <pre>
+             * set on a heartbeat response to acknowledge the hibernation
+             * </pre>
+             *
+             * <code>optional bool hibernate_acked = 101;</code>
+             */
+            public boolean getHibernateAcked() {
+                return hibernateAcked_;
+            }
+
+            /**
+             * <pre>
+             * set on a heartbeat response to acknowledge the hibernation
+             * </pre>
+             *
+             * <code>optional bool hibernate_acked = 101;</code>
+             */
+            public Builder setHibernateAcked(boolean value) {
+                bitField0_ |= 0x00000020;
+                hibernateAcked_ = value;
+                onChanged();
+                return this;
+            }
+
+            /**
+             * <pre>
+             * set on a heartbeat response to acknowledge the hibernation
+             * </pre>
+             *
+             * <code>optional bool hibernate_acked = 101;</code>
+             */
+            public Builder clearHibernateAcked() {
+                bitField0_ = (bitField0_ & ~0x00000020);
+                hibernateAcked_ = false;
+                onChanged();
+                return this;
+            }
+
             public final Builder setUnknownFields(final com.google.protobuf.UnknownFieldSet unknownFields) {
                 return super.setUnknownFields(unknownFields);
             }
@@ -10972,6 +11644,33 @@ public final class RpcRequests {
          * <code>optional bool read_partly = 5;</code>
          */
         boolean getReadPartly();
+
+        /**
+         * <pre>
+         * the name of the preferred chunk codec, see FileChunkCodecs
+         * </pre>
+         *
+         * <code>optional string codec = 100;</code>
+         */
+        boolean hasCodec();
+
+        /**
+         * <pre>
+         * the name of the preferred chunk codec, see FileChunkCodecs
+         * </pre>
+         *
+         * <code>optional string codec = 100;</code>
+         */
+        java.lang.String getCodec();
+
+        /**
+         * <pre>
+         * the name of the preferred chunk codec, see FileChunkCodecs
+         * </pre>
+         *
+         * <code>optional string codec = 100;</code>
+         */
+        com.google.protobuf.ByteString getCodecBytes();
     }
 
     /**
@@ -10993,6 +11692,7 @@ public final class RpcRequests {
             count_ = 0L;
             offset_ = 0L;
             readPartly_ = false;
+            codec_ = "";
         }
 
         @java.lang.Override
@@ -11050,6 +11750,12 @@ public final class RpcRequests {
                             readPartly_ = input.readBool();
                             break;
                         }
+                        case 802: {
+                            com.google.protobuf.ByteString bs = input.readBytes();
+                            bitField0_ |= 0x00000020;
+                            codec_ = bs;
+                            break;
+                        }
                     }
                 }
             } catch (com.google.protobuf.InvalidProtocolBufferException e) {
@@ -11176,10 +11882,63 @@ public final class RpcRequests {
         }
 
         /**
-         * <code>optional bool read_partly = 5;</code>
+         * <code>optional bool read_partly = 5;</code>
+         */
+        public boolean getReadPartly() {
+            return readPartly_;
+        }
+
+        public static final int CODEC_FIELD_NUMBER = 100;
+        private volatile java.lang.Object codec_;
+
+        /**
+         * <pre>
+         * the name of the preferred chunk codec, see FileChunkCodecs
+         * </pre>
+         *
+         * <code>optional string codec = 100;</code>
+         */
+        public boolean hasCodec() {
+            return ((bitField0_ & 0x00000020) == 0x00000020);
+        }
+
+        /**
+         * <pre>
+         * the name of the preferred chunk codec, see FileChunkCodecs
+         * </pre>
+         *
+         * <code>optional string codec = 100;</code>
+         */
+        public java.lang.String getCodec() {
+            java.lang.Object ref = codec_;
+            if (ref instanceof java.lang.String) {
+                return (java.lang.String) ref;
+            } else {
+                com.google.protobuf.ByteString bs = (com.google.protobuf.ByteString) ref;
+                java.lang.String s = bs.toStringUtf8();
+                if (bs.isValidUtf8()) {
+                    codec_ = s;
+                }
+                return s;
+            }
+        }
+
+        /**
+         * <pre>
+         * the name of the preferred chunk codec, see FileChunkCodecs
+         * </pre>
+         *
+         * <code>optional string codec = 100;</code>
          */
-        public boolean getReadPartly() {
-            return readPartly_;
+        public com.google.protobuf.ByteString getCodecBytes() {
+            java.lang.Object ref = codec_;
+            if (ref instanceof java.lang.String) {
+                com.google.protobuf.ByteString b = com.google.protobuf.ByteString.copyFromUtf8((java.lang.String) ref);
+                codec_ = b;
+                return b;
+            } else {
+                return (com.google.protobuf.ByteString) ref;
+            }
         }
 
         private byte memoizedIsInitialized = -1;
@@ -11227,6 +11986,9 @@ public final class RpcRequests {
             if (((bitField0_ & 0x00000010) == 0x00000010)) {
                 output.writeBool(5, readPartly_);
             }
+            if (((bitField0_ & 0x00000020) == 0x00000020)) {
+                com.google.protobuf.GeneratedMessageV3.writeString(output, 100, codec_);
+            }
             unknownFields.writeTo(output);
         }
 
@@ -11251,6 +12013,9 @@ public final class RpcRequests {
             if (((bitField0_ & 0x00000010) == 0x00000010)) {
                 size += com.google.protobuf.CodedOutputStream.computeBoolSize(5, readPartly_);
             }
+            if (((bitField0_ & 0x00000020) == 0x00000020)) {
+                size += com.google.protobuf.GeneratedMessageV3.computeStringSize(100, codec_);
+            }
             size += unknownFields.getSerializedSize();
             memoizedSize = size;
             return size;
@@ -11287,6 +12052,10 @@ public final class RpcRequests {
             if (hasReadPartly()) {
                 result = result && (getReadPartly() == other.getReadPartly());
             }
+            result = result && (hasCodec() == other.hasCodec());
+            if (hasCodec()) {
+                result = result && getCodec().equals(other.getCodec());
+            }
             result = result && unknownFields.equals(other.unknownFields);
             return result;
         }
@@ -11318,6 +12087,10 @@ public final class RpcRequests {
                 hash = (37 * hash) + READ_PARTLY_FIELD_NUMBER;
                 hash = (53 * hash) + com.google.protobuf.Internal.hashBoolean(getReadPartly());
             }
+            if (hasCodec()) {
+                hash = (37 * hash) + CODEC_FIELD_NUMBER;
+                hash = (53 * hash) + getCodec().hashCode();
+            }
             hash = (29 * hash) + unknownFields.hashCode();
             memoizedHashCode = hash;
             return hash;
@@ -11456,6 +12229,8 @@ public final class RpcRequests {
                 bitField0_ = (bitField0_ & ~0x00000008);
                 readPartly_ = false;
                 bitField0_ = (bitField0_ & ~0x00000010);
+                codec_ = "";
+                bitField0_ = (bitField0_ & ~0x00000020);
                 return this;
             }
 
@@ -11500,6 +12275,10 @@ public final class RpcRequests {
                     to_bitField0_ |= 0x00000010;
                 }
                 result.readPartly_ = readPartly_;
+                if (((from_bitField0_ & 0x00000020) == 0x00000020)) {
+                    to_bitField0_ |= 0x00000020;
+                }
+                result.codec_ = codec_;
                 result.bitField0_ = to_bitField0_;
                 onBuilt();
                 return result;
@@ -11560,6 +12339,11 @@ public final class RpcRequests {
                 if (other.hasReadPartly()) {
                     setReadPartly(other.getReadPartly());
                 }
+                if (other.hasCodec()) {
+                    bitField0_ |= 0x00000020;
+                    codec_ = other.codec_;
+                    onChanged();
+                }
                 this.mergeUnknownFields(other.unknownFields);
                 onChanged();
                 return this;
@@ -11821,6 +12605,107 @@ public final class RpcRequests {
                 return this;
             }
 
+            private java.lang.Object codec_ = "";
+
+            /**
+             * <pre>
+             * the name of the preferred chunk codec, see FileChunkCodecs
+             * </pre>
+             *
+             * <code>optional string codec = 100;</code>
+             */
+            public boolean hasCodec() {
+                return ((bitField0_ & 0x00000020) == 0x00000020);
+            }
+
+            /**
+             * <pre>
+             * the name of the preferred chunk codec, see FileChunkCodecs
+             * </pre>
+             *
+             * <code>optional string codec = 100;</code>
+             */
+            public java.lang.String getCodec() {
+                java.lang.Object ref = codec_;
+                if (!(ref instanceof java.lang.String)) {
+                    com.google.protobuf.ByteString bs = (com.google.protobuf.ByteString) ref;
+                    java.lang.String s = bs.toStringUtf8();
+                    if (bs.isValidUtf8()) {
+                        codec_ = s;
+                    }
+                    return s;
+                } else {
+                    return (java.lang.String) ref;
+                }
+            }
+
+            /**
+             * <pre>
+             * the name of the preferred chunk codec, see FileChunkCodecs
+             * </pre>
+             *
+             * <code>optional string codec = 100;</code>
+             */
+            public com.google.protobuf.ByteString getCodecBytes() {
+                java.lang.Object ref = codec_;
+                if (ref instanceof String) {
+                    com.google.protobuf.ByteString b = com.google.protobuf.ByteString
+                        .copyFromUtf8((java.lang.String) ref);
+                    codec_ = b;
+                    return b;
+                } else {
+                    return (com.google.protobuf.ByteString) ref;
+                }
+            }
+
+            /**
+             * <pre>
+             * the name of the preferred chunk codec, see FileChunkCodecs
+             * </pre>
+             *
+             * <code>optional string codec = 100;</code>
+             */
+            public Builder setCodec(java.lang.String value) {
+                if (value == null) {
+                    throw new NullPointerException();
+                }
+                bitField0_ |= 0x00000020;
+                codec_ = value;
+                onChanged();
+                return this;
+            }
+
+            /**
+             * <pre>
+             * the name of the preferred chunk codec, see FileChunkCodecs
+             * </pre>
+             *
+             * <code>optional string codec = 100;</code>
+             */
+            public Builder clearCodec() {
+                bitField0_ = (bitField0_ & ~0x00000020);
+                codec_ = getDefaultInstance().getCodec();
+                onChanged();
+                return this;
+            }
+
+            /**
+             * <pre>
+             * the name of the preferred chunk codec, see FileChunkCodecs
+             * </pre>
+             *
+             * <code>optional string codec = 100;</code>
+             */
+            public Builder setCodecBytes(com.google.protobuf.ByteString value) {
+                if (value == null) {
+                    throw new NullPointerException();
+                }
+                bitField0_ |= 0x00000020;
+                codec_ = value;
+                onChanged();
+                return this;
+            }
+
             public final Builder setUnknownFields(final com.google.protobuf.UnknownFieldSet unknownFields) {
                 return super.setUnknownFields(unknownFields);
             }
@@ -11923,6 +12808,33 @@ public final class RpcRequests {
          * <code>optional .jraft.ErrorResponse errorResponse = 99;</code>
          */
         com.alipay.sofa.jraft.rpc.RpcRequests.ErrorResponseOrBuilder getErrorResponseOrBuilder();
+
+        /**
+         * <pre>
+         * the name of the codec the data is encoded with, see FileChunkCodecs
+         * </pre>
+         *
+         * <code>optional string codec = 100;</code>
+         */
+        boolean hasCodec();
+
+        /**
+         * <pre>
+         * the name of the codec the data is encoded with, see FileChunkCodecs
+         * </pre>
+         *
+         * <code>optional string codec = 100;</code>
+         */
+        java.lang.String getCodec();
+
+        /**
+         * <pre>
+         * the name of the codec the data is encoded with, see FileChunkCodecs
+         * </pre>
+         *
+         * <code>optional string codec = 100;</code>
+         */
+        com.google.protobuf.ByteString getCodecBytes();
     }
 
     /**
@@ -11942,6 +12854,7 @@ public final class RpcRequests {
             eof_ = false;
             data_ = com.google.protobuf.ByteString.EMPTY;
             readSize_ = 0L;
+            codec_ = "";
         }
 
         @java.lang.Override
@@ -12002,6 +12915,12 @@ public final class RpcRequests {
                             bitField0_ |= 0x00000008;
                             break;
                         }
+                        case 802: {
+                            com.google.protobuf.ByteString bs = input.readBytes();
+                            bitField0_ |= 0x00000010;
+                            codec_ = bs;
+                            break;
+                        }
                     }
                 }
             } catch (com.google.protobuf.InvalidProtocolBufferException e) {
@@ -12110,6 +13029,59 @@ public final class RpcRequests {
                 : errorResponse_;
         }
 
+        public static final int CODEC_FIELD_NUMBER = 100;
+        private volatile java.lang.Object codec_;
+
+        /**
+         * <pre>
+         * the name of the codec the data is encoded with, see FileChunkCodecs
+         * </pre>
+         *
+         * <code>optional string codec = 100;</code>
+         */
+        public boolean hasCodec() {
+            return ((bitField0_ & 0x00000010) == 0x00000010);
+        }
+
+        /**
+         * <pre>
+         * the name of the codec the data is encoded with, see FileChunkCodecs
+         * </pre>
+         *
+         * <code>optional string codec = 100;</code>
+         */
+        public java.lang.String getCodec() {
+            java.lang.Object ref = codec_;
+            if (ref instanceof java.lang.String) {
+                return (java.lang.String) ref;
+            } else {
+                com.google.protobuf.ByteString bs = (com.google.protobuf.ByteString) ref;
+                java.lang.String s = bs.toStringUtf8();
+                if (bs.isValidUtf8()) {
+                    codec_ = s;
+                }
+                return s;
+            }
+        }
+
+        /**
+         * <pre>
+         * the name of the codec the data is encoded with, see FileChunkCodecs
+         * </pre>
+         *
+         * <code>optional string codec = 100;</code>
+         */
+        public com.google.protobuf.ByteString getCodecBytes() {
+            java.lang.Object ref = codec_;
+            if (ref instanceof java.lang.String) {
+                com.google.protobuf.ByteString b = com.google.protobuf.ByteString.copyFromUtf8((java.lang.String) ref);
+                codec_ = b;
+                return b;
+            } else {
+                return (com.google.protobuf.ByteString) ref;
+            }
+        }
+
         private byte memoizedIsInitialized = -1;
 
         public final boolean isInitialized() {
@@ -12150,6 +13122,9 @@ public final class RpcRequests {
             if (((bitField0_ & 0x00000008) == 0x00000008)) {
                 output.writeMessage(99, getErrorResponse());
             }
+            if (((bitField0_ & 0x00000010) == 0x00000010)) {
+                com.google.protobuf.GeneratedMessageV3.writeString(output, 100, codec_);
+            }
             unknownFields.writeTo(output);
         }
 
@@ -12171,6 +13146,9 @@ public final class RpcRequests {
             if (((bitField0_ & 0x00000008) == 0x00000008)) {
                 size += com.google.protobuf.CodedOutputStream.computeMessageSize(99, getErrorResponse());
             }
+            if (((bitField0_ & 0x00000010) == 0x00000010)) {
+                size += com.google.protobuf.GeneratedMessageV3.computeStringSize(100, codec_);
+            }
             size += unknownFields.getSerializedSize();
             memoizedSize = size;
             return size;
@@ -12203,6 +13181,10 @@ public final class RpcRequests {
             if (hasErrorResponse()) {
                 result = result && getErrorResponse().equals(other.getErrorResponse());
             }
+            result = result && (hasCodec() == other.hasCodec());
+            if (hasCodec()) {
+                result = result && getCodec().equals(other.getCodec());
+            }
             result = result && unknownFields.equals(other.unknownFields);
             return result;
         }
@@ -12230,6 +13212,10 @@ public final class RpcRequests {
                 hash = (37 * hash) + ERRORRESPONSE_FIELD_NUMBER;
                 hash = (53 * hash) + getErrorResponse().hashCode();
             }
+            if (hasCodec()) {
+                hash = (37 * hash) + CODEC_FIELD_NUMBER;
+                hash = (53 * hash) + getCodec().hashCode();
+            }
             hash = (29 * hash) + unknownFields.hashCode();
             memoizedHashCode = hash;
             return hash;
@@ -12371,6 +13357,8 @@ public final class RpcRequests {
                     errorResponseBuilder_.clear();
                 }
                 bitField0_ = (bitField0_ & ~0x00000008);
+                codec_ = "";
+                bitField0_ = (bitField0_ & ~0x00000010);
                 return this;
             }
 
@@ -12415,6 +13403,10 @@ public final class RpcRequests {
                 } else {
                     result.errorResponse_ = errorResponseBuilder_.build();
                 }
+                if (((from_bitField0_ & 0x00000010) == 0x00000010)) {
+                    to_bitField0_ |= 0x00000010;
+                }
+                result.codec_ = codec_;
                 result.bitField0_ = to_bitField0_;
                 onBuilt();
                 return result;
@@ -12470,6 +13462,11 @@ public final class RpcRequests {
                 if (other.hasErrorResponse()) {
                     mergeErrorResponse(other.getErrorResponse());
                 }
+                if (other.hasCodec()) {
+                    bitField0_ |= 0x00000010;
+                    codec_ = other.codec_;
+                    onChanged();
+                }
                 this.mergeUnknownFields(other.unknownFields);
                 onChanged();
                 return this;
@@ -12756,6 +13753,107 @@ public final class RpcRequests {
                 return errorResponseBuilder_;
             }
 
+            private java.lang.Object codec_ = "";
+
+            /**
+             * <pre>
+             * the name of the codec the data is encoded with, see FileChunkCodecs
+             * </pre>
+             *
+             * <code>optional string codec = 100;</code>
+             */
+            public boolean hasCodec() {
+                return ((bitField0_ & 0x00000010) == 0x00000010);
+            }
+
+            /**
+             * <pre>
+             * the name of the codec the data is encoded with, see FileChunkCodecs
+             * </pre>
+             *
+             * <code>optional string codec = 100;</code>
+             */
+            public java.lang.String getCodec() {
+                java.lang.Object ref = codec_;
+                if (!(ref instanceof java.lang.String)) {
+                    com.google.protobuf.ByteString bs = (com.google.protobuf.ByteString) ref;
+                    java.lang.String s = bs.toStringUtf8();
+                    if (bs.isValidUtf8()) {
+                        codec_ = s;
+                    }
+                    return s;
+                } else {
+                    return (java.lang.String) ref;
+                }
+            }
+
+            /**
+             * <pre>
+             * the name of the codec the data is encoded with, see FileChunkCodecs
+             * </pre>
+             *
+             * <code>optional string codec = 100;</code>
+             */
+            public com.google.protobuf.ByteString getCodecBytes() {
+                java.lang.Object ref = codec_;
+                if (ref instanceof String) {
+                    com.google.protobuf.ByteString b = com.google.protobuf.ByteString
+                        .copyFromUtf8((java.lang.String) ref);
+                    codec_ = b;
+                    return b;
+                } else {
+                    return (com.google.protobuf.ByteString) ref;
+                }
+            }
+
+            /**
+             * <pre>
+             * the name of the codec the data is encoded with, see FileChunkCodecs
+             * </pre>
+             *
+             * <code>optional string codec = 100;</code>
+             */
+            public Builder setCodec(java.lang.String value) {
+                if (value == null) {
+                    throw new NullPointerException();
+                }
+                bitField0_ |= 0x00000010;
+                codec_ = value;
+                onChanged();
+                return this;
+            }
+
+            /**
+             * <pre>
+             * the name of the codec the data is encoded with, see FileChunkCodecs
+             * </pre>
+             *
+             * <code>optional string codec = 100;</code>
+             */
+            public Builder clearCodec() {
+                bitField0_ = (bitField0_ & ~0x00000010);
+                codec_ = getDefaultInstance().getCodec();
+                onChanged();
+                return this;
+            }
+
+            /**
+             * <pre>
+             * the name of the codec the data is encoded with, see FileChunkCodecs
+             * </pre>
+             *
+             * <code>optional string codec = 100;</code>
+             */
+            public Builder setCodecBytes(com.google.protobuf.ByteString value) {
+                if (value == null) {
+                    throw new NullPointerException();
+                }
+                bitField0_ |= 0x00000010;
+                codec_ = value;
+                onChanged();
+                return this;
+            }
+
             public final Builder setUnknownFields(final com.google.protobuf.UnknownFieldSet unknownFields) {
                 return super.setUnknownFields(unknownFields);
             }
@@ -14730,26 +15828,30 @@ public final class RpcRequests {
                                               + "\030\002 \002(\010\022+\n\rerrorResponse\030c \001(\0132\024.jraft.Er"
                                               + "rorResponse\"R\n\032AppendEntriesRequestHeade"
                                               + "r\022\020\n\010group_id\030\001 \002(\t\022\021\n\tserver_id\030\002 \002(\t\022\017"
-                                              + "\n\007peer_id\030\003 \002(\t\"\323\001\n\024AppendEntriesRequest"
+                                              + "\n\007peer_id\030\003 \002(\t\"\372\001\n\024AppendEntriesRequest"
                                               + "\022\020\n\010group_id\030\001 \002(\t\022\021\n\tserver_id\030\002 \002(\t\022\017\n"
                                               + "\007peer_id\030\003 \002(\t\022\014\n\004term\030\004 \002(\003\022\025\n\rprev_log"
                                               + "_term\030\005 \002(\003\022\026\n\016prev_log_index\030\006 \002(\003\022!\n\007e"
                                               + "ntries\030\007 \003(\0132\020.jraft.EntryMeta\022\027\n\017commit"
-                                              + "ted_index\030\010 \002(\003\022\014\n\004data\030\t \001(\014\"{\n\025AppendE"
+                                              + "ted_index\030\010 \002(\003\022\014\n\004data\030\t \001(\014\022\022\n\nheartbe"
+                                              + "ats\030d \003(\014\022\021\n\thibernate\030e \001(\010\"\261\001\n\025AppendE"
                                               + "ntriesResponse\022\014\n\004term\030\001 \002(\003\022\017\n\007success\030"
                                               + "\002 \002(\010\022\026\n\016last_log_index\030\003 \001(\003\022+\n\rerrorRe"
-                                              + "sponse\030c \001(\0132\024.jraft.ErrorResponse\"i\n\016Ge"
-                                              + "tFileRequest\022\021\n\treader_id\030\001 \002(\003\022\020\n\010filen"
-                                              + "ame\030\002 \002(\t\022\r\n\005count\030\003 \002(\003\022\016\n\006offset\030\004 \002(\003"
-                                              + "\022\023\n\013read_partly\030\005 \001(\010\"l\n\017GetFileResponse"
-                                              + "\022\013\n\003eof\030\001 \002(\010\022\014\n\004data\030\002 \002(\014\022\021\n\tread_size"
-                                              + "\030\003 \001(\003\022+\n\rerrorResponse\030c \001(\0132\024.jraft.Er"
-                                              + "rorResponse\"Y\n\020ReadIndexRequest\022\020\n\010group"
-                                              + "_id\030\001 \002(\t\022\021\n\tserver_id\030\002 \002(\t\022\017\n\007entries\030"
-                                              + "\003 \003(\014\022\017\n\007peer_id\030\004 \001(\t\"`\n\021ReadIndexRespo"
-                                              + "nse\022\r\n\005index\030\001 \002(\003\022\017\n\007success\030\002 \002(\010\022+\n\re"
+                                              + "sponse\030c \001(\0132\024.jraft.ErrorResponse\022\033\n\023he"
+                                              + "artbeat_responses\030d \003(\014\022\027\n\017hibernate_ack"
+                                              + "ed\030e \001(\010\"x\n\016GetFileRequest\022\021\n\treader_id\030"
+                                              + "\001 \002(\003\022\020\n\010filename\030\002 \002(\t\022\r\n\005count\030\003 \002(\003\022\016"
+                                              + "\n\006offset\030\004 \002(\003\022\023\n\013read_partly\030\005 \001(\010\022\r\n\005c"
+                                              + "odec\030d \001(\t\"{\n\017GetFileResponse\022\013\n\003eof\030\001 \002"
+                                              + "(\010\022\014\n\004data\030\002 \002(\014\022\021\n\tread_size\030\003 \001(\003\022+\n\re"
                                               + "rrorResponse\030c \001(\0132\024.jraft.ErrorResponse"
-                                              + "B(\n\031com.alipay.sofa.jraft.rpcB\013RpcReques" + "ts" };
+                                              + "\022\r\n\005codec\030d \001(\t\"Y\n\020ReadIndexRequest\022\020\n\010g"
+                                              + "roup_id\030\001 \002(\t\022\021\n\tserver_id\030\002 \002(\t\022\017\n\007entr"
+                                              + "ies\030\003 \003(\014\022\017\n\007peer_id\030\004 \001(\t\"`\n\021ReadIndexR"
+                                              + "esponse\022\r\n\005index\030\001 \002(\003\022\017\n\007success\030\002 \002(\010\022"
+                                              + "+\n\rerrorResponse\030c \001(\0132\024.jraft.ErrorResp"
+                                              + "onseB(\n\031com.alipay.sofa.jraft.rpcB\013RpcRe"
+                                              + "quests" };
         com.google.protobuf.Descriptors.FileDescriptor.InternalDescriptorAssigner assigner = new com.google.protobuf.Descriptors.FileDescriptor.InternalDescriptorAssigner() {
             public com.google.protobuf.ExtensionRegistry assignDescriptors(com.google.protobuf.Descriptors.FileDescriptor root) {
                 descriptor = root;
@@ -14796,19 +15898,19 @@ public final class RpcRequests {
         internal_static_jraft_AppendEntriesRequest_descriptor = getDescriptor().getMessageTypes().get(9);
         internal_static_jraft_AppendEntriesRequest_fieldAccessorTable = new com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
             internal_static_jraft_AppendEntriesRequest_descriptor, new java.lang.String[] { "GroupId", "ServerId",
-            "PeerId", "Term", "PrevLogTerm", "PrevLogIndex", "Entries", "CommittedIndex", "Data", });
+            "PeerId", "Term", "PrevLogTerm", "PrevLogIndex", "Entries", "CommittedIndex", "Data", "Heartbeats", "Hibernate", });
         internal_static_jraft_AppendEntriesResponse_descriptor = getDescriptor().getMessageTypes().get(10);
         internal_static_jraft_AppendEntriesResponse_fieldAccessorTable = new com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
             internal_static_jraft_AppendEntriesResponse_descriptor, new java.lang.String[] { "Term", "Success",
-            "LastLogIndex", "ErrorResponse", });
+            "LastLogIndex", "ErrorResponse", "HeartbeatResponses", "HibernateAcked", });
         internal_static_jraft_GetFileRequest_descriptor = getDescriptor().getMessageTypes().get(11);
         internal_static_jraft_GetFileRequest_fieldAccessorTable = new com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
             internal_static_jraft_GetFileRequest_descriptor, new java.lang.String[] { "ReaderId", "Filename", "Count",
-            "Offset", "ReadPartly", });
+            "Offset", "ReadPartly", "Codec", });
         internal_static_jraft_GetFileResponse_descriptor = getDescriptor().getMessageTypes().get(12);
         internal_static_jraft_GetFileResponse_fieldAccessorTable = new com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
             internal_static_jraft_GetFileResponse_descriptor, new java.lang.String[] { "Eof", "Data", "ReadSize",
-            "ErrorResponse", });
+            "ErrorResponse", "Codec", });
         internal_static_jraft_ReadIndexRequest_descriptor = getDescriptor().getMessageTypes().get(13);
         internal_static_jraft_ReadIndexRequest_fieldAccessorTable = new com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
             internal_static_jraft_ReadIndexRequest_descriptor, new java.lang.String[] { "GroupId", "ServerId",
@@ -16,17 +16,21 @@
  */
 package com.alipay.sofa.jraft.rpc.impl.core;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executor;
-import com.alipay.sofa.jraft.JRaftUtils;
 import com.alipay.sofa.jraft.Node;
 import com.alipay.sofa.jraft.NodeManager;
 import com.alipay.sofa.jraft.entity.PeerId;
+import com.alipay.sofa.jraft.entity.RaftOutter.EntryMeta;
+import com.alipay.sofa.jraft.error.RaftError;
+import com.alipay.sofa.jraft.option.RaftOptions;
 import com.alipay.sofa.jraft.rpc.Connection;
 import com.alipay.sofa.jraft.rpc.RaftServerService;
 import com.alipay.sofa.jraft.rpc.RpcContext;
@@ -35,12 +39,16 @@ import com.alipay.sofa.jraft.rpc.RpcRequestClosure;
 import com.alipay.sofa.jraft.rpc.RpcRequests;
 import com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest;
 import com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequestHeader;
+import com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse;
+import com.alipay.sofa.jraft.rpc.RpcRequests.ErrorResponse;
 import com.alipay.sofa.jraft.rpc.impl.ConnectionClosedEventListener;
 import com.alipay.sofa.jraft.util.RpcFactoryHelper;
+import com.alipay.sofa.jraft.util.ThreadPoolMetricRegistry;
 import com.alipay.sofa.jraft.util.Utils;
 import com.alipay.sofa.jraft.util.concurrent.ConcurrentHashSet;
-import com.alipay.sofa.jraft.util.concurrent.MpscSingleThreadExecutor;
+import com.alipay.sofa.jraft.util.concurrent.SerialExecutorGroup;
 import com.alipay.sofa.jraft.util.concurrent.SingleThreadExecutor;
+import com.google.protobuf.ByteString;
 import com.google.protobuf.Message;
 
 /**
@@ -55,6 +63,20 @@ public class AppendEntriesRequestProcessor extends NodeRequestProcessor<AppendEn
 
     static final String PAIR_ATTR = "jraft-peer-pairs";
 
+    /**
+     * The executors of the peer pairs share a fixed number of threads.
+     */
+    private static final class ExecutorGroupHolder {
+        static final SerialExecutorGroup EXECUTORS = new SerialExecutorGroup("JRaft-AppendEntries-Processor",
+                                                       Utils.APPEND_ENTRIES_THREADS_RECV,
+                                                       Utils.MAX_APPEND_ENTRIES_TASKS_PER_THREAD);
+
+        static {
+            ThreadPoolMetricRegistry.metricRegistry().register("threadPool.JRaft-AppendEntries-Processor",
+                EXECUTORS.metricSet());
+        }
+    }
+
     /**
      * Peer executor selector.
      *
@@ -126,6 +148,70 @@ public class AppendEntriesRequestProcessor extends NodeRequestProcessor<AppendEn
         }
     }
 
+    /**
+     * RpcRequestClosure of a coalesced request, the response is sent to all the
+     * original requests in their sequence.
+     *
+     * @author agent (agent@local)
+     */
+    static class CoalescedRpcRequestClosure extends RpcRequestClosure {
+
+        private final List<SequenceRpcRequestClosure> dones;
+
+        CoalescedRpcRequestClosure(final List<SequenceRpcRequestClosure> dones, final Message defaultResp) {
+            super(dones.get(0).getRpcCtx(), defaultResp);
+            this.dones = dones;
+        }
+
+        @Override
+        public void sendResponse(final Message msg) {
+            for (final SequenceRpcRequestClosure done : this.dones) {
+                done.sendResponse(msg);
+            }
+        }
+    }
+
+    /**
+     * RpcRequestClosure of a heartbeat carried by a coalesced heartbeats request, the response
+     * is kept to be sent with the others.
+     *
+     * @author agent (agent@local)
+     */
+    static class HeartbeatRpcRequestClosure extends RpcRequestClosure {
+
+        private volatile Message response;
+
+        HeartbeatRpcRequestClosure(final RpcRequestClosure parent, final Message defaultResp) {
+            super(parent.getRpcCtx(), defaultResp);
+        }
+
+        @Override
+        public void sendResponse(final Message msg) {
+            this.response = msg;
+        }
+
+        Message getResponse() {
+            return this.response;
+        }
+    }
+
+    /**
+     * A pipelined request waiting to be coalesced.
+     */
+    static class PendingRequest {
+        final RaftServerService         service;
+        final AppendEntriesRequest      request;
+        final SequenceRpcRequestClosure done;
+
+        PendingRequest(final RaftServerService service, final AppendEntriesRequest request,
+                       final SequenceRpcRequestClosure done) {
+            super();
+            this.service = service;
+            this.request = request;
+            this.done = done;
+        }
+    }
+
     /**
      * Response message wrapper with a request sequence number and asyncContext.done
      *
@@ -248,17 +334,21 @@ public class AppendEntriesRequestProcessor extends NodeRequestProcessor<AppendEn
 
         private final int                            maxPendingResponses;
 
+        // The pipelined requests waiting to be coalesced, protected by it self object monitor.
+        private final List<PendingRequest>           pendingRequests;
+        private boolean                              flushScheduled;
+
         public PeerRequestContext(final String groupId, final PeerPair pair, final int maxPendingResponses) {
             super();
             this.pair = pair;
             this.groupId = groupId;
-            this.executor = new MpscSingleThreadExecutor(Utils.MAX_APPEND_ENTRIES_TASKS_PER_THREAD,
-                JRaftUtils.createThreadFactory(groupId + "/" + pair + "-AppendEntriesThread"));
+            this.executor = ExecutorGroupHolder.EXECUTORS.newExecutor();
 
             this.sequence = 0;
             this.nextRequiredSequence = 0;
             this.maxPendingResponses = maxPendingResponses;
             this.responseQueue = new PriorityQueue<>(50);
+            this.pendingRequests = new ArrayList<>();
         }
 
         boolean hasTooManyPendingResponses() {
@@ -282,6 +372,33 @@ public class AppendEntriesRequestProcessor extends NodeRequestProcessor<AppendEn
             }
         }
 
+        /**
+         * Adds the request to the pending list and returns true if the caller should
+         * schedule a flush.
+         */
+        boolean addPendingRequest(final PendingRequest req) {
+            synchronized (this.pendingRequests) {
+                this.pendingRequests.add(req);
+                if (this.flushScheduled) {
+                    return false;
+                }
+                this.flushScheduled = true;
+                return true;
+            }
+        }
+
+        List<PendingRequest> drainPendingRequests() {
+            synchronized (this.pendingRequests) {
+                this.flushScheduled = false;
+                if (this.pendingRequests.isEmpty()) {
+                    return null;
+                }
+                final List<PendingRequest> reqs = new ArrayList<>(this.pendingRequests);
+                this.pendingRequests.clear();
+                return reqs;
+            }
+        }
+
         int getNextRequiredSequence() {
             return this.nextRequiredSequence;
         }
@@ -442,6 +559,167 @@ public class AppendEntriesRequestProcessor extends NodeRequestProcessor<AppendEn
         return request.getEntriesCount() == 0 && !request.hasData();
     }
 
+    /**
+     * Returns true when the next request continues the log of the previous one, so they
+     * can be handled as one request.
+     */
+    static boolean canCoalesce(final AppendEntriesRequest prev, final AppendEntriesRequest next) {
+        final int prevCount = prev.getEntriesCount();
+        return prevCount > 0 && next.getEntriesCount() > 0 //
+               && prev.getTerm() == next.getTerm() //
+               && prev.getServerId().equals(next.getServerId()) //
+               && next.getPrevLogIndex() == prev.getPrevLogIndex() + prevCount //
+               && next.getPrevLogTerm() == prev.getEntries(prevCount - 1).getTerm();
+    }
+
+    /**
+     * Merges the consecutive requests into one, the entries and data are appended in order
+     * and the committed index is taken from the last request. The data is a rope of the
+     * requests' data, the node reads its buffers in turn without flattening it.
+     */
+    static AppendEntriesRequest coalesce(final List<AppendEntriesRequest> requests) {
+        final AppendEntriesRequest first = requests.get(0);
+        if (requests.size() == 1) {
+            return first;
+        }
+        final AppendEntriesRequest.Builder rb = first.toBuilder();
+        ByteString data = first.hasData() ? first.getData() : ByteString.EMPTY;
+        for (int i = 1; i < requests.size(); i++) {
+            final AppendEntriesRequest req = requests.get(i);
+            rb.addAllEntries(req.getEntriesList());
+            if (req.hasData()) {
+                data = data.concat(req.getData());
+            }
+        }
+        if (!data.isEmpty()) {
+            rb.setData(data);
+        }
+        return rb.setCommittedIndex(requests.get(requests.size() - 1).getCommittedIndex()).build();
+    }
+
+    private static long dataSize(final AppendEntriesRequest request) {
+        long size = 0;
+        for (final EntryMeta meta : request.getEntriesList()) {
+            size += meta.getDataLen();
+        }
+        return size;
+    }
+
+    private void flushPendingRequests(final PeerRequestContext ctx) {
+        final List<PendingRequest> reqs = ctx.drainPendingRequests();
+        if (reqs == null) {
+            return;
+        }
+        final List<AppendEntriesRequest> batch = new ArrayList<>();
+        final List<SequenceRpcRequestClosure> dones = new ArrayList<>();
+        RaftServerService service = null;
+        int batchEntries = 0;
+        long batchBytes = 0;
+        for (final PendingRequest req : reqs) {
+            if (!batch.isEmpty()) {
+                final RaftOptions opts = ((Node) service).getRaftOptions();
+                if (req.service != service || !canCoalesce(batch.get(batch.size() - 1), req.request)
+                    || batchEntries + req.request.getEntriesCount() > opts.getMaxEntriesSize()
+                    || batchBytes + dataSize(req.request) > opts.getMaxBodySize()) {
+                    handleCoalescedRequest(service, batch, dones);
+                    batch.clear();
+                    dones.clear();
+                    batchEntries = 0;
+                    batchBytes = 0;
+                }
+            }
+            service = req.service;
+            batch.add(req.request);
+            dones.add(req.done);
+            batchEntries += req.request.getEntriesCount();
+            batchBytes += dataSize(req.request);
+        }
+        handleCoalescedRequest(service, batch, dones);
+    }
+
+    private void handleCoalescedRequest(final RaftServerService service, final List<AppendEntriesRequest> batch,
+                                        final List<SequenceRpcRequestClosure> dones) {
+        final RpcRequestClosure done = dones.size() == 1 ? dones.get(0) : new CoalescedRpcRequestClosure(
+            new ArrayList<>(dones), defaultResp());
+        try {
+            final Message response = service.handleAppendEntriesRequest(coalesce(batch), done);
+            if (response != null) {
+                done.sendResponse(response);
+            }
+        } catch (final Throwable t) {
+            LOG.error("handleRequest {} failed", batch.get(0), t);
+            done.sendResponse(RpcFactoryHelper //
+                .responseFactory() //
+                .newResponse(defaultResp(), -1, "handleRequest internal error"));
+        }
+    }
+
+    @Override
+    public Message processRequest(final AppendEntriesRequest request, final RpcRequestClosure done) {
+        if (HeartbeatCoalescer.isCarrier(request)) {
+            return processCoalescedHeartbeats(request, done);
+        }
+        return super.processRequest(request, done);
+    }
+
+    /**
+     * Handles the heartbeats carried by the request one by one, the responses are sent back
+     * in one carrier response in the same order.
+     */
+    private Message processCoalescedHeartbeats(final AppendEntriesRequest carrier, final RpcRequestClosure done) {
+        final List<ByteString> heartbeats = carrier.getHeartbeatsList();
+        final List<AppendEntriesResponse> responses = new ArrayList<>(heartbeats.size());
+        for (final ByteString heartbeat : heartbeats) {
+            Message response;
+            try {
+                response = processHeartbeat(AppendEntriesRequest.parseFrom(heartbeat), done);
+            } catch (final Throwable t) {
+                LOG.error("handleRequest coalesced heartbeat failed", t);
+                response = RpcFactoryHelper //
+                    .responseFactory() //
+                    .newResponse(defaultResp(), -1, "handleRequest internal error");
+            }
+            if (response instanceof ErrorResponse) {
+                response = AppendEntriesResponse.newBuilder() //
+                    .setTerm(0) //
+                    .setSuccess(false) //
+                    .setErrorResponse((ErrorResponse) response) //
+                    .build();
+            }
+            responses.add((AppendEntriesResponse) response);
+        }
+        return HeartbeatCoalescer.newCarrierResponse(responses);
+    }
+
+    private Message processHeartbeat(final AppendEntriesRequest request, final RpcRequestClosure done) {
+        final PeerId peer = new PeerId();
+        if (!peer.parse(request.getPeerId())) {
+            return RpcFactoryHelper //
+                .responseFactory() //
+                .newResponse(defaultResp(), RaftError.EINVAL, "Fail to parse peerId: %s", request.getPeerId());
+        }
+        final Node node = NodeManager.getInstance().get(request.getGroupId(), peer);
+        if (node == null) {
+            return RpcFactoryHelper //
+                .responseFactory() //
+                .newResponse(defaultResp(), RaftError.ENOENT, "Peer id not found: %s, group: %s",
+                    request.getPeerId(), request.getGroupId());
+        }
+        // A heartbeat is always handled synchronously.
+        final HeartbeatRpcRequestClosure hbDone = new HeartbeatRpcRequestClosure(done, defaultResp());
+        final Message response = ((RaftServerService) node).handleAppendEntriesRequest(request, hbDone);
+        if (response != null) {
+            return response;
+        }
+        if (hbDone.getResponse() != null) {
+            return hbDone.getResponse();
+        }
+        return RpcFactoryHelper //
+            .responseFactory() //
+            .newResponse(defaultResp(), RaftError.EINTERNAL, "Heartbeat of group %s is not handled",
+                request.getGroupId());
+    }
+
     @Override
     public Message processRequest0(final RaftServerService service, final AppendEntriesRequest request,
                                    final RpcRequestClosure done) {
@@ -457,8 +735,28 @@ public class AppendEntriesRequestProcessor extends NodeRequestProcessor<AppendEn
             if (!isHeartbeat) {
                 reqSequence = getAndIncrementSequence(groupId, pair, done.getRpcCtx().getConnection());
             }
-            final Message response = service.handleAppendEntriesRequest(request, new SequenceRpcRequestClosure(done,
-                defaultResp(), groupId, pair, reqSequence, isHeartbeat));
+            final SequenceRpcRequestClosure seqDone = new SequenceRpcRequestClosure(done, defaultResp(), groupId,
+                pair, reqSequence, isHeartbeat);
+            if (node.getRaftOptions().isEnableAppendEntriesCoalescing()) {
+                final PeerRequestContext ctx = getPeerRequestContext(groupId, pair);
+                if (ctx != null) {
+                    if (isHeartbeat) {
+                        // Keeps the order with the pending requests.
+                        flushPendingRequests(ctx);
+                    } else {
+                        final SingleThreadExecutor executor = ctx.executor;
+                        if (executor != null) {
+                            // The flush task is queued after the requests that have already arrived,
+                            // so they are drained together.
+                            if (ctx.addPendingRequest(new PendingRequest(service, request, seqDone))) {
+                                executor.execute(() -> flushPendingRequests(ctx));
+                            }
+                            return null;
+                        }
+                    }
+                }
+            }
+            final Message response = service.handleAppendEntriesRequest(request, seqDone);
             if (response != null) {
                 if (isHeartbeat) {
                     done.getRpcCtx().sendResponse(response);
@@ -123,6 +123,15 @@ public class DefaultRaftClientService extends AbstractClientService implements R
         return invokeWithDone(endpoint, request, done, timeoutMs, executor);
     }
 
+    @Override
+    public Future<Message> heartbeat(final Endpoint endpoint, final AppendEntriesRequest request,
+                                     final int timeoutMs, final RpcResponseClosure<AppendEntriesResponse> done) {
+        if (this.nodeOptions.getRaftOptions().isEnableHeartbeatCoalescing()) {
+            return HeartbeatCoalescer.getInstance().heartbeat(this, endpoint, request, timeoutMs, done);
+        }
+        return appendEntries(endpoint, request, timeoutMs, done);
+    }
+
     @Override
     public Future<Message> getFile(final Endpoint endpoint, final GetFileRequest request, final int timeoutMs,
                                    final RpcResponseClosure<GetFileResponse> done) {
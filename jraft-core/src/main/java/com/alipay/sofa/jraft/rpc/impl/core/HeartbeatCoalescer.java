@@ -0,0 +1,300 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.jraft.rpc.impl.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.alipay.sofa.jraft.Status;
+import com.alipay.sofa.jraft.core.TimerManager;
+import com.alipay.sofa.jraft.error.RaftError;
+import com.alipay.sofa.jraft.error.RemotingException;
+import com.alipay.sofa.jraft.rpc.RaftClientService;
+import com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest;
+import com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse;
+import com.alipay.sofa.jraft.rpc.RpcRequests.ErrorResponse;
+import com.alipay.sofa.jraft.rpc.RpcResponseClosure;
+import com.alipay.sofa.jraft.rpc.RpcResponseClosureAdapter;
+import com.alipay.sofa.jraft.rpc.impl.FutureImpl;
+import com.alipay.sofa.jraft.util.Endpoint;
+import com.alipay.sofa.jraft.util.SystemPropertyUtil;
+import com.alipay.sofa.jraft.util.Utils;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
+
+/**
+ * Coalesces the heartbeats of all the raft groups in this process to the same endpoint, the
+ * heartbeats queued in a tick are sent by one carrier request, and the responses are fanned
+ * out to the heartbeat closures.
+ *
+ * The carrier is an AppendEntriesRequest with the serialized heartbeats in its {@code heartbeats}
+ * field, the responses are carried back in the {@code heartbeat_responses} field of the carrier
+ * response. A peer of old version doesn't know the fields and handles the carrier as a request
+ * of the group {@link #CARRIER_GROUP_ID}, it responds ENOENT, then the heartbeats to it are sent
+ * one by one again. The peer is probed with a carrier again after an interval (60s by default,
+ * see {@code jraft.heartbeat.coalescing.probe_interval_ms}), so the heartbeats to it are coalesced
+ * again once it's upgraded.
+ *
+ * @author agent (agent@local)
+ */
+public final class HeartbeatCoalescer {
+
+    private static final Logger LOG               = LoggerFactory.getLogger(HeartbeatCoalescer.class);
+
+    /**
+     * The group id of the carrier requests, no group has it so that the peers of old versions
+     * reject the carrier with ENOENT.
+     */
+    public static final String  CARRIER_GROUP_ID  = "__jraft_coalesced_heartbeats";
+
+    /**
+     * The tick to send the queued heartbeats.
+     */
+    private static final long   TICK_MS           = SystemPropertyUtil.getLong(
+                                                      "jraft.heartbeat.coalescing.tick_ms", 5);
+
+    /**
+     * The interval to probe a peer which doesn't support coalesced heartbeats again.
+     */
+    static final long           PROBE_INTERVAL_MS = SystemPropertyUtil.getLong(
+                                                      "jraft.heartbeat.coalescing.probe_interval_ms", 60_000);
+
+    private static final class TimerHolder {
+        static final TimerManager TIMER = new TimerManager(1, "JRaft-Heartbeat-Coalescer");
+    }
+
+    private static final HeartbeatCoalescer INSTANCE = new HeartbeatCoalescer(PROBE_INTERVAL_MS);
+
+    public static HeartbeatCoalescer getInstance() {
+        return INSTANCE;
+    }
+
+    private static final class PendingHeartbeat {
+        final RaftClientService                         service;
+        final AppendEntriesRequest                      request;
+        final int                                       timeoutMs;
+        final RpcResponseClosure<AppendEntriesResponse> done;
+        final FutureImpl<Message>                       future = new FutureImpl<>();
+
+        PendingHeartbeat(final RaftClientService service, final AppendEntriesRequest request, final int timeoutMs,
+                         final RpcResponseClosure<AppendEntriesResponse> done) {
+            this.service = service;
+            this.request = request;
+            this.timeoutMs = timeoutMs;
+            this.done = done;
+        }
+
+        void complete(Status status, final AppendEntriesResponse response) {
+            if (this.future.isCancelled()) {
+                status = new Status(RaftError.ECANCELED, "RPC request was canceled by future.");
+            }
+            try {
+                if (status.isOk()) {
+                    this.done.setResponse(response);
+                }
+                this.done.run(status);
+            } catch (final Throwable t) {
+                LOG.error("Fail to run heartbeat closure, the request is {}.", this.request, t);
+            }
+            if (this.future.isDone()) {
+                return;
+            }
+            if (status.isOk()) {
+                this.future.setResult(response);
+            } else {
+                this.future.failure(new RemotingException(status.getErrorMsg()));
+            }
+        }
+
+        void sendDirectly(final Endpoint endpoint) {
+            this.service.appendEntries(endpoint, this.request, this.timeoutMs,
+                new RpcResponseClosureAdapter<AppendEntriesResponse>() {
+
+                    @Override
+                    public void run(final Status status) {
+                        complete(status, getResponse());
+                    }
+                });
+        }
+    }
+
+    private final ConcurrentMap<Endpoint, List<PendingHeartbeat>> pendingHeartbeats = new ConcurrentHashMap<>();
+    /** The peers which don't support coalesced heartbeats, to the time to probe them again. */
+    private final ConcurrentMap<Endpoint, Long>                   unsupported       = new ConcurrentHashMap<>();
+    private final long                                            probeIntervalMs;
+
+    HeartbeatCoalescer(final long probeIntervalMs) {
+        this.probeIntervalMs = probeIntervalMs;
+    }
+
+    private boolean isUnsupported(final Endpoint endpoint) {
+        final Long probeAt = this.unsupported.get(endpoint);
+        if (probeAt == null) {
+            return false;
+        }
+        if (Utils.monotonicMs() < probeAt) {
+            return true;
+        }
+        // The peer may be upgraded, probes it with the next carrier.
+        this.unsupported.remove(endpoint, probeAt);
+        return false;
+    }
+
+    /**
+     * Queues the heartbeat to the endpoint, it's sent by the client service in the next tick.
+     */
+    public Future<Message> heartbeat(final RaftClientService service, final Endpoint endpoint,
+                                     final AppendEntriesRequest request, final int timeoutMs,
+                                     final RpcResponseClosure<AppendEntriesResponse> done) {
+        if (isUnsupported(endpoint)) {
+            return service.appendEntries(endpoint, request, timeoutMs, done);
+        }
+        final PendingHeartbeat hb = new PendingHeartbeat(service, request, timeoutMs, done);
+        boolean schedule = false;
+        synchronized (this.pendingHeartbeats) {
+            List<PendingHeartbeat> heartbeats = this.pendingHeartbeats.get(endpoint);
+            if (heartbeats == null) {
+                heartbeats = new ArrayList<>();
+                this.pendingHeartbeats.put(endpoint, heartbeats);
+                schedule = true;
+            }
+            heartbeats.add(hb);
+        }
+        if (schedule) {
+            TimerHolder.TIMER.schedule(() -> flush(endpoint), TICK_MS, TimeUnit.MILLISECONDS);
+        }
+        return hb.future;
+    }
+
+    private void flush(final Endpoint endpoint) {
+        final List<PendingHeartbeat> heartbeats;
+        synchronized (this.pendingHeartbeats) {
+            heartbeats = this.pendingHeartbeats.remove(endpoint);
+        }
+        if (heartbeats == null || heartbeats.isEmpty()) {
+            return;
+        }
+        if (heartbeats.size() == 1) {
+            heartbeats.get(0).sendDirectly(endpoint);
+            return;
+        }
+        final List<AppendEntriesRequest> requests = new ArrayList<>(heartbeats.size());
+        int timeoutMs = Integer.MAX_VALUE;
+        for (final PendingHeartbeat hb : heartbeats) {
+            requests.add(hb.request);
+            timeoutMs = Math.min(timeoutMs, hb.timeoutMs);
+        }
+        final AppendEntriesRequest carrier = newCarrierRequest(endpoint, requests);
+        // Sent by the client service of any group, the carrier is not bound to a group.
+        heartbeats.get(0).service.appendEntries(endpoint, carrier, timeoutMs,
+            new RpcResponseClosureAdapter<AppendEntriesResponse>() {
+
+                @Override
+                public void run(final Status status) {
+                    onCarrierReturned(endpoint, heartbeats, status, getResponse());
+                }
+            });
+    }
+
+    private void onCarrierReturned(final Endpoint endpoint, final List<PendingHeartbeat> heartbeats,
+                                   final Status status, final AppendEntriesResponse response) {
+        if (!status.isOk()) {
+            if (status.getRaftError() == RaftError.ENOENT
+                && this.unsupported.put(endpoint, Utils.monotonicMs() + this.probeIntervalMs) == null) {
+                LOG.warn("Peer {} doesn't support coalesced heartbeats, send them one by one in {} ms.", endpoint,
+                    this.probeIntervalMs);
+            }
+            if (status.getRaftError() == RaftError.ENOENT || this.unsupported.containsKey(endpoint)) {
+                for (final PendingHeartbeat hb : heartbeats) {
+                    hb.sendDirectly(endpoint);
+                }
+                return;
+            }
+            for (final PendingHeartbeat hb : heartbeats) {
+                hb.complete(status, null);
+            }
+            return;
+        }
+        final List<ByteString> responses = response.getHeartbeatResponsesList();
+        for (int i = 0; i < heartbeats.size(); i++) {
+            final PendingHeartbeat hb = heartbeats.get(i);
+            if (i >= responses.size()) {
+                hb.complete(new Status(RaftError.EINTERNAL, "Missing coalesced heartbeat response"), null);
+                continue;
+            }
+            try {
+                final AppendEntriesResponse resp = AppendEntriesResponse.parseFrom(responses.get(i));
+                if (resp.hasErrorResponse()) {
+                    final ErrorResponse eResp = resp.getErrorResponse();
+                    hb.complete(new Status(eResp.getErrorCode(), eResp.getErrorMsg()), null);
+                } else {
+                    hb.complete(Status.OK(), resp);
+                }
+            } catch (final InvalidProtocolBufferException e) {
+                hb.complete(new Status(RaftError.EINTERNAL, "Invalid coalesced heartbeat response: %s",
+                    e.getMessage()), null);
+            }
+        }
+    }
+
+    /**
+     * Returns true if the request is a carrier of coalesced heartbeats.
+     */
+    public static boolean isCarrier(final AppendEntriesRequest request) {
+        return request.getHeartbeatsCount() > 0;
+    }
+
+    /**
+     * Creates the carrier request of the heartbeats to the endpoint.
+     */
+    public static AppendEntriesRequest newCarrierRequest(final Endpoint endpoint,
+                                                         final List<AppendEntriesRequest> heartbeats) {
+        final AppendEntriesRequest.Builder rb = AppendEntriesRequest.newBuilder() //
+            .setGroupId(CARRIER_GROUP_ID) //
+            .setServerId(heartbeats.get(0).getServerId()) //
+            .setPeerId(endpoint.toString()) //
+            .setTerm(0) //
+            .setPrevLogTerm(0) //
+            .setPrevLogIndex(0) //
+            .setCommittedIndex(0);
+        for (final AppendEntriesRequest heartbeat : heartbeats) {
+            rb.addHeartbeats(heartbeat.toByteString());
+        }
+        return rb.build();
+    }
+
+    /**
+     * Creates the carrier response of the heartbeat responses, in the order of the heartbeats.
+     */
+    public static AppendEntriesResponse newCarrierResponse(final List<AppendEntriesResponse> responses) {
+        final AppendEntriesResponse.Builder rb = AppendEntriesResponse.newBuilder() //
+            .setTerm(0) //
+            .setSuccess(true);
+        for (final AppendEntriesResponse response : responses) {
+            rb.addHeartbeatResponses(response.toByteString());
+        }
+        return rb.build();
+    }
+}
@@ -16,6 +16,7 @@
  */
 package com.alipay.sofa.jraft.storage;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.concurrent.ConcurrentHashMap;
@@ -32,14 +33,14 @@ import com.alipay.sofa.jraft.error.RetryAgainException;
 import com.alipay.sofa.jraft.rpc.RpcRequestClosure;
 import com.alipay.sofa.jraft.rpc.RpcRequests.GetFileRequest;
 import com.alipay.sofa.jraft.rpc.RpcRequests.GetFileResponse;
+import com.alipay.sofa.jraft.storage.io.FileChunk;
+import com.alipay.sofa.jraft.storage.io.FileChunkCodecs;
 import com.alipay.sofa.jraft.storage.io.FileReader;
 import com.alipay.sofa.jraft.util.ByteBufferCollector;
 import com.alipay.sofa.jraft.util.OnlyForTest;
 import com.alipay.sofa.jraft.util.RpcFactoryHelper;
 import com.alipay.sofa.jraft.util.Utils;
-import com.google.protobuf.ByteString;
 import com.google.protobuf.Message;
-import com.google.protobuf.ZeroByteStringHelper;
 
 /**
  * File reader service.
@@ -100,22 +101,28 @@ public final class FileService {
                 reader.getPath(), request.getFilename(), request.getOffset(), request.getCount());
         }
 
-        final ByteBufferCollector dataBuffer = ByteBufferCollector.allocate();
         final GetFileResponse.Builder responseBuilder = GetFileResponse.newBuilder();
         try {
+            final FileChunk chunk = reader.readFileChunk(request.getFilename(), request.getOffset(),
+                request.getCount());
+            if (chunk != null) {
+                // The chunk may be a memory mapped region of the file, wraps it without copying
+                // so the transport writes it out directly, unless it's compressed.
+                final ByteBuffer data = chunk.getData();
+                responseBuilder.setReadSize(chunk.isEof() ? FileReader.EOF : data.remaining());
+                responseBuilder.setEof(chunk.isEof());
+                FileChunkCodecs.setData(responseBuilder, request, data);
+                return responseBuilder.build();
+            }
+            final ByteBufferCollector dataBuffer = ByteBufferCollector.allocate();
             final int read = reader
                 .readFile(dataBuffer, request.getFilename(), request.getOffset(), request.getCount());
             responseBuilder.setReadSize(read);
             responseBuilder.setEof(read == FileReader.EOF);
             final ByteBuffer buf = dataBuffer.getBuffer();
             buf.flip();
-            if (!buf.hasRemaining()) {
-                // skip empty data
-                responseBuilder.setData(ByteString.EMPTY);
-            } else {
-                // TODO check hole
-                responseBuilder.setData(ZeroByteStringHelper.wrap(buf));
-            }
+            // TODO check hole
+            FileChunkCodecs.setData(responseBuilder, request, buf);
             return responseBuilder.build();
         } catch (final RetryAgainException e) {
             return RpcFactoryHelper //
@@ -148,6 +155,13 @@ public final class FileService {
      * Remove the reader by readerId.
      */
     public boolean removeReader(final long readerId) {
-        return this.fileReaderMap.remove(readerId) != null;
+        final FileReader reader = this.fileReaderMap.remove(readerId);
+        if (reader == null) {
+            return false;
+        }
+        if (reader instanceof Closeable) {
+            Utils.closeQuietly((Closeable) reader);
+        }
+        return true;
     }
 }
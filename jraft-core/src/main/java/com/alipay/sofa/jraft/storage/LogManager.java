@@ -147,6 +147,16 @@ public interface LogManager extends Lifecycle<LogManagerOptions>, Describer {
      */
     LogEntry getEntry(final long index);
 
+    /**
+     * Get the log entries in [firstIndex, lastIndex] by one batched read, the result stops
+     * at the first missing entry.
+     *
+     * @param firstIndex the index of the first log entry
+     * @param lastIndex  the index of the last log entry
+     * @return the log entries, may be empty
+     */
+    List<LogEntry> getEntries(final long firstIndex, final long lastIndex);
+
     /**
      * Get the log term at index.
      *
@@ -175,7 +185,8 @@ public interface LogManager extends Lifecycle<LogManagerOptions>, Describer {
     /**
      * Return the id the last log.
      *
-     * @param isFlush whether to flush all pending task.
+     * @param isFlush whether to flush all pending task, when it's false the last log id in
+     *                memory is returned without waiting for any lock or the disk thread.
      */
     LogId getLastLogId(final boolean isFlush);
 
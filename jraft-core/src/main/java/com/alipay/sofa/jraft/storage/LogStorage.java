@@ -16,6 +16,7 @@
  */
 package com.alipay.sofa.jraft.storage;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import com.alipay.sofa.jraft.Lifecycle;
@@ -46,6 +47,31 @@ public interface LogStorage extends Lifecycle<LogStorageOptions>, Storage {
      */
     LogEntry getEntry(final long index);
 
+    /**
+     * Get consecutive logEntries starting from firstIndex in one batch, it stops at the first
+     * missing entry, or when either maxCount entries are returned or the total data size of
+     * them reaches maxBytes, the first entry is always returned if it exists.
+     *
+     * @param firstIndex the index of the first entry
+     * @param maxCount   the max count of entries to return
+     * @param maxBytes   the max total data size of entries to return
+     * @return the entries, empty if the first entry is not found
+     * @since 1.3.8
+     */
+    default List<LogEntry> getEntries(final long firstIndex, final int maxCount, final long maxBytes) {
+        final List<LogEntry> entries = new ArrayList<>(Math.min(maxCount, 64));
+        long bytes = 0;
+        for (long index = firstIndex; entries.size() < maxCount && bytes < maxBytes; index++) {
+            final LogEntry entry = getEntry(index);
+            if (entry == null) {
+                break;
+            }
+            entries.add(entry);
+            bytes += entry.getData() != null ? entry.getData().remaining() : 0;
+        }
+        return entries;
+    }
+
     /**
      * Get logEntry's term by index. This method is deprecated, you should use {@link #getEntry(long)} to get the log id's term.
      * @deprecated
@@ -63,6 +89,24 @@ public interface LogStorage extends Lifecycle<LogStorageOptions>, Storage {
      */
     int appendEntries(final List<LogEntry> entries);
 
+    /**
+     * Append entries to log asynchronously, the callback is called with the append success number
+     * once the entries are durable. The callbacks are called one by one in the order of submitting,
+     * and the entries list must not be modified until its callback is called. The caller may submit
+     * the next entries before the previous callback is called, so an implementation can write them
+     * while the previous ones are being synced.
+     *
+     * The default implementation appends the entries synchronously and calls the callback in the
+     * caller thread.
+     *
+     * @param entries the entries to append
+     * @param done    the callback
+     * @since 1.3.8
+     */
+    default void appendEntriesAsync(final List<LogEntry> entries, final AppendCallback done) {
+        done.onAppended(appendEntries(entries));
+    }
+
     /**
      * Delete logs from storage's head, [first_log_index, first_index_kept) will
      * be discarded.
@@ -80,4 +124,19 @@ public interface LogStorage extends Lifecycle<LogStorageOptions>, Storage {
      * This function is called after installing snapshot from leader.
      */
     boolean reset(final long nextLogIndex);
+
+    /**
+     * The callback of {@link #appendEntriesAsync(List, AppendCallback)}.
+     *
+     * @since 1.3.8
+     */
+    interface AppendCallback {
+
+        /**
+         * Called when the entries are appended.
+         *
+         * @param appended the append success number, less than the entries count on failure
+         */
+        void onAppended(final int appended);
+    }
 }
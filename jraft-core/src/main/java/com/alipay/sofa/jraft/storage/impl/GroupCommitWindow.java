@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.jraft.storage.impl;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An adaptive group commit window used by the log manager's disk thread.
+ *
+ * When the disk queue is drained, the disk thread may linger a little before
+ * flushing so that more appends can join the same write and fsync. The window
+ * follows the observed flush latency: lingering is only worthwhile while it is
+ * cheap compared to the fsync it saves, so the window is half of the moving
+ * average flush cost, capped by the configured max delay.
+ *
+ * The group is tracked by the disk thread, flush latencies are reported by the
+ * append callbacks which are called one by one, maybe from the storage thread.
+ *
+ * @author agent (agent@local)
+ */
+public class GroupCommitWindow {
+
+    /** Weight of the latest sample in the flush latency moving average */
+    private static final double ALPHA = 0.2;
+
+    private final long          maxDelayNanos;
+    private final int           maxBytes;
+    private volatile double     avgFlushNanos;
+    private long                groupStartNanos;
+
+    public GroupCommitWindow(final int maxDelayUs, final int maxBytes) {
+        this.maxDelayNanos = TimeUnit.MICROSECONDS.toNanos(maxDelayUs);
+        this.maxBytes = maxBytes;
+    }
+
+    public boolean isEnabled() {
+        return this.maxDelayNanos > 0;
+    }
+
+    /**
+     * Called when the first append joins an empty group.
+     */
+    public void onGroupStart(final long nowNanos) {
+        this.groupStartNanos = nowNanos;
+    }
+
+    /**
+     * Records the cost of one flush(write + fsync) of a group.
+     */
+    public void onFlushed(final long flushNanos) {
+        if (this.avgFlushNanos == 0) {
+            this.avgFlushNanos = flushNanos;
+        } else {
+            this.avgFlushNanos = ALPHA * flushNanos + (1 - ALPHA) * this.avgFlushNanos;
+        }
+    }
+
+    /**
+     * Returns the current window size in nanoseconds.
+     */
+    public long windowNanos() {
+        return Math.min(this.maxDelayNanos, (long) (this.avgFlushNanos / 2));
+    }
+
+    /**
+     * Returns the deadline in nanoseconds until which the current group may wait
+     * for more appends, or 0 if it should be flushed right now.
+     *
+     * @param bufferSize the byte size of the current group
+     * @param nowNanos   current nano time
+     */
+    public long lingerDeadline(final int bufferSize, final long nowNanos) {
+        if (!isEnabled() || bufferSize >= this.maxBytes) {
+            return 0;
+        }
+        final long deadline = this.groupStartNanos + windowNanos();
+        return deadline - nowNanos > 0 ? deadline : 0;
+    }
+
+    public int getMaxBytes() {
+        return this.maxBytes;
+    }
+}
@@ -0,0 +1,349 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.jraft.storage.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.alipay.sofa.jraft.core.NodeImpl;
+import com.alipay.sofa.jraft.core.NodeMetrics;
+import com.alipay.sofa.jraft.entity.EnumOutter.ErrorType;
+import com.alipay.sofa.jraft.entity.LocalStorageOutter.StablePBMeta;
+import com.alipay.sofa.jraft.entity.PeerId;
+import com.alipay.sofa.jraft.error.RaftError;
+import com.alipay.sofa.jraft.error.RaftException;
+import com.alipay.sofa.jraft.option.RaftMetaStorageOptions;
+import com.alipay.sofa.jraft.option.RaftOptions;
+import com.alipay.sofa.jraft.storage.RaftMetaStorage;
+import com.alipay.sofa.jraft.storage.io.ProtoBufFile;
+import com.alipay.sofa.jraft.util.Bits;
+import com.alipay.sofa.jraft.util.CrcUtil;
+import com.alipay.sofa.jraft.util.SystemPropertyUtil;
+import com.alipay.sofa.jraft.util.Utils;
+
+/**
+ * Raft meta storage which appends every change of term and votedFor to a journal file instead of
+ * rewriting the whole meta file, it's not thread-safe. Record format:
+ * <ul>
+ * <li>body length(4 bytes)</li>
+ * <li>crc64 of body(8 bytes)</li>
+ * <li>body: term(8 bytes) and votedFor</li>
+ * </ul>
+ * The last valid record is the current meta, a torn record at the tail is dropped on load. The
+ * journal is compacted into a new file holding only the current meta when it has too many records,
+ * so it's loaded in constant time.
+ *
+ * The journal is folded into the {@link LocalRaftMetaStorage} file on shutdown, and the meta file
+ * is loaded when there is no journal, so it's safe to switch between the two storages after a
+ * clean shutdown.
+ *
+ * @author agent (agent@local)
+ */
+public class JournalRaftMetaStorage implements RaftMetaStorage {
+
+    private static final Logger LOG                 = LoggerFactory.getLogger(JournalRaftMetaStorage.class);
+    private static final String RAFT_META           = "raft_meta";
+    private static final String RAFT_META_JOURNAL   = "raft_meta.journal";
+    private static final String TEMP_SUFFIX         = ".tmp";
+    private static final int    RECORD_HEADER_SIZE  = 12;
+    /** votedFor is at most a few hundred bytes, a larger length is a torn record */
+    private static final int    MAX_RECORD_BODY     = 64 * 1024;
+
+    /**
+     * Compact the journal when it has this many records.
+     */
+    private static final int    MAX_JOURNAL_RECORDS = SystemPropertyUtil.getInt("jraft.meta.journal.max_records",
+                                                        1024);
+
+    private boolean             isInited;
+    private final String        path;
+    private long                term;
+    /** blank votedFor information*/
+    private PeerId              votedFor            = PeerId.emptyPeer();
+    private final RaftOptions   raftOptions;
+    private NodeMetrics         nodeMetrics;
+    private NodeImpl            node;
+    private FileChannel         journal;
+    private int                 journalRecords;
+
+    public JournalRaftMetaStorage(final String path, final RaftOptions raftOptions) {
+        super();
+        this.path = path;
+        this.raftOptions = raftOptions;
+    }
+
+    @Override
+    public boolean init(final RaftMetaStorageOptions opts) {
+        if (this.isInited) {
+            LOG.warn("Raft meta storage is already inited.");
+            return true;
+        }
+        this.node = opts.getNode();
+        this.nodeMetrics = this.node.getNodeMetrics();
+        try {
+            FileUtils.forceMkdir(new File(this.path));
+        } catch (final IOException e) {
+            LOG.error("Fail to mkdir {}", this.path);
+            return false;
+        }
+        try {
+            if (!load()) {
+                return false;
+            }
+            if (this.journalRecords == 0) {
+                // Starts the journal with the loaded meta.
+                compact();
+            }
+        } catch (final IOException e) {
+            LOG.error("Fail to load raft meta journal, path={}.", this.path, e);
+            Utils.closeQuietly(this.journal);
+            this.journal = null;
+            return false;
+        }
+        this.isInited = true;
+        return true;
+    }
+
+    private Path journalPath() {
+        return Paths.get(this.path, RAFT_META_JOURNAL);
+    }
+
+    private boolean load() throws IOException {
+        final Path journalPath = journalPath();
+        Files.deleteIfExists(Paths.get(this.path, RAFT_META_JOURNAL + TEMP_SUFFIX));
+        if (!Files.exists(journalPath)) {
+            return loadMetaFile();
+        }
+        this.journal = FileChannel.open(journalPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        final long size = this.journal.size();
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Too large raft meta journal, size=" + size);
+        }
+        final ByteBuffer buf = ByteBuffer.allocate((int) size);
+        while (buf.hasRemaining() && this.journal.read(buf) >= 0) {
+            // read the whole journal, it's small as it's compacted periodically
+        }
+        final byte[] bytes = buf.array();
+        int pos = 0;
+        int records = 0;
+        while (pos + RECORD_HEADER_SIZE <= bytes.length) {
+            final int bodyLen = Bits.getInt(bytes, pos);
+            if (bodyLen < 8 || bodyLen > MAX_RECORD_BODY || pos + RECORD_HEADER_SIZE + bodyLen > bytes.length) {
+                break;
+            }
+            final int bodyPos = pos + RECORD_HEADER_SIZE;
+            if (Bits.getLong(bytes, pos + 4) != CrcUtil.crc64(bytes, bodyPos, bodyLen)) {
+                break;
+            }
+            final PeerId peer = new PeerId();
+            if (!peer.parse(new String(bytes, bodyPos + 8, bodyLen - 8, StandardCharsets.UTF_8))) {
+                LOG.error("Fail to parse votedFor in raft meta journal, path={}, pos={}.", this.path, pos);
+                return false;
+            }
+            this.term = Bits.getLong(bytes, bodyPos);
+            this.votedFor = peer;
+            records++;
+            pos = bodyPos + bodyLen;
+        }
+        if (pos < bytes.length) {
+            LOG.warn("Truncate the torn tail of raft meta journal, path={}, from {} to {}.", this.path, bytes.length,
+                pos);
+            this.journal.truncate(pos);
+        }
+        this.journal.position(pos);
+        this.journalRecords = records;
+        return records > 0 || loadMetaFile();
+    }
+
+    private boolean loadMetaFile() {
+        try {
+            final StablePBMeta meta = new ProtoBufFile(this.path + File.separator + RAFT_META).load();
+            if (meta != null) {
+                this.term = meta.getTerm();
+                return this.votedFor.parse(meta.getVotedfor());
+            }
+            return true;
+        } catch (final IOException e) {
+            LOG.error("Fail to load raft meta storage", e);
+            return false;
+        }
+    }
+
+    private ByteBuffer encodeRecord() {
+        final byte[] peer = this.votedFor.toString().getBytes(StandardCharsets.UTF_8);
+        final byte[] record = new byte[RECORD_HEADER_SIZE + 8 + peer.length];
+        Bits.putInt(record, 0, 8 + peer.length);
+        Bits.putLong(record, RECORD_HEADER_SIZE, this.term);
+        System.arraycopy(peer, 0, record, RECORD_HEADER_SIZE + 8, peer.length);
+        Bits.putLong(record, 4, CrcUtil.crc64(record, RECORD_HEADER_SIZE, record.length - RECORD_HEADER_SIZE));
+        return ByteBuffer.wrap(record);
+    }
+
+    /**
+     * Replaces the journal by a new one holding only the current meta.
+     */
+    private void compact() throws IOException {
+        final Path journalPath = journalPath();
+        final Path tempPath = Paths.get(this.path, RAFT_META_JOURNAL + TEMP_SUFFIX);
+        try (final FileChannel temp = FileChannel.open(tempPath, StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(temp, encodeRecord());
+            temp.force(true);
+        }
+        Utils.closeQuietly(this.journal);
+        this.journal = null;
+        if (!Utils.atomicMoveFile(tempPath.toFile(), journalPath.toFile(), true)) {
+            throw new IOException("Fail to move " + tempPath + " to " + journalPath);
+        }
+        this.journal = FileChannel.open(journalPath, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.journalRecords = 1;
+    }
+
+    private static void writeFully(final FileChannel channel, final ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+    }
+
+    private boolean save() {
+        final long start = Utils.monotonicMs();
+        try {
+            if (this.journal == null || this.journalRecords >= MAX_JOURNAL_RECORDS) {
+                compact();
+            } else {
+                writeFully(this.journal, encodeRecord());
+                if (this.raftOptions.isSyncMeta()) {
+                    this.journal.force(false);
+                }
+                this.journalRecords++;
+            }
+            return true;
+        } catch (final Exception e) {
+            LOG.error("Fail to save raft meta", e);
+            reportIOError();
+            // Reopens the journal by compaction on next save.
+            Utils.closeQuietly(this.journal);
+            this.journal = null;
+            return false;
+        } finally {
+            final long cost = Utils.monotonicMs() - start;
+            if (this.nodeMetrics != null) {
+                this.nodeMetrics.recordLatency("save-raft-meta", cost);
+            }
+            LOG.info("Save raft meta, path={}, term={}, votedFor={}, cost time={} ms", this.path, this.term,
+                this.votedFor, cost);
+        }
+    }
+
+    private boolean saveMetaFile() {
+        final StablePBMeta meta = StablePBMeta.newBuilder() //
+            .setTerm(this.term) //
+            .setVotedfor(this.votedFor.toString()) //
+            .build();
+        try {
+            return new ProtoBufFile(this.path + File.separator + RAFT_META).save(meta, true);
+        } catch (final IOException e) {
+            LOG.warn("Fail to save raft meta file, path={}.", this.path, e);
+            return false;
+        }
+    }
+
+    private void reportIOError() {
+        this.node.onError(new RaftException(ErrorType.ERROR_TYPE_META, RaftError.EIO,
+            "Fail to save raft meta, path=%s", this.path));
+    }
+
+    @Override
+    public void shutdown() {
+        if (!this.isInited) {
+            return;
+        }
+        // Hands the meta over to the meta file, so the journal doesn't shadow the meta file saved by
+        // a LocalRaftMetaStorage later.
+        if (saveMetaFile()) {
+            Utils.closeQuietly(this.journal);
+            this.journal = null;
+            try {
+                Files.deleteIfExists(journalPath());
+            } catch (final IOException e) {
+                LOG.warn("Fail to delete raft meta journal, path={}.", this.path, e);
+            }
+        } else {
+            save();
+        }
+        Utils.closeQuietly(this.journal);
+        this.journal = null;
+        this.isInited = false;
+    }
+
+    private void checkState() {
+        if (!this.isInited) {
+            throw new IllegalStateException("JournalRaftMetaStorage not initialized");
+        }
+    }
+
+    @Override
+    public boolean setTerm(final long term) {
+        checkState();
+        this.term = term;
+        return save();
+    }
+
+    @Override
+    public long getTerm() {
+        checkState();
+        return this.term;
+    }
+
+    @Override
+    public boolean setVotedFor(final PeerId peerId) {
+        checkState();
+        this.votedFor = peerId;
+        return save();
+    }
+
+    @Override
+    public PeerId getVotedFor() {
+        checkState();
+        return this.votedFor;
+    }
+
+    @Override
+    public boolean setTermAndVotedFor(final long term, final PeerId peerId) {
+        checkState();
+        this.votedFor = peerId;
+        this.term = term;
+        return save();
+    }
+
+    @Override
+    public String toString() {
+        return "JournalRaftMetaStorage [path=" + this.path + ", term=" + this.term + ", votedFor=" + this.votedFor
+               + ", journalRecords=" + this.journalRecords + "]";
+    }
+}
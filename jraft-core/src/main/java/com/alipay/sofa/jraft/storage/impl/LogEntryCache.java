@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.jraft.storage.impl;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.alipay.sofa.jraft.entity.LogEntry;
+
+/**
+ * A size bounded cache of decoded log entries keyed by log index, it's shared by all the
+ * replicators of a leader, so the entries read from log storage for one lagging follower
+ * can be reused by the others. Least recently used entries are evicted first.
+ *
+ * Every invalidation bumps the generation of the cache, and a batch read from storage
+ * is only put into the cache if the generation doesn't change since the read started,
+ * which keeps the stale entries of a truncated suffix out of the cache.
+ *
+ * @author agent (agent@local)
+ */
+public class LogEntryCache {
+
+    /** Rough memory overhead of a cached entry besides its data */
+    private static final int            ENTRY_OVERHEAD = 128;
+
+    private final long                  maxBytes;
+    private final Map<Long, LogEntry>   entries        = new LinkedHashMap<>(256, 0.75f, true);
+    private long                        bytes;
+    private long                        generation;
+
+    public LogEntryCache(final long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public synchronized LogEntry get(final long index) {
+        return this.entries.get(index);
+    }
+
+    public synchronized long getGeneration() {
+        return this.generation;
+    }
+
+    /**
+     * Puts the entries read from storage into cache.
+     *
+     * @param toCache    entries to cache
+     * @param generation the generation of the cache before reading the entries
+     */
+    public synchronized void putAll(final List<LogEntry> toCache, final long generation) {
+        if (generation != this.generation) {
+            return;
+        }
+        for (final LogEntry entry : toCache) {
+            final LogEntry old = this.entries.put(entry.getId().getIndex(), entry);
+            if (old != null) {
+                this.bytes -= sizeOf(old);
+            }
+            this.bytes += sizeOf(entry);
+        }
+        final Iterator<LogEntry> it = this.entries.values().iterator();
+        while (this.bytes > this.maxBytes && it.hasNext()) {
+            this.bytes -= sizeOf(it.next());
+            it.remove();
+        }
+    }
+
+    /**
+     * Removes the entries before firstIndexKept.
+     */
+    public synchronized void truncatePrefix(final long firstIndexKept) {
+        final Iterator<Map.Entry<Long, LogEntry>> it = this.entries.entrySet().iterator();
+        while (it.hasNext()) {
+            final Map.Entry<Long, LogEntry> entry = it.next();
+            if (entry.getKey() < firstIndexKept) {
+                this.bytes -= sizeOf(entry.getValue());
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Removes all the entries and invalidates the reads in progress.
+     */
+    public synchronized void clear() {
+        this.entries.clear();
+        this.bytes = 0;
+        this.generation++;
+    }
+
+    public synchronized int size() {
+        return this.entries.size();
+    }
+
+    public synchronized long getBytes() {
+        return this.bytes;
+    }
+
+    private static long sizeOf(final LogEntry entry) {
+        return ENTRY_OVERHEAD + (entry.getData() != null ? entry.getData().remaining() : 0);
+    }
+}
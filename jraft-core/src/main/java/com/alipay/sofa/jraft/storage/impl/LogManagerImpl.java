@@ -20,8 +20,10 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
@@ -95,12 +97,16 @@ public class LogManagerImpl implements LogManager {
     private volatile long                                    firstLogIndex;
     private volatile long                                    lastLogIndex;
     private volatile LogId                                   lastSnapshotId         = new LogId(0, 0);
+    // The last log id in memory, published in writeLock so that it's read without any lock.
+    private volatile LogId                                   lastLogId              = new LogId(0, 0);
     private final Map<Long, WaitMeta>                        waitMap                = new HashMap<>();
     private Disruptor<StableClosureEvent>                    disruptor;
     private RingBuffer<StableClosureEvent>                   diskQueue;
     private RaftOptions                                      raftOptions;
     private volatile CountDownLatch                          shutDownLatch;
     private NodeMetrics                                      nodeMetrics;
+    private GroupCommitWindow                                groupCommitWindow;
+    private LogEntryCache                                    entryCache;
     private final CopyOnWriteArrayList<LastLogIndexListener> lastLogIndexListeners  = new CopyOnWriteArrayList<>();
 
     private enum EventType {
@@ -188,7 +194,15 @@ public class LogManagerImpl implements LogManager {
             this.firstLogIndex = this.logStorage.getFirstLogIndex();
             this.lastLogIndex = this.logStorage.getLastLogIndex();
             this.diskId = new LogId(this.lastLogIndex, getTermFromLogStorage(this.lastLogIndex));
+            this.lastLogId = this.diskId.copy();
             this.fsmCaller = opts.getFsmCaller();
+            if (this.raftOptions.isSync() && this.raftOptions.getGroupCommitMaxDelayUs() > 0) {
+                this.groupCommitWindow = new GroupCommitWindow(this.raftOptions.getGroupCommitMaxDelayUs(),
+                    this.raftOptions.getGroupCommitMaxBytes());
+            }
+            if (this.raftOptions.getLogEntryCacheBytes() > 0) {
+                this.entryCache = new LogEntryCache(this.raftOptions.getLogEntryCacheBytes());
+            }
             this.disruptor = DisruptorBuilder.<StableClosureEvent> newInstance() //
                     .setEventFactory(new StableClosureEventFactory()) //
                     .setRingBufferSize(opts.getDisruptorBufferSize()) //
@@ -320,6 +334,7 @@ public class LogManagerImpl implements LogManager {
             if (!entries.isEmpty()) {
                 done.setFirstLogIndex(entries.get(0).getId().getIndex());
                 this.logsInMemory.addAll(entries);
+                publishLastLogId();
             }
             done.setEntries(entries);
 
@@ -407,43 +422,18 @@ public class LogManagerImpl implements LogManager {
         return true;
     }
 
-    private LogId appendToStorage(final List<LogEntry> toAppend) {
-        LogId lastId = null;
-        if (!this.hasError) {
-            final long startMs = Utils.monotonicMs();
-            final int entriesCount = toAppend.size();
-            this.nodeMetrics.recordSize("append-logs-count", entriesCount);
-            try {
-                int writtenSize = 0;
-                for (int i = 0; i < entriesCount; i++) {
-                    final LogEntry entry = toAppend.get(i);
-                    writtenSize += entry.getData() != null ? entry.getData().remaining() : 0;
-                }
-                this.nodeMetrics.recordSize("append-logs-bytes", writtenSize);
-                final int nAppent = this.logStorage.appendEntries(toAppend);
-                if (nAppent != entriesCount) {
-                    LOG.error("**Critical error**, fail to appendEntries, nAppent={}, toAppend={}", nAppent,
-                        toAppend.size());
-                    reportError(RaftError.EIO.getNumber(), "Fail to append log entries");
-                }
-                if (nAppent > 0) {
-                    lastId = toAppend.get(nAppent - 1).getId();
-                }
-                toAppend.clear();
-            } finally {
-                this.nodeMetrics.recordLatency("append-logs", Utils.monotonicMs() - startMs);
-            }
-        }
-        return lastId;
-    }
-
     private class AppendBatcher {
         List<StableClosure> storage;
         int                 cap;
         int                 size;
         int                 bufferSize;
         List<LogEntry>      toAppend;
-        LogId               lastId;
+        // The last log id which is durable, updated by the append callbacks.
+        volatile LogId      lastId;
+        final int           maxInflights;
+        final Semaphore     inflights;
+        // The groups to submit, one is taken after acquiring an inflight slot and given back before releasing it.
+        final ArrayBlockingQueue<AppendGroup> freeGroups;
 
         public AppendBatcher(final List<StableClosure> storage, final int cap, final List<LogEntry> toAppend,
                              final LogId lastId) {
@@ -452,13 +442,90 @@ public class LogManagerImpl implements LogManager {
             this.cap = cap;
             this.toAppend = toAppend;
             this.lastId = lastId;
+            this.maxInflights = Math.max(1, LogManagerImpl.this.raftOptions.getMaxInflightLogAppends());
+            this.inflights = new Semaphore(this.maxInflights);
+            this.freeGroups = new ArrayBlockingQueue<>(this.maxInflights);
+            for (int i = 0; i < this.maxInflights; i++) {
+                this.freeGroups.add(new AppendGroup());
+            }
         }
 
+        /**
+         * Submits the current group to log storage, it may return before the group is durable,
+         * returns the last durable log id.
+         */
         LogId flush() {
             if (this.size > 0) {
-                this.lastId = appendToStorage(this.toAppend);
-                for (int i = 0; i < this.size; i++) {
-                    this.storage.get(i).getEntries().clear();
+                // Waits for a slot, the group is written while the previous ones are being synced.
+                this.inflights.acquireUninterruptibly();
+                final AppendGroup group = this.freeGroups.poll();
+                assert group != null;
+                for (int i = 0; i < this.storage.size(); i++) {
+                    group.closures.add(this.storage.get(i));
+                }
+                for (int i = 0; i < this.toAppend.size(); i++) {
+                    group.entries.add(this.toAppend.get(i));
+                }
+                this.storage.clear();
+                this.toAppend.clear();
+                appendToStorage(group);
+            }
+            this.size = 0;
+            this.bufferSize = 0;
+            return this.lastId;
+        }
+
+        /**
+         * Flushes the current group and waits for all the submitted groups to be durable.
+         */
+        LogId drain() {
+            flush();
+            this.inflights.acquireUninterruptibly(this.maxInflights);
+            this.inflights.release(this.maxInflights);
+            return this.lastId;
+        }
+
+        private void appendToStorage(final AppendGroup group) {
+            group.startMs = Utils.monotonicMs();
+            group.startNanos = System.nanoTime();
+            if (LogManagerImpl.this.hasError) {
+                group.onAppended(0);
+                return;
+            }
+            final List<LogEntry> entries = group.entries;
+            final int entriesCount = entries.size();
+            LogManagerImpl.this.nodeMetrics.recordSize("append-logs-count", entriesCount);
+            int writtenSize = 0;
+            for (int i = 0; i < entriesCount; i++) {
+                final LogEntry entry = entries.get(i);
+                writtenSize += entry.getData() != null ? entry.getData().remaining() : 0;
+            }
+            LogManagerImpl.this.nodeMetrics.recordSize("append-logs-bytes", writtenSize);
+            LogManagerImpl.this.logStorage.appendEntriesAsync(entries, group);
+        }
+
+        private void onAppended(final AppendGroup group, final int nAppent) {
+            final List<LogEntry> entries = group.entries;
+            final List<StableClosure> closures = group.closures;
+            try {
+                LogId appendedId = null;
+                if (!LogManagerImpl.this.hasError) {
+                    if (nAppent != entries.size()) {
+                        LOG.error("**Critical error**, fail to appendEntries, nAppent={}, toAppend={}", nAppent,
+                            entries.size());
+                        reportError(RaftError.EIO.getNumber(), "Fail to append log entries");
+                    }
+                    if (nAppent > 0) {
+                        appendedId = entries.get(nAppent - 1).getId();
+                        this.lastId = appendedId;
+                    }
+                    LogManagerImpl.this.nodeMetrics.recordLatency("append-logs", Utils.monotonicMs() - group.startMs);
+                    if (LogManagerImpl.this.groupCommitWindow != null) {
+                        LogManagerImpl.this.groupCommitWindow.onFlushed(System.nanoTime() - group.startNanos);
+                    }
+                }
+                for (int i = 0; i < closures.size(); i++) {
+                    closures.get(i).getEntries().clear();
                     Status st = null;
                     try {
                         if (LogManagerImpl.this.hasError) {
@@ -466,31 +533,78 @@ public class LogManagerImpl implements LogManager {
                         } else {
                             st = Status.OK();
                         }
-                        this.storage.get(i).run(st);
+                        closures.get(i).run(st);
                     } catch (Throwable t) {
                         LOG.error("Fail to run closure with status: {}.", st, t);
                     }
                 }
-                this.toAppend.clear();
-                this.storage.clear();
+                setDiskId(appendedId);
+            } finally {
+                entries.clear();
+                closures.clear();
+                this.freeGroups.add(group);
+                this.inflights.release();
+            }
+        }
 
+        /**
+         * A group of appends submitted to log storage, it's reused once it's durable.
+         */
+        private class AppendGroup implements LogStorage.AppendCallback {
+            final List<StableClosure> closures = new ArrayList<>();
+            final List<LogEntry>      entries  = new ArrayList<>();
+            long                      startMs;
+            long                      startNanos;
+
+            @Override
+            public void onAppended(final int appended) {
+                AppendBatcher.this.onAppended(this, appended);
             }
-            this.size = 0;
-            this.bufferSize = 0;
-            return this.lastId;
         }
 
         void append(final StableClosure done) {
-            if (this.size == this.cap || this.bufferSize >= LogManagerImpl.this.raftOptions.getMaxAppendBufferSize()) {
+            if (this.size == this.cap || this.bufferSize >= maxBufferSize()) {
                 flush();
             }
+            if (this.size == 0 && LogManagerImpl.this.groupCommitWindow != null) {
+                LogManagerImpl.this.groupCommitWindow.onGroupStart(System.nanoTime());
+            }
             this.storage.add(done);
             this.size++;
-            this.toAppend.addAll(done.getEntries());
-            for (final LogEntry entry : done.getEntries()) {
+            final List<LogEntry> entries = done.getEntries();
+            for (int i = 0; i < entries.size(); i++) {
+                final LogEntry entry = entries.get(i);
+                this.toAppend.add(entry);
                 this.bufferSize += entry.getData() != null ? entry.getData().remaining() : 0;
             }
         }
+
+        private int maxBufferSize() {
+            final GroupCommitWindow window = LogManagerImpl.this.groupCommitWindow;
+            return window != null ? window.getMaxBytes() : LogManagerImpl.this.raftOptions.getMaxAppendBufferSize();
+        }
+
+        /**
+         * Waits for more appends to join the current group until the group commit window
+         * elapses, returns true if new events are available and the flush can be delayed.
+         */
+        boolean waitForMoreAppends(final long sequence) {
+            final GroupCommitWindow window = LogManagerImpl.this.groupCommitWindow;
+            if (window == null || this.size == 0) {
+                return false;
+            }
+            final long deadline = window.lingerDeadline(this.bufferSize, System.nanoTime());
+            if (deadline == 0) {
+                return false;
+            }
+            while (LogManagerImpl.this.diskQueue.getCursor() <= sequence) {
+                if (LogManagerImpl.this.stopped || System.nanoTime() - deadline >= 0) {
+                    return false;
+                }
+                ThreadHelper.onSpinWait();
+            }
+            return true;
+        }
     }
 
     private class StableClosureEventHandler implements EventHandler<StableClosureEvent> {
@@ -503,7 +617,7 @@ public class LogManagerImpl implements LogManager {
         public void onEvent(final StableClosureEvent event, final long sequence, final boolean endOfBatch)
                                                                                                           throws Exception {
             if (event.type == EventType.SHUTDOWN) {
-                this.lastId = this.ab.flush();
+                this.lastId = this.ab.drain();
                 setDiskId(this.lastId);
                 LogManagerImpl.this.shutDownLatch.countDown();
                 event.reset();
@@ -517,7 +631,8 @@ public class LogManagerImpl implements LogManager {
             if (done.getEntries() != null && !done.getEntries().isEmpty()) {
                 this.ab.append(done);
             } else {
-                this.lastId = this.ab.flush();
+                // The storage operations below must see all the submitted appends.
+                this.lastId = this.ab.drain();
                 boolean ret = true;
                 switch (eventType) {
                     case LAST_LOG_ID:
@@ -566,6 +681,10 @@ public class LogManagerImpl implements LogManager {
                 }
             }
             if (endOfBatch) {
+                if (this.ab.waitForMoreAppends(sequence)) {
+                    // group commit, the current group will be flushed with the following events.
+                    return;
+                }
                 this.lastId = this.ab.flush();
                 setDiskId(this.lastId);
             }
@@ -650,6 +769,7 @@ public class LogManagerImpl implements LogManager {
                     LOG.warn("Reset log manager failed, nextLogIndex={}.", meta.getLastIncludedIndex() + 1);
                 }
             }
+            publishLastLogId();
         } finally {
             this.writeLock.unlock();
         }
@@ -732,6 +852,8 @@ public class LogManagerImpl implements LogManager {
 
     @Override
     public LogEntry getEntry(final long index) {
+        long cacheGeneration = -1;
+        long readAheadLastIndex = index;
         this.readLock.lock();
         try {
             if (index > this.lastLogIndex || index < this.firstLogIndex) {
@@ -741,22 +863,126 @@ public class LogManagerImpl implements LogManager {
             if (entry != null) {
                 return entry;
             }
+            if (this.entryCache != null) {
+                final LogEntry cached = this.entryCache.get(index);
+                if (cached != null) {
+                    return cached;
+                }
+                cacheGeneration = this.entryCache.getGeneration();
+                // Only read ahead the entries that are stable in storage, the ones in memory may
+                // be not flushed yet, and the storage may still have the stale entries of a
+                // truncated suffix in that range.
+                readAheadLastIndex = this.lastLogIndex;
+                if (!this.logsInMemory.isEmpty()) {
+                    readAheadLastIndex = Math.min(readAheadLastIndex,
+                        this.logsInMemory.peekFirst().getId().getIndex() - 1);
+                }
+            }
         } finally {
             this.readLock.unlock();
         }
-        final LogEntry entry = this.logStorage.getEntry(index);
+        final LogEntry entry;
+        if (cacheGeneration >= 0 && readAheadLastIndex >= index) {
+            // Verified before being cached.
+            entry = getEntriesFromStorage(index, readAheadLastIndex, cacheGeneration);
+        } else {
+            entry = this.logStorage.getEntry(index);
+            // Validate checksum
+            if (entry != null) {
+                checkEntryChecksum(entry);
+            }
+        }
         if (entry == null) {
             reportError(RaftError.EIO.getNumber(), "Corrupted entry at index=%d, not found", index);
         }
-        // Validate checksum
-        if (entry != null && this.raftOptions.isEnableLogEntryChecksum() && entry.isCorrupted()) {
+        return entry;
+    }
+
+    @Override
+    public List<LogEntry> getEntries(final long firstIndex, final long lastIndex) {
+        final List<LogEntry> entries = new ArrayList<>((int) Math.min(Math.max(lastIndex - firstIndex + 1, 0),
+            this.raftOptions.getMaxEntriesSize()));
+        final List<LogEntry> memEntries = new ArrayList<>();
+        long storageLastIndex;
+        this.readLock.lock();
+        try {
+            if (firstIndex > this.lastLogIndex || firstIndex < this.firstLogIndex) {
+                return entries;
+            }
+            final long last = Math.min(lastIndex, this.lastLogIndex);
+            storageLastIndex = last;
+            if (!this.logsInMemory.isEmpty()) {
+                storageLastIndex = Math.min(last, this.logsInMemory.peekFirst().getId().getIndex() - 1);
+            }
+            // The entries in memory are copied in the lock, they may be removed once flushed.
+            for (long index = Math.max(firstIndex, storageLastIndex + 1); index <= last; index++) {
+                memEntries.add(getEntryFromMemory(index));
+            }
+        } finally {
+            this.readLock.unlock();
+        }
+        long index = firstIndex;
+        while (index <= storageLastIndex) {
+            // The cached entries are verified before being cached.
+            LogEntry entry = this.entryCache != null ? this.entryCache.get(index) : null;
+            if (entry != null) {
+                entries.add(entry);
+                index++;
+                continue;
+            }
+            final int maxCount = (int) Math.min(Integer.MAX_VALUE, storageLastIndex - index + 1);
+            final List<LogEntry> stored = this.logStorage.getEntries(index, maxCount, Long.MAX_VALUE);
+            if (stored.isEmpty()) {
+                reportError(RaftError.EIO.getNumber(), "Corrupted entry at index=%d, not found", index);
+                return entries;
+            }
+            for (final LogEntry e : stored) {
+                checkEntryChecksum(e);
+                entries.add(e);
+            }
+            index += stored.size();
+        }
+        for (final LogEntry e : memEntries) {
+            if (e == null) {
+                break;
+            }
+            entries.add(e);
+        }
+        return entries;
+    }
+
+    private void checkEntryChecksum(final LogEntry entry) {
+        if (this.raftOptions.isEnableLogEntryChecksum() && entry.isCorrupted()) {
             String msg = String.format("Corrupted entry at index=%d, term=%d, expectedChecksum=%d, realChecksum=%d",
-                index, entry.getId().getTerm(), entry.getChecksum(), entry.checksum());
+                entry.getId().getIndex(), entry.getId().getTerm(), entry.getChecksum(), entry.checksum());
             // Report error to node and throw exception.
             reportError(RaftError.EIO.getNumber(), msg);
             throw new LogEntryCorruptedException(msg);
         }
-        return entry;
+    }
+
+    /**
+     * Reads the entries from index and caches them, returns the entry at index. Only the entries
+     * before the first corrupted one are cached, so a cache hit needs no verification.
+     */
+    private LogEntry getEntriesFromStorage(final long index, final long lastIndex, final long cacheGeneration) {
+        final int maxCount = (int) Math.min(this.raftOptions.getMaxEntriesSize(), lastIndex - index + 1);
+        final List<LogEntry> entries = this.logStorage.getEntries(index, maxCount, this.raftOptions.getMaxBodySize());
+        if (entries.isEmpty()) {
+            return null;
+        }
+        checkEntryChecksum(entries.get(0));
+        int verified = 1;
+        if (this.raftOptions.isEnableLogEntryChecksum()) {
+            // A corrupted read-ahead entry is not reported here, but when it's read by its own.
+            while (verified < entries.size() && !entries.get(verified).isCorrupted()) {
+                verified++;
+            }
+        } else {
+            verified = entries.size();
+        }
+        this.entryCache.putAll(entries.subList(0, verified), cacheGeneration);
+        return entries.get(0);
     }
 
     @Override
@@ -861,23 +1087,31 @@ public class LogManagerImpl implements LogManager {
         return getTermFromLogStorage(index);
     }
 
+    /**
+     * Publishes the last log id after the logs in memory are changed, should be in writeLock.
+     */
+    private void publishLastLogId() {
+        if (this.lastLogIndex >= this.firstLogIndex) {
+            this.lastLogId = new LogId(this.lastLogIndex, unsafeGetTerm(this.lastLogIndex));
+        } else {
+            this.lastLogId = this.lastSnapshotId.copy();
+        }
+    }
+
     @Override
     public LogId getLastLogId(final boolean isFlush) {
+        if (!isFlush) {
+            // The published one, it never waits for the lock or the disk thread.
+            return this.lastLogId;
+        }
         LastLogIdClosure c;
         this.readLock.lock();
         try {
-            if (!isFlush) {
-                if (this.lastLogIndex >= this.firstLogIndex) {
-                    return new LogId(this.lastLogIndex, unsafeGetTerm(this.lastLogIndex));
-                }
+            if (this.lastLogIndex == this.lastSnapshotId.getIndex()) {
                 return this.lastSnapshotId;
-            } else {
-                if (this.lastLogIndex == this.lastSnapshotId.getIndex()) {
-                    return this.lastSnapshotId;
-                }
-                c = new LastLogIdClosure();
-                offerEvent(c, EventType.LAST_LOG_ID);
             }
+            c = new LastLogIdClosure();
+            offerEvent(c, EventType.LAST_LOG_ID);
         } finally {
             this.readLock.unlock();
         }
@@ -939,6 +1173,9 @@ public class LogManagerImpl implements LogManager {
     private boolean truncatePrefix(final long firstIndexKept) {
 
         this.logsInMemory.removeFromFirstWhen(entry -> entry.getId().getIndex() < firstIndexKept);
+        if (this.entryCache != null) {
+            this.entryCache.truncatePrefix(firstIndexKept);
+        }
 
         // TODO  maybe it's fine here
         Requires.requireTrue(firstIndexKept >= this.firstLogIndex,
@@ -948,6 +1185,7 @@ public class LogManagerImpl implements LogManager {
         if (firstIndexKept > this.lastLogIndex) {
             // The entry log is dropped
             this.lastLogIndex = firstIndexKept - 1;
+            publishLastLogId();
         }
         LOG.debug("Truncate prefix, firstIndexKept is :{}", firstIndexKept);
         this.configManager.truncatePrefix(firstIndexKept);
@@ -960,10 +1198,14 @@ public class LogManagerImpl implements LogManager {
         this.writeLock.lock();
         try {
             this.logsInMemory.clear();
+            if (this.entryCache != null) {
+                this.entryCache.clear();
+            }
             this.firstLogIndex = nextLogIndex;
             this.lastLogIndex = nextLogIndex - 1;
             this.configManager.truncatePrefix(this.firstLogIndex);
             this.configManager.truncateSuffix(this.lastLogIndex);
+            publishLastLogId();
             final ResetClosure c = new ResetClosure(nextLogIndex);
             offerEvent(c, EventType.RESET);
             return true;
@@ -980,10 +1222,15 @@ public class LogManagerImpl implements LogManager {
         }
 
         this.logsInMemory.removeFromLastWhen(entry -> entry.getId().getIndex() > lastIndexKept);
+        if (this.entryCache != null) {
+            this.entryCache.clear();
+        }
 
         this.lastLogIndex = lastIndexKept;
         final long lastTermKept = unsafeGetTerm(lastIndexKept);
         Requires.requireTrue(this.lastLogIndex == 0 || lastTermKept != 0);
+        this.lastLogId = lastIndexKept >= this.firstLogIndex ? new LogId(lastIndexKept, lastTermKept)
+            : this.lastSnapshotId.copy();
         LOG.debug("Truncate suffix :{}", lastIndexKept);
         this.configManager.truncateSuffix(lastIndexKept);
         final TruncateSuffixClosure c = new TruncateSuffixClosure(lastIndexKept, lastTermKept);
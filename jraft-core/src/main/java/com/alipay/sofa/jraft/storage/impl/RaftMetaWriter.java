@@ -0,0 +1,228 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.jraft.storage.impl;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.alipay.sofa.jraft.entity.PeerId;
+import com.alipay.sofa.jraft.storage.RaftMetaStorage;
+import com.alipay.sofa.jraft.util.NamedThreadFactory;
+import com.alipay.sofa.jraft.util.Requires;
+import com.alipay.sofa.jraft.util.SystemPropertyUtil;
+import com.alipay.sofa.jraft.util.ThreadPoolUtil;
+import com.alipay.sofa.jraft.util.Utils;
+
+/**
+ * Writes the term and votedFor of a node into its {@link RaftMetaStorage} in the writer threads,
+ * so the node doesn't have to save the meta in its lock. The writes are coalesced, only the latest
+ * submitted meta is saved, and a caller waits for its meta to be durable by the version returned
+ * from {@link #submit(long, PeerId)}.
+ *
+ * The metas of a node are saved one by one, so the meta storage is accessed by one thread at a
+ * time, and all the writes of a node must be submitted through its writer. Don't wait for the
+ * writer while holding a lock the meta storage may need to report errors, such as the node lock.
+ *
+ * @author agent (agent@local)
+ */
+public class RaftMetaWriter {
+
+    private static final Logger LOG            = LoggerFactory.getLogger(RaftMetaWriter.class);
+
+    /**
+     * The writer threads shared by all the nodes, cpus by default.
+     */
+    private static final int    WRITER_THREADS = SystemPropertyUtil.getInt("jraft.meta.writer.threads",
+                                                   Math.max(2, Utils.cpus()));
+
+    private static final class WriterPoolHolder {
+        static final ThreadPoolExecutor POOL = ThreadPoolUtil.newBuilder() //
+                                                 .poolName("JRAFT_META_WRITER") //
+                                                 .enableMetric(true) //
+                                                 .coreThreads(WRITER_THREADS) //
+                                                 .maximumThreads(WRITER_THREADS) //
+                                                 .keepAliveSeconds(60L) //
+                                                 .workQueue(new LinkedBlockingQueue<>()) //
+                                                 .threadFactory(new NamedThreadFactory("JRaft-Meta-Writer-", true)) //
+                                                 .build();
+    }
+
+    private final RaftMetaStorage metaStorage;
+    private final Executor        executor;
+    // The latest submitted meta, guarded by this.
+    private long                  term;
+    private PeerId                votedFor;
+    private long                  submittedVersion;
+    private long                  writtenVersion;
+    private boolean               writing;
+    private boolean               failed;
+    private boolean               shutdown;
+    private boolean               terminated;
+
+    public RaftMetaWriter(final RaftMetaStorage metaStorage) {
+        this(metaStorage, null);
+    }
+
+    /**
+     * @param executor the executor to save the metas, the shared writer pool is used when it's null
+     */
+    public RaftMetaWriter(final RaftMetaStorage metaStorage, final Executor executor) {
+        super();
+        this.metaStorage = Requires.requireNonNull(metaStorage, "metaStorage");
+        this.executor = executor;
+    }
+
+    /**
+     * Submits the meta to save without waiting, returns its version.
+     */
+    public long submit(final long term, final PeerId votedFor) {
+        final long version;
+        synchronized (this) {
+            if (this.shutdown) {
+                LOG.warn("Raft meta writer of {} is shutdown, ignore term={}, votedFor={}.", this.metaStorage, term,
+                    votedFor);
+                return 0;
+            }
+            this.term = term;
+            this.votedFor = votedFor.copy();
+            version = ++this.submittedVersion;
+            if (this.writing) {
+                return version;
+            }
+            this.writing = true;
+        }
+        startDrain();
+        return version;
+    }
+
+    private void startDrain() {
+        try {
+            (this.executor != null ? this.executor : WriterPoolHolder.POOL).execute(this::drain);
+        } catch (final RejectedExecutionException e) {
+            drain();
+        }
+    }
+
+    /**
+     * Returns the version of the latest submitted meta.
+     */
+    public synchronized long getSubmittedVersion() {
+        return this.submittedVersion;
+    }
+
+    /**
+     * Waits until the meta of the version or a later one is saved, returns false if fails to
+     * save it.
+     */
+    public boolean await(final long version) {
+        boolean interrupted = false;
+        try {
+            synchronized (this) {
+                while (this.writtenVersion < version) {
+                    try {
+                        wait();
+                    } catch (final InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+                return !this.failed;
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Saves the meta and waits until it's durable.
+     */
+    public boolean write(final long term, final PeerId votedFor) {
+        return await(submit(term, votedFor));
+    }
+
+    /**
+     * Waits until all the submitted metas are saved.
+     */
+    public boolean flush() {
+        return await(getSubmittedVersion());
+    }
+
+    /**
+     * Shuts down the meta storage after all the submitted metas are saved, it doesn't wait.
+     */
+    public void shutdown() {
+        synchronized (this) {
+            if (this.shutdown) {
+                return;
+            }
+            this.shutdown = true;
+            if (this.writing) {
+                return;
+            }
+            this.writing = true;
+        }
+        startDrain();
+    }
+
+    /**
+     * Waits until the meta storage is shutdown.
+     */
+    public synchronized void join() throws InterruptedException {
+        while (this.shutdown && !this.terminated) {
+            wait();
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            final long term;
+            final PeerId votedFor;
+            final long version;
+            synchronized (this) {
+                if (this.writtenVersion >= this.submittedVersion) {
+                    if (!this.shutdown || this.terminated) {
+                        this.writing = false;
+                        return;
+                    }
+                    break;
+                }
+                term = this.term;
+                votedFor = this.votedFor;
+                version = this.submittedVersion;
+            }
+            // The meta storage reports the error to the node when it fails.
+            final boolean ok = this.metaStorage.setTermAndVotedFor(term, votedFor);
+            synchronized (this) {
+                this.writtenVersion = version;
+                this.failed |= !ok;
+                notifyAll();
+            }
+        }
+        this.metaStorage.shutdown();
+        synchronized (this) {
+            this.terminated = true;
+            this.writing = false;
+            notifyAll();
+        }
+    }
+}
@@ -455,6 +455,44 @@ public class RocksDBLogStorage implements LogStorage, Describer {
         return null;
     }
 
+    @Override
+    public List<LogEntry> getEntries(final long firstIndex, final int maxCount, final long maxBytes) {
+        final List<LogEntry> entries = new ArrayList<>(Math.min(maxCount, 64));
+        this.readLock.lock();
+        try {
+            if (this.hasLoadFirstLogIndex && firstIndex < this.firstLogIndex) {
+                return entries;
+            }
+            checkState();
+            // Scan the consecutive keys with one iterator instead of a point lookup per entry.
+            try (final RocksIterator it = this.db.newIterator(this.defaultHandle, this.totalOrderReadOptions)) {
+                long index = firstIndex;
+                long bytes = 0;
+                for (it.seek(getKeyBytes(firstIndex)); it.isValid() && entries.size() < maxCount && bytes < maxBytes; it
+                    .next()) {
+                    if (Bits.getLong(it.key(), 0) != index) {
+                        break;
+                    }
+                    final byte[] bs = onDataGet(index, it.value());
+                    final LogEntry entry = bs != null ? this.logEntryDecoder.decode(bs) : null;
+                    if (entry == null) {
+                        LOG.error("Bad log entry format for index={}, the log data is: {}.", index,
+                            BytesUtil.toHex(bs));
+                        break;
+                    }
+                    entries.add(entry);
+                    bytes += entry.getData() != null ? entry.getData().remaining() : 0;
+                    index++;
+                }
+            }
+        } catch (final IOException e) {
+            LOG.error("Fail to get log entries from index {}.", firstIndex, e);
+        } finally {
+            this.readLock.unlock();
+        }
+        return entries;
+    }
+
     protected byte[] getValueFromRocksDB(final byte[] keyBytes) throws RocksDBException {
         checkState();
         return this.db.get(this.defaultHandle, keyBytes);
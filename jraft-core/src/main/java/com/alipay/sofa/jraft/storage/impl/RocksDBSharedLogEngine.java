@@ -0,0 +1,276 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.jraft.storage.impl;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.rocksdb.ColumnFamilyDescriptor;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.ColumnFamilyOptions;
+import org.rocksdb.DBOptions;
+import org.rocksdb.ReadOptions;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.RocksIterator;
+import org.rocksdb.WriteBatch;
+import org.rocksdb.WriteOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.alipay.sofa.jraft.option.RaftOptions;
+import com.alipay.sofa.jraft.util.Bits;
+import com.alipay.sofa.jraft.util.BytesUtil;
+import com.alipay.sofa.jraft.util.DebugStatistics;
+import com.alipay.sofa.jraft.util.Describer;
+import com.alipay.sofa.jraft.util.Requires;
+import com.alipay.sofa.jraft.util.Utils;
+
+/**
+ * A log engine that multiplexes the logs of many raft groups into one rocksdb instance,
+ * so all the groups share one WAL and the concurrent writes of different groups are
+ * merged into one fsync by rocksdb's write group.
+ *
+ * Each group has its own index table: the keys of its log entries are
+ * {@code [groupId(8 bytes)][logIndex(8 bytes)]}, so truncation and reset of a group are
+ * range deletions that never touch the other groups. Group ids are allocated for the
+ * group names(usually the log uri) and persisted in the reserved group 0.
+ *
+ * The db is opened when the first group storage is initialized and closed when the
+ * last one shuts down.
+ *
+ * @author agent (agent@local)
+ */
+public class RocksDBSharedLogEngine implements Describer {
+
+    private static final Logger             LOG            = LoggerFactory.getLogger(RocksDBSharedLogEngine.class);
+
+    static {
+        RocksDB.loadLibrary();
+    }
+
+    /** The reserved group to store the group name -> group id mapping. */
+    private static final long               META_GROUP_ID  = 0L;
+
+    private final String                    path;
+    private final boolean                   sync;
+    private final boolean                   openStatistics;
+    private RocksDB                         db;
+    private DBOptions                       dbOptions;
+    private WriteOptions                    writeOptions;
+    private ReadOptions                     totalOrderReadOptions;
+    private final List<ColumnFamilyOptions> cfOptions      = new ArrayList<>();
+    private ColumnFamilyHandle              defaultHandle;
+    private ColumnFamilyHandle              confHandle;
+    private DebugStatistics                 statistics;
+    private final Map<String, Long>         groupIds       = new HashMap<>();
+    private long                            nextGroupId    = 1;
+    private int                             refCount;
+
+    public RocksDBSharedLogEngine(final String path, final RaftOptions raftOptions) {
+        super();
+        this.path = path;
+        this.sync = raftOptions.isSync();
+        this.openStatistics = raftOptions.isOpenStatistics();
+    }
+
+    /**
+     * Creates a log storage of the given group, it is backed by this engine.
+     *
+     * @param groupName the unique name of the group in this engine, e.g. its log uri
+     */
+    public SharedRocksDBLogStorage createLogStorage(final String groupName) {
+        return new SharedRocksDBLogStorage(this, groupName);
+    }
+
+    /**
+     * Opens the db if needed and returns the id of the group.
+     */
+    synchronized long acquire(final String groupName) throws RocksDBException {
+        if (this.db == null) {
+            openDB();
+        }
+        Long groupId = this.groupIds.get(groupName);
+        if (groupId == null) {
+            groupId = this.nextGroupId++;
+            final byte[] vs = new byte[8];
+            Bits.putLong(vs, 0, groupId);
+            this.db.put(this.confHandle, this.writeOptions, groupNameKey(groupName), vs);
+            this.groupIds.put(groupName, groupId);
+        }
+        this.refCount++;
+        return groupId;
+    }
+
+    /**
+     * Closes the db when no group uses it any more.
+     */
+    synchronized void release() {
+        if (--this.refCount > 0 || this.db == null) {
+            return;
+        }
+        // The shutdown order is matter.
+        this.confHandle.close();
+        this.defaultHandle.close();
+        this.db.close();
+        for (final ColumnFamilyOptions opt : this.cfOptions) {
+            opt.close();
+        }
+        this.dbOptions.close();
+        if (this.statistics != null) {
+            this.statistics.close();
+        }
+        this.writeOptions.close();
+        this.totalOrderReadOptions.close();
+        this.cfOptions.clear();
+        this.groupIds.clear();
+        this.dbOptions = null;
+        this.statistics = null;
+        this.writeOptions = null;
+        this.totalOrderReadOptions = null;
+        this.defaultHandle = null;
+        this.confHandle = null;
+        this.db = null;
+        LOG.info("Shared log DB destroyed, the db path is: {}.", this.path);
+    }
+
+    private void openDB() throws RocksDBException {
+        final File dir = new File(this.path);
+        if (dir.exists() && !dir.isDirectory()) {
+            throw new IllegalStateException("Invalid log path, it's a regular file: " + this.path);
+        }
+        this.dbOptions = RocksDBLogStorage.createDBOptions();
+        if (this.openStatistics) {
+            this.statistics = new DebugStatistics();
+            this.dbOptions.setStatistics(this.statistics);
+        }
+        this.writeOptions = new WriteOptions();
+        this.writeOptions.setSync(this.sync);
+        this.totalOrderReadOptions = new ReadOptions();
+        this.totalOrderReadOptions.setTotalOrderSeek(true);
+
+        final ColumnFamilyOptions cfOption = RocksDBLogStorage.createColumnFamilyOptions();
+        this.cfOptions.add(cfOption);
+        final List<ColumnFamilyDescriptor> columnFamilyDescriptors = new ArrayList<>();
+        // Column family to store configuration log entry and groups meta.
+        columnFamilyDescriptors.add(new ColumnFamilyDescriptor("Configuration".getBytes(), cfOption));
+        // Default column family to store user data log entry.
+        columnFamilyDescriptors.add(new ColumnFamilyDescriptor(RocksDB.DEFAULT_COLUMN_FAMILY, cfOption));
+        final List<ColumnFamilyHandle> columnFamilyHandles = new ArrayList<>();
+        this.db = RocksDB.open(this.dbOptions, this.path, columnFamilyDescriptors, columnFamilyHandles);
+        assert (columnFamilyHandles.size() == 2);
+        this.confHandle = columnFamilyHandles.get(0);
+        this.defaultHandle = columnFamilyHandles.get(1);
+        loadGroupIds();
+    }
+
+    private void loadGroupIds() {
+        try (final RocksIterator it = this.db.newIterator(this.confHandle, this.totalOrderReadOptions)) {
+            for (it.seek(groupMetaKey(META_GROUP_ID, BytesUtil.EMPTY_BYTES)); it.isValid(); it.next()) {
+                final byte[] ks = it.key();
+                if (Bits.getLong(ks, 0) != META_GROUP_ID) {
+                    break;
+                }
+                final String groupName = new String(ks, 8, ks.length - 8, StandardCharsets.UTF_8);
+                final long groupId = Bits.getLong(it.value(), 0);
+                this.groupIds.put(groupName, groupId);
+                this.nextGroupId = Math.max(this.nextGroupId, groupId + 1);
+            }
+        }
+    }
+
+    private static byte[] groupNameKey(final String groupName) {
+        return groupMetaKey(META_GROUP_ID, Utils.getBytes(groupName));
+    }
+
+    /**
+     * Returns the key of the log entry at index in the group.
+     */
+    static byte[] groupKey(final long groupId, final long index) {
+        final byte[] ks = new byte[16];
+        Bits.putLong(ks, 0, groupId);
+        Bits.putLong(ks, 8, index);
+        return ks;
+    }
+
+    /**
+     * Returns the key of the group meta in configuration column family.
+     */
+    static byte[] groupMetaKey(final long groupId, final byte[] metaKey) {
+        final byte[] ks = new byte[8 + metaKey.length];
+        Bits.putLong(ks, 0, groupId);
+        System.arraycopy(metaKey, 0, ks, 8, metaKey.length);
+        return ks;
+    }
+
+    private RocksDB checkDB() {
+        return Requires.requireNonNull(this.db, "DB not initialized or destroyed");
+    }
+
+    void write(final WriteBatch batch) throws RocksDBException {
+        checkDB().write(this.writeOptions, batch);
+    }
+
+    void put(final boolean conf, final byte[] key, final byte[] value) throws RocksDBException {
+        checkDB().put(conf ? this.confHandle : this.defaultHandle, this.writeOptions, key, value);
+    }
+
+    byte[] get(final byte[] key) throws RocksDBException {
+        return checkDB().get(this.defaultHandle, key);
+    }
+
+    void deleteRange(final byte[] beginKey, final byte[] endKey) throws RocksDBException {
+        final RocksDB db = checkDB();
+        db.deleteRange(this.defaultHandle, this.writeOptions, beginKey, endKey);
+        db.deleteRange(this.confHandle, this.writeOptions, beginKey, endKey);
+    }
+
+    RocksIterator newIterator(final boolean conf) {
+        return checkDB().newIterator(conf ? this.confHandle : this.defaultHandle, this.totalOrderReadOptions);
+    }
+
+    ColumnFamilyHandle getDefaultHandle() {
+        return this.defaultHandle;
+    }
+
+    ColumnFamilyHandle getConfHandle() {
+        return this.confHandle;
+    }
+
+    public String getPath() {
+        return this.path;
+    }
+
+    @Override
+    public synchronized void describe(final Printer out) {
+        try {
+            if (this.db != null) {
+                out.println(this.db.getProperty("rocksdb.stats"));
+            }
+            out.println("");
+            if (this.statistics != null) {
+                out.println(this.statistics.getString());
+            }
+        } catch (final RocksDBException e) {
+            out.println(e);
+        }
+    }
+}
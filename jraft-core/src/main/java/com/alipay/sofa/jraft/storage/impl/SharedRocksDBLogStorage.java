@@ -0,0 +1,417 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.jraft.storage.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.rocksdb.RocksDBException;
+import org.rocksdb.RocksIterator;
+import org.rocksdb.WriteBatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.alipay.sofa.jraft.conf.Configuration;
+import com.alipay.sofa.jraft.conf.ConfigurationEntry;
+import com.alipay.sofa.jraft.conf.ConfigurationManager;
+import com.alipay.sofa.jraft.entity.EnumOutter.EntryType;
+import com.alipay.sofa.jraft.entity.LogEntry;
+import com.alipay.sofa.jraft.entity.LogId;
+import com.alipay.sofa.jraft.entity.codec.LogEntryDecoder;
+import com.alipay.sofa.jraft.entity.codec.LogEntryEncoder;
+import com.alipay.sofa.jraft.option.LogStorageOptions;
+import com.alipay.sofa.jraft.storage.LogStorage;
+import com.alipay.sofa.jraft.util.Bits;
+import com.alipay.sofa.jraft.util.BytesUtil;
+import com.alipay.sofa.jraft.util.Describer;
+import com.alipay.sofa.jraft.util.Requires;
+import com.alipay.sofa.jraft.util.Utils;
+
+/**
+ * Log storage of one raft group in a {@link RocksDBSharedLogEngine}.
+ *
+ * @author agent (agent@local)
+ */
+public class SharedRocksDBLogStorage implements LogStorage, Describer {
+
+    private static final Logger          LOG           = LoggerFactory.getLogger(SharedRocksDBLogStorage.class);
+
+    private final RocksDBSharedLogEngine engine;
+    private final String                 groupName;
+    private final ReadWriteLock          readWriteLock = new ReentrantReadWriteLock();
+    private final Lock                   readLock      = this.readWriteLock.readLock();
+    private final Lock                   writeLock     = this.readWriteLock.writeLock();
+    private volatile boolean             opened;
+    private long                         groupId;
+    private volatile long                firstLogIndex = 1;
+    private volatile boolean             hasLoadFirstLogIndex;
+    private LogEntryEncoder              logEntryEncoder;
+    private LogEntryDecoder              logEntryDecoder;
+
+    public SharedRocksDBLogStorage(final RocksDBSharedLogEngine engine, final String groupName) {
+        super();
+        this.engine = Requires.requireNonNull(engine, "engine");
+        this.groupName = Requires.requireNonNull(groupName, "groupName");
+    }
+
+    @Override
+    public boolean init(final LogStorageOptions opts) {
+        Requires.requireNonNull(opts.getConfigurationManager(), "Null conf manager");
+        Requires.requireNonNull(opts.getLogEntryCodecFactory(), "Null log entry codec factory");
+        this.writeLock.lock();
+        try {
+            if (this.opened) {
+                LOG.warn("SharedRocksDBLogStorage init() already.");
+                return true;
+            }
+            this.logEntryDecoder = opts.getLogEntryCodecFactory().decoder();
+            this.logEntryEncoder = opts.getLogEntryCodecFactory().encoder();
+            Requires.requireNonNull(this.logEntryDecoder, "Null log entry decoder");
+            Requires.requireNonNull(this.logEntryEncoder, "Null log entry encoder");
+            this.groupId = this.engine.acquire(this.groupName);
+            this.opened = true;
+            this.hasLoadFirstLogIndex = false;
+            this.firstLogIndex = 1;
+            load(opts.getConfigurationManager());
+            return true;
+        } catch (final RocksDBException e) {
+            LOG.error("Fail to init SharedRocksDBLogStorage, path={}, group={}.", this.engine.getPath(),
+                this.groupName, e);
+            return false;
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    private void load(final ConfigurationManager confManager) {
+        final byte[] firstLogIdxKey = RocksDBSharedLogEngine.groupMetaKey(this.groupId,
+            RocksDBLogStorage.FIRST_LOG_IDX_KEY);
+        try (final RocksIterator it = this.engine.newIterator(true)) {
+            for (it.seek(groupKey(0)); it.isValid(); it.next()) {
+                final byte[] ks = it.key();
+                if (Bits.getLong(ks, 0) != this.groupId) {
+                    break;
+                }
+                final byte[] bs = it.value();
+                // LogEntry index
+                if (ks.length == 16) {
+                    final LogEntry entry = this.logEntryDecoder.decode(bs);
+                    if (entry != null) {
+                        if (entry.getType() == EntryType.ENTRY_TYPE_CONFIGURATION) {
+                            final ConfigurationEntry confEntry = new ConfigurationEntry();
+                            confEntry.setId(new LogId(entry.getId().getIndex(), entry.getId().getTerm()));
+                            confEntry.setConf(new Configuration(entry.getPeers(), entry.getLearners()));
+                            if (entry.getOldPeers() != null) {
+                                confEntry.setOldConf(new Configuration(entry.getOldPeers(), entry.getOldLearners()));
+                            }
+                            if (confManager != null) {
+                                confManager.add(confEntry);
+                            }
+                        }
+                    } else {
+                        LOG.warn("Fail to decode conf entry at index {}, the log data is: {}.", Bits.getLong(ks, 8),
+                            BytesUtil.toHex(bs));
+                    }
+                } else if (Arrays.equals(firstLogIdxKey, ks)) {
+                    setFirstLogIndex(Bits.getLong(bs, 0));
+                    truncatePrefixInBackground(0L, this.firstLogIndex);
+                } else {
+                    LOG.warn("Unknown entry in configuration storage key={}, value={}.", BytesUtil.toHex(ks),
+                        BytesUtil.toHex(bs));
+                }
+            }
+        }
+    }
+
+    private byte[] groupKey(final long index) {
+        return RocksDBSharedLogEngine.groupKey(this.groupId, index);
+    }
+
+    /**
+     * The exclusive upper bound of all the keys of this group.
+     */
+    private byte[] groupEndKey() {
+        return RocksDBSharedLogEngine.groupKey(this.groupId + 1, 0);
+    }
+
+    private void setFirstLogIndex(final long index) {
+        this.firstLogIndex = index;
+        this.hasLoadFirstLogIndex = true;
+    }
+
+    private boolean saveFirstLogIndex(final long firstLogIndex) {
+        try {
+            final byte[] vs = new byte[8];
+            Bits.putLong(vs, 0, firstLogIndex);
+            this.engine.put(true,
+                RocksDBSharedLogEngine.groupMetaKey(this.groupId, RocksDBLogStorage.FIRST_LOG_IDX_KEY), vs);
+            return true;
+        } catch (final RocksDBException e) {
+            LOG.error("Fail to save first log index {}, group={}.", firstLogIndex, this.groupName, e);
+            return false;
+        }
+    }
+
+    private void checkState() {
+        Requires.requireTrue(this.opened, "Log storage not initialized or destroyed");
+    }
+
+    @Override
+    public void shutdown() {
+        this.writeLock.lock();
+        try {
+            if (!this.opened) {
+                return;
+            }
+            this.opened = false;
+            this.engine.release();
+            LOG.info("Log storage of group {} destroyed, the db path is: {}.", this.groupName, this.engine.getPath());
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    @Override
+    public long getFirstLogIndex() {
+        this.readLock.lock();
+        try {
+            if (this.hasLoadFirstLogIndex) {
+                return this.firstLogIndex;
+            }
+            checkState();
+            try (final RocksIterator it = this.engine.newIterator(false)) {
+                it.seek(groupKey(0));
+                if (it.isValid() && Bits.getLong(it.key(), 0) == this.groupId) {
+                    final long ret = Bits.getLong(it.key(), 8);
+                    saveFirstLogIndex(ret);
+                    setFirstLogIndex(ret);
+                    return ret;
+                }
+            }
+            return 1L;
+        } finally {
+            this.readLock.unlock();
+        }
+    }
+
+    @Override
+    public long getLastLogIndex() {
+        this.readLock.lock();
+        try {
+            checkState();
+            try (final RocksIterator it = this.engine.newIterator(false)) {
+                it.seekForPrev(groupKey(Long.MAX_VALUE));
+                if (it.isValid() && Bits.getLong(it.key(), 0) == this.groupId) {
+                    return Bits.getLong(it.key(), 8);
+                }
+            }
+            return 0L;
+        } finally {
+            this.readLock.unlock();
+        }
+    }
+
+    @Override
+    public LogEntry getEntry(final long index) {
+        this.readLock.lock();
+        try {
+            if (this.hasLoadFirstLogIndex && index < this.firstLogIndex) {
+                return null;
+            }
+            checkState();
+            final byte[] bs = this.engine.get(groupKey(index));
+            if (bs != null) {
+                final LogEntry entry = this.logEntryDecoder.decode(bs);
+                if (entry != null) {
+                    return entry;
+                }
+                LOG.error("Bad log entry format for index={}, group={}, the log data is: {}.", index,
+                    this.groupName, BytesUtil.toHex(bs));
+            }
+        } catch (final RocksDBException e) {
+            LOG.error("Fail to get log entry at index {}, group={}.", index, this.groupName, e);
+        } finally {
+            this.readLock.unlock();
+        }
+        return null;
+    }
+
+    @Override
+    public List<LogEntry> getEntries(final long firstIndex, final int maxCount, final long maxBytes) {
+        final List<LogEntry> entries = new ArrayList<>(Math.min(maxCount, 64));
+        this.readLock.lock();
+        try {
+            if (this.hasLoadFirstLogIndex && firstIndex < this.firstLogIndex) {
+                return entries;
+            }
+            checkState();
+            try (final RocksIterator it = this.engine.newIterator(false)) {
+                long index = firstIndex;
+                long bytes = 0;
+                for (it.seek(groupKey(firstIndex)); it.isValid() && entries.size() < maxCount && bytes < maxBytes; it
+                    .next()) {
+                    final byte[] ks = it.key();
+                    if (Bits.getLong(ks, 0) != this.groupId || Bits.getLong(ks, 8) != index) {
+                        break;
+                    }
+                    final LogEntry entry = this.logEntryDecoder.decode(it.value());
+                    if (entry == null) {
+                        LOG.error("Bad log entry format for index={}, group={}.", index, this.groupName);
+                        break;
+                    }
+                    entries.add(entry);
+                    bytes += entry.getData() != null ? entry.getData().remaining() : 0;
+                    index++;
+                }
+            }
+        } finally {
+            this.readLock.unlock();
+        }
+        return entries;
+    }
+
+    @Override
+    public long getTerm(final long index) {
+        final LogEntry entry = getEntry(index);
+        if (entry != null) {
+            return entry.getId().getTerm();
+        }
+        return 0;
+    }
+
+    @Override
+    public boolean appendEntry(final LogEntry entry) {
+        return appendEntries(Collections.singletonList(entry)) == 1;
+    }
+
+    @Override
+    public int appendEntries(final List<LogEntry> entries) {
+        if (entries == null || entries.isEmpty()) {
+            return 0;
+        }
+        final int entriesCount = entries.size();
+        this.readLock.lock();
+        try (final WriteBatch batch = new WriteBatch()) {
+            if (!this.opened) {
+                LOG.warn("Log storage of group {} not initialized or destroyed.", this.groupName);
+                return 0;
+            }
+            for (int i = 0; i < entriesCount; i++) {
+                final LogEntry entry = entries.get(i);
+                final byte[] ks = groupKey(entry.getId().getIndex());
+                final byte[] content = this.logEntryEncoder.encode(entry);
+                batch.put(this.engine.getDefaultHandle(), ks, content);
+                if (entry.getType() == EntryType.ENTRY_TYPE_CONFIGURATION) {
+                    batch.put(this.engine.getConfHandle(), ks, content);
+                }
+            }
+            this.engine.write(batch);
+            return entriesCount;
+        } catch (final RocksDBException e) {
+            LOG.error("Fail to append entries, group={}.", this.groupName, e);
+            return 0;
+        } finally {
+            this.readLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean truncatePrefix(final long firstIndexKept) {
+        this.readLock.lock();
+        try {
+            final long startIndex = getFirstLogIndex();
+            final boolean ret = saveFirstLogIndex(firstIndexKept);
+            if (ret) {
+                setFirstLogIndex(firstIndexKept);
+            }
+            truncatePrefixInBackground(startIndex, firstIndexKept);
+            return ret;
+        } finally {
+            this.readLock.unlock();
+        }
+    }
+
+    private void truncatePrefixInBackground(final long startIndex, final long firstIndexKept) {
+        // delete logs in background.
+        Utils.runInThread(() -> {
+            this.readLock.lock();
+            try {
+                if (!this.opened) {
+                    return;
+                }
+                this.engine.deleteRange(groupKey(startIndex), groupKey(firstIndexKept));
+            } catch (final RocksDBException e) {
+                LOG.error("Fail to truncatePrefix {}, group={}.", firstIndexKept, this.groupName, e);
+            } finally {
+                this.readLock.unlock();
+            }
+        });
+    }
+
+    @Override
+    public boolean truncateSuffix(final long lastIndexKept) {
+        this.readLock.lock();
+        try {
+            checkState();
+            this.engine.deleteRange(groupKey(lastIndexKept + 1), groupKey(getLastLogIndex() + 1));
+            return true;
+        } catch (final RocksDBException e) {
+            LOG.error("Fail to truncateSuffix {}, group={}.", lastIndexKept, this.groupName, e);
+        } finally {
+            this.readLock.unlock();
+        }
+        return false;
+    }
+
+    @Override
+    public boolean reset(final long nextLogIndex) {
+        if (nextLogIndex <= 0) {
+            throw new IllegalArgumentException("Invalid next log index.");
+        }
+        this.writeLock.lock();
+        try {
+            LogEntry entry = getEntry(nextLogIndex);
+            checkState();
+            // Drops all the entries and meta of this group only, the other groups are untouched.
+            this.engine.deleteRange(groupKey(0), groupEndKey());
+            this.hasLoadFirstLogIndex = false;
+            this.firstLogIndex = 1;
+            if (entry == null) {
+                entry = new LogEntry();
+                entry.setType(EntryType.ENTRY_TYPE_NO_OP);
+                entry.setId(new LogId(nextLogIndex, 0));
+                LOG.warn("Entry not found for nextLogIndex {} when reset, group={}.", nextLogIndex, this.groupName);
+            }
+            return appendEntry(entry);
+        } catch (final RocksDBException e) {
+            LOG.error("Fail to reset next log index, group={}.", this.groupName, e);
+            return false;
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void describe(final Printer out) {
+        this.engine.describe(out);
+    }
+}
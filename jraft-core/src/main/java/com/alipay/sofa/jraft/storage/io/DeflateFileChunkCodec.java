@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.jraft.storage.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import com.alipay.sofa.jraft.util.SPI;
+
+/**
+ * The file chunk codec with the JDK deflater in the fastest level.
+ *
+ * @author agent (agent@local)
+ */
+@SPI(name = DeflateFileChunkCodec.NAME)
+public class DeflateFileChunkCodec implements FileChunkCodec {
+
+    public static final String                 NAME     = "deflate";
+
+    private static final ThreadLocal<Deflater> DEFLATER = ThreadLocal.withInitial(() -> new Deflater(
+                                                            Deflater.BEST_SPEED, true));
+    private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(() -> new Inflater(true));
+
+    @Override
+    public byte[] encode(final ByteBuffer data) throws IOException {
+        final byte[] input = toArray(data);
+        final Deflater deflater = DEFLATER.get();
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+            byte[] out = new byte[input.length + (input.length >> 4) + 64];
+            int len = 0;
+            while (!deflater.finished()) {
+                if (len == out.length) {
+                    out = Arrays.copyOf(out, out.length << 1);
+                }
+                len += deflater.deflate(out, len, out.length - len);
+            }
+            return len == out.length ? out : Arrays.copyOf(out, len);
+        } finally {
+            deflater.reset();
+        }
+    }
+
+    @Override
+    public void decode(final ByteBuffer data, final ByteBuffer dest) throws IOException {
+        final Inflater inflater = INFLATER.get();
+        try {
+            inflater.setInput(toArray(data));
+            final byte[] out = dest.hasArray() ? dest.array() : new byte[dest.remaining()];
+            final int offset = dest.hasArray() ? dest.arrayOffset() + dest.position() : 0;
+            final int size = dest.remaining();
+            int len = 0;
+            while (len < size && !inflater.finished()) {
+                final int n = inflater.inflate(out, offset + len, size - len);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                len += n;
+            }
+            if (len != size) {
+                throw new IOException("Invalid compressed chunk, expect " + size + " bytes but " + len);
+            }
+            if (dest.hasArray()) {
+                dest.position(dest.position() + len);
+            } else {
+                dest.put(out, 0, len);
+            }
+        } catch (final DataFormatException e) {
+            throw new IOException("Invalid compressed chunk", e);
+        } finally {
+            inflater.reset();
+        }
+    }
+
+    private static byte[] toArray(final ByteBuffer data) {
+        if (data.hasArray() && data.arrayOffset() == 0 && data.position() == 0
+            && data.remaining() == data.array().length) {
+            return data.array();
+        }
+        final byte[] bs = new byte[data.remaining()];
+        data.duplicate().get(bs);
+        return bs;
+    }
+}
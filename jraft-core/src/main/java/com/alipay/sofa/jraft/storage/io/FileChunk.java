@@ -0,0 +1,50 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.jraft.storage.io;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A chunk of a file read by {@link FileReader#readFileChunk(String, long, long)}.
+ *
+ * @author agent (agent@local)
+ */
+public class FileChunk {
+
+    private final ByteBuffer data;
+    private final boolean    eof;
+
+    public FileChunk(final ByteBuffer data, final boolean eof) {
+        super();
+        this.data = data;
+        this.eof = eof;
+    }
+
+    /**
+     * The data of the chunk, it may be a memory mapped region of the file and must not be modified.
+     */
+    public ByteBuffer getData() {
+        return this.data;
+    }
+
+    /**
+     * Returns true if the chunk reaches the end of file.
+     */
+    public boolean isEof() {
+        return this.eof;
+    }
+}
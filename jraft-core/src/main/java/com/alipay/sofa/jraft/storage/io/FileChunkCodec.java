@@ -0,0 +1,48 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.jraft.storage.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A codec to compress the file chunks of GetFile responses when copying snapshots.
+ *
+ * The implementations are loaded by {@link com.alipay.sofa.jraft.util.JRaftServiceLoader}
+ * and identified by the name of their {@link com.alipay.sofa.jraft.util.SPI} annotation,
+ * the implementations must be thread-safe.
+ *
+ * @author agent (agent@local)
+ */
+public interface FileChunkCodec {
+
+    /**
+     * Compresses the data.
+     *
+     * @param data the data to compress, its position is not changed
+     * @return the compressed data
+     */
+    byte[] encode(final ByteBuffer data) throws IOException;
+
+    /**
+     * Decompresses the data into dest.
+     *
+     * @param data the compressed data
+     * @param dest the buffer to fill, its remaining is the exact size of the decompressed data
+     */
+    void decode(final ByteBuffer data, final ByteBuffer dest) throws IOException;
+}
@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.jraft.storage.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.alipay.sofa.jraft.rpc.RpcRequests.GetFileRequest;
+import com.alipay.sofa.jraft.rpc.RpcRequests.GetFileResponse;
+import com.alipay.sofa.jraft.util.JRaftServiceLoader;
+import com.alipay.sofa.jraft.util.SPI;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.ZeroByteStringHelper;
+
+/**
+ * Negotiates the {@link FileChunkCodec} of GetFile requests.
+ *
+ * The follower puts the name of its preferred codec in the {@code codec} field of the request,
+ * the leader compresses the chunk if it has the codec and puts the codec name in the response,
+ * otherwise the raw data is responded. The peers of old versions don't know the field and just
+ * ignore it.
+ *
+ * The compressed data is {@code [raw size(4 bytes)][encoded data]}, the raw size is bounded by
+ * the requested count and {@link #MAX_CHUNK_SIZE}, the larger chunks are responded raw.
+ *
+ * @author agent (agent@local)
+ */
+public final class FileChunkCodecs {
+
+    private static final Logger                      LOG            = LoggerFactory.getLogger(FileChunkCodecs.class);
+
+    /** The max raw size of a compressed chunk. */
+    public static final int                          MAX_CHUNK_SIZE = 64 * 1024 * 1024;
+
+    private static final Map<String, FileChunkCodec> CODECS;
+
+    static {
+        final Map<String, FileChunkCodec> codecs = new HashMap<>();
+        try {
+            for (final FileChunkCodec codec : JRaftServiceLoader.load(FileChunkCodec.class).sort()) {
+                final SPI spi = codec.getClass().getAnnotation(SPI.class);
+                if (spi != null && StringUtils.isNotBlank(spi.name())) {
+                    codecs.putIfAbsent(spi.name(), codec);
+                }
+            }
+        } catch (final Throwable t) {
+            LOG.error("Fail to load file chunk codecs.", t);
+        }
+        CODECS = Collections.unmodifiableMap(codecs);
+    }
+
+    /**
+     * Returns the codec of the name, or null if not found.
+     */
+    public static FileChunkCodec getCodec(final String name) {
+        return name == null ? null : CODECS.get(name);
+    }
+
+    /**
+     * Sets the response data, it's compressed if the requested codec is found, the data is
+     * not larger than {@link #MAX_CHUNK_SIZE} and the compressed data is smaller.
+     */
+    public static GetFileResponse.Builder setData(final GetFileResponse.Builder builder, final GetFileRequest request,
+                                                  final ByteBuffer data) {
+        if (!data.hasRemaining()) {
+            // skip empty data
+            return builder.setData(ByteString.EMPTY);
+        }
+        final String name = request.hasCodec() ? request.getCodec() : null;
+        final FileChunkCodec codec = getCodec(name);
+        if (codec != null && data.remaining() <= MAX_CHUNK_SIZE) {
+            try {
+                final byte[] encoded = codec.encode(data);
+                if (encoded.length + 4 < data.remaining()) {
+                    final ByteBuffer buf = ByteBuffer.allocate(encoded.length + 4);
+                    buf.putInt(data.remaining());
+                    buf.put(encoded);
+                    buf.flip();
+                    return builder.setData(ZeroByteStringHelper.wrap(buf)) //
+                        .setCodec(name);
+                }
+            } catch (final IOException e) {
+                LOG.warn("Fail to encode file chunk with codec {}, respond the raw data.", name, e);
+            }
+        }
+        return builder.setData(ZeroByteStringHelper.wrap(data));
+    }
+
+    /**
+     * Returns the raw data of the response, the raw size of a compressed chunk must not exceed
+     * {@code maxSize}, the count of the request.
+     */
+    public static ByteString getData(final GetFileResponse response, final long maxSize) throws IOException {
+        if (!response.hasCodec()) {
+            return response.getData();
+        }
+        final String name = response.getCodec();
+        final FileChunkCodec codec = getCodec(name);
+        if (codec == null) {
+            throw new IOException("Unknown file chunk codec: " + name);
+        }
+        final ByteBuffer data = response.getData().asReadOnlyByteBuffer();
+        if (data.remaining() < 4) {
+            throw new IOException("Invalid compressed chunk");
+        }
+        final int size = data.getInt();
+        if (size < 0 || size > Math.min(maxSize, MAX_CHUNK_SIZE)) {
+            throw new IOException("Invalid compressed chunk size: " + size + ", max size: "
+                                  + Math.min(maxSize, MAX_CHUNK_SIZE));
+        }
+        final ByteBuffer dest = ByteBuffer.allocate(size);
+        codec.decode(data, dest);
+        dest.flip();
+        return ZeroByteStringHelper.wrap(dest);
+    }
+
+    private FileChunkCodecs() {
+    }
+}
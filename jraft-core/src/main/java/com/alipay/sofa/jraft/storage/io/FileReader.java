@@ -54,4 +54,22 @@ public interface FileReader {
     int readFile(final ByteBufferCollector buf, final String fileName, final long offset, final long maxCount)
                                                                                                               throws IOException,
                                                                                                               RetryAgainException;
+
+    /**
+     * Read a chunk of file starts from offset at most maxCount without copying it
+     * through the java heap, e.g. a memory mapped region of the file.
+     *
+     * @param fileName file name
+     * @param offset   the offset of file
+     * @param maxCount max read bytes
+     * @return the chunk, or null if the file can't be read in this way and
+     * {@link #readFile(ByteBufferCollector, String, long, long)} should be used.
+     * @throws IOException if some I/O error occurs
+     * @throws RetryAgainException if the throughput is throttled to 0, try again.
+     */
+    default FileChunk readFileChunk(final String fileName, final long offset, final long maxCount)
+                                                                                                  throws IOException,
+                                                                                                  RetryAgainException {
+        return null;
+    }
 }
@@ -16,30 +16,81 @@
  */
 package com.alipay.sofa.jraft.storage.io;
 
+import java.io.Closeable;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.alipay.sofa.jraft.error.RetryAgainException;
 import com.alipay.sofa.jraft.util.ByteBufferCollector;
+import com.alipay.sofa.jraft.util.SystemPropertyUtil;
+import com.alipay.sofa.jraft.util.Utils;
 import com.google.protobuf.Message;
 
 /**
  * Read a file data form local dir by fileName.
  *
+ * The file channels are opened at the first read and kept open until the reader
+ * is closed, the chunks larger than {@link #MMAP_MIN_BYTES} are sliced from a mapping
+ * of the whole file created at the first such read, so they are sent without copying
+ * through the java heap and without mapping a region per chunk.
+ *
  * @author boyan (boyan@alibaba-inc.com)
  *
  * 2018-Apr-06 9:25:12 PM
  */
-public class LocalDirReader implements FileReader {
+public class LocalDirReader implements FileReader, Closeable {
+
+    private static final Logger                     LOG            = LoggerFactory.getLogger(LocalDirReader.class);
+
+    /** The chunks smaller than it are read into heap, mapping a small region costs more than copying it. */
+    private static final int                        MMAP_MIN_BYTES = SystemPropertyUtil.getInt(
+                                                                       "jraft.file_reader.mmap_min_bytes", 64 * 1024);
 
-    private static final Logger LOG = LoggerFactory.getLogger(LocalDirReader.class);
+    private final String                            path;
+    private final ConcurrentMap<String, OpenFile>   files          = new ConcurrentHashMap<>();
+    private volatile boolean                        closed;
 
-    private final String        path;
+    /**
+     * An opened file with its lazily created read-only mapping.
+     */
+    private static final class OpenFile {
+        final FileChannel        channel;
+        volatile MappedByteBuffer mapped;
+
+        OpenFile(final FileChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Returns the mapping of the whole file, or null if the file is too large to be mapped at once.
+         */
+        MappedByteBuffer getMapped(final long fsize) throws IOException {
+            MappedByteBuffer buf = this.mapped;
+            if (buf != null && buf.capacity() == fsize) {
+                return buf;
+            }
+            if (fsize > Integer.MAX_VALUE) {
+                return null;
+            }
+            synchronized (this) {
+                buf = this.mapped;
+                if (buf == null || buf.capacity() != fsize) {
+                    buf = this.channel.map(FileChannel.MapMode.READ_ONLY, 0, fsize);
+                    this.mapped = buf;
+                }
+                return buf;
+            }
+        }
+    }
 
     public LocalDirReader(String path) {
         super();
@@ -58,40 +109,120 @@ public class LocalDirReader implements FileReader {
         return readFileWithMeta(buf, fileName, null, offset, maxCount);
     }
 
+    @Override
+    public FileChunk readFileChunk(final String fileName, final long offset, final long maxCount) throws IOException,
+                                                                                                 RetryAgainException {
+        return readFileChunkWithMeta(fileName, null, offset, maxCount);
+    }
+
+    private OpenFile getFile(final String fileName) throws IOException {
+        final OpenFile file = this.files.get(fileName);
+        if (file != null) {
+            return file;
+        }
+        if (this.closed) {
+            throw new IOException("Reader is closed: " + this.path);
+        }
+        final String filePath = this.path + File.separator + fileName;
+        // Throws FileNotFoundException if the file doesn't exist.
+        final FileChannel fc = new RandomAccessFile(filePath, "r").getChannel();
+        final OpenFile opened = new OpenFile(fc);
+        final OpenFile prev = this.files.putIfAbsent(fileName, opened);
+        if (prev != null) {
+            fc.close();
+            return prev;
+        }
+        if (this.closed) {
+            // Closed concurrently
+            this.files.remove(fileName, opened);
+            fc.close();
+            throw new IOException("Reader is closed: " + this.path);
+        }
+        return opened;
+    }
+
+    private FileChannel getChannel(final String fileName) throws IOException {
+        return getFile(fileName).channel;
+    }
+
+    @SuppressWarnings("unused")
+    protected FileChunk readFileChunkWithMeta(final String fileName, final Message fileMeta, final long offset,
+                                              final long maxCount) throws IOException, RetryAgainException {
+        final OpenFile file = getFile(fileName);
+        final FileChannel fc = file.channel;
+        final long fsize = fc.size();
+        if (offset >= fsize) {
+            return new FileChunk(ByteBuffer.allocate(0), true);
+        }
+        final int count = (int) Math.min(Math.min(maxCount, fsize - offset), Integer.MAX_VALUE);
+        final boolean eof = offset + count == fsize;
+        if (count >= MMAP_MIN_BYTES) {
+            // The mapping is released when the buffer is garbage collected, closing the channel doesn't unmap it,
+            // so it's safe to be referenced by an in-flight response after the reader is closed.
+            final MappedByteBuffer mapped = file.getMapped(fsize);
+            if (mapped == null) {
+                return new FileChunk(fc.map(FileChannel.MapMode.READ_ONLY, offset, count), eof);
+            }
+            final ByteBuffer slice = mapped.duplicate();
+            slice.limit((int) offset + count).position((int) offset);
+            return new FileChunk(slice.slice(), eof);
+        }
+        final ByteBuffer buf = ByteBuffer.allocate(count);
+        long pos = offset;
+        while (buf.hasRemaining()) {
+            final int nread = fc.read(buf, pos);
+            if (nread < 0) {
+                break;
+            }
+            pos += nread;
+        }
+        buf.flip();
+        return new FileChunk(buf, eof || buf.remaining() < count);
+    }
+
     @SuppressWarnings("unused")
     protected int readFileWithMeta(final ByteBufferCollector buf, final String fileName, final Message fileMeta,
                                    long offset, final long maxCount) throws IOException, RetryAgainException {
         buf.expandIfNecessary();
-        final String filePath = this.path + File.separator + fileName;
-        final File file = new File(filePath);
-        try (final FileInputStream input = new FileInputStream(file); final FileChannel fc = input.getChannel()) {
-            int totalRead = 0;
-            while (true) {
-                final int nread = fc.read(buf.getBuffer(), offset);
-                if (nread <= 0) {
+        final FileChannel fc = getChannel(fileName);
+        int totalRead = 0;
+        while (true) {
+            final int nread = fc.read(buf.getBuffer(), offset);
+            if (nread <= 0) {
+                return EOF;
+            }
+            totalRead += nread;
+            if (totalRead < maxCount) {
+                if (buf.hasRemaining()) {
+                    return EOF;
+                } else {
+                    buf.expandAtMost((int) (maxCount - totalRead));
+                    offset += nread;
+                }
+            } else {
+                final long fsize = fc.size();
+                if (fsize < 0) {
+                    LOG.warn("Invalid file length {}", this.path + File.separator + fileName);
                     return EOF;
                 }
-                totalRead += nread;
-                if (totalRead < maxCount) {
-                    if (buf.hasRemaining()) {
-                        return EOF;
-                    } else {
-                        buf.expandAtMost((int) (maxCount - totalRead));
-                        offset += nread;
-                    }
+                if (fsize == offset + nread) {
+                    return EOF;
                 } else {
-                    final long fsize = file.length();
-                    if (fsize < 0) {
-                        LOG.warn("Invalid file length {}", filePath);
-                        return EOF;
-                    }
-                    if (fsize == offset + nread) {
-                        return EOF;
-                    } else {
-                        return totalRead;
-                    }
+                    return totalRead;
                 }
             }
         }
     }
+
+    /**
+     * Closes the opened file channels.
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        for (final OpenFile file : this.files.values()) {
+            Utils.closeQuietly(file.channel);
+        }
+        this.files.clear();
+    }
 }
@@ -0,0 +1,438 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.jraft.storage.log;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
+
+import com.alipay.sofa.jraft.storage.io.FileChunkCodec;
+import com.alipay.sofa.jraft.storage.io.FileChunkCodecs;
+import com.alipay.sofa.jraft.util.Bits;
+import com.alipay.sofa.jraft.util.Requires;
+
+/**
+ * A log segment archived in a {@link LogArchiveStore}. The records are packed into blocks which
+ * are compressed independently, and the sparse index of the blocks is kept in memory, so a log
+ * is read by fetching and decompressing only the block it's in. The last read block is cached,
+ * lagging followers read the logs one by one and mostly hit it.
+ *
+ * A segment is stored as two objects:
+ * <pre>
+ *   {seq}.a     the compressed blocks
+ *   {seq}.ai    the log range, codec, block index and configuration log indexes
+ * </pre>
+ * The index object is put after the blocks and deleted before them, so a segment without
+ * index object is incomplete.
+ *
+ * @author agent (agent@local)
+ */
+final class ArchivedSegment {
+
+    static final String       DATA_POSFIX  = ".a";
+    static final String       INDEX_POSFIX = ".ai";
+
+    private static final int  MAGIC        = 0x4A52414C;
+    private static final int  NO_CODEC     = -1;
+
+    /**
+     * A decompressed block, offsets are the record positions in raw.
+     */
+    private static final class Block {
+        final int    idx;
+        final byte[] raw;
+        final int[]  offsets;
+
+        Block(final int idx, final byte[] raw, final int[] offsets) {
+            this.idx = idx;
+            this.raw = raw;
+            this.offsets = offsets;
+        }
+    }
+
+    private final LogArchiveStore store;
+    private final long            sequence;
+    private final String          codecName;
+    private final FileChunkCodec  codec;
+    private final long            firstLogIndex;
+    private volatile long         lastLogIndex;
+    private final long[]          blockFirstIndexes;
+    private final long[]          blockOffsets;
+    private final int[]           blockLengths;
+    private final int[]           blockRawLengths;
+    private final long[]          confIndexes;
+    private volatile Block        lastBlock;
+
+    private ArchivedSegment(final LogArchiveStore store, final long sequence, final String codecName,
+                            final long firstLogIndex, final long lastLogIndex, final long[] blockFirstIndexes,
+                            final long[] blockOffsets, final int[] blockLengths, final int[] blockRawLengths,
+                            final long[] confIndexes) throws IOException {
+        this.store = store;
+        this.sequence = sequence;
+        this.codecName = codecName;
+        this.codec = getCodec(codecName);
+        this.firstLogIndex = firstLogIndex;
+        this.lastLogIndex = lastLogIndex;
+        this.blockFirstIndexes = blockFirstIndexes;
+        this.blockOffsets = blockOffsets;
+        this.blockLengths = blockLengths;
+        this.blockRawLengths = blockRawLengths;
+        this.confIndexes = confIndexes;
+    }
+
+    private static FileChunkCodec getCodec(final String codecName) throws IOException {
+        if (StringUtils.isBlank(codecName)) {
+            return null;
+        }
+        final FileChunkCodec codec = FileChunkCodecs.getCodec(codecName);
+        if (codec == null) {
+            throw new IOException("Unknown file chunk codec: " + codecName);
+        }
+        return codec;
+    }
+
+    static String getDataName(final long sequence) {
+        return String.format("%019d", sequence) + DATA_POSFIX;
+    }
+
+    static String getIndexName(final long sequence) {
+        return String.format("%019d", sequence) + INDEX_POSFIX;
+    }
+
+    long getSequence() {
+        return this.sequence;
+    }
+
+    long getFirstLogIndex() {
+        return this.firstLogIndex;
+    }
+
+    long getLastLogIndex() {
+        return this.lastLogIndex;
+    }
+
+    long[] getConfIndexes() {
+        return this.confIndexes;
+    }
+
+    /**
+     * Reads the log record, returns null if it's not in the segment.
+     */
+    byte[] read(final long logIndex) throws IOException {
+        if (logIndex < this.firstLogIndex || logIndex > this.lastLogIndex) {
+            return null;
+        }
+        int idx = Arrays.binarySearch(this.blockFirstIndexes, logIndex);
+        if (idx < 0) {
+            idx = -idx - 2;
+        }
+        Block block = this.lastBlock;
+        if (block == null || block.idx != idx) {
+            block = loadBlock(idx);
+            this.lastBlock = block;
+        }
+        final int i = (int) (logIndex - this.blockFirstIndexes[idx]);
+        if (i >= block.offsets.length) {
+            return null;
+        }
+        final int offset = block.offsets[i];
+        final int len = Bits.getInt(block.raw, offset);
+        return Arrays.copyOfRange(block.raw, offset + 4, offset + 4 + len);
+    }
+
+    private Block loadBlock(final int idx) throws IOException {
+        final byte[] data = this.store.read(getDataName(this.sequence), this.blockOffsets[idx],
+            this.blockLengths[idx]);
+        final byte[] raw;
+        if (this.codec == null) {
+            raw = data;
+        } else {
+            raw = new byte[this.blockRawLengths[idx]];
+            this.codec.decode(ByteBuffer.wrap(data), ByteBuffer.wrap(raw));
+        }
+        final long nextFirstIndex = idx + 1 < this.blockFirstIndexes.length ? this.blockFirstIndexes[idx + 1]
+            : this.lastLogIndex + 1;
+        final int[] offsets = new int[(int) (nextFirstIndex - this.blockFirstIndexes[idx])];
+        int pos = 0;
+        for (int i = 0; i < offsets.length; i++) {
+            if (pos + 4 > raw.length) {
+                throw new IOException("Corrupted block " + idx + " of archived segment " + this.sequence);
+            }
+            offsets[i] = pos;
+            pos += 4 + Bits.getInt(raw, pos);
+        }
+        return new Block(idx, raw, offsets);
+    }
+
+    /**
+     * Drops the cached block, the storage keeps the cache of the last read segment only.
+     */
+    void releaseCache() {
+        this.lastBlock = null;
+    }
+
+    /**
+     * Cuts the logs after lastIndexKept, the blocks are kept and only the index object is updated.
+     */
+    void truncateSuffix(final long lastIndexKept) throws IOException {
+        Requires.requireTrue(lastIndexKept >= this.firstLogIndex, "Invalid lastIndexKept");
+        if (lastIndexKept >= this.lastLogIndex) {
+            return;
+        }
+        this.store.put(getIndexName(this.sequence), encodeIndex(lastIndexKept));
+        this.lastLogIndex = lastIndexKept;
+        this.lastBlock = null;
+    }
+
+    /**
+     * Deletes the objects of the segment.
+     */
+    boolean destroy() {
+        return this.store.delete(getIndexName(this.sequence)) && this.store.delete(getDataName(this.sequence));
+    }
+
+    private byte[] encodeIndex(final long lastIndex) {
+        int blockCount = 0;
+        while (blockCount < this.blockFirstIndexes.length && this.blockFirstIndexes[blockCount] <= lastIndex) {
+            blockCount++;
+        }
+        int confCount = 0;
+        while (confCount < this.confIndexes.length && this.confIndexes[confCount] <= lastIndex) {
+            confCount++;
+        }
+        final byte[] codecBytes = StringUtils.isBlank(this.codecName) ? null : this.codecName
+            .getBytes(StandardCharsets.UTF_8);
+        final ByteBuffer buf = ByteBuffer.allocate(4 + 8 + 8 + 4 + (codecBytes == null ? 0 : codecBytes.length) + 4
+                                                   + blockCount * 24 + 4 + confCount * 8);
+        buf.putInt(MAGIC);
+        buf.putLong(this.firstLogIndex);
+        buf.putLong(lastIndex);
+        if (codecBytes == null) {
+            buf.putInt(NO_CODEC);
+        } else {
+            buf.putInt(codecBytes.length);
+            buf.put(codecBytes);
+        }
+        buf.putInt(blockCount);
+        for (int i = 0; i < blockCount; i++) {
+            buf.putLong(this.blockFirstIndexes[i]);
+            buf.putLong(this.blockOffsets[i]);
+            buf.putInt(this.blockLengths[i]);
+            buf.putInt(this.blockRawLengths[i]);
+        }
+        buf.putInt(confCount);
+        for (int i = 0; i < confCount; i++) {
+            buf.putLong(this.confIndexes[i]);
+        }
+        return buf.array();
+    }
+
+    /**
+     * Loads the archived segment, returns null if its index object does not exist.
+     */
+    static ArchivedSegment load(final LogArchiveStore store, final long sequence) throws IOException {
+        final byte[] bs = store.readAll(getIndexName(sequence));
+        if (bs == null) {
+            return null;
+        }
+        try {
+            final ByteBuffer buf = ByteBuffer.wrap(bs);
+            if (buf.getInt() != MAGIC) {
+                throw new IOException("Invalid index object of archived segment " + sequence);
+            }
+            final long firstLogIndex = buf.getLong();
+            final long lastLogIndex = buf.getLong();
+            final int codecLen = buf.getInt();
+            String codecName = null;
+            if (codecLen != NO_CODEC) {
+                final byte[] codecBytes = new byte[codecLen];
+                buf.get(codecBytes);
+                codecName = new String(codecBytes, StandardCharsets.UTF_8);
+            }
+            final int blockCount = buf.getInt();
+            final long[] blockFirstIndexes = new long[blockCount];
+            final long[] blockOffsets = new long[blockCount];
+            final int[] blockLengths = new int[blockCount];
+            final int[] blockRawLengths = new int[blockCount];
+            for (int i = 0; i < blockCount; i++) {
+                blockFirstIndexes[i] = buf.getLong();
+                blockOffsets[i] = buf.getLong();
+                blockLengths[i] = buf.getInt();
+                blockRawLengths[i] = buf.getInt();
+            }
+            final long[] confIndexes = new long[buf.getInt()];
+            for (int i = 0; i < confIndexes.length; i++) {
+                confIndexes[i] = buf.getLong();
+            }
+            return new ArchivedSegment(store, sequence, codecName, firstLogIndex, lastLogIndex, blockFirstIndexes,
+                blockOffsets, blockLengths, blockRawLengths, confIndexes);
+        } catch (final RuntimeException e) {
+            throw new IOException("Invalid index object of archived segment " + sequence, e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ArchivedSegment{sequence=" + this.sequence + ", firstLogIndex=" + this.firstLogIndex
+               + ", lastLogIndex=" + this.lastLogIndex + ", blocks=" + this.blockFirstIndexes.length + '}';
+    }
+
+    /**
+     * Packs the records of a segment into blocks in a local temp file, and puts them into the
+     * store when building.
+     */
+    static final class Builder {
+        private final LogArchiveStore store;
+        private final long            sequence;
+        private final String          codecName;
+        private final FileChunkCodec  codec;
+        private final int             blockBytes;
+        private final File            tempFile;
+        private final OutputStream    out;
+        private final long            firstLogIndex;
+        private long                  nextLogIndex;
+        private long                  offset;
+        private long[]                blockFirstIndexes = new long[16];
+        private long[]                blockOffsets      = new long[16];
+        private int[]                 blockLengths      = new int[16];
+        private int[]                 blockRawLengths   = new int[16];
+        private int                   blockCount;
+        private long[]                confIndexes       = new long[4];
+        private int                   confCount;
+        private ByteBuffer            block;
+        private long                  blockFirstIndex;
+
+        Builder(final LogArchiveStore store, final long sequence, final String codecName, final int blockBytes,
+                final File tempFile, final long firstLogIndex) throws IOException {
+            this.store = store;
+            this.sequence = sequence;
+            this.codecName = codecName;
+            this.codec = getCodec(codecName);
+            this.blockBytes = Math.max(1, blockBytes);
+            this.tempFile = tempFile;
+            this.out = new BufferedOutputStream(new FileOutputStream(tempFile));
+            this.firstLogIndex = firstLogIndex;
+            this.nextLogIndex = firstLogIndex;
+            this.block = ByteBuffer.allocate(this.blockBytes + 4);
+        }
+
+        /**
+         * Adds the next log record.
+         */
+        void add(final long logIndex, final byte[] data, final boolean isConf) throws IOException {
+            Requires.requireTrue(logIndex == this.nextLogIndex, "Log index %d is not continuous, expect %d",
+                logIndex, this.nextLogIndex);
+            final int recordBytes = 4 + data.length;
+            if (this.block.position() > 0 && this.block.position() + recordBytes > this.blockBytes) {
+                flushBlock();
+            }
+            if (this.block.position() == 0) {
+                this.blockFirstIndex = logIndex;
+            }
+            if (this.block.remaining() < recordBytes) {
+                // A record larger than the block size gets a block of its own.
+                final ByteBuffer newBlock = ByteBuffer.allocate(this.block.position() + recordBytes);
+                this.block.flip();
+                newBlock.put(this.block);
+                this.block = newBlock;
+            }
+            this.block.putInt(data.length);
+            this.block.put(data);
+            if (isConf) {
+                if (this.confCount == this.confIndexes.length) {
+                    this.confIndexes = Arrays.copyOf(this.confIndexes, this.confCount << 1);
+                }
+                this.confIndexes[this.confCount++] = logIndex;
+            }
+            this.nextLogIndex++;
+        }
+
+        private void flushBlock() throws IOException {
+            this.block.flip();
+            final int rawLength = this.block.remaining();
+            final byte[] bs;
+            if (this.codec == null) {
+                bs = new byte[rawLength];
+                this.block.get(bs);
+            } else {
+                bs = this.codec.encode(this.block);
+            }
+            this.out.write(bs);
+            if (this.blockCount == this.blockFirstIndexes.length) {
+                final int newLength = this.blockCount << 1;
+                this.blockFirstIndexes = Arrays.copyOf(this.blockFirstIndexes, newLength);
+                this.blockOffsets = Arrays.copyOf(this.blockOffsets, newLength);
+                this.blockLengths = Arrays.copyOf(this.blockLengths, newLength);
+                this.blockRawLengths = Arrays.copyOf(this.blockRawLengths, newLength);
+            }
+            this.blockFirstIndexes[this.blockCount] = this.blockFirstIndex;
+            this.blockOffsets[this.blockCount] = this.offset;
+            this.blockLengths[this.blockCount] = bs.length;
+            this.blockRawLengths[this.blockCount] = rawLength;
+            this.blockCount++;
+            this.offset += bs.length;
+            if (this.block.capacity() > this.blockBytes + 4) {
+                this.block = ByteBuffer.allocate(this.blockBytes + 4);
+            } else {
+                this.block.clear();
+            }
+        }
+
+        /**
+         * Puts the blocks and the index into the store, the temp file is deleted.
+         */
+        ArchivedSegment build() throws IOException {
+            Requires.requireTrue(this.nextLogIndex > this.firstLogIndex, "Empty archived segment");
+            try {
+                if (this.block.position() > 0) {
+                    flushBlock();
+                }
+                this.out.close();
+                final ArchivedSegment segment = new ArchivedSegment(this.store, this.sequence, this.codecName,
+                    this.firstLogIndex, this.nextLogIndex - 1, Arrays.copyOf(this.blockFirstIndexes,
+                        this.blockCount), Arrays.copyOf(this.blockOffsets, this.blockCount), Arrays.copyOf(
+                        this.blockLengths, this.blockCount), Arrays.copyOf(this.blockRawLengths, this.blockCount),
+                    Arrays.copyOf(this.confIndexes, this.confCount));
+                this.store.put(getDataName(this.sequence), this.tempFile);
+                this.store.put(getIndexName(this.sequence), segment.encodeIndex(segment.getLastLogIndex()));
+                return segment;
+            } finally {
+                abort();
+            }
+        }
+
+        /**
+         * Discards the temp file.
+         */
+        void abort() {
+            try {
+                this.out.close();
+            } catch (final IOException ignored) {
+                // ignore
+            }
+            FileUtils.deleteQuietly(this.tempFile);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.jraft.storage.log;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+
+import com.alipay.sofa.jraft.util.Utils;
+
+/**
+ * A {@link LogArchiveStore} that keeps the objects as files in a directory, usually on a
+ * cheaper and larger disk than the log storage.
+ *
+ * @author agent (agent@local)
+ */
+public class FileLogArchiveStore implements LogArchiveStore {
+
+    private static final String TEMP_FILE_POSFIX = ".tmp";
+
+    private final String        path;
+    private final boolean       sync;
+
+    public FileLogArchiveStore(final String path) {
+        this(path, true);
+    }
+
+    public FileLogArchiveStore(final String path, final boolean sync) {
+        super();
+        this.path = path;
+        this.sync = sync;
+    }
+
+    public String getPath() {
+        return this.path;
+    }
+
+    @Override
+    public void put(final String name, final byte[] data) throws IOException {
+        final File dir = new File(this.path);
+        FileUtils.forceMkdir(dir);
+        final File tmp = new File(dir, name + TEMP_FILE_POSFIX);
+        try (final FileOutputStream out = new FileOutputStream(tmp)) {
+            out.write(data);
+            if (this.sync) {
+                out.getFD().sync();
+            }
+        }
+        if (!Utils.atomicMoveFile(tmp, new File(dir, name), this.sync)) {
+            throw new IOException("Fail to move " + tmp + " to " + name);
+        }
+    }
+
+    @Override
+    public void put(final String name, final File file) throws IOException {
+        final File dir = new File(this.path);
+        FileUtils.forceMkdir(dir);
+        final File tmp = new File(dir, name + TEMP_FILE_POSFIX);
+        FileUtils.copyFile(file, tmp);
+        if (this.sync) {
+            Utils.fsync(tmp);
+        }
+        if (!Utils.atomicMoveFile(tmp, new File(dir, name), this.sync)) {
+            throw new IOException("Fail to move " + tmp + " to " + name);
+        }
+    }
+
+    @Override
+    public byte[] read(final String name, final long offset, final int length) throws IOException {
+        try (final RandomAccessFile file = new RandomAccessFile(new File(this.path, name), "r")) {
+            if (offset + length > file.length()) {
+                throw new EOFException("Range [" + offset + ", " + (offset + length) + ") is out of " + name
+                                       + ", length=" + file.length());
+            }
+            final byte[] bs = new byte[length];
+            file.seek(offset);
+            file.readFully(bs);
+            return bs;
+        }
+    }
+
+    @Override
+    public byte[] readAll(final String name) throws IOException {
+        final File file = new File(this.path, name);
+        if (!file.exists()) {
+            return null;
+        }
+        return Files.readAllBytes(file.toPath());
+    }
+
+    @Override
+    public boolean delete(final String name) {
+        final File file = new File(this.path, name);
+        return !file.exists() || file.delete();
+    }
+
+    @Override
+    public List<String> list() throws IOException {
+        final List<String> names = new ArrayList<>();
+        final File[] files = new File(this.path).listFiles();
+        if (files == null) {
+            return names;
+        }
+        for (final File file : files) {
+            final String name = file.getName();
+            if (file.isFile() && !name.endsWith(TEMP_FILE_POSFIX)) {
+                names.add(name);
+            }
+        }
+        return names;
+    }
+
+    @Override
+    public String toString() {
+        return "FileLogArchiveStore{path=" + this.path + '}';
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.jraft.storage.log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * An object-store-like secondary storage for the archived log segments, the objects are
+ * immutable blobs identified by names, and an object is replaced as a whole by putting it again.
+ *
+ * A store must not be shared by different log storages, and the implementations must be
+ * thread-safe.
+ *
+ * @author agent (agent@local)
+ */
+public interface LogArchiveStore {
+
+    /**
+     * Puts the object atomically, readers see either the old object or the new one.
+     *
+     * @param name the object name
+     * @param data the object content
+     */
+    void put(final String name, final byte[] data) throws IOException;
+
+    /**
+     * Puts the content of a local file as the object atomically, the file is not changed.
+     *
+     * @param name the object name
+     * @param file the local file
+     */
+    void put(final String name, final File file) throws IOException;
+
+    /**
+     * Reads a range of the object.
+     *
+     * @param name   the object name
+     * @param offset the start offset in the object
+     * @param length the bytes count to read
+     * @return the bytes in the range
+     * @throws IOException if the object does not exist or the range is out of it
+     */
+    byte[] read(final String name, final long offset, final int length) throws IOException;
+
+    /**
+     * Reads the whole object, returns null if it does not exist.
+     *
+     * @param name the object name
+     */
+    byte[] readAll(final String name) throws IOException;
+
+    /**
+     * Deletes the object, returns true if it does not exist any more.
+     *
+     * @param name the object name
+     */
+    boolean delete(final String name);
+
+    /**
+     * Lists the names of all the objects.
+     */
+    List<String> list() throws IOException;
+}
@@ -39,11 +39,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.alipay.sofa.jraft.Lifecycle;
+import com.alipay.sofa.jraft.entity.LogEntry;
+import com.alipay.sofa.jraft.entity.codec.LogEntryEncoder;
 import com.alipay.sofa.jraft.storage.impl.RocksDBLogStorage.WriteContext;
 import com.alipay.sofa.jraft.storage.log.SegmentFile.SegmentFileOptions;
 import com.alipay.sofa.jraft.util.Bits;
 import com.alipay.sofa.jraft.util.BytesUtil;
-import com.alipay.sofa.jraft.util.OnlyForTest;
 import com.alipay.sofa.jraft.util.Utils;
 import com.sun.jna.NativeLong;
 import com.sun.jna.Pointer;
@@ -250,7 +251,6 @@ public class SegmentFile implements Lifecycle<SegmentFileOptions> {
         return this.lastLogIndex;
     }
 
-    @OnlyForTest
     public int getWrotePos() {
         return this.wrotePos;
     }
@@ -723,7 +723,11 @@ public class SegmentFile implements Lifecycle<SegmentFileOptions> {
     }
 
     static int getWriteBytes(final byte[] data) {
-        return RECORD_MAGIC_BYTES_SIZE + RECORD_DATA_LENGTH_SIZE + data.length;
+        return getWriteBytes(data.length);
+    }
+
+    static int getWriteBytes(final int dataLen) {
+        return RECORD_MAGIC_BYTES_SIZE + RECORD_DATA_LENGTH_SIZE + dataLen;
     }
 
     /**
@@ -770,6 +774,107 @@ public class SegmentFile implements Lifecycle<SegmentFileOptions> {
         }
     }
 
+    /**
+     * The job to encode a log entry into the segment on the write executor. The appender
+     * reuses it once it's finished, and it keeps a private view of the segment buffer, so
+     * neither is allocated per entry.
+     *
+     * @since 1.3.8
+     */
+    public static final class EncodeJob implements Runnable {
+        private volatile boolean busy;
+        private MappedByteBuffer source;
+        private ByteBuffer       target;
+        private int              pos;
+        private long             logIndex;
+        private LogEntry         entry;
+        private LogEntryEncoder  encoder;
+        private int              dataLen;
+        private WriteContext     ctx;
+
+        /**
+         * Returns true if the job is submitted and not finished yet.
+         */
+        public boolean isBusy() {
+            return this.busy;
+        }
+
+        @Override
+        public void run() {
+            final WriteContext writeCtx = this.ctx;
+            try {
+                // A private view, the position of the segment buffer is guarded by the write lock.
+                final ByteBuffer dst = this.target;
+                dst.position(this.pos);
+                dst.put(RECORD_MAGIC_BYTES);
+                dst.putInt(this.dataLen);
+                this.encoder.encode(this.entry, dst);
+                final int wrote = dst.position() - this.pos;
+                if (wrote != getWriteBytes(this.dataLen)) {
+                    throw new IOException("Encoded size mismatch of log " + this.logIndex + ", expect "
+                                          + getWriteBytes(this.dataLen) + ", but was " + wrote);
+                }
+            } catch (final Exception e) {
+                writeCtx.setError(e);
+            } finally {
+                this.entry = null;
+                this.ctx = null;
+                this.busy = false;
+                writeCtx.finishJob();
+            }
+        }
+    }
+
+    /**
+     * Write the log entry encoded by the encoder directly into the segment, without any
+     * intermediate byte array, and return it's wrote position. The entry must not be modified
+     * until the write job is finished.
+     *
+     * @param logIndex the log index
+     * @param entry    the log entry to write
+     * @param encoder  the log entry encoder
+     * @param dataLen  the encoded size of the entry, see {@link LogEntryEncoder#encodedSize(LogEntry)}
+     * @param job      the job to run the encoding, it must not be busy
+     * @return the wrote position
+     * @since 1.3.8
+     */
+    @SuppressWarnings("NonAtomicOperationOnVolatileField")
+    public int write(final long logIndex, final LogEntry entry, final LogEntryEncoder encoder, final int dataLen,
+                     final WriteContext ctx, final EncodeJob job) {
+        int pos = -1;
+        MappedByteBuffer buf = null;
+        this.writeLock.lock();
+        try {
+            assert (this.wrotePos == this.buffer.position());
+            buf = this.buffer;
+            pos = this.wrotePos;
+            this.wrotePos += getWriteBytes(dataLen);
+            this.buffer.position(this.wrotePos);
+            // Update log index.
+            if (isBlank() || pos == HEADER_SIZE) {
+                this.header.firstLogIndex = logIndex;
+                // we don't need to call fsync header here, the new header will be flushed with this wrote.
+                saveHeader(false);
+            }
+            this.lastLogIndex = logIndex;
+            return pos;
+        } finally {
+            this.writeLock.unlock();
+            if (job.source != buf) {
+                job.source = buf;
+                job.target = buf.duplicate();
+            }
+            job.pos = pos;
+            job.logIndex = logIndex;
+            job.entry = entry;
+            job.encoder = encoder;
+            job.dataLen = dataLen;
+            job.ctx = ctx;
+            job.busy = true;
+            this.writeExecutor.execute(job);
+        }
+    }
+
     private static void putInt(final MappedByteBuffer buffer, final int index, final int n) {
         byte[] bs = new byte[RECORD_DATA_LENGTH_SIZE];
         Bits.putInt(bs, 0, n);
@@ -0,0 +1,195 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.jraft.storage.log;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.alipay.sofa.jraft.util.Utils;
+
+/**
+ * A fixed size mmap'd offset index of a {@link SegmentFile}. The n-th slot holds the wrote
+ * position of the log at {@code firstLogIndex + n} in the segment:
+ * <pre>
+ *   [slot, slot, ...]
+ * </pre>
+ *
+ * Every slot is a 4 bytes int, the highest bit is set when the log is a configuration entry,
+ * and an empty slot is zero because a record never starts before the segment header. The slots
+ * are filled from the start without holes, so the slots count is recovered by a binary search.
+ *
+ * It's written by one thread, readers only read the slots which are published by the log storage.
+ *
+ * @author agent (agent@local)
+ */
+public class SegmentIndexFile {
+
+    private static final Logger LOG       = LoggerFactory.getLogger(SegmentIndexFile.class);
+
+    public static final int     SLOT_SIZE = 4;
+
+    private static final int    CONF_FLAG = 0x80000000;
+
+    private final String        path;
+    // Max slots count
+    private int                 capacity;
+    // mmap byte buffer.
+    private MappedByteBuffer    buffer;
+    // Used slots count
+    private volatile int        count;
+
+    public SegmentIndexFile(final String path, final int capacity) {
+        super();
+        this.path = path;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Mmap the index file, creates it when it's not exists.
+     *
+     * @param create whether to create the file
+     * @return true when success
+     */
+    public boolean init(final boolean create) {
+        final File file = new File(this.path);
+        if (file.exists()) {
+            this.capacity = (int) (file.length() / SLOT_SIZE);
+        } else if (!create) {
+            LOG.error("File {} is not exists.", this.path);
+            return false;
+        }
+        try (FileChannel fc = openFileChannel(create)) {
+            this.buffer = fc.map(MapMode.READ_WRITE, 0, (long) this.capacity * SLOT_SIZE);
+            this.count = recoverCount();
+            return true;
+        } catch (final IOException e) {
+            LOG.error("Fail to mmap index file {}.", this.path, e);
+            return false;
+        }
+    }
+
+    private FileChannel openFileChannel(final boolean create) throws IOException {
+        if (create) {
+            return FileChannel.open(Paths.get(this.path), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        } else {
+            return FileChannel.open(Paths.get(this.path), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+    }
+
+    private int recoverCount() {
+        int low = 0;
+        int high = this.capacity;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (this.buffer.getInt(mid * SLOT_SIZE) != 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    public int getCount() {
+        return this.count;
+    }
+
+    public boolean isFull() {
+        return this.count >= this.capacity;
+    }
+
+    public String getPath() {
+        return this.path;
+    }
+
+    /**
+     * Appends the wrote position of the next log.
+     *
+     * @param pos  the wrote position in segment file
+     * @param conf whether the log is a configuration entry
+     */
+    @SuppressWarnings("NonAtomicOperationOnVolatileField")
+    public void append(final int pos, final boolean conf) {
+        assert (pos > 0 && !isFull());
+        this.buffer.putInt(this.count * SLOT_SIZE, conf ? pos | CONF_FLAG : pos);
+        this.count++;
+    }
+
+    /**
+     * Returns the wrote position in slot, -1 if the slot is empty.
+     */
+    public int getPosition(final int slot) {
+        if (slot < 0 || slot >= this.count) {
+            return -1;
+        }
+        return this.buffer.getInt(slot * SLOT_SIZE) & ~CONF_FLAG;
+    }
+
+    public boolean isConfiguration(final int slot) {
+        return slot >= 0 && slot < this.count && (this.buffer.getInt(slot * SLOT_SIZE) & CONF_FLAG) != 0;
+    }
+
+    /**
+     * Clear the slots from newCount(inclusive) to the end.
+     */
+    public void truncate(final int newCount, final boolean sync) {
+        if (newCount >= this.count) {
+            return;
+        }
+        for (int i = Math.max(newCount, 0); i < this.count; i++) {
+            this.buffer.putInt(i * SLOT_SIZE, 0);
+        }
+        this.count = Math.max(newCount, 0);
+        sync(sync);
+    }
+
+    /**
+     * Forces the slots to be written to the storage device.
+     */
+    public void sync(final boolean sync) {
+        if (sync && this.buffer != null) {
+            this.buffer.force();
+        }
+    }
+
+    public void shutdown() {
+        if (this.buffer != null) {
+            Utils.unmap(this.buffer);
+            this.buffer = null;
+        }
+    }
+
+    public void destroy() {
+        shutdown();
+        FileUtils.deleteQuietly(new File(this.path));
+    }
+
+    @Override
+    public String toString() {
+        return "SegmentIndexFile [path=" + this.path + ", capacity=" + this.capacity + ", count=" + this.count + "]";
+    }
+}
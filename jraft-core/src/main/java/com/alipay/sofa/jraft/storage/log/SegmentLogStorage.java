@@ -0,0 +1,1304 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.jraft.storage.log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.alipay.sofa.jraft.conf.Configuration;
+import com.alipay.sofa.jraft.conf.ConfigurationEntry;
+import com.alipay.sofa.jraft.conf.ConfigurationManager;
+import com.alipay.sofa.jraft.entity.EnumOutter.EntryType;
+import com.alipay.sofa.jraft.entity.LocalFileMetaOutter.LocalFileMeta;
+import com.alipay.sofa.jraft.entity.LogEntry;
+import com.alipay.sofa.jraft.entity.LogId;
+import com.alipay.sofa.jraft.entity.codec.LogEntryDecoder;
+import com.alipay.sofa.jraft.entity.codec.LogEntryEncoder;
+import com.alipay.sofa.jraft.option.LogArchiveOptions;
+import com.alipay.sofa.jraft.option.LogStorageOptions;
+import com.alipay.sofa.jraft.option.RaftOptions;
+import com.alipay.sofa.jraft.storage.LogStorage;
+import com.alipay.sofa.jraft.storage.impl.RocksDBLogStorage.WriteContext;
+import com.alipay.sofa.jraft.storage.io.ProtoBufFile;
+import com.alipay.sofa.jraft.storage.log.CheckpointFile.Checkpoint;
+import com.alipay.sofa.jraft.storage.log.RocksDBSegmentLogStorage.BarrierWriteContext;
+import com.alipay.sofa.jraft.storage.log.SegmentFile.SegmentFileOptions;
+import com.alipay.sofa.jraft.util.Bits;
+import com.alipay.sofa.jraft.util.ExecutorServiceHelper;
+import com.alipay.sofa.jraft.util.BytesUtil;
+import com.alipay.sofa.jraft.util.NamedThreadFactory;
+import com.alipay.sofa.jraft.util.Requires;
+import com.alipay.sofa.jraft.util.SystemPropertyUtil;
+import com.alipay.sofa.jraft.util.ThreadPoolUtil;
+import com.alipay.sofa.jraft.util.Utils;
+import com.google.protobuf.ZeroByteStringHelper;
+
+/**
+ * A pure file based log storage, the logs are stored in fixed size mmap'd {@link SegmentFile}s,
+ * and every segment has a {@link SegmentIndexFile} that maps the log index to its wrote position,
+ * so a log is read by one slot lookup without any key-value index.
+ *
+ * The directory layout is:
+ * <pre>
+ *   {seq}.s            segment file, its header has the first log index
+ *   {seq}.i            offset index of the segment
+ *   checkpoint         the last segment and its committed position
+ *   abort              exists while the storage is running
+ *   first_log_index    the first log index after truncating prefix or resetting
+ * </pre>
+ *
+ * A new segment is started when the last one is full or the appended log is not continuous,
+ * truncating prefix deletes the segments before the first kept log, and truncating suffix
+ * deletes the later segments and cuts the kept one by the index. After an abnormal exit, the
+ * segments since the checkpoint are recovered by scanning the records, and the index slots
+ * which point beyond the recovered data are dropped.
+ *
+ * When a {@link LogArchiveStore} is set by {@link LogArchiveOptions}, the segments older than
+ * the latest {@code hotSegments} ones are compressed into {@link ArchivedSegment}s in the store
+ * in background and deleted locally, so a long log retention does not fill the fast disk. The
+ * archived logs are still readable by their in-memory sparse index, and truncating removes
+ * them in the same way as the local segments. The appender archives the cold segments itself
+ * when more than {@code maxPendingSegments} of them are waiting, so the background archiving
+ * never lags behind unboundedly.
+ *
+ * Every local segment maps its data and index files, so the count of the local segments is
+ * bounded by the max map count of the process (vm.max_map_count on linux). The segment size
+ * should be far larger than the logs: a log larger than it takes a segment of its own, and
+ * without archiving such logs exhaust the maps quickly.
+ *
+ * @author agent (agent@local)
+ */
+public class SegmentLogStorage implements LogStorage {
+
+    private static final Logger  LOG                       = LoggerFactory.getLogger(SegmentLogStorage.class);
+
+    private static final String  SEGMENT_FILE_POSFIX       = ".s";
+    private static final String  INDEX_FILE_POSFIX         = ".i";
+    private static final Pattern SEGMENT_FILE_NAME_PATTERN = Pattern.compile("[0-9]+\\.s");
+    private static final Pattern ARCHIVE_NAME_PATTERN      = Pattern.compile("[0-9]+\\.ai?");
+    private static final String  ARCHIVE_TEMP_FILE_POSFIX  = ".a.tmp";
+
+    /**
+     * Default segment file size, 256M
+     */
+    public static final int      MAX_SEGMENT_FILE_SIZE     = SystemPropertyUtil.getInt(
+                                                               "jraft.log_storage.file.segment.size.bytes",
+                                                               256 * 1024 * 1024);
+
+    /**
+     * The expected min bytes of a log record, it decides the slots count of a segment index.
+     */
+    private static final int     MIN_RECORD_BYTES          = SystemPropertyUtil.getInt(
+                                                               "jraft.log_storage.file.min.record.bytes", 64);
+
+    /**
+     * A segment and its offset index.
+     */
+    private static final class Segment {
+        final SegmentFile      data;
+        final SegmentIndexFile index;
+        // The end position of the last indexed log.
+        volatile int           wrotePos = SegmentFile.HEADER_SIZE;
+
+        Segment(final SegmentFile data, final SegmentIndexFile index) {
+            this.data = data;
+            this.index = index;
+        }
+
+        long getFirstLogIndex() {
+            return this.data.getFirstLogIndex();
+        }
+
+        long getLastLogIndex() {
+            return this.data.getFirstLogIndex() + this.index.getCount() - 1;
+        }
+
+        void shutdown() {
+            this.index.shutdown();
+            this.data.shutdown();
+        }
+
+        void destroy() {
+            this.index.destroy();
+            this.data.destroy();
+        }
+
+        @Override
+        public String toString() {
+            return this.data + " " + this.index;
+        }
+    }
+
+    /**
+     * The logs written into segments, they are published after syncing.
+     */
+    private static final class PendingAppend {
+        final List<Segment> touchedSegments = new ArrayList<>(2);
+        final int           count;
+        long                lastIndex;
+        // The created last segment and its position to checkpoint after syncing.
+        Segment             checkpointSegment;
+        int                 checkpointPos;
+
+        PendingAppend(final int count) {
+            this.count = count;
+        }
+    }
+
+    private final String                   path;
+    private final boolean                  sync;
+    private final int                      maxSegmentFileSize;
+    private final CheckpointFile           checkpointFile;
+    private final AbortFile                abortFile;
+    private final String                   firstLogIndexPath;
+    private final boolean                  ownsWriteExecutor;
+    private ThreadPoolExecutor             writeExecutor;
+    // Syncs and publishes the written logs in order.
+    private volatile ExecutorService       flushExecutor;
+    private final ReadWriteLock            readWriteLock    = new ReentrantReadWriteLock();
+    private final Lock                     readLock         = this.readWriteLock.readLock();
+    private final Lock                     writeLock        = this.readWriteLock.writeLock();
+    // Serializes the appenders, they hold the read lock so readers are not blocked.
+    private final Lock                     appendLock       = new ReentrantLock();
+    // The reused jobs to encode the entries of an append, guarded by the append lock.
+    private final List<SegmentFile.EncodeJob> encodeJobs    = new ArrayList<>();
+    private final AtomicLong               nextFileSequence = new AtomicLong(0);
+    // Copy-on-write segments sorted by first log index, null when not initialized.
+    private volatile List<Segment>         segments;
+    private volatile long                  lastLogIndex;
+    // The last log written into segments, it's ahead of lastLogIndex while the logs are being synced.
+    private long                           lastWrittenIndex;
+    private volatile long                  firstLogIndex    = 1;
+    private volatile boolean               hasLoadFirstLogIndex;
+    private final LogArchiveOptions        archiveOpts;
+    // Copy-on-write archived segments sorted by first log index, they are all before the segments.
+    private volatile List<ArchivedSegment> archivedSegments = Collections.emptyList();
+    private volatile ExecutorService       archiveExecutor;
+    private final AtomicBoolean            archiveScheduled = new AtomicBoolean(false);
+    // Only the last read archived segment caches its block, or a scan caches a block per segment.
+    private volatile ArchivedSegment       lastReadArchived;
+    // Serializes the archivings of the background thread and the appenders.
+    private final Lock                     archiveLock      = new ReentrantLock();
+    // Increased by truncating and resetting, an archiving is discarded if it changes meanwhile.
+    private long                           truncateVersion;
+    private LogEntryEncoder                logEntryEncoder;
+    private LogEntryDecoder                logEntryDecoder;
+
+    public SegmentLogStorage(final String path, final RaftOptions raftOptions) {
+        this(path, raftOptions, MAX_SEGMENT_FILE_SIZE);
+    }
+
+    public SegmentLogStorage(final String path, final RaftOptions raftOptions, final int maxSegmentFileSize) {
+        this(path, raftOptions, maxSegmentFileSize, null);
+    }
+
+    /**
+     * @param writeExecutor the executor to copy the records into segments, a private one is
+     *                      created and shutdown with the storage when it's null
+     */
+    public SegmentLogStorage(final String path, final RaftOptions raftOptions, final int maxSegmentFileSize,
+                             final ThreadPoolExecutor writeExecutor) {
+        this(path, raftOptions, maxSegmentFileSize, writeExecutor, null);
+    }
+
+    /**
+     * @param writeExecutor the executor to copy the records into segments, a private one is
+     *                      created and shutdown with the storage when it's null
+     * @param archiveOpts   the options to archive the cold segments, they are never archived
+     *                      when it's null or has no archive store
+     */
+    public SegmentLogStorage(final String path, final RaftOptions raftOptions, final int maxSegmentFileSize,
+                             final ThreadPoolExecutor writeExecutor, final LogArchiveOptions archiveOpts) {
+        super();
+        Requires.requireTrue(maxSegmentFileSize > SegmentFile.HEADER_SIZE, "Too small maxSegmentFileSize");
+        if (archiveOpts != null && archiveOpts.getArchiveStore() != null) {
+            Requires.requireTrue(archiveOpts.getHotSegments() >= 1, "hotSegments must be at least 1");
+            Requires.requireTrue(archiveOpts.getMaxPendingSegments() >= 0, "maxPendingSegments must not be negative");
+            this.archiveOpts = archiveOpts;
+        } else {
+            this.archiveOpts = null;
+        }
+        this.path = path;
+        this.sync = raftOptions.isSync();
+        this.maxSegmentFileSize = maxSegmentFileSize;
+        this.checkpointFile = new CheckpointFile(path + File.separator + "checkpoint");
+        this.abortFile = new AbortFile(path + File.separator + "abort");
+        this.firstLogIndexPath = path + File.separator + "first_log_index";
+        this.ownsWriteExecutor = writeExecutor == null;
+        this.writeExecutor = writeExecutor;
+    }
+
+    private static ThreadPoolExecutor createDefaultWriteExecutor() {
+        return ThreadPoolUtil.newThreadPool("SegmentLogStorage-write-pool", true, Utils.cpus(), Utils.cpus() * 3, 60,
+            new ArrayBlockingQueue<>(10000), new NamedThreadFactory("SegmentLogStorageWriter"),
+            new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @Override
+    public boolean init(final LogStorageOptions opts) {
+        Requires.requireNonNull(opts.getConfigurationManager(), "Null conf manager");
+        Requires.requireNonNull(opts.getLogEntryCodecFactory(), "Null log entry codec factory");
+        final long startMs = Utils.monotonicMs();
+        this.writeLock.lock();
+        try {
+            if (this.segments != null) {
+                LOG.warn("SegmentLogStorage init() already.");
+                return true;
+            }
+            this.logEntryDecoder = opts.getLogEntryCodecFactory().decoder();
+            this.logEntryEncoder = opts.getLogEntryCodecFactory().encoder();
+            Requires.requireNonNull(this.logEntryDecoder, "Null log entry decoder");
+            Requires.requireNonNull(this.logEntryEncoder, "Null log entry encoder");
+            final File dir = new File(this.path);
+            if (dir.exists() && !dir.isDirectory()) {
+                throw new IllegalStateException("Invalid log path, it's a regular file: " + this.path);
+            }
+            FileUtils.forceMkdir(dir);
+            if (this.writeExecutor == null) {
+                this.writeExecutor = createDefaultWriteExecutor();
+            }
+            this.flushExecutor = Executors.newSingleThreadExecutor(new NamedThreadFactory("SegmentLogStorage-flush-",
+                true));
+            if (this.archiveOpts != null) {
+                this.archiveExecutor = Executors.newSingleThreadExecutor(new NamedThreadFactory(
+                    "SegmentLogStorage-archive-", true));
+            }
+            loadFirstLogIndex();
+
+            final boolean normalExit = !this.abortFile.exists();
+            if (!normalExit) {
+                LOG.info("SegmentLogStorage {} did not exit normally, will try to recover segments.", this.path);
+            }
+            final List<Segment> loaded = new ArrayList<>();
+            if (!loadSegments(normalExit, loaded)) {
+                for (final Segment segment : loaded) {
+                    segment.shutdown();
+                }
+                return false;
+            }
+            final List<ArchivedSegment> archived = new ArrayList<>();
+            if (this.archiveOpts != null && !loadArchivedSegments(loaded, archived)) {
+                for (final Segment segment : loaded) {
+                    segment.shutdown();
+                }
+                return false;
+            }
+            this.segments = loaded;
+            this.archivedSegments = archived;
+            this.lastLogIndex = getLastSegmentLogIndex(loaded, archived);
+            this.lastWrittenIndex = this.lastLogIndex;
+            loadConfigurations(opts.getConfigurationManager());
+            doCheckpoint();
+
+            if (normalExit) {
+                if (!this.abortFile.create()) {
+                    LOG.error("Fail to create abort file {}.", this.abortFile.getPath());
+                    return false;
+                }
+            } else {
+                this.abortFile.touch();
+            }
+            LOG.info("SegmentLogStorage {} loaded {} segments and {} archived segments, firstLogIndex={}, "
+                     + "lastLogIndex={}.", this.path, loaded.size(), archived.size(), getFirstLogIndex(),
+                this.lastLogIndex);
+            return true;
+        } catch (final IOException e) {
+            LOG.error("Fail to init SegmentLogStorage, path={}.", this.path, e);
+            return false;
+        } finally {
+            this.writeLock.unlock();
+            LOG.info("SegmentLogStorage {} init and load cost {} ms.", this.path, Utils.monotonicMs() - startMs);
+        }
+    }
+
+    private boolean loadSegments(final boolean normalExit, final List<Segment> loaded) throws IOException {
+        final File[] segmentFiles = new File(this.path).listFiles(
+            (final File dir, final String name) -> SEGMENT_FILE_NAME_PATTERN.matcher(name).matches());
+        if (segmentFiles == null || segmentFiles.length == 0) {
+            return true;
+        }
+        Arrays.sort(segmentFiles, Comparator.comparing(SegmentLogStorage::getFileSequenceFromFileName));
+
+        final Checkpoint checkpoint = loadCheckpoint();
+        boolean checkpointFound = false;
+        if (checkpoint != null) {
+            for (final File segFile : segmentFiles) {
+                checkpointFound |= segFile.getName().equals(checkpoint.segFilename);
+            }
+        }
+        // Recover all the segments when the checkpoint is missing.
+        boolean needRecover = !checkpointFound;
+
+        for (int i = 0; i < segmentFiles.length; i++) {
+            final File segFile = segmentFiles[i];
+            final boolean isLastFile = i == segmentFiles.length - 1;
+            this.nextFileSequence.set(getFileSequenceFromFileName(segFile) + 1);
+            final SegmentFile data = new SegmentFile(this.maxSegmentFileSize, segFile.getAbsolutePath(),
+                this.writeExecutor);
+            final SegmentIndexFile index = new SegmentIndexFile(getIndexFilePath(segFile.getAbsolutePath()), 1);
+            final Segment segment = new Segment(data, index);
+
+            if (!data.mmapFile(false) || data.isBlank() || !new File(index.getPath()).exists()) {
+                if (isLastFile) {
+                    // It was being created when the process exited, nothing is written into it.
+                    LOG.warn("Delete the last segment file {} which is not completely created.", segFile);
+                    segment.destroy();
+                    continue;
+                }
+                LOG.error("Detected corrupted segment file {}.", segFile);
+                data.shutdown();
+                return false;
+            }
+
+            final boolean isCheckpointFile = checkpointFound && segFile.getName().equals(checkpoint.segFilename);
+            int pos = data.getSize();
+            if (isCheckpointFile) {
+                needRecover = true;
+                pos = checkpoint.committedPos;
+            } else if (needRecover) {
+                pos = 0;
+            }
+            final boolean recover = needRecover && !(normalExit && isCheckpointFile);
+            final SegmentFileOptions opts = SegmentFileOptions.builder() //
+                .setSync(this.sync) //
+                .setRecover(recover) //
+                .setLastFile(isLastFile) //
+                .setNewFile(false) //
+                .setPos(pos).build();
+
+            if (!data.init(opts) || !index.init(false)) {
+                LOG.error("Fail to load segment file {}.", segFile);
+                segment.shutdown();
+                return false;
+            }
+            if (recover || isLastFile) {
+                truncateUnindexedData(segment);
+            } else {
+                segment.wrotePos = getEndPosition(segment, index.getCount());
+            }
+
+            if (index.getCount() == 0) {
+                if (isLastFile) {
+                    LOG.warn("Delete the last segment file {} which has no logs.", segFile);
+                    segment.destroy();
+                    continue;
+                }
+                LOG.error("Detected empty segment file {}.", segFile);
+                segment.shutdown();
+                return false;
+            }
+            if (!loaded.isEmpty()
+                && loaded.get(loaded.size() - 1).getLastLogIndex() >= segment.getFirstLogIndex()) {
+                LOG.error("Segment file {} overlaps with the previous one.", segFile);
+                segment.shutdown();
+                return false;
+            }
+            data.setLastLogIndex(segment.getLastLogIndex());
+            loaded.add(segment);
+        }
+        return true;
+    }
+
+    /**
+     * Loads the archived segments from the store. An archived segment whose local segment still
+     * exists was archived completely, so the local one is deleted, and the incomplete or truncated
+     * archived segments are deleted.
+     */
+    private boolean loadArchivedSegments(final List<Segment> loaded, final List<ArchivedSegment> archived)
+                                                                                                         throws IOException {
+        final LogArchiveStore store = this.archiveOpts.getArchiveStore();
+        final File[] tempFiles = new File(this.path).listFiles(
+            (final File dir, final String name) -> name.endsWith(ARCHIVE_TEMP_FILE_POSFIX));
+        if (tempFiles != null) {
+            for (final File tempFile : tempFiles) {
+                FileUtils.deleteQuietly(tempFile);
+            }
+        }
+        final List<String> names = store.list();
+        Collections.sort(names);
+        for (final String name : names) {
+            if (!ARCHIVE_NAME_PATTERN.matcher(name).matches() || !name.endsWith(ArchivedSegment.DATA_POSFIX)) {
+                continue;
+            }
+            final long sequence = Long.parseLong(name.substring(0,
+                name.length() - ArchivedSegment.DATA_POSFIX.length()));
+            final ArchivedSegment segment = ArchivedSegment.load(store, sequence);
+            if (segment == null) {
+                LOG.warn("Delete the incomplete archived segment {} in {}.", sequence, store);
+                store.delete(name);
+                continue;
+            }
+            if (this.hasLoadFirstLogIndex && segment.getLastLogIndex() < this.firstLogIndex) {
+                LOG.warn("Delete the truncated archived segment {} in {}.", segment, store);
+                segment.destroy();
+                continue;
+            }
+            if (!archived.isEmpty()
+                && archived.get(archived.size() - 1).getLastLogIndex() >= segment.getFirstLogIndex()) {
+                LOG.error("Archived segment {} overlaps with the previous one.", segment);
+                return false;
+            }
+            archived.add(segment);
+            if (this.nextFileSequence.get() <= sequence) {
+                this.nextFileSequence.set(sequence + 1);
+            }
+        }
+        final Iterator<Segment> it = loaded.iterator();
+        while (it.hasNext()) {
+            final Segment segment = it.next();
+            final long sequence = getFileSequenceFromFileName(new File(segment.data.getPath()));
+            for (final ArchivedSegment archivedSegment : archived) {
+                if (archivedSegment.getSequence() == sequence) {
+                    LOG.warn("Delete segment file {} which was archived.", segment.data.getPath());
+                    segment.destroy();
+                    it.remove();
+                    break;
+                }
+            }
+        }
+        if (!archived.isEmpty() && !loaded.isEmpty()
+            && archived.get(archived.size() - 1).getLastLogIndex() >= loaded.get(0).getFirstLogIndex()) {
+            LOG.error("Archived segment {} overlaps with segment file {}.", archived.get(archived.size() - 1),
+                loaded.get(0).data.getPath());
+            return false;
+        }
+        return true;
+    }
+
+    private static long getLastSegmentLogIndex(final List<Segment> segs, final List<ArchivedSegment> archived) {
+        if (!segs.isEmpty()) {
+            return segs.get(segs.size() - 1).getLastLogIndex();
+        }
+        return archived.isEmpty() ? 0 : archived.get(archived.size() - 1).getLastLogIndex();
+    }
+
+    /**
+     * Drops the index slots beyond the recovered data, and truncates the data that is not
+     * indexed, the segment ends at the last indexed log.
+     */
+    private void truncateUnindexedData(final Segment segment) throws IOException {
+        final int dataWrotePos = segment.data.getWrotePos();
+        int count = segment.index.getCount();
+        while (count > 0 && segment.index.getPosition(count - 1) >= dataWrotePos) {
+            count--;
+        }
+        segment.index.truncate(count, this.sync);
+        segment.wrotePos = getEndPosition(segment, count);
+        if (count > 0 && segment.wrotePos < dataWrotePos) {
+            LOG.warn("Truncate the not indexed data of segment file {} from pos={}.", segment.data.getPath(),
+                segment.wrotePos);
+            segment.data.truncateSuffix(segment.wrotePos, segment.getLastLogIndex(), this.sync);
+        }
+    }
+
+    private int getEndPosition(final Segment segment, final int count) throws IOException {
+        if (count == 0) {
+            return SegmentFile.HEADER_SIZE;
+        }
+        final long logIndex = segment.getFirstLogIndex() + count - 1;
+        final int pos = segment.index.getPosition(count - 1);
+        segment.data.setLastLogIndex(logIndex);
+        final byte[] bs = segment.data.read(logIndex, pos);
+        if (bs == null) {
+            throw new IOException("Fail to read the last log " + logIndex + " in " + segment.data.getPath());
+        }
+        return pos + SegmentFile.getWriteBytes(bs);
+    }
+
+    private void loadConfigurations(final ConfigurationManager confManager) throws IOException {
+        final long firstIndex = getFirstLogIndex();
+        for (final ArchivedSegment segment : this.archivedSegments) {
+            for (final long logIndex : segment.getConfIndexes()) {
+                if (logIndex >= firstIndex && logIndex <= segment.getLastLogIndex()) {
+                    addConfiguration(confManager, logIndex, segment.read(logIndex));
+                }
+            }
+        }
+        for (final Segment segment : this.segments) {
+            final int count = segment.index.getCount();
+            for (int slot = 0; slot < count; slot++) {
+                final long logIndex = segment.getFirstLogIndex() + slot;
+                if (logIndex < firstIndex || !segment.index.isConfiguration(slot)) {
+                    continue;
+                }
+                addConfiguration(confManager, logIndex,
+                    segment.data.read(logIndex, segment.index.getPosition(slot)));
+            }
+        }
+    }
+
+    private void addConfiguration(final ConfigurationManager confManager, final long logIndex, final byte[] bs) {
+        final LogEntry entry = bs != null ? this.logEntryDecoder.decode(bs) : null;
+        if (entry == null) {
+            LOG.warn("Fail to decode conf entry at index {}, the log data is: {}.", logIndex, BytesUtil.toHex(bs));
+            return;
+        }
+        final ConfigurationEntry confEntry = new ConfigurationEntry();
+        confEntry.setId(new LogId(entry.getId().getIndex(), entry.getId().getTerm()));
+        confEntry.setConf(new Configuration(entry.getPeers(), entry.getLearners()));
+        if (entry.getOldPeers() != null) {
+            confEntry.setOldConf(new Configuration(entry.getOldPeers(), entry.getOldLearners()));
+        }
+        confManager.add(confEntry);
+    }
+
+    private Checkpoint loadCheckpoint() {
+        try {
+            final Checkpoint checkpoint = this.checkpointFile.load();
+            if (checkpoint != null) {
+                LOG.info("Loaded checkpoint: {} from {}.", checkpoint, this.checkpointFile.getPath());
+            }
+            return checkpoint;
+        } catch (final IOException e) {
+            LOG.error("Fail to load checkpoint file: {}", this.checkpointFile.getPath(), e);
+            return null;
+        }
+    }
+
+    private void doCheckpoint() {
+        final List<Segment> segs = this.segments;
+        if (segs == null) {
+            return;
+        }
+        if (segs.isEmpty()) {
+            this.checkpointFile.destroy();
+            return;
+        }
+        final Segment lastSegment = segs.get(segs.size() - 1);
+        saveCheckpoint(lastSegment, lastSegment.wrotePos);
+    }
+
+    private void saveCheckpoint(final Segment segment, final int pos) {
+        try {
+            this.checkpointFile.save(new Checkpoint(segment.data.getFilename(), pos));
+        } catch (final IOException e) {
+            LOG.error("Fatal error, fail to do checkpoint, last segment file is {}.", segment.data.getPath(), e);
+        }
+    }
+
+    private void loadFirstLogIndex() throws IOException {
+        this.hasLoadFirstLogIndex = false;
+        this.firstLogIndex = 1;
+        final LocalFileMeta meta = new ProtoBufFile(this.firstLogIndexPath).load();
+        if (meta != null) {
+            setFirstLogIndex(Bits.getLong(meta.getUserMeta().toByteArray(), 0));
+        }
+    }
+
+    private boolean saveFirstLogIndex(final long firstLogIndex) {
+        final byte[] vs = new byte[8];
+        Bits.putLong(vs, 0, firstLogIndex);
+        final LocalFileMeta meta = LocalFileMeta.newBuilder() //
+            .setUserMeta(ZeroByteStringHelper.wrap(vs)) //
+            .build();
+        try {
+            return new ProtoBufFile(this.firstLogIndexPath).save(meta, this.sync);
+        } catch (final IOException e) {
+            LOG.error("Fail to save first log index {}.", firstLogIndex, e);
+            return false;
+        }
+    }
+
+    private void setFirstLogIndex(final long index) {
+        this.firstLogIndex = index;
+        this.hasLoadFirstLogIndex = true;
+    }
+
+    @Override
+    public void shutdown() {
+        waitForPendingAppends();
+        final ExecutorService archiver = this.archiveExecutor;
+        if (archiver != null) {
+            ExecutorServiceHelper.shutdownAndAwaitTermination(archiver);
+        }
+        this.writeLock.lock();
+        try {
+            if (this.segments == null) {
+                return;
+            }
+            doCheckpoint();
+            for (final Segment segment : this.segments) {
+                segment.shutdown();
+            }
+            this.segments = null;
+            if (!this.abortFile.destroy()) {
+                LOG.error("Fail to delete abort file {}.", this.abortFile.getPath());
+            }
+            this.archivedSegments = Collections.emptyList();
+            this.archiveExecutor = null;
+            ExecutorServiceHelper.shutdownAndAwaitTermination(this.flushExecutor);
+            this.flushExecutor = null;
+            if (this.ownsWriteExecutor) {
+                this.writeExecutor.shutdown();
+                this.writeExecutor = null;
+            }
+            LOG.info("SegmentLogStorage {} is shutdown.", this.path);
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    @Override
+    public long getFirstLogIndex() {
+        final List<ArchivedSegment> archived = this.archivedSegments;
+        final List<Segment> segs = this.segments;
+        long first = -1;
+        if (!archived.isEmpty()) {
+            first = archived.get(0).getFirstLogIndex();
+        } else if (segs != null && !segs.isEmpty()) {
+            first = segs.get(0).getFirstLogIndex();
+        }
+        if (first >= 0) {
+            return this.hasLoadFirstLogIndex ? Math.max(first, this.firstLogIndex) : first;
+        }
+        return this.firstLogIndex;
+    }
+
+    @Override
+    public long getLastLogIndex() {
+        return this.lastLogIndex;
+    }
+
+    @Override
+    public LogEntry getEntry(final long index) {
+        this.readLock.lock();
+        try {
+            final List<Segment> segs = this.segments;
+            if (segs == null || index > this.lastLogIndex || index < getFirstLogIndex()) {
+                return null;
+            }
+            final Segment segment = binarySearchSegment(segs, index);
+            final byte[] bs;
+            if (segment != null) {
+                final int pos = segment.index.getPosition((int) (index - segment.getFirstLogIndex()));
+                bs = pos > 0 ? segment.data.read(index, pos) : null;
+            } else {
+                final ArchivedSegment archived = binarySearchArchivedSegment(this.archivedSegments, index);
+                if (archived != null) {
+                    final ArchivedSegment lastRead = this.lastReadArchived;
+                    if (lastRead != archived) {
+                        if (lastRead != null) {
+                            lastRead.releaseCache();
+                        }
+                        this.lastReadArchived = archived;
+                    }
+                    bs = archived.read(index);
+                } else {
+                    bs = null;
+                }
+            }
+            if (bs != null) {
+                final LogEntry entry = this.logEntryDecoder.decode(bs);
+                if (entry != null) {
+                    return entry;
+                }
+                LOG.error("Bad log entry format for index={}, the log data is: {}.", index, BytesUtil.toHex(bs));
+            }
+        } catch (final IOException e) {
+            LOG.error("Fail to get log entry at index {}.", index, e);
+        } finally {
+            this.readLock.unlock();
+        }
+        return null;
+    }
+
+    private static Segment binarySearchSegment(final List<Segment> segs, final long logIndex) {
+        int low = 0;
+        int high = segs.size() - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final Segment segment = segs.get(mid);
+            if (segment.getLastLogIndex() < logIndex) {
+                low = mid + 1;
+            } else if (segment.getFirstLogIndex() > logIndex) {
+                high = mid - 1;
+            } else {
+                return segment;
+            }
+        }
+        return null;
+    }
+
+    private static ArchivedSegment binarySearchArchivedSegment(final List<ArchivedSegment> segs, final long logIndex) {
+        int low = 0;
+        int high = segs.size() - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final ArchivedSegment segment = segs.get(mid);
+            if (segment.getLastLogIndex() < logIndex) {
+                low = mid + 1;
+            } else if (segment.getFirstLogIndex() > logIndex) {
+                high = mid - 1;
+            } else {
+                return segment;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public long getTerm(final long index) {
+        final LogEntry entry = getEntry(index);
+        if (entry != null) {
+            return entry.getId().getTerm();
+        }
+        return 0;
+    }
+
+    @Override
+    public boolean appendEntry(final LogEntry entry) {
+        return appendEntries(Collections.singletonList(entry)) == 1;
+    }
+
+    @Override
+    public int appendEntries(final List<LogEntry> entries) {
+        if (entries == null || entries.isEmpty()) {
+            return 0;
+        }
+        final PendingAppend pending = writeEntries(entries);
+        if (pending == null) {
+            return 0;
+        }
+        // The asynchronous appends before it must be published first.
+        waitForPendingAppends();
+        final int count = syncAndPublish(pending);
+        archivePendingSegments();
+        return count;
+    }
+
+    @Override
+    public void appendEntriesAsync(final List<LogEntry> entries, final AppendCallback done) {
+        if (entries == null || entries.isEmpty()) {
+            done.onAppended(0);
+            return;
+        }
+        final PendingAppend pending = writeEntries(entries);
+        final ExecutorService executor = this.flushExecutor;
+        if (executor == null) {
+            done.onAppended(0);
+            return;
+        }
+        // The next entries can be written while these ones are being synced in the flush thread.
+        executor.execute(() -> {
+            final int count = pending != null ? syncAndPublish(pending) : 0;
+            archivePendingSegments();
+            done.onAppended(count);
+        });
+    }
+
+    /**
+     * Writes the entries into segments, returns null when fails and the written data is rolled back.
+     */
+    private PendingAppend writeEntries(final List<LogEntry> entries) {
+        this.readLock.lock();
+        this.appendLock.lock();
+        final List<Segment> oldSegments = this.segments;
+        final Segment oldLastSegment = oldSegments == null || oldSegments.isEmpty() ? null : oldSegments
+            .get(oldSegments.size() - 1);
+        final int oldLastCount = oldLastSegment == null ? 0 : oldLastSegment.index.getCount();
+        final int oldLastWrotePos = oldLastSegment == null ? 0 : oldLastSegment.wrotePos;
+        try {
+            if (oldSegments == null) {
+                LOG.warn("SegmentLogStorage not initialized or destroyed.");
+                return null;
+            }
+            final WriteContext writeCtx = new BarrierWriteContext();
+            final PendingAppend pending = new PendingAppend(entries.size());
+            long lastIndex = this.lastWrittenIndex;
+            for (int i = 0; i < entries.size(); i++) {
+                final LogEntry entry = entries.get(i);
+                final long logIndex = entry.getId().getIndex();
+                final int dataLen = this.logEntryEncoder.encodedSize(entry);
+                final int writeBytes = SegmentFile.getWriteBytes(dataLen);
+                final Segment segment = getSegmentToAppend(logIndex, lastIndex, writeBytes);
+                final List<Segment> touched = pending.touchedSegments;
+                if (touched.isEmpty() || touched.get(touched.size() - 1) != segment) {
+                    touched.add(segment);
+                }
+                writeCtx.startJob();
+                final int pos = segment.data.write(logIndex, entry, this.logEntryEncoder, dataLen, writeCtx,
+                    encodeJob(i));
+                segment.index.append(pos, entry.getType() == EntryType.ENTRY_TYPE_CONFIGURATION);
+                segment.wrotePos = pos + writeBytes;
+                lastIndex = logIndex;
+            }
+            writeCtx.joinAll();
+            pending.lastIndex = lastIndex;
+            if (this.segments.size() != oldSegments.size()) {
+                pending.checkpointSegment = this.segments.get(this.segments.size() - 1);
+                pending.checkpointPos = pending.checkpointSegment.wrotePos;
+            }
+            this.lastWrittenIndex = lastIndex;
+            return pending;
+        } catch (final IOException e) {
+            LOG.error("Fail to append entries.", e);
+            rollbackAppend(oldSegments, oldLastSegment, oldLastCount, oldLastWrotePos);
+            return null;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            rollbackAppend(oldSegments, oldLastSegment, oldLastCount, oldLastWrotePos);
+            return null;
+        } finally {
+            this.appendLock.unlock();
+            this.readLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the i-th reusable encode job, the jobs are finished when the entries are written,
+     * except after a failed append, then a busy one is replaced.
+     */
+    private SegmentFile.EncodeJob encodeJob(final int i) {
+        if (i < this.encodeJobs.size()) {
+            final SegmentFile.EncodeJob job = this.encodeJobs.get(i);
+            if (!job.isBusy()) {
+                return job;
+            }
+            final SegmentFile.EncodeJob newJob = new SegmentFile.EncodeJob();
+            this.encodeJobs.set(i, newJob);
+            return newJob;
+        }
+        final SegmentFile.EncodeJob job = new SegmentFile.EncodeJob();
+        this.encodeJobs.add(job);
+        return job;
+    }
+
+    /**
+     * Syncs the written segments and publishes the logs, returns the published logs count.
+     */
+    private int syncAndPublish(final PendingAppend pending) {
+        this.readLock.lock();
+        try {
+            if (this.segments == null) {
+                return 0;
+            }
+            for (final Segment segment : pending.touchedSegments) {
+                segment.data.sync(this.sync);
+                segment.index.sync(this.sync);
+            }
+            this.lastLogIndex = pending.lastIndex;
+            if (pending.checkpointSegment != null) {
+                saveCheckpoint(pending.checkpointSegment, pending.checkpointPos);
+                scheduleArchive();
+            }
+            return pending.count;
+        } catch (final IOException e) {
+            LOG.error("Fail to sync segments.", e);
+            return 0;
+        } finally {
+            this.readLock.unlock();
+        }
+    }
+
+    /**
+     * Waits until the submitted asynchronous appends are published.
+     */
+    private void waitForPendingAppends() {
+        final ExecutorService executor = this.flushExecutor;
+        if (executor == null) {
+            return;
+        }
+        try {
+            executor.submit(() -> {}).get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (final ExecutionException | RejectedExecutionException e) {
+            LOG.warn("Fail to wait for pending appends in {}.", this.path, e);
+        }
+    }
+
+    private void scheduleArchive() {
+        final ExecutorService executor = this.archiveExecutor;
+        if (executor == null || this.segments.size() <= this.archiveOpts.getHotSegments()
+            || !this.archiveScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    while (archiveSegment()) {
+                        // archive the cold segments one by one
+                    }
+                } finally {
+                    this.archiveScheduled.set(false);
+                }
+            });
+        } catch (final RejectedExecutionException e) {
+            this.archiveScheduled.set(false);
+        }
+    }
+
+    /**
+     * Archives the cold segments in the caller thread while too many of them are waiting for the
+     * background archiving.
+     */
+    private void archivePendingSegments() {
+        if (this.archiveOpts == null) {
+            return;
+        }
+        final int maxSegments = this.archiveOpts.getHotSegments() + this.archiveOpts.getMaxPendingSegments();
+        List<Segment> segs = this.segments;
+        while (segs != null && segs.size() > maxSegments && archiveSegment()) {
+            segs = this.segments;
+        }
+    }
+
+    /**
+     * Archives the oldest segment if it's cold and published, returns true if it's archived.
+     */
+    private boolean archiveSegment() {
+        this.archiveLock.lock();
+        try {
+            return doArchiveSegment();
+        } finally {
+            this.archiveLock.unlock();
+        }
+    }
+
+    private boolean doArchiveSegment() {
+        final Segment segment;
+        final long version;
+        ArchivedSegment.Builder builder = null;
+        this.readLock.lock();
+        try {
+            final List<Segment> segs = this.segments;
+            if (segs == null || segs.size() <= this.archiveOpts.getHotSegments()
+                || segs.get(0).getLastLogIndex() > this.lastLogIndex) {
+                return false;
+            }
+            segment = segs.get(0);
+            version = this.truncateVersion;
+            final long sequence = getFileSequenceFromFileName(new File(segment.data.getPath()));
+            builder = new ArchivedSegment.Builder(this.archiveOpts.getArchiveStore(), sequence,
+                this.archiveOpts.getCodecName(), this.archiveOpts.getBlockBytes(), new File(this.path,
+                    String.format("%019d", sequence) + ARCHIVE_TEMP_FILE_POSFIX), segment.getFirstLogIndex());
+            final int count = segment.index.getCount();
+            for (int slot = 0; slot < count; slot++) {
+                final long logIndex = segment.getFirstLogIndex() + slot;
+                final byte[] bs = segment.data.read(logIndex, segment.index.getPosition(slot));
+                if (bs == null) {
+                    throw new IOException("Fail to read log " + logIndex + " in " + segment.data.getPath());
+                }
+                builder.add(logIndex, bs, segment.index.isConfiguration(slot));
+            }
+        } catch (final IOException e) {
+            LOG.error("Fail to archive the oldest segment in {}.", this.path, e);
+            if (builder != null) {
+                builder.abort();
+            }
+            return false;
+        } finally {
+            this.readLock.unlock();
+        }
+
+        final ArchivedSegment archived;
+        try {
+            // Puts the blocks without lock, it may be slow.
+            archived = builder.build();
+        } catch (final IOException e) {
+            LOG.error("Fail to put the archived segment {} into {}.", segment.data.getPath(),
+                this.archiveOpts.getArchiveStore(), e);
+            return false;
+        }
+        boolean swapped = false;
+        this.writeLock.lock();
+        try {
+            final List<Segment> segs = this.segments;
+            if (segs != null && !segs.isEmpty() && segs.get(0) == segment && this.truncateVersion == version) {
+                final List<ArchivedSegment> newArchived = new ArrayList<>(this.archivedSegments);
+                newArchived.add(archived);
+                this.archivedSegments = newArchived;
+                this.segments = new ArrayList<>(segs.subList(1, segs.size()));
+                swapped = true;
+            }
+        } finally {
+            this.writeLock.unlock();
+        }
+        if (swapped) {
+            LOG.info("Archived segment file {} as {} into {}.", segment.data.getPath(), archived,
+                this.archiveOpts.getArchiveStore());
+            segment.destroy();
+        } else {
+            LOG.info("Discard the archived segment {} which was truncated meanwhile.", archived);
+            archived.destroy();
+        }
+        return swapped;
+    }
+
+    /**
+     * Returns the segment to append the log, starts a new one when the last segment is full or the
+     * log is not continuous with the last one.
+     */
+    private Segment getSegmentToAppend(final long logIndex, final long lastIndex, final int writeBytes)
+                                                                                                      throws IOException {
+        final List<Segment> segs = this.segments;
+        // An empty storage accepts the first log at any index, just like the rocksdb one.
+        final boolean empty = segs.isEmpty() && this.archivedSegments.isEmpty();
+        if (!empty && logIndex <= lastIndex) {
+            throw new IOException("Log index " + logIndex + " is not greater than the last log index " + lastIndex
+                                  + ", truncate suffix first.");
+        }
+        if (!segs.isEmpty()) {
+            final Segment lastSegment = segs.get(segs.size() - 1);
+            if (logIndex == lastIndex + 1 && !lastSegment.index.isFull()
+                && !lastSegment.data.reachesFileEndBy(writeBytes)) {
+                return lastSegment;
+            }
+        }
+        final Segment segment = createSegment(logIndex, writeBytes);
+        final List<Segment> newSegs = new ArrayList<>(segs.size() + 1);
+        newSegs.addAll(segs);
+        newSegs.add(segment);
+        this.segments = newSegs;
+        return segment;
+    }
+
+    private Segment createSegment(final long firstLogIndex, final int writeBytes) throws IOException {
+        // A log that is larger than the segment size gets a segment of its own.
+        final int size = Math.max(this.maxSegmentFileSize, SegmentFile.HEADER_SIZE + writeBytes);
+        final String segPath = this.path + File.separator
+                               + String.format("%019d", this.nextFileSequence.getAndIncrement())
+                               + SEGMENT_FILE_POSFIX;
+        final SegmentFile data = new SegmentFile(size, segPath, this.writeExecutor);
+        final int indexCapacity = Math.max(1, size / MIN_RECORD_BYTES);
+        final SegmentIndexFile index = new SegmentIndexFile(getIndexFilePath(segPath), indexCapacity);
+        data.setFirstLogIndex(firstLogIndex);
+        final SegmentFileOptions opts = SegmentFileOptions.builder() //
+            .setSync(this.sync) //
+            .setRecover(false) //
+            .setLastFile(true) //
+            .setNewFile(true) //
+            .setPos(0).build();
+        // Create the index first, a segment file without index is treated as not completely created.
+        if (!index.init(true) || !data.init(opts)) {
+            data.shutdown();
+            index.destroy();
+            FileUtils.deleteQuietly(new File(segPath));
+            throw new IOException("Fail to create new segment file " + segPath);
+        }
+        LOG.info("Create a new segment file {} from log index {}.", segPath, firstLogIndex);
+        return new Segment(data, index);
+    }
+
+    private void rollbackAppend(final List<Segment> oldSegments, final Segment oldLastSegment, final int oldLastCount,
+                                final int oldLastWrotePos) {
+        if (oldSegments == null) {
+            return;
+        }
+        for (final Segment segment : this.segments) {
+            if (!oldSegments.contains(segment)) {
+                segment.destroy();
+            }
+        }
+        this.segments = oldSegments;
+        if (oldLastSegment != null && oldLastSegment.index.getCount() > oldLastCount) {
+            oldLastSegment.index.truncate(oldLastCount, this.sync);
+            oldLastSegment.data.truncateSuffix(oldLastWrotePos, oldLastSegment.getLastLogIndex(), this.sync);
+            oldLastSegment.wrotePos = oldLastWrotePos;
+        }
+    }
+
+    @Override
+    public boolean truncatePrefix(final long firstIndexKept) {
+        List<Segment> destroyedSegments = Collections.emptyList();
+        List<ArchivedSegment> destroyedArchived = Collections.emptyList();
+        waitForPendingAppends();
+        this.writeLock.lock();
+        try {
+            if (this.segments == null || !saveFirstLogIndex(firstIndexKept)) {
+                return false;
+            }
+            setFirstLogIndex(firstIndexKept);
+            this.truncateVersion++;
+            final List<ArchivedSegment> archived = this.archivedSegments;
+            int archivedKeptFrom = 0;
+            while (archivedKeptFrom < archived.size()
+                   && archived.get(archivedKeptFrom).getLastLogIndex() < firstIndexKept) {
+                archivedKeptFrom++;
+            }
+            if (archivedKeptFrom > 0) {
+                destroyedArchived = new ArrayList<>(archived.subList(0, archivedKeptFrom));
+                this.archivedSegments = new ArrayList<>(archived.subList(archivedKeptFrom, archived.size()));
+            }
+            final List<Segment> segs = this.segments;
+            int keptFrom = 0;
+            while (keptFrom < segs.size() && segs.get(keptFrom).getLastLogIndex() < firstIndexKept) {
+                keptFrom++;
+            }
+            if (keptFrom > 0) {
+                destroyedSegments = new ArrayList<>(segs.subList(0, keptFrom));
+                this.segments = new ArrayList<>(segs.subList(keptFrom, segs.size()));
+                if (this.segments.isEmpty() && this.archivedSegments.isEmpty()) {
+                    this.lastLogIndex = this.lastWrittenIndex = 0;
+                }
+                doCheckpoint();
+            }
+            return true;
+        } finally {
+            this.writeLock.unlock();
+            for (final Segment segment : destroyedSegments) {
+                segment.destroy();
+            }
+            destroyArchivedSegments(destroyedArchived);
+        }
+    }
+
+    private void destroyArchivedSegments(final List<ArchivedSegment> segs) {
+        for (final ArchivedSegment segment : segs) {
+            if (!segment.destroy()) {
+                LOG.warn("Fail to delete archived segment {}, it will be deleted when loading.", segment);
+            }
+        }
+    }
+
+    @Override
+    public boolean truncateSuffix(final long lastIndexKept) {
+        List<Segment> destroyedSegments = Collections.emptyList();
+        List<ArchivedSegment> destroyedArchived = Collections.emptyList();
+        waitForPendingAppends();
+        this.writeLock.lock();
+        try {
+            final List<Segment> segs = this.segments;
+            if (segs == null) {
+                return false;
+            }
+            if (lastIndexKept >= this.lastLogIndex) {
+                return true;
+            }
+            this.truncateVersion++;
+            final List<ArchivedSegment> archived = this.archivedSegments;
+            int archivedKeptTo = archived.size();
+            while (archivedKeptTo > 0 && archived.get(archivedKeptTo - 1).getFirstLogIndex() > lastIndexKept) {
+                archivedKeptTo--;
+            }
+            if (archivedKeptTo < archived.size()
+                || (archivedKeptTo > 0 && archived.get(archivedKeptTo - 1).getLastLogIndex() > lastIndexKept)) {
+                if (archivedKeptTo > 0) {
+                    try {
+                        archived.get(archivedKeptTo - 1).truncateSuffix(lastIndexKept);
+                    } catch (final IOException e) {
+                        LOG.error("Fail to truncate archived segment {} to {}.", archived.get(archivedKeptTo - 1),
+                            lastIndexKept, e);
+                        return false;
+                    }
+                }
+                destroyedArchived = new ArrayList<>(archived.subList(archivedKeptTo, archived.size()));
+                this.archivedSegments = new ArrayList<>(archived.subList(0, archivedKeptTo));
+            }
+            int keptTo = segs.size();
+            while (keptTo > 0 && segs.get(keptTo - 1).getFirstLogIndex() > lastIndexKept) {
+                keptTo--;
+            }
+            destroyedSegments = new ArrayList<>(segs.subList(keptTo, segs.size()));
+            final List<Segment> keptSegs = new ArrayList<>(segs.subList(0, keptTo));
+            if (!keptSegs.isEmpty()) {
+                final Segment keptSegment = keptSegs.get(keptSegs.size() - 1);
+                if (keptSegment.getLastLogIndex() > lastIndexKept) {
+                    final int slot = (int) (lastIndexKept + 1 - keptSegment.getFirstLogIndex());
+                    final int pos = keptSegment.index.getPosition(slot);
+                    // Truncate the index first, so the recovery never sees a slot without data.
+                    keptSegment.index.truncate(slot, this.sync);
+                    keptSegment.data.truncateSuffix(pos, lastIndexKept, this.sync);
+                    keptSegment.wrotePos = pos;
+                }
+            }
+            this.segments = keptSegs;
+            this.lastLogIndex = getLastSegmentLogIndex(keptSegs, this.archivedSegments);
+            this.lastWrittenIndex = this.lastLogIndex;
+            doCheckpoint();
+            return true;
+        } finally {
+            this.writeLock.unlock();
+            for (final Segment segment : destroyedSegments) {
+                segment.destroy();
+            }
+            destroyArchivedSegments(destroyedArchived);
+        }
+    }
+
+    @Override
+    public boolean reset(final long nextLogIndex) {
+        if (nextLogIndex <= 0) {
+            throw new IllegalArgumentException("Invalid next log index.");
+        }
+        waitForPendingAppends();
+        this.writeLock.lock();
+        try {
+            if (this.segments == null) {
+                return false;
+            }
+            LogEntry entry = getEntry(nextLogIndex);
+            final List<Segment> destroyedSegments = this.segments;
+            final List<ArchivedSegment> destroyedArchived = this.archivedSegments;
+            this.segments = new ArrayList<>();
+            this.archivedSegments = Collections.emptyList();
+            this.truncateVersion++;
+            this.lastLogIndex = this.lastWrittenIndex = 0;
+            this.checkpointFile.destroy();
+            for (final Segment segment : destroyedSegments) {
+                segment.destroy();
+            }
+            destroyArchivedSegments(destroyedArchived);
+            LOG.info("Destroyed segments and checkpoint in path {} by resetting.", this.path);
+            if (!saveFirstLogIndex(nextLogIndex)) {
+                return false;
+            }
+            setFirstLogIndex(nextLogIndex);
+            if (entry == null) {
+                entry = new LogEntry();
+                entry.setType(EntryType.ENTRY_TYPE_NO_OP);
+                entry.setId(new LogId(nextLogIndex, 0));
+                LOG.warn("Entry not found for nextLogIndex {} when reset.", nextLogIndex);
+            }
+            return appendEntry(entry);
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    private static String getIndexFilePath(final String segmentPath) {
+        return segmentPath.substring(0, segmentPath.length() - SEGMENT_FILE_POSFIX.length()) + INDEX_FILE_POSFIX;
+    }
+
+    private static long getFileSequenceFromFileName(final File file) {
+        final String name = file.getName();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_FILE_POSFIX.length()));
+    }
+}
@@ -17,10 +17,18 @@
 package com.alipay.sofa.jraft.storage.snapshot.local;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.Future;
@@ -31,15 +39,20 @@ import org.apache.commons.io.FileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.alipay.sofa.jraft.StateMachine;
+import com.alipay.sofa.jraft.Status;
+import com.alipay.sofa.jraft.StreamingSnapshotStateMachine;
 import com.alipay.sofa.jraft.entity.LocalFileMetaOutter.FileSource;
 import com.alipay.sofa.jraft.entity.LocalFileMetaOutter.LocalFileMeta;
 import com.alipay.sofa.jraft.error.RaftError;
+import com.alipay.sofa.jraft.option.RaftOptions;
 import com.alipay.sofa.jraft.option.SnapshotCopierOptions;
 import com.alipay.sofa.jraft.storage.SnapshotStorage;
 import com.alipay.sofa.jraft.storage.SnapshotThrottle;
 import com.alipay.sofa.jraft.storage.snapshot.Snapshot;
 import com.alipay.sofa.jraft.storage.snapshot.SnapshotCopier;
 import com.alipay.sofa.jraft.storage.snapshot.SnapshotReader;
+import com.alipay.sofa.jraft.storage.snapshot.remote.ParallelCopySession;
 import com.alipay.sofa.jraft.storage.snapshot.remote.RemoteFileCopier;
 import com.alipay.sofa.jraft.storage.snapshot.remote.Session;
 import com.alipay.sofa.jraft.util.ArrayDeque;
@@ -56,25 +69,33 @@ import com.alipay.sofa.jraft.util.Utils;
  */
 public class LocalSnapshotCopier extends SnapshotCopier {
 
-    private static final Logger          LOG  = LoggerFactory.getLogger(LocalSnapshotCopier.class);
+    private static final Logger           LOG  = LoggerFactory.getLogger(LocalSnapshotCopier.class);
 
-    private final Lock                   lock = new ReentrantLock();
+    private final Lock                    lock = new ReentrantLock();
     /** The copy job future object*/
-    private volatile Future<?>           future;
-    private boolean                      cancelled;
+    private volatile Future<?>            future;
+    private boolean                       cancelled;
     /** snapshot writer */
-    private LocalSnapshotWriter          writer;
+    private LocalSnapshotWriter           writer;
     /** snapshot reader */
-    private volatile LocalSnapshotReader reader;
+    private volatile LocalSnapshotReader  reader;
     /** snapshot storage*/
-    private LocalSnapshotStorage         storage;
-    private boolean                      filterBeforeCopyRemote;
-    private LocalSnapshot                remoteSnapshot;
+    private LocalSnapshotStorage          storage;
+    private boolean                       filterBeforeCopyRemote;
+    private LocalSnapshot                 remoteSnapshot;
     /** remote file copier*/
-    private RemoteFileCopier             copier;
+    private RemoteFileCopier              copier;
     /** current copying session*/
-    private Session                      curSession;
-    private SnapshotThrottle             snapshotThrottle;
+    private Session                       curSession;
+    private SnapshotThrottle              snapshotThrottle;
+    private RaftOptions                   raftOptions;
+    /** the last snapshot, kept open while copying so the base files of delta copy are not deleted */
+    private SnapshotReader                lastSnapshot;
+    /** file name -> path of the same name file with a different checksum in last snapshot */
+    private final Map<String, String>     deltaBases = new HashMap<>();
+    /** the state machine to receive the files while copying, null if it doesn't support */
+    private StreamingSnapshotStateMachine streamingFsm;
+    private boolean                       streamStarted;
 
     public void setSnapshotThrottle(final SnapshotThrottle snapshotThrottle) {
         this.snapshotThrottle = snapshotThrottle;
@@ -101,11 +122,26 @@ public class LocalSnapshotCopier extends SnapshotCopier {
             if (!isOk()) {
                 break;
             }
+            startStream();
+            if (!isOk()) {
+                break;
+            }
             final Set<String> files = this.remoteSnapshot.listFiles();
-            for (final String file : files) {
-                copyFile(file);
+            if (this.raftOptions.getSnapshotCopyConcurrency() > 1) {
+                copyFilesInParallel(files);
+            } else {
+                for (final String file : files) {
+                    copyFile(file);
+                }
             }
         } while (false);
+        if (this.lastSnapshot != null) {
+            Utils.closeQuietly(this.lastSnapshot);
+            this.lastSnapshot = null;
+        }
+        if (!isOk() && this.streamStarted) {
+            this.streamingFsm.onSnapshotStreamAborted(new Status(getCode(), getErrorMsg()));
+        }
         if (!isOk() && this.writer != null && this.writer.isOk()) {
             this.writer.setError(getCode(), getErrorMsg());
         }
@@ -118,13 +154,16 @@ public class LocalSnapshotCopier extends SnapshotCopier {
         }
     }
 
-    void copyFile(final String fileName) throws IOException, InterruptedException {
+    /**
+     * Returns the local path to copy the file to, or null if the file should not be copied.
+     */
+    private String prepareFile(final String fileName) {
         if (this.writer.getFileMeta(fileName) != null) {
             LOG.info("Skipped downloading {}", fileName);
-            return;
+            return null;
         }
         if (!checkFile(fileName)) {
-            return;
+            return null;
         }
         final String filePath = this.writer.getPath() + File.separator + fileName;
         final Path subPath = Paths.get(filePath);
@@ -133,8 +172,88 @@ public class LocalSnapshotCopier extends SnapshotCopier {
             if (!parentDir.exists() && !parentDir.mkdirs()) {
                 LOG.error("Fail to create directory for {}", filePath);
                 setError(RaftError.EIO, "Fail to create directory");
+                return null;
+            }
+        }
+        return filePath;
+    }
+
+    void copyFilesInParallel(final Set<String> fileNames) throws IOException, InterruptedException {
+        final Map<String, String> files = new LinkedHashMap<>();
+        for (final String fileName : fileNames) {
+            final String filePath = prepareFile(fileName);
+            if (!isOk()) {
+                return;
+            }
+            if (filePath == null) {
+                continue;
+            }
+            final String basePath = this.deltaBases.get(fileName);
+            if (basePath != null && copyFileDelta(fileName, filePath, basePath)) {
+                if (!isOk()) {
+                    return;
+                }
+                continue;
+            }
+            files.put(fileName, filePath);
+        }
+        if (files.isEmpty()) {
+            return;
+        }
+        ParallelCopySession session = null;
+        try {
+            this.lock.lock();
+            try {
+                if (this.cancelled) {
+                    if (isOk()) {
+                        setError(RaftError.ECANCELED, "ECANCELED");
+                    }
+                    return;
+                }
+                session = this.copier.startParallelCopyToFiles(files, null);
+                this.curSession = session;
+            } finally {
+                this.lock.unlock();
+            }
+            session.join(); // join out of lock
+            this.lock.lock();
+            try {
+                this.curSession = null;
+            } finally {
+                this.lock.unlock();
+            }
+            // Adds the copied files even if the session failed, they are kept for the next copy.
+            for (final String fileName : session.getFinishedFiles()) {
+                if (!this.writer.addFile(fileName, this.remoteSnapshot.getFileMeta(fileName))) {
+                    setError(RaftError.EIO, "Fail to add file to writer");
+                    return;
+                }
+            }
+            if (!this.writer.sync()) {
+                setError(RaftError.EIO, "Fail to sync writer");
                 return;
             }
+            for (final String fileName : session.getFinishedFiles()) {
+                notifyFileReceived(fileName);
+            }
+            if (!session.status().isOk() && isOk()) {
+                setError(session.status().getCode(), session.status().getErrorMsg());
+            }
+        } finally {
+            if (session != null) {
+                Utils.closeQuietly(session);
+            }
+        }
+    }
+
+    void copyFile(final String fileName) throws IOException, InterruptedException {
+        final String filePath = prepareFile(fileName);
+        if (filePath == null) {
+            return;
+        }
+        final String basePath = this.deltaBases.get(fileName);
+        if (basePath != null && copyFileDelta(fileName, filePath, basePath)) {
+            return;
         }
 
         final LocalFileMeta meta = (LocalFileMeta) this.remoteSnapshot.getFileMeta(fileName);
@@ -176,7 +295,199 @@ public class LocalSnapshotCopier extends SnapshotCopier {
             }
             if (!this.writer.sync()) {
                 setError(RaftError.EIO, "Fail to sync writer");
+                return;
             }
+            notifyFileReceived(fileName);
+        } finally {
+            if (session != null) {
+                Utils.closeQuietly(session);
+            }
+        }
+    }
+
+    /**
+     * Copies the changed blocks of the file from remote, the other blocks are copied from
+     * the base file in last snapshot.
+     *
+     * @return false if the file should be copied as a whole
+     */
+    boolean copyFileDelta(final String fileName, final String filePath, final String basePath)
+                                                                                               throws IOException,
+                                                                                               InterruptedException {
+        if (!this.raftOptions.isEnableSnapshotDeltaCopy()) {
+            return false;
+        }
+        final SnapshotFileBlocks remoteBlocks = loadRemoteFileBlocks(fileName);
+        if (remoteBlocks == null) {
+            // Stop copying if it's cancelled
+            return !isOk();
+        }
+        final SnapshotFileBlocks localBlocks;
+        try {
+            localBlocks = SnapshotFileBlocks.compute(basePath, remoteBlocks.getBlockSize());
+        } catch (final IOException e) {
+            LOG.warn("Fail to compute the blocks of file {}, copy it as a whole.", basePath, e);
+            return false;
+        }
+        // Copies the same blocks from the base file and collects the changed ranges.
+        final List<long[]> ranges = new ArrayList<>();
+        long reused = 0;
+        // Never writes into an existing file, it may be a hard link of a file in last snapshot.
+        FileUtils.deleteQuietly(new File(filePath));
+        try (final FileInputStream input = new FileInputStream(basePath);
+                final FileChannel src = input.getChannel();
+                final RandomAccessFile output = new RandomAccessFile(filePath, "rw");
+                final FileChannel dest = output.getChannel()) {
+            for (int i = 0; i < remoteBlocks.getBlockCount(); i++) {
+                final long offset = remoteBlocks.getBlockOffset(i);
+                final long len = remoteBlocks.getBlockLength(i);
+                if (remoteBlocks.isSameBlock(localBlocks, i)) {
+                    dest.position(offset);
+                    long transferred = 0;
+                    while (transferred < len) {
+                        transferred += src.transferTo(offset + transferred, len - transferred, dest);
+                    }
+                    reused += len;
+                } else if (!ranges.isEmpty() && ranges.get(ranges.size() - 1)[1] == offset) {
+                    ranges.get(ranges.size() - 1)[1] = offset + len;
+                } else {
+                    ranges.add(new long[] { offset, offset + len });
+                }
+            }
+            dest.truncate(remoteBlocks.getFileSize());
+            dest.force(true);
+        }
+        LOG.info("Copy file {} by delta, reused {} of {} bytes from {}.", fileName, reused,
+            remoteBlocks.getFileSize(), basePath);
+
+        if (!ranges.isEmpty()) {
+            final long[] rangeStarts = new long[ranges.size()];
+            final long[] rangeEnds = new long[ranges.size()];
+            for (int i = 0; i < ranges.size(); i++) {
+                rangeStarts[i] = ranges.get(i)[0];
+                rangeEnds[i] = ranges.get(i)[1];
+            }
+            Session session = null;
+            try {
+                this.lock.lock();
+                try {
+                    if (this.cancelled) {
+                        if (isOk()) {
+                            setError(RaftError.ECANCELED, "ECANCELED");
+                        }
+                        return true;
+                    }
+                    session = this.copier.startCopyRangesToFile(fileName, filePath, remoteBlocks.getFileSize(),
+                        rangeStarts, rangeEnds, null);
+                    this.curSession = session;
+                } finally {
+                    this.lock.unlock();
+                }
+                session.join(); // join out of lock
+                this.lock.lock();
+                try {
+                    this.curSession = null;
+                } finally {
+                    this.lock.unlock();
+                }
+                if (!session.status().isOk() && isOk()) {
+                    setError(session.status().getCode(), session.status().getErrorMsg());
+                    return true;
+                }
+            } finally {
+                if (session != null) {
+                    Utils.closeQuietly(session);
+                }
+            }
+        }
+        if (!this.writer.addFile(fileName, this.remoteSnapshot.getFileMeta(fileName))) {
+            setError(RaftError.EIO, "Fail to add file to writer");
+            return true;
+        }
+        if (!this.writer.sync()) {
+            setError(RaftError.EIO, "Fail to sync writer");
+            return true;
+        }
+        notifyFileReceived(fileName);
+        return true;
+    }
+
+    /**
+     * Starts to stream the snapshot to the state machine, the files reused from last
+     * snapshot are received at once.
+     */
+    private void startStream() {
+        if (this.streamingFsm == null) {
+            return;
+        }
+        try {
+            this.streamingFsm.onSnapshotStreamStart(this.remoteSnapshot.getMetaTable().getMeta());
+        } catch (final Throwable t) {
+            LOG.error("Fail to start streaming snapshot to state machine.", t);
+            setError(RaftError.ESTATEMACHINE, "Fail to start streaming snapshot");
+            return;
+        }
+        this.streamStarted = true;
+        for (final String fileName : this.writer.listFiles()) {
+            notifyFileReceived(fileName);
+        }
+    }
+
+    private void notifyFileReceived(final String fileName) {
+        if (!this.streamStarted || !isOk()) {
+            return;
+        }
+        try {
+            this.streamingFsm.onSnapshotFileReceived(this.writer.getPath(), fileName,
+                this.writer.getFileMeta(fileName));
+        } catch (final Throwable t) {
+            LOG.error("Fail to load snapshot file {} in streaming.", fileName, t);
+            setError(RaftError.ESTATEMACHINE, "Fail to load snapshot file %s", fileName);
+        }
+    }
+
+    private SnapshotFileBlocks loadRemoteFileBlocks(final String fileName) throws InterruptedException {
+        final ByteBufferCollector blocksBuf = ByteBufferCollector.allocate(0);
+        Session session = null;
+        try {
+            this.lock.lock();
+            try {
+                if (this.cancelled) {
+                    if (isOk()) {
+                        setError(RaftError.ECANCELED, "ECANCELED");
+                    }
+                    return null;
+                }
+                session = this.copier.startCopy2IoBuffer(fileName + SnapshotFileBlocks.FILE_SUFFIX, blocksBuf, null);
+                this.curSession = session;
+            } finally {
+                this.lock.unlock();
+            }
+            session.join(); //join out of lock.
+            this.lock.lock();
+            try {
+                this.curSession = null;
+            } finally {
+                this.lock.unlock();
+            }
+            if (!session.status().isOk()) {
+                if (session.status().getCode() == RaftError.ECANCELED.getNumber()) {
+                    if (isOk()) {
+                        setError(session.status().getCode(), session.status().getErrorMsg());
+                    }
+                    return null;
+                }
+                // A remote without delta copy can't be told apart from a transient failure, it answers
+                // EIO as well, so only this file is copied as a whole and the next ones still try delta.
+                LOG.warn("Fail to copy the blocks of file {}, copy it as a whole: {}.", fileName,
+                    session.status());
+                return null;
+            }
+            final SnapshotFileBlocks blocks = SnapshotFileBlocks.decode(blocksBuf.getBuffer());
+            if (blocks == null) {
+                LOG.warn("Bad blocks format of file {}, copy it as a whole.", fileName);
+            }
+            return blocks;
         } finally {
             if (session != null) {
                 Utils.closeQuietly(session);
@@ -260,6 +571,7 @@ public class LocalSnapshotCopier extends SnapshotCopier {
         }
 
         final Set<String> remoteFiles = this.remoteSnapshot.listFiles();
+        Map<String, String> lastFilesByChecksum = null;
 
         for (final String fileName : remoteFiles) {
             final LocalFileMeta remoteMeta = (LocalFileMeta) this.remoteSnapshot.getFileMeta(fileName);
@@ -286,17 +598,28 @@ public class LocalSnapshotCopier extends SnapshotCopier {
             if (lastSnapshot == null) {
                 continue;
             }
-            if ((localMeta = (LocalFileMeta) lastSnapshot.getFileMeta(fileName)) == null) {
-                continue;
-            }
-            if (!localMeta.hasChecksum() || !localMeta.getChecksum().equals(remoteMeta.getChecksum())) {
-                continue;
+            String lastFileName = fileName;
+            localMeta = (LocalFileMeta) lastSnapshot.getFileMeta(fileName);
+            if (localMeta == null || !localMeta.hasChecksum()
+                || !localMeta.getChecksum().equals(remoteMeta.getChecksum())) {
+                if (localMeta != null && localMeta.getSource() == FileSource.FILE_SOURCE_LOCAL) {
+                    // The file changed, it can be the base of delta copy.
+                    this.deltaBases.put(fileName, lastSnapshot.getPath() + File.separator + fileName);
+                }
+                // Try find a file with the same content in last_snapshot
+                if (lastFilesByChecksum == null) {
+                    lastFilesByChecksum = indexFilesByChecksum(lastSnapshot);
+                }
+                if ((lastFileName = lastFilesByChecksum.get(remoteMeta.getChecksum())) == null) {
+                    continue;
+                }
+                localMeta = (LocalFileMeta) lastSnapshot.getFileMeta(lastFileName);
             }
 
-            LOG.info("Found the same file ={} checksum={} in lastSnapshot={}", fileName, remoteMeta.getChecksum(),
-                lastSnapshot.getPath());
+            LOG.info("Found the same file ={} checksum={} in lastSnapshot={}, file={}", fileName,
+                remoteMeta.getChecksum(), lastSnapshot.getPath(), lastFileName);
             if (localMeta.getSource() == FileSource.FILE_SOURCE_LOCAL) {
-                final String sourcePath = lastSnapshot.getPath() + File.separator + fileName;
+                final String sourcePath = lastSnapshot.getPath() + File.separator + lastFileName;
                 final String destPath = writer.getPath() + File.separator + fileName;
                 FileUtils.deleteQuietly(new File(destPath));
                 try {
@@ -309,6 +632,7 @@ public class LocalSnapshotCopier extends SnapshotCopier {
                 if (!toRemove.isEmpty() && toRemove.peekLast().equals(fileName)) {
                     toRemove.pollLast();
                 }
+                this.deltaBases.remove(fileName);
             }
             // Copy file from last_snapshot
             writer.addFile(fileName, localMeta);
@@ -325,6 +649,20 @@ public class LocalSnapshotCopier extends SnapshotCopier {
         return true;
     }
 
+    /**
+     * Returns the checksum -> file name map of the local files with checksum in snapshot.
+     */
+    private static Map<String, String> indexFilesByChecksum(final SnapshotReader snapshot) {
+        final Map<String, String> files = new HashMap<>();
+        for (final String fileName : snapshot.listFiles()) {
+            final LocalFileMeta meta = (LocalFileMeta) snapshot.getFileMeta(fileName);
+            if (meta != null && meta.hasChecksum() && meta.getSource() == FileSource.FILE_SOURCE_LOCAL) {
+                files.putIfAbsent(meta.getChecksum(), fileName);
+            }
+        }
+        return files;
+    }
+
     private void filter() throws IOException {
         this.writer = (LocalSnapshotWriter) this.storage.create(!this.filterBeforeCopyRemote);
         if (this.writer == null) {
@@ -339,9 +677,8 @@ public class LocalSnapshotCopier extends SnapshotCopier {
                 Utils.closeQuietly(this.writer);
                 this.writer = (LocalSnapshotWriter) this.storage.create(true);
             }
-            if (reader != null) {
-                Utils.closeQuietly(reader);
-            }
+            // Keep the last snapshot open until copying is done.
+            this.lastSnapshot = reader;
             if (this.writer == null) {
                 setError(RaftError.EIO, "Fail to create snapshot writer");
                 return;
@@ -358,6 +695,11 @@ public class LocalSnapshotCopier extends SnapshotCopier {
         this.copier = new RemoteFileCopier();
         this.cancelled = false;
         this.filterBeforeCopyRemote = opts.getNodeOptions().isFilterBeforeCopyRemote();
+        this.raftOptions = opts.getRaftOptions();
+        final StateMachine fsm = opts.getNodeOptions().getFsm();
+        if (fsm instanceof StreamingSnapshotStateMachine) {
+            this.streamingFsm = (StreamingSnapshotStateMachine) fsm;
+        }
         this.remoteSnapshot = new LocalSnapshot(opts.getRaftOptions());
         return this.copier.init(uri, this.snapshotThrottle, opts);
     }
@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.jraft.storage.snapshot.local;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import com.alipay.sofa.jraft.util.CrcUtil;
+import com.alipay.sofa.jraft.util.SystemPropertyUtil;
+
+/**
+ * The block level checksums of a snapshot file, the file is split into fixed size blocks
+ * and each block has a CRC64 checksum.
+ *
+ * The follower fetches the blocks of a changed file by requesting the virtual file
+ * {@code fileName + FILE_SUFFIX}, then compares them with the blocks of the file in its
+ * last snapshot and only copies the blocks that changed.
+ *
+ * @author agent (agent@local)
+ */
+public class SnapshotFileBlocks {
+
+    /** The suffix of the virtual file name to fetch the blocks of a snapshot file. */
+    public static final String FILE_SUFFIX        = ".__raft_blocks";
+
+    public static final int    DEFAULT_BLOCK_SIZE = SystemPropertyUtil.getInt("jraft.snapshot.delta_block_size",
+                                                      128 * 1024);
+
+    // blockSize(4 bytes) + fileSize(8 bytes)
+    private static final int   HEADER_SIZE        = 12;
+
+    private final int          blockSize;
+    private final long         fileSize;
+    private final long[]       checksums;
+
+    public SnapshotFileBlocks(final int blockSize, final long fileSize, final long[] checksums) {
+        super();
+        this.blockSize = blockSize;
+        this.fileSize = fileSize;
+        this.checksums = checksums;
+    }
+
+    /**
+     * Computes the block checksums of the file.
+     */
+    public static SnapshotFileBlocks compute(final String path, final int blockSize) throws IOException {
+        try (final FileInputStream input = new FileInputStream(path); final FileChannel fc = input.getChannel()) {
+            final long fileSize = fc.size();
+            final int count = (int) ((fileSize + blockSize - 1) / blockSize);
+            final long[] checksums = new long[count];
+            final ByteBuffer buf = ByteBuffer.allocate(blockSize);
+            for (int i = 0; i < count; i++) {
+                buf.clear();
+                final long offset = (long) i * blockSize;
+                buf.limit((int) Math.min(blockSize, fileSize - offset));
+                while (buf.hasRemaining()) {
+                    if (fc.read(buf, offset + buf.position()) < 0) {
+                        throw new IOException("File " + path + " is truncated while reading");
+                    }
+                }
+                buf.flip();
+                checksums[i] = CrcUtil.crc64(buf);
+            }
+            return new SnapshotFileBlocks(blockSize, fileSize, checksums);
+        }
+    }
+
+    public int getBlockSize() {
+        return this.blockSize;
+    }
+
+    public long getFileSize() {
+        return this.fileSize;
+    }
+
+    public int getBlockCount() {
+        return this.checksums.length;
+    }
+
+    public long getChecksum(final int index) {
+        return this.checksums[index];
+    }
+
+    public long getBlockOffset(final int index) {
+        return (long) index * this.blockSize;
+    }
+
+    public long getBlockLength(final int index) {
+        return Math.min(this.blockSize, this.fileSize - getBlockOffset(index));
+    }
+
+    /**
+     * Returns true if the block at index is the same in both files.
+     */
+    public boolean isSameBlock(final SnapshotFileBlocks other, final int index) {
+        return this.blockSize == other.blockSize && index < other.getBlockCount()
+               && getBlockLength(index) == other.getBlockLength(index) && this.checksums[index] == other.checksums[index];
+    }
+
+    public ByteBuffer encode() {
+        final ByteBuffer buf = ByteBuffer.allocate(HEADER_SIZE + this.checksums.length * 8);
+        buf.putInt(this.blockSize);
+        buf.putLong(this.fileSize);
+        for (final long checksum : this.checksums) {
+            buf.putLong(checksum);
+        }
+        buf.flip();
+        return buf;
+    }
+
+    /**
+     * Decodes the blocks from buffer, returns null if the buffer is corrupted.
+     */
+    public static SnapshotFileBlocks decode(final ByteBuffer buf) {
+        if (buf == null || buf.remaining() < HEADER_SIZE) {
+            return null;
+        }
+        final int blockSize = buf.getInt();
+        final long fileSize = buf.getLong();
+        if (blockSize <= 0 || fileSize < 0) {
+            return null;
+        }
+        final long count = (fileSize + blockSize - 1) / blockSize;
+        if (buf.remaining() != count * 8) {
+            return null;
+        }
+        final long[] checksums = new long[(int) count];
+        for (int i = 0; i < count; i++) {
+            checksums[i] = buf.getLong();
+        }
+        return new SnapshotFileBlocks(blockSize, fileSize, checksums);
+    }
+}
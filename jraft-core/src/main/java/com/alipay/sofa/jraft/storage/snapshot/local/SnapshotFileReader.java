@@ -20,13 +20,19 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import com.alipay.sofa.jraft.entity.LocalFileMetaOutter.LocalFileMeta;
 import com.alipay.sofa.jraft.error.RetryAgainException;
 import com.alipay.sofa.jraft.storage.SnapshotThrottle;
+import com.alipay.sofa.jraft.storage.io.FileChunk;
 import com.alipay.sofa.jraft.storage.io.LocalDirReader;
 import com.alipay.sofa.jraft.storage.snapshot.Snapshot;
 import com.alipay.sofa.jraft.util.ByteBufferCollector;
+import com.alipay.sofa.jraft.util.Utils;
 
 /**
  * Snapshot file reader
@@ -37,8 +43,13 @@ import com.alipay.sofa.jraft.util.ByteBufferCollector;
  */
 public class SnapshotFileReader extends LocalDirReader {
 
-    private final SnapshotThrottle snapshotThrottle;
-    private LocalSnapshotMetaTable metaTable;
+    private final SnapshotThrottle                                             snapshotThrottle;
+    private LocalSnapshotMetaTable                                             metaTable;
+    /**
+     * The block checksums for delta copy, computed once per file in background because
+     * the snapshot files are immutable, the requests are answered EAGAIN until it's done.
+     */
+    private final ConcurrentMap<String, CompletableFuture<SnapshotFileBlocks>> fileBlocks = new ConcurrentHashMap<>();
 
     public SnapshotFileReader(String path, SnapshotThrottle snapshotThrottle) {
         super(path);
@@ -69,11 +80,68 @@ public class SnapshotFileReader extends LocalDirReader {
             metaBufferCollector.setBuffer(metaBuf);
             return EOF;
         }
+        // read the whole block checksums of a file.
+        if (fileName.endsWith(SnapshotFileBlocks.FILE_SUFFIX) && this.metaTable.getFileMeta(fileName) == null) {
+            final ByteBuffer blocksBuf = getFileBlocks(
+                fileName.substring(0, fileName.length() - SnapshotFileBlocks.FILE_SUFFIX.length())).encode();
+            blocksBuf.position(blocksBuf.limit());
+            metaBufferCollector.setBuffer(blocksBuf);
+            return EOF;
+        }
+        final LocalFileMeta fileMeta = getFileMeta(fileName);
+        return readFileWithMeta(metaBufferCollector, fileName, fileMeta, offset, throttledCount(maxCount));
+    }
+
+    @Override
+    public FileChunk readFileChunk(final String fileName, final long offset, final long maxCount) throws IOException,
+                                                                                                 RetryAgainException {
+        // the meta file and block checksums are generated in memory.
+        if (fileName.equals(Snapshot.JRAFT_SNAPSHOT_META_FILE) || fileName.endsWith(SnapshotFileBlocks.FILE_SUFFIX)) {
+            return null;
+        }
+        final LocalFileMeta fileMeta = getFileMeta(fileName);
+        return readFileChunkWithMeta(fileName, fileMeta, offset, throttledCount(maxCount));
+    }
+
+    private SnapshotFileBlocks getFileBlocks(final String fileName) throws IOException, RetryAgainException {
+        CompletableFuture<SnapshotFileBlocks> future = this.fileBlocks.get(fileName);
+        if (future == null) {
+            getFileMeta(fileName);
+            final CompletableFuture<SnapshotFileBlocks> computing = new CompletableFuture<>();
+            future = this.fileBlocks.putIfAbsent(fileName, computing);
+            if (future == null) {
+                future = computing;
+                final String filePath = getPath() + File.separator + fileName;
+                Utils.runInThread(() -> {
+                    try {
+                        computing.complete(SnapshotFileBlocks.compute(filePath, SnapshotFileBlocks.DEFAULT_BLOCK_SIZE));
+                    } catch (final Throwable t) {
+                        computing.completeExceptionally(t);
+                    }
+                });
+            }
+        }
+        if (!future.isDone()) {
+            throw new RetryAgainException("Computing the block checksums of " + fileName);
+        }
+        try {
+            return future.getNow(null);
+        } catch (final CompletionException e) {
+            // Computes it again at the next request.
+            this.fileBlocks.remove(fileName, future);
+            throw new IOException("Fail to compute the block checksums of " + fileName, e.getCause());
+        }
+    }
+
+    private LocalFileMeta getFileMeta(final String fileName) throws FileNotFoundException {
         final LocalFileMeta fileMeta = this.metaTable.getFileMeta(fileName);
         if (fileMeta == null) {
             throw new FileNotFoundException("LocalFileMeta not found for " + fileName);
         }
+        return fileMeta;
+    }
 
+    private long throttledCount(final long maxCount) throws RetryAgainException {
         // go through throttle
         long newMaxCount = maxCount;
         if (this.snapshotThrottle != null) {
@@ -86,7 +154,6 @@ public class SnapshotFileReader extends LocalDirReader {
                 }
             }
         }
-
-        return readFileWithMeta(metaBufferCollector, fileName, fileMeta, offset, newMaxCount);
+        return newMaxCount;
     }
 }
@@ -43,11 +43,13 @@ import com.alipay.sofa.jraft.rpc.RpcRequests.GetFileResponse;
 import com.alipay.sofa.jraft.rpc.RpcResponseClosureAdapter;
 import com.alipay.sofa.jraft.rpc.RpcUtils;
 import com.alipay.sofa.jraft.storage.SnapshotThrottle;
+import com.alipay.sofa.jraft.storage.io.FileChunkCodecs;
 import com.alipay.sofa.jraft.util.ByteBufferCollector;
 import com.alipay.sofa.jraft.util.Endpoint;
 import com.alipay.sofa.jraft.util.OnlyForTest;
 import com.alipay.sofa.jraft.util.Requires;
 import com.alipay.sofa.jraft.util.Utils;
+import com.google.protobuf.ByteString;
 import com.google.protobuf.Message;
 
 /**
@@ -243,13 +245,23 @@ public class CopySession implements Session {
             }
             this.retryTimes = 0;
             Requires.requireNonNull(response, "response");
+            final long requestedCount = this.requestBuilder.getCount();
             // Reset count to |real_read_size| to make next rpc get the right offset
             if (!response.getEof()) {
                 this.requestBuilder.setCount(response.getReadSize());
             }
+            final ByteString data;
+            try {
+                data = FileChunkCodecs.getData(response, requestedCount);
+            } catch (final IOException e) {
+                LOG.error("Fail to decode the data of file {}", this.requestBuilder.getFilename(), e);
+                this.st.setError(RaftError.EIO, RaftError.EIO.name());
+                onFinished();
+                return;
+            }
             if (this.outputStream != null) {
                 try {
-                    response.getData().writeTo(this.outputStream);
+                    data.writeTo(this.outputStream);
                 } catch (final IOException e) {
                     LOG.error("Fail to write into file {}", this.destPath);
                     this.st.setError(RaftError.EIO, RaftError.EIO.name());
@@ -257,7 +269,7 @@ public class CopySession implements Session {
                     return;
                 }
             } else {
-                this.destBuf.put(response.getData().asReadOnlyByteBuffer());
+                this.destBuf.put(data.asReadOnlyByteBuffer());
             }
             if (response.getEof()) {
                 onFinished();
@@ -0,0 +1,466 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.jraft.storage.snapshot.remote;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.alipay.sofa.jraft.Status;
+import com.alipay.sofa.jraft.core.Scheduler;
+import com.alipay.sofa.jraft.error.RaftError;
+import com.alipay.sofa.jraft.option.CopyOptions;
+import com.alipay.sofa.jraft.rpc.RaftClientService;
+import com.alipay.sofa.jraft.rpc.RpcRequests.GetFileRequest;
+import com.alipay.sofa.jraft.rpc.RpcRequests.GetFileResponse;
+import com.alipay.sofa.jraft.rpc.RpcResponseClosureAdapter;
+import com.alipay.sofa.jraft.rpc.RpcUtils;
+import com.alipay.sofa.jraft.storage.SnapshotThrottle;
+import com.alipay.sofa.jraft.storage.io.FileChunkCodecs;
+import com.alipay.sofa.jraft.util.Endpoint;
+import com.alipay.sofa.jraft.util.Requires;
+import com.alipay.sofa.jraft.util.Utils;
+import com.google.protobuf.Message;
+
+/**
+ * A session copies several remote files to local files concurrently.
+ *
+ * The files are split into chunks of {@code chunkSize} bytes, at most {@code concurrency} chunk
+ * requests are in flight at any time, so several files are copied at once and a large file is
+ * copied as several concurrent byte ranges. The file size is unknown before copying, so the first
+ * chunk of a file is fetched alone, the following chunks are only requested when it doesn't reach
+ * the end of file. Every chunk request is throttled by the {@link SnapshotThrottle}.
+ *
+ * A file can also be copied partly by {@link #addFileRanges(String, String, long, long[], long[])},
+ * the other ranges of the local file are kept, it's used to copy the changed blocks of a file.
+ *
+ * @author agent (agent@local)
+ */
+@ThreadSafe
+public class ParallelCopySession implements Session {
+
+    private static final Logger      LOG           = LoggerFactory.getLogger(ParallelCopySession.class);
+
+    private final Lock               lock          = new ReentrantLock();
+    private final Status             st            = Status.OK();
+    private final CountDownLatch     finishLatch   = new CountDownLatch(1);
+    private final RaftClientService  rpcService;
+    private final Scheduler          timerManager;
+    private final SnapshotThrottle   snapshotThrottle;
+    private final Endpoint           endpoint;
+    private final long               readerId;
+    private final int                chunkSize;
+    private final int                concurrency;
+    private final List<FileState>    files         = new ArrayList<>();
+    private final Set<Future<?>>     inflightCalls = new HashSet<>();
+    private CopyOptions              copyOptions   = new CopyOptions();
+    private String                   codecName;
+    private int                      inflight;
+    private int                      scheduled;
+    private int                      retryTimes;
+    private int                      nextFileIdx;
+    private boolean                  finished;
+
+    /**
+     * The copy state of one file.
+     */
+    private static class FileState {
+        final String source;
+        final String destPath;
+        FileChannel  channel;
+        // The [start, end) ranges to copy, null to copy the whole file
+        long[]       rangeStarts;
+        long[]       rangeEnds;
+        int          rangeIdx;
+        // The offset of the next chunk to request
+        long         nextOffset;
+        // The file size, known when a chunk reaches the end of file
+        long         eofOffset = Long.MAX_VALUE;
+        boolean      firstChunkDone;
+        int          inflight;
+        boolean      done;
+
+        FileState(final String source, final String destPath) {
+            this.source = source;
+            this.destPath = destPath;
+        }
+
+        // The end offset of the current range
+        long limit() {
+            return this.rangeEnds == null ? this.eofOffset : Math.min(this.rangeEnds[this.rangeIdx], this.eofOffset);
+        }
+
+        boolean hasMoreChunks() {
+            return this.nextOffset < limit() && (this.firstChunkDone || this.nextOffset == 0);
+        }
+
+        boolean allRequested() {
+            return this.nextOffset >= limit();
+        }
+
+        Chunk nextChunk(final int chunkSize) {
+            final Chunk chunk = new Chunk(this, this.nextOffset, Math.min(chunkSize, limit() - this.nextOffset));
+            this.nextOffset += chunk.count;
+            if (this.rangeEnds != null && this.nextOffset >= limit() && this.rangeIdx < this.rangeEnds.length - 1) {
+                this.nextOffset = this.rangeStarts[++this.rangeIdx];
+            }
+            return chunk;
+        }
+    }
+
+    /**
+     * A range of a file to request.
+     */
+    private static class Chunk {
+        final FileState file;
+        final long      offset;
+        final long      count;
+
+        Chunk(final FileState file, final long offset, final long count) {
+            this.file = file;
+            this.offset = offset;
+            this.count = count;
+        }
+    }
+
+    public ParallelCopySession(final RaftClientService rpcService, final Scheduler timerManager,
+                               final SnapshotThrottle snapshotThrottle, final Endpoint endpoint,
+                               final long readerId, final int chunkSize, final int concurrency) {
+        super();
+        this.rpcService = rpcService;
+        this.timerManager = timerManager;
+        this.snapshotThrottle = snapshotThrottle;
+        this.endpoint = endpoint;
+        this.readerId = readerId;
+        this.chunkSize = chunkSize;
+        this.concurrency = Math.max(1, concurrency);
+    }
+
+    public void setCopyOptions(final CopyOptions copyOptions) {
+        this.copyOptions = copyOptions;
+    }
+
+    /**
+     * Requests the chunks to be compressed by the {@link com.alipay.sofa.jraft.storage.io.FileChunkCodec}.
+     */
+    public void setCodecName(final String codecName) {
+        this.codecName = codecName;
+    }
+
+    /**
+     * Adds a file to copy, must be called before {@link #start()}.
+     */
+    public void addFile(final String source, final String destPath) throws IOException {
+        final FileState file = new FileState(source, destPath);
+        file.channel = new RandomAccessFile(destPath, "rw").getChannel();
+        file.channel.truncate(0);
+        this.files.add(file);
+    }
+
+    /**
+     * Adds the ranges of a file to copy, must be called before {@link #start()}. The local file
+     * is truncated to the file size and the data out of the ranges is kept.
+     *
+     * @param source      the remote file name
+     * @param destPath    the local file path
+     * @param fileSize    the size of the remote file
+     * @param rangeStarts the start offsets of the ranges, in ascending order
+     * @param rangeEnds   the end offsets(exclusive) of the ranges
+     */
+    public void addFileRanges(final String source, final String destPath, final long fileSize,
+                              final long[] rangeStarts, final long[] rangeEnds) throws IOException {
+        Requires.requireTrue(rangeStarts.length > 0 && rangeStarts.length == rangeEnds.length, "Invalid ranges");
+        final FileState file = new FileState(source, destPath);
+        file.channel = new RandomAccessFile(destPath, "rw").getChannel();
+        file.rangeStarts = rangeStarts;
+        file.rangeEnds = rangeEnds;
+        file.nextOffset = rangeStarts[0];
+        file.eofOffset = fileSize;
+        file.firstChunkDone = true;
+        this.files.add(file);
+    }
+
+    public void start() {
+        this.lock.lock();
+        try {
+            dispatch();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    // in lock
+    private Chunk nextChunk() {
+        for (int i = this.nextFileIdx; i < this.files.size(); i++) {
+            final FileState file = this.files.get(i);
+            if (file.hasMoreChunks()) {
+                return file.nextChunk(this.chunkSize);
+            }
+            if (i == this.nextFileIdx && file.allRequested()) {
+                // All the chunks of the file have been requested.
+                this.nextFileIdx++;
+            }
+        }
+        return null;
+    }
+
+    // in lock
+    private void dispatch() {
+        while (!this.finished && this.inflight + this.scheduled < this.concurrency) {
+            final Chunk chunk = nextChunk();
+            if (chunk == null) {
+                break;
+            }
+            sendChunk(chunk);
+        }
+        checkFinished();
+    }
+
+    // in lock
+    private void sendChunk(final Chunk chunk) {
+        long count = chunk.count;
+        if (this.snapshotThrottle != null) {
+            count = this.snapshotThrottle.throttledByThroughput(count);
+            if (count == 0) {
+                retryLater(chunk);
+                return;
+            }
+        }
+        final GetFileRequest.Builder rb = GetFileRequest.newBuilder() //
+            .setReaderId(this.readerId) //
+            .setFilename(chunk.file.source) //
+            .setOffset(chunk.offset) //
+            .setCount(count) //
+            .setReadPartly(true);
+        if (this.codecName != null) {
+            rb.setCodec(this.codecName);
+        }
+        final GetFileRequest request = rb.build();
+        this.inflight++;
+        chunk.file.inflight++;
+        LOG.debug("Send get file request {} to peer {}", request, this.endpoint);
+        final Future<Message> call = this.rpcService.getFile(this.endpoint, request, this.copyOptions.getTimeoutMs(),
+            new RpcResponseClosureAdapter<GetFileResponse>() {
+
+                @Override
+                public void run(final Status status) {
+                    onRpcReturned(chunk, status, getResponse());
+                }
+            });
+        if (call != null && !call.isDone()) {
+            this.inflightCalls.add(call);
+        }
+    }
+
+    // in lock
+    private void retryLater(final Chunk chunk) {
+        this.scheduled++;
+        this.timerManager.schedule(() -> RpcUtils.runInThread(() -> {
+            this.lock.lock();
+            try {
+                this.scheduled--;
+                if (!this.finished) {
+                    sendChunk(chunk);
+                }
+                dispatch();
+            } finally {
+                this.lock.unlock();
+            }
+        }), this.copyOptions.getRetryIntervalMs(), TimeUnit.MILLISECONDS);
+    }
+
+    private void onRpcReturned(final Chunk chunk, final Status status, final GetFileResponse response) {
+        final FileState file = chunk.file;
+        boolean written = false;
+        long readSize = 0;
+        if (status.isOk()) {
+            // Decodes and writes out of lock, the positional writes of different chunks are independent.
+            try {
+                final ByteBuffer data = FileChunkCodecs.getData(response, chunk.count).asReadOnlyByteBuffer();
+                readSize = data.remaining();
+                long pos = chunk.offset;
+                while (data.hasRemaining()) {
+                    pos += file.channel.write(data, pos);
+                }
+                written = true;
+            } catch (final IOException e) {
+                LOG.error("Fail to decode or write into file {}", file.destPath, e);
+            }
+        }
+        this.lock.lock();
+        try {
+            this.inflight--;
+            file.inflight--;
+            this.inflightCalls.removeIf(Future::isDone);
+            if (this.finished) {
+                return;
+            }
+            if (!status.isOk()) {
+                if (status.getCode() == RaftError.ECANCELED.getNumber()) {
+                    setError(status.getCode(), status.getErrorMsg());
+                    return;
+                }
+                // Throttled reading failure does not increase retry times
+                if (status.getCode() != RaftError.EAGAIN.getNumber()
+                    && ++this.retryTimes >= this.copyOptions.getMaxRetry()) {
+                    setError(status.getCode(), status.getErrorMsg());
+                    return;
+                }
+                retryLater(chunk);
+                return;
+            }
+            if (!written) {
+                setError(RaftError.EIO.getNumber(), RaftError.EIO.name());
+                return;
+            }
+            this.retryTimes = 0;
+            if (chunk.offset == 0) {
+                file.firstChunkDone = true;
+            }
+            if (response.getEof()) {
+                file.eofOffset = Math.min(file.eofOffset, chunk.offset + readSize);
+            } else if (readSize < chunk.count) {
+                // Read partly(e.g. throttled), request the rest of the chunk.
+                sendChunk(new Chunk(file, chunk.offset + readSize, chunk.count - readSize));
+            }
+            if (file.inflight == 0 && file.allRequested() && !file.done) {
+                onFileFinished(file);
+            }
+        } finally {
+            dispatch();
+            this.lock.unlock();
+        }
+    }
+
+    // in lock
+    private void onFileFinished(final FileState file) {
+        try {
+            file.channel.truncate(file.eofOffset);
+            file.channel.force(true);
+            file.channel.close();
+            file.done = true;
+        } catch (final IOException e) {
+            LOG.error("Fail to sync file {}", file.destPath, e);
+            setError(RaftError.EIO.getNumber(), RaftError.EIO.name());
+        }
+    }
+
+    // in lock
+    private void checkFinished() {
+        if (this.finished) {
+            return;
+        }
+        for (final FileState file : this.files) {
+            if (!file.done) {
+                return;
+            }
+        }
+        onFinished();
+    }
+
+    // in lock
+    private void setError(final int code, final String msg) {
+        if (this.st.isOk()) {
+            this.st.setError(code, msg);
+        }
+        onFinished();
+    }
+
+    // in lock
+    private void onFinished() {
+        if (this.finished) {
+            return;
+        }
+        if (!this.st.isOk()) {
+            LOG.error("Fail to copy files from {}, readerId={}, status={}", this.endpoint, this.readerId, this.st);
+            for (final Future<?> call : this.inflightCalls) {
+                call.cancel(true);
+            }
+        }
+        this.inflightCalls.clear();
+        this.finished = true;
+        this.finishLatch.countDown();
+    }
+
+    /**
+     * Returns the source names of the files that have been copied.
+     */
+    public List<String> getFinishedFiles() {
+        this.lock.lock();
+        try {
+            final List<String> ret = new ArrayList<>();
+            for (final FileState file : this.files) {
+                if (file.done) {
+                    ret.add(file.source);
+                }
+            }
+            return ret;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public void cancel() {
+        this.lock.lock();
+        try {
+            setError(RaftError.ECANCELED.getNumber(), RaftError.ECANCELED.name());
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public void join() throws InterruptedException {
+        this.finishLatch.await();
+    }
+
+    @Override
+    public Status status() {
+        return this.st;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.lock.lock();
+        try {
+            for (final FileState file : this.files) {
+                if (!file.done) {
+                    Utils.closeQuietly(file.channel);
+                }
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+}
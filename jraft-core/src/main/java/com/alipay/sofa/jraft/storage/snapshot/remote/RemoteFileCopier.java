@@ -21,7 +21,9 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Map;
 
+import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -150,10 +152,79 @@ public class RemoteFileCopier {
         return session;
     }
 
+    /**
+     * Copy the remote files to local files concurrently, at most
+     * min(snapshotCopyConcurrency, maxSnapshotCopyInflightBytes / maxByteCountPerRpc) requests
+     * are in flight.
+     *
+     * @param files map of the remote source -> the local dest path
+     * @param opts  options of copy
+     * @return the copy session
+     */
+    public ParallelCopySession startParallelCopyToFiles(final Map<String, String> files, final CopyOptions opts)
+                                                                                                              throws IOException {
+        final ParallelCopySession session = newParallelCopySession(opts);
+        try {
+            for (final Map.Entry<String, String> entry : files.entrySet()) {
+                session.addFile(entry.getKey(), entry.getValue());
+            }
+        } catch (final IOException e) {
+            Utils.closeQuietly(session);
+            throw e;
+        }
+        session.start();
+        return session;
+    }
+
+    /**
+     * Copy the ranges of a remote file to the local file, the data out of the ranges
+     * in the local file is kept.
+     *
+     * @param source      the remote file name
+     * @param destPath    the local file path
+     * @param fileSize    the size of the remote file
+     * @param rangeStarts the start offsets of the ranges, in ascending order
+     * @param rangeEnds   the end offsets(exclusive) of the ranges
+     * @param opts        options of copy
+     * @return the copy session
+     */
+    public ParallelCopySession startCopyRangesToFile(final String source, final String destPath,
+                                                     final long fileSize, final long[] rangeStarts,
+                                                     final long[] rangeEnds, final CopyOptions opts)
+                                                                                                    throws IOException {
+        final ParallelCopySession session = newParallelCopySession(opts);
+        try {
+            session.addFileRanges(source, destPath, fileSize, rangeStarts, rangeEnds);
+        } catch (final IOException e) {
+            Utils.closeQuietly(session);
+            throw e;
+        }
+        session.start();
+        return session;
+    }
+
+    private ParallelCopySession newParallelCopySession(final CopyOptions opts) {
+        final int chunkSize = this.raftOptions.getMaxByteCountPerRpc();
+        final long budget = Math.max(1, this.raftOptions.getMaxSnapshotCopyInflightBytes() / chunkSize);
+        final int concurrency = (int) Math.min(this.raftOptions.getSnapshotCopyConcurrency(), budget);
+        final ParallelCopySession session = new ParallelCopySession(this.rpcService, this.timerManager,
+            this.snapshotThrottle, this.endpoint, this.readId, chunkSize, concurrency);
+        if (opts != null) {
+            session.setCopyOptions(opts);
+        }
+        if (StringUtils.isNotBlank(this.raftOptions.getSnapshotCopyCodec())) {
+            session.setCodecName(this.raftOptions.getSnapshotCopyCodec());
+        }
+        return session;
+    }
+
     private CopySession newCopySession(final String source) {
         final GetFileRequest.Builder reqBuilder = GetFileRequest.newBuilder() //
             .setFilename(source) //
             .setReaderId(this.readId);
+        if (StringUtils.isNotBlank(this.raftOptions.getSnapshotCopyCodec())) {
+            reqBuilder.setCodec(this.raftOptions.getSnapshotCopyCodec());
+        }
         return new CopySession(this.rpcService, this.timerManager, this.snapshotThrottle, this.raftOptions, reqBuilder,
             this.endpoint);
     }
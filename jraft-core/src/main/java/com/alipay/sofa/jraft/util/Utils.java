@@ -89,6 +89,17 @@ public final class Utils {
                                                                                       16,
                                                                                       Ints.findNextPositivePowerOfTwo(cpus() * 2)));
 
+    /**
+     * Default jraft append-entries executor(receive) pool size, the pool is shared by the
+     * pipelined append-entries requests of all the peer pairs.
+     */
+    public static final int           APPEND_ENTRIES_THREADS_RECV         = SystemPropertyUtil
+                                                                              .getInt(
+                                                                                  "jraft.append.entries.threads.recv",
+                                                                                  Math.max(
+                                                                                      16,
+                                                                                      Ints.findNextPositivePowerOfTwo(cpus() * 2)));
+
     /**
      * Default jraft max pending tasks of append-entries per thread, 65536 by default.
      */
@@ -0,0 +1,197 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.jraft.util.concurrent;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.alipay.sofa.jraft.util.ExecutorServiceHelper;
+import com.alipay.sofa.jraft.util.Mpsc;
+import com.alipay.sofa.jraft.util.Requires;
+import com.codahale.metrics.ExponentiallyDecayingReservoir;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricSet;
+
+/**
+ * A fixed number of work-stealing threads shared by any number of serial executors. Every
+ * serial executor runs its tasks one by one in the submitting order, but not on a dedicated
+ * thread, so thousands of them don't mean thousands of threads.
+ *
+ * @author agent (agent@local)
+ */
+public final class SerialExecutorGroup {
+
+    private static final Logger LOG                   = LoggerFactory.getLogger(SerialExecutorGroup.class);
+
+    /** The max tasks run by a serial executor before yielding the thread to the others. */
+    private static final int    MAX_TASKS_PER_RUN     = 64;
+
+    private static final long   DEFAULT_SHUTDOWN_SECS = 15;
+
+    private final String        name;
+    private final ForkJoinPool  pool;
+    private final int           maxPendingTasksPerExecutor;
+    private final LongAdder     pendingTasks          = new LongAdder();
+    private final AtomicInteger executors             = new AtomicInteger();
+    // The delay between a serial executor being scheduled and running, in microseconds
+    private final Histogram     scheduleDelay         = new Histogram(new ExponentiallyDecayingReservoir());
+
+    public SerialExecutorGroup(final String name, final int nThreads, final int maxPendingTasksPerExecutor) {
+        Requires.requireTrue(nThreads > 0, "nThreads must > 0");
+        this.name = name;
+        this.maxPendingTasksPerExecutor = maxPendingTasksPerExecutor;
+        final AtomicInteger threadIndex = new AtomicInteger();
+        // async mode, the scheduled serial executors are run in FIFO order.
+        this.pool = new ForkJoinPool(nThreads, p -> {
+            final ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            t.setName(name + "-" + threadIndex.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        }, (t, e) -> LOG.error("Uncaught exception in thread {}.", t, e), true);
+    }
+
+    /**
+     * Creates a serial executor running its tasks in this group.
+     */
+    public SingleThreadExecutor newExecutor() {
+        return new SerialExecutor();
+    }
+
+    /**
+     * Returns the metrics of this group including the pending tasks of all the serial executors
+     * and the delay to schedule them.
+     */
+    public MetricSet metricSet() {
+        return () -> {
+            final Map<String, Metric> metrics = new HashMap<>();
+            metrics.put("threads", (Gauge<Integer>) this.pool::getParallelism);
+            metrics.put("executors", (Gauge<Integer>) this.executors::get);
+            metrics.put("pending-tasks", (Gauge<Long>) this.pendingTasks::sum);
+            metrics.put("scheduled-executors",
+                (Gauge<Long>) () -> this.pool.getQueuedTaskCount() + this.pool.getQueuedSubmissionCount());
+            metrics.put("schedule-delay-us", this.scheduleDelay);
+            return metrics;
+        };
+    }
+
+    public boolean shutdownGracefully() {
+        return ExecutorServiceHelper.shutdownAndAwaitTermination(this.pool);
+    }
+
+    @Override
+    public String toString() {
+        return "SerialExecutorGroup{" + "name='" + this.name + '\'' + ", threads=" + this.pool.getParallelism()
+               + ", executors=" + this.executors.get() + ", pendingTasks=" + this.pendingTasks.sum() + '}';
+    }
+
+    private final class SerialExecutor implements SingleThreadExecutor, Runnable {
+
+        private final Queue<Runnable> taskQueue;
+        // Whether it's scheduled to the pool, only the scheduled one polls the task queue.
+        private final AtomicBoolean   scheduled  = new AtomicBoolean();
+        private final CountDownLatch  terminated = new CountDownLatch(1);
+        private volatile boolean      shutdown;
+        private volatile Thread       runner;
+        private volatile long         scheduledNanos;
+
+        SerialExecutor() {
+            this.taskQueue = Mpsc.newMpscQueue(SerialExecutorGroup.this.maxPendingTasksPerExecutor);
+            SerialExecutorGroup.this.executors.incrementAndGet();
+        }
+
+        @Override
+        public void execute(final Runnable task) {
+            Requires.requireNonNull(task, "task");
+            if (this.shutdown || !this.taskQueue.offer(task)) {
+                RejectedExecutionHandlers.reject().rejected(task, this);
+            }
+            SerialExecutorGroup.this.pendingTasks.increment();
+            schedule();
+        }
+
+        private void schedule() {
+            if (this.scheduled.compareAndSet(false, true)) {
+                this.scheduledNanos = System.nanoTime();
+                SerialExecutorGroup.this.pool.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            final long delayNanos = System.nanoTime() - this.scheduledNanos;
+            SerialExecutorGroup.this.scheduleDelay.update(TimeUnit.NANOSECONDS.toMicros(delayNanos));
+            this.runner = Thread.currentThread();
+            try {
+                Runnable task;
+                for (int i = 0; i < MAX_TASKS_PER_RUN && (task = this.taskQueue.poll()) != null; i++) {
+                    SerialExecutorGroup.this.pendingTasks.decrement();
+                    try {
+                        task.run();
+                    } catch (final Throwable t) {
+                        LOG.warn("Unexpected exception from task {} of {}.", task, SerialExecutorGroup.this.name, t);
+                    }
+                }
+            } finally {
+                this.runner = null;
+                this.scheduled.set(false);
+            }
+            if (!this.taskQueue.isEmpty()) {
+                schedule();
+            } else if (this.shutdown) {
+                this.terminated.countDown();
+            }
+        }
+
+        @Override
+        public boolean shutdownGracefully() {
+            return shutdownGracefully(DEFAULT_SHUTDOWN_SECS, TimeUnit.SECONDS);
+        }
+
+        @Override
+        public boolean shutdownGracefully(final long timeout, final TimeUnit unit) {
+            if (!this.shutdown) {
+                this.shutdown = true;
+                SerialExecutorGroup.this.executors.decrementAndGet();
+                // Runs the left tasks and terminates.
+                schedule();
+            }
+            if (this.runner == Thread.currentThread()) {
+                // Can't wait for itself, the left tasks are run after the current one.
+                return false;
+            }
+            try {
+                return this.terminated.await(timeout, unit);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
+}
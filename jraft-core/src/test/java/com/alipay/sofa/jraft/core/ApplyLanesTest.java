@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.jraft.core;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.alipay.sofa.jraft.Closure;
+import com.alipay.sofa.jraft.Iterator;
+import com.alipay.sofa.jraft.PartitionedStateMachine;
+import com.alipay.sofa.jraft.Status;
+import com.alipay.sofa.jraft.entity.EnumOutter;
+import com.alipay.sofa.jraft.entity.LogEntry;
+import com.alipay.sofa.jraft.entity.LogId;
+import com.alipay.sofa.jraft.error.RaftError;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ApplyLanesTest {
+
+    private static class KeyedStateMachine extends StateMachineAdapter implements PartitionedStateMachine {
+
+        final Map<Integer, List<Long>> applied = new ConcurrentHashMap<>();
+        final List<Long>               runDones = new CopyOnWriteArrayList<>();
+        volatile long                  failIndex = -1;
+
+        @Override
+        public int partitionKey(final long index, final ByteBuffer data) {
+            return data.getInt();
+        }
+
+        @Override
+        public void onApply(final Iterator iter) {
+            while (iter.hasNext()) {
+                if (iter.getIndex() == this.failIndex) {
+                    iter.setErrorAndRollback(1, new Status(RaftError.ESTATEMACHINE, "test"));
+                    return;
+                }
+                final int key = iter.getData().getInt(0);
+                this.applied.computeIfAbsent(key, k -> new ArrayList<>()).add(iter.getIndex());
+                if (iter.done() != null) {
+                    iter.done().run(Status.OK());
+                }
+                iter.next();
+            }
+        }
+    }
+
+    private KeyedStateMachine fsm;
+    private ApplyLanes        lanes;
+    private List<LogEntry>    entries;
+    private List<Closure>     dones;
+
+    @Before
+    public void setup() {
+        this.fsm = new KeyedStateMachine();
+        this.lanes = new ApplyLanes(this.fsm, 4);
+        this.entries = new ArrayList<>();
+        this.dones = new ArrayList<>();
+        for (int i = 1; i <= 100; i++) {
+            final LogEntry entry = new LogEntry(EnumOutter.EntryType.ENTRY_TYPE_DATA);
+            entry.setId(new LogId(i, 1));
+            final ByteBuffer data = ByteBuffer.allocate(4);
+            data.putInt(0, i % 7);
+            entry.setData(data);
+            this.entries.add(entry);
+            final long index = i;
+            this.dones.add(status -> this.fsm.runDones.add(index));
+        }
+    }
+
+    @After
+    public void teardown() {
+        this.lanes.shutdown();
+    }
+
+    @Test
+    public void testApplyInKeyOrder() throws Exception {
+        final boolean[] applied = new boolean[this.entries.size()];
+        assertNull(this.lanes.apply(this.entries, this.dones, applied));
+        for (final boolean b : applied) {
+            assertTrue(b);
+        }
+        assertEquals(7, this.fsm.applied.size());
+        int count = 0;
+        for (final Map.Entry<Integer, List<Long>> e : this.fsm.applied.entrySet()) {
+            long prev = 0;
+            for (final long index : e.getValue()) {
+                assertEquals(e.getKey().intValue(), index % 7);
+                assertTrue(index > prev);
+                prev = index;
+                count++;
+            }
+        }
+        assertEquals(100, count);
+        assertEquals(100, this.fsm.runDones.size());
+    }
+
+    @Test
+    public void testApplyWithError() throws Exception {
+        this.fsm.failIndex = 50;
+        final boolean[] applied = new boolean[this.entries.size()];
+        final Status st = this.lanes.apply(this.entries, this.dones, applied);
+        assertNotNull(st);
+        assertEquals(RaftError.ESTATEMACHINE, st.getRaftError());
+        // All the entries of the failed key since index 50 are not applied.
+        for (int i = 0; i < applied.length; i++) {
+            final long index = i + 1;
+            if (index % 7 == 50 % 7 && index >= 50) {
+                assertFalse(applied[i]);
+            } else {
+                assertTrue(applied[i]);
+            }
+        }
+    }
+}
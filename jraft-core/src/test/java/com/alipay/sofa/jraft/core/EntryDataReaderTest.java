@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.jraft.core;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+import com.google.protobuf.ByteString;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+public class EntryDataReaderTest {
+
+    private static ByteString data(final char c, final int len) {
+        final byte[] bs = new byte[len];
+        for (int i = 0; i < len; i++) {
+            bs[i] = (byte) (c + i % 10);
+        }
+        return ByteString.copyFrom(bs);
+    }
+
+    private static ByteString read(final ByteBuffer buf, final int len) {
+        final ByteBuffer slice = buf.slice();
+        slice.limit(len);
+        buf.position(buf.position() + len);
+        return ByteString.copyFrom(slice);
+    }
+
+    @Test
+    public void testReadCoalescedDataWithoutFlattening() {
+        final ByteString d1 = data('a', 300);
+        final ByteString d2 = data('k', 500);
+        final ByteString d3 = data('u', 200);
+        final ByteString rope = d1.concat(d2).concat(d3);
+        assertEquals(3, rope.asReadOnlyByteBufferList().size());
+
+        final EntryDataReader reader = new EntryDataReader(rope);
+        // two entries in the first request, one in each of the others
+        final ByteBuffer b1 = reader.next(100);
+        assertEquals(d1.substring(0, 100), read(b1, 100));
+        assertEquals(d1.substring(100), read(reader.next(200), 200));
+        final ByteBuffer b2 = reader.next(500);
+        assertNotSame(b1, b2);
+        // the buffer of a request holds its data only
+        assertEquals(500, b2.remaining());
+        assertEquals(d2, read(b2, 500));
+        assertEquals(d3, read(reader.next(200), 200));
+        assertFalse(reader.next(0).hasRemaining());
+    }
+
+    @Test
+    public void testReadDataSplitAcrossBuffers() {
+        final ByteString d1 = data('a', 300);
+        final ByteString d2 = data('k', 300);
+        final ByteString rope = d1.concat(d2);
+
+        final EntryDataReader reader = new EntryDataReader(rope);
+        assertEquals(rope.substring(0, 200), read(reader.next(200), 200));
+        final ByteBuffer buf = reader.next(300);
+        assertTrue(buf.remaining() >= 300);
+        assertEquals(rope.substring(200, 500), read(buf, 300));
+        assertEquals(rope.substring(500), read(reader.next(100), 100));
+    }
+
+    @Test
+    public void testReadFlatData() {
+        final ByteString d = data('a', 10);
+        final EntryDataReader reader = new EntryDataReader(d);
+        assertEquals(d.substring(0, 4), read(reader.next(4), 4));
+        assertEquals(d.substring(4), read(reader.next(6), 6));
+    }
+}
@@ -20,6 +20,10 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 
 import org.junit.After;
@@ -31,7 +35,9 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import com.alipay.sofa.jraft.ApplyBatch;
 import com.alipay.sofa.jraft.Iterator;
+import com.alipay.sofa.jraft.PartitionedStateMachine;
 import com.alipay.sofa.jraft.StateMachine;
 import com.alipay.sofa.jraft.Status;
 import com.alipay.sofa.jraft.closure.ClosureQueueImpl;
@@ -127,6 +133,96 @@ public class FSMCallerTest {
         assertTrue(this.fsmCaller.getError().getStatus().isOk());
     }
 
+    @Test
+    public void testOnCommittedInLanesByBoundedBatches() throws Exception {
+        this.fsmCaller.shutdown();
+        this.fsmCaller.join();
+        final List<Integer> appliedCounts = new CopyOnWriteArrayList<>();
+        final class LanesStateMachine extends StateMachineAdapter implements PartitionedStateMachine {
+
+            @Override
+            public int partitionKey(final long index, final ByteBuffer data) {
+                return 0;
+            }
+
+            @Override
+            public void onApply(final Iterator iter) {
+                int count = 0;
+                while (iter.hasNext()) {
+                    count++;
+                    iter.next();
+                }
+                if (count > 0) {
+                    appliedCounts.add(count);
+                }
+            }
+        }
+        this.fsmCaller = new FSMCallerImpl();
+        final FSMCallerOptions opts = new FSMCallerOptions();
+        opts.setNode(this.node);
+        opts.setFsm(new LanesStateMachine());
+        opts.setLogManager(this.logManager);
+        opts.setBootstrapId(new LogId(10, 1));
+        opts.setClosureQueue(this.closureQueue);
+        opts.setApplyLanes(2);
+        opts.setMaxApplyBatchEntries(2);
+        assertTrue(this.fsmCaller.init(opts));
+
+        for (int i = 11; i <= 15; i++) {
+            final LogEntry log = new LogEntry(EntryType.ENTRY_TYPE_DATA);
+            log.getId().setIndex(i);
+            log.getId().setTerm(1);
+            Mockito.when(this.logManager.getEntry(i)).thenReturn(log);
+        }
+        Mockito.when(this.logManager.getTerm(15)).thenReturn(1L);
+
+        assertTrue(this.fsmCaller.onCommitted(15));
+
+        this.fsmCaller.flush();
+        assertEquals(15, this.fsmCaller.getLastAppliedIndex());
+        // The lanes apply at most maxApplyBatchEntries entries at a time.
+        assertEquals(Arrays.asList(2, 2, 1), appliedCounts);
+        assertTrue(this.fsmCaller.getError().getStatus().isOk());
+    }
+
+    @Test
+    public void testOnCommittedBatchApply() throws Exception {
+        this.fsmCaller.shutdown();
+        this.fsmCaller.join();
+        this.fsmCaller = new FSMCallerImpl();
+        final FSMCallerOptions opts = new FSMCallerOptions();
+        opts.setNode(this.node);
+        opts.setFsm(this.fsm);
+        opts.setLogManager(this.logManager);
+        opts.setBootstrapId(new LogId(10, 1));
+        opts.setClosureQueue(this.closureQueue);
+        opts.setEnableBatchApply(true);
+        assertTrue(this.fsmCaller.init(opts));
+
+        final LogEntry log1 = new LogEntry(EntryType.ENTRY_TYPE_DATA);
+        log1.getId().setIndex(11);
+        log1.getId().setTerm(1);
+        final LogEntry log2 = new LogEntry(EntryType.ENTRY_TYPE_DATA);
+        log2.getId().setIndex(12);
+        log2.getId().setTerm(1);
+        Mockito.when(this.logManager.getTerm(12)).thenReturn(1L);
+        Mockito.when(this.logManager.getEntries(11, 12)).thenReturn(Arrays.asList(log1, log2));
+        final ArgumentCaptor<ApplyBatch> batchArg = ArgumentCaptor.forClass(ApplyBatch.class);
+
+        assertTrue(this.fsmCaller.onCommitted(12));
+
+        this.fsmCaller.flush();
+        assertEquals(this.fsmCaller.getLastAppliedIndex(), 12);
+        Mockito.verify(this.fsm).onApplyBatch(batchArg.capture());
+        final ApplyBatch batch = batchArg.getValue();
+        assertEquals(2, batch.size());
+        assertEquals(11, batch.getFirstIndex());
+        // Fetched by one batched read
+        Mockito.verify(this.logManager, Mockito.never()).getEntry(Mockito.anyLong());
+        Mockito.verify(this.logManager).setAppliedId(new LogId(12, 1));
+        assertTrue(this.fsmCaller.getError().getStatus().isOk());
+    }
+
     @Test
     public void testOnSnapshotLoad() throws Exception {
         final SnapshotReader reader = Mockito.mock(SnapshotReader.class);
@@ -26,12 +26,14 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Future;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.io.FileUtils;
 import org.junit.After;
@@ -70,8 +72,12 @@ import com.alipay.sofa.jraft.option.BootstrapOptions;
 import com.alipay.sofa.jraft.option.NodeOptions;
 import com.alipay.sofa.jraft.option.RaftOptions;
 import com.alipay.sofa.jraft.rpc.RaftRpcServerFactory;
+import com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest;
+import com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse;
 import com.alipay.sofa.jraft.rpc.RpcServer;
+import com.alipay.sofa.jraft.storage.RaftMetaStorage;
 import com.alipay.sofa.jraft.storage.SnapshotThrottle;
+import com.alipay.sofa.jraft.storage.impl.LocalRaftMetaStorage;
 import com.alipay.sofa.jraft.storage.impl.RocksDBLogStorage;
 import com.alipay.sofa.jraft.storage.snapshot.SnapshotReader;
 import com.alipay.sofa.jraft.storage.snapshot.ThroughputSnapshotThrottle;
@@ -81,6 +87,7 @@ import com.alipay.sofa.jraft.util.Endpoint;
 import com.alipay.sofa.jraft.util.StorageOptionsFactory;
 import com.alipay.sofa.jraft.util.Utils;
 import com.codahale.metrics.ConsoleReporter;
+import com.google.protobuf.Message;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
@@ -190,6 +197,84 @@ public class NodeTest {
         node.join();
     }
 
+    @Test
+    public void testInitWithTooSmallHibernateElectionTimeout() throws Exception {
+        final Endpoint addr = new Endpoint(TestUtils.getMyIp(), TestUtils.INIT_PORT);
+        NodeManager.getInstance().addAddress(addr);
+        final NodeOptions nodeOptions = new NodeOptions();
+        nodeOptions.setFsm(new MockStateMachine(addr));
+        nodeOptions.setLogUri(this.dataPath + File.separator + "log");
+        nodeOptions.setRaftMetaUri(this.dataPath + File.separator + "meta");
+        nodeOptions.setSnapshotUri(this.dataPath + File.separator + "snapshot");
+        nodeOptions.setHibernateTimeoutMs(10000);
+        nodeOptions.setHibernateElectionTimeoutMs(nodeOptions.getElectionTimeoutMs() - 1);
+
+        final Node node = new NodeImpl("unittest", new PeerId(addr, 0));
+        assertFalse(node.init(nodeOptions));
+    }
+
+    @Test
+    public void testAckHigherTermAfterMetaSaved() throws Exception {
+        final Endpoint addr = new Endpoint(TestUtils.getMyIp(), TestUtils.INIT_PORT);
+        NodeManager.getInstance().addAddress(addr);
+        final CountDownLatch savingMeta = new CountDownLatch(1);
+        final AtomicLong savedTerm = new AtomicLong();
+        final NodeOptions nodeOptions = new NodeOptions();
+        nodeOptions.setFsm(new MockStateMachine(addr));
+        nodeOptions.setLogUri(this.dataPath + File.separator + "log");
+        nodeOptions.setRaftMetaUri(this.dataPath + File.separator + "meta");
+        nodeOptions.setSnapshotUri(this.dataPath + File.separator + "snapshot");
+        nodeOptions.setServiceFactory(new DefaultJRaftServiceFactory() {
+
+            @Override
+            public RaftMetaStorage createRaftMetaStorage(final String uri, final RaftOptions raftOptions) {
+                return new LocalRaftMetaStorage(uri, raftOptions) {
+
+                    @Override
+                    public boolean setTermAndVotedFor(final long term, final PeerId peerId) {
+                        try {
+                            savingMeta.await();
+                        } catch (final InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        final boolean ok = super.setTermAndVotedFor(term, peerId);
+                        if (ok) {
+                            savedTerm.set(term);
+                        }
+                        return ok;
+                    }
+                };
+            }
+        });
+        final NodeImpl node = new NodeImpl("unittest", new PeerId(addr, 0));
+        assertTrue(node.init(nodeOptions));
+
+        // A heartbeat of a new leader makes the node step down to its higher term.
+        final AppendEntriesRequest request = AppendEntriesRequest.newBuilder() //
+            .setGroupId("unittest") //
+            .setServerId(new PeerId(addr, 1).toString()) //
+            .setPeerId(new PeerId(addr, 0).toString()) //
+            .setTerm(5) //
+            .setPrevLogIndex(0) //
+            .setPrevLogTerm(0) //
+            .setCommittedIndex(0) //
+            .build();
+        final CompletableFuture<Message> reply = CompletableFuture.supplyAsync(() -> node.handleAppendEntriesRequest(
+            request, null));
+        Thread.sleep(200);
+        assertFalse(reply.isDone());
+        assertEquals(5, node.getCurrentTerm());
+
+        savingMeta.countDown();
+        final AppendEntriesResponse response = (AppendEntriesResponse) reply.get(5, TimeUnit.SECONDS);
+        assertTrue(response.getSuccess());
+        assertEquals(5, response.getTerm());
+        assertEquals(5, savedTerm.get());
+
+        node.shutdown();
+        node.join();
+    }
+
     @Test
     public void testNodeTaskOverload() throws Exception {
         final Endpoint addr = new Endpoint(TestUtils.getMyIp(), TestUtils.INIT_PORT);
@@ -2482,6 +2567,41 @@ public class NodeTest {
         cluster.stopAll();
     }
 
+    @Test
+    public void testHibernate() throws Exception {
+        final List<PeerId> peers = TestUtils.generatePeers(3);
+
+        final TestCluster cluster = new TestCluster("unitest", this.dataPath, peers, 300);
+        cluster.setHibernateTimeoutMs(500);
+        for (final PeerId peer : peers) {
+            assertTrue(cluster.start(peer.getEndpoint()));
+        }
+
+        cluster.waitLeader();
+        final NodeImpl leader = (NodeImpl) cluster.getLeader();
+        assertNotNull(leader);
+        this.sendTestTaskAndWait(leader);
+
+        Thread.sleep(2000);
+        for (final NodeImpl node : cluster.getNodes()) {
+            assertTrue(node.isHibernating());
+        }
+        // The hibernating followers are kept alive, no election is started.
+        Thread.sleep(1000);
+        assertTrue(leader.isLeader());
+        for (final Node follower : cluster.getFollowers()) {
+            assertEquals(leader.getNodeId().getPeerId(), follower.getLeaderId());
+        }
+
+        // Applying tasks wakes the group up.
+        this.sendTestTaskAndWait(leader, 10, RaftError.SUCCESS);
+        assertFalse(leader.isHibernating());
+        cluster.ensureSame();
+        assertEquals(20, cluster.getFsms().get(0).getLogs().size());
+
+        cluster.stopAll();
+    }
+
     @Test
     public void testLeaderTransferBeforeLogIsCompleted() throws Exception {
         final List<PeerId> peers = TestUtils.generatePeers(3);
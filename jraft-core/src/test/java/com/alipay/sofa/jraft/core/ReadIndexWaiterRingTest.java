@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.jraft.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.alipay.sofa.jraft.entity.ReadIndexStatus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ReadIndexWaiterRingTest {
+
+    private ReadIndexWaiterRing ring;
+
+    @Before
+    public void setup() {
+        this.ring = new ReadIndexWaiterRing(8, 0);
+    }
+
+    private static ReadIndexStatus newStatus(final long index) {
+        return new ReadIndexStatus(new ArrayList<>(), null, index);
+    }
+
+    private static List<Long> indexes(ReadIndexStatus status) {
+        final List<Long> ret = new ArrayList<>();
+        while (status != null) {
+            ret.add(status.getIndex());
+            status = status.getNext();
+        }
+        return ret;
+    }
+
+    @Test
+    public void testAddDrain() {
+        assertTrue(this.ring.isEmpty());
+        assertTrue(this.ring.add(newStatus(3)));
+        assertTrue(this.ring.add(newStatus(1)));
+        assertTrue(this.ring.add(newStatus(3)));
+        assertTrue(this.ring.add(newStatus(5)));
+        assertEquals(4, this.ring.size());
+
+        assertEquals("[1, 3, 3]", indexes(this.ring.drain(3)).toString());
+        assertEquals(1, this.ring.size());
+        assertNull(this.ring.drain(3));
+        // Already applied
+        assertFalse(this.ring.add(newStatus(2)));
+        assertEquals("[5]", indexes(this.ring.drain(10)).toString());
+        assertTrue(this.ring.isEmpty());
+    }
+
+    @Test
+    public void testOverflow() {
+        assertTrue(this.ring.add(newStatus(2)));
+        assertTrue(this.ring.add(newStatus(100)));
+        assertTrue(this.ring.add(newStatus(100)));
+        assertTrue(this.ring.add(newStatus(200)));
+        assertEquals(4, this.ring.size());
+
+        assertEquals("[2, 100, 100]", indexes(this.ring.drain(150)).toString());
+        assertEquals(1, this.ring.size());
+        // 200 is in the window now
+        assertTrue(this.ring.add(newStatus(152)));
+        assertEquals("[152, 200]", indexes(this.ring.drain(200)).toString());
+        assertTrue(this.ring.isEmpty());
+    }
+
+    @Test
+    public void testDrainAll() {
+        assertTrue(this.ring.add(newStatus(2)));
+        assertTrue(this.ring.add(newStatus(50)));
+        assertEquals("[2, 50]", indexes(this.ring.drainAll()).toString());
+        assertTrue(this.ring.isEmpty());
+        assertNull(this.ring.drainAll());
+        // The base is kept, index 2 is still not applied.
+        assertTrue(this.ring.add(newStatus(2)));
+    }
+}
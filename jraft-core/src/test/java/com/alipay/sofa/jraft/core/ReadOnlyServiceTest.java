@@ -37,6 +37,7 @@ import com.alipay.sofa.jraft.entity.PeerId;
 import com.alipay.sofa.jraft.entity.ReadIndexState;
 import com.alipay.sofa.jraft.entity.ReadIndexStatus;
 import com.alipay.sofa.jraft.option.RaftOptions;
+import com.alipay.sofa.jraft.option.ReadOnlyOption;
 import com.alipay.sofa.jraft.option.ReadOnlyServiceOptions;
 import com.alipay.sofa.jraft.rpc.RpcRequests.ReadIndexRequest;
 import com.alipay.sofa.jraft.rpc.RpcRequests.ReadIndexResponse;
@@ -62,13 +63,16 @@ public class ReadOnlyServiceTest {
     @Mock
     private FSMCaller           fsmCaller;
 
+    private RaftOptions         raftOptions;
+
     @Before
     public void setup() {
         this.readOnlyServiceImpl = new ReadOnlyServiceImpl();
         final ReadOnlyServiceOptions opts = new ReadOnlyServiceOptions();
         opts.setFsmCaller(this.fsmCaller);
         opts.setNode(this.node);
-        opts.setRaftOptions(new RaftOptions());
+        this.raftOptions = new RaftOptions();
+        opts.setRaftOptions(this.raftOptions);
         Mockito.when(this.node.getNodeMetrics()).thenReturn(new NodeMetrics(false));
         Mockito.when(this.node.getGroupId()).thenReturn("test");
         Mockito.when(this.node.getServerId()).thenReturn(new PeerId("localhost:8081", 0));
@@ -260,10 +264,72 @@ public class ReadOnlyServiceTest {
         state.setIndex(1);
         states.add(state);
         final ReadIndexStatus readIndexStatus = new ReadIndexStatus(states, null, 1);
-        this.readOnlyServiceImpl.getPendingNotifyStatus().put(1L, Arrays.asList(readIndexStatus));
+        assertTrue(this.readOnlyServiceImpl.getPendingNotifyStatus().add(readIndexStatus));
 
         this.readOnlyServiceImpl.onApplied(2);
         latch.await();
         assertTrue(this.readOnlyServiceImpl.getPendingNotifyStatus().isEmpty());
     }
+
+    @Test
+    public void testLeaseReadFastPath() throws Exception {
+        this.raftOptions.setReadOnlyOptions(ReadOnlyOption.ReadOnlyLeaseBased);
+        Mockito.when(this.node.getLeaseReadIndex()).thenReturn(1L);
+        Mockito.when(this.fsmCaller.getLastAppliedIndex()).thenReturn(2L);
+
+        final byte[] requestContext = TestUtils.getRandomBytes();
+        final CountDownLatch latch = new CountDownLatch(1);
+        this.readOnlyServiceImpl.addRequest(requestContext, new ReadIndexClosure() {
+
+            @Override
+            public void run(final Status status, final long index, final byte[] reqCtx) {
+                assertTrue(status.isOk());
+                assertEquals(index, 1);
+                assertArrayEquals(reqCtx, requestContext);
+                latch.countDown();
+            }
+        });
+        // Answered in the caller thread.
+        assertEquals(0, latch.getCount());
+        this.readOnlyServiceImpl.flush();
+        Mockito.verify(this.node, Mockito.never()).handleReadIndexRequest(Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    public void testLeaseReadPendingApplied() throws Exception {
+        this.raftOptions.setReadOnlyOptions(ReadOnlyOption.ReadOnlyLeaseBased);
+        Mockito.when(this.node.getLeaseReadIndex()).thenReturn(3L);
+        Mockito.when(this.fsmCaller.getLastAppliedIndex()).thenReturn(2L);
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        this.readOnlyServiceImpl.addRequest(TestUtils.getRandomBytes(), new ReadIndexClosure() {
+
+            @Override
+            public void run(final Status status, final long index, final byte[] reqCtx) {
+                assertTrue(status.isOk());
+                assertEquals(index, 3);
+                latch.countDown();
+            }
+        });
+        assertEquals(1, this.readOnlyServiceImpl.getPendingNotifyStatus().size());
+        this.readOnlyServiceImpl.onApplied(3);
+        latch.await();
+        assertTrue(this.readOnlyServiceImpl.getPendingNotifyStatus().isEmpty());
+    }
+
+    @Test
+    public void testLeaseReadFallback() throws Exception {
+        this.raftOptions.setReadOnlyOptions(ReadOnlyOption.ReadOnlyLeaseBased);
+        Mockito.when(this.node.getLeaseReadIndex()).thenReturn(ReadIndexClosure.INVALID_LOG_INDEX);
+
+        this.readOnlyServiceImpl.addRequest(TestUtils.getRandomBytes(), new ReadIndexClosure() {
+
+            @Override
+            public void run(final Status status, final long index, final byte[] reqCtx) {
+
+            }
+        });
+        this.readOnlyServiceImpl.flush();
+        Mockito.verify(this.node).handleReadIndexRequest(Mockito.any(), Mockito.any());
+    }
 }
@@ -448,6 +448,12 @@ public class ReplicatorTest {
         assertEquals(r.statInfo.runningState, Replicator.RunningState.IDLE);
     }
 
+    @Test
+    public void testContinueSendingEntriesScatterGather() throws Exception {
+        this.raftOptions.setEnableScatterGatherAppendEntries(true);
+        testContinueSendingEntries();
+    }
+
     @Test
     public void testSetErrorTimeout() throws Exception {
         final Replicator r = getReplicator();
@@ -92,6 +92,8 @@ public class TestCluster {
 
     private LinkedHashSet<PeerId>                         learners;
 
+    private int                                           hibernateTimeoutMs;
+
     public JRaftServiceFactory getRaftServiceFactory() {
         return this.raftServiceFactory;
     }
@@ -108,6 +110,10 @@ public class TestCluster {
         this.learners = learners;
     }
 
+    public void setHibernateTimeoutMs(final int hibernateTimeoutMs) {
+        this.hibernateTimeoutMs = hibernateTimeoutMs;
+    }
+
     public List<PeerId> getPeers() {
         return this.peers;
     }
@@ -171,6 +177,7 @@ public class TestCluster {
 
         final NodeOptions nodeOptions = new NodeOptions();
         nodeOptions.setElectionTimeoutMs(this.electionTimeoutMs);
+        nodeOptions.setHibernateTimeoutMs(this.hibernateTimeoutMs);
         nodeOptions.setEnableMetrics(enableMetrics);
         nodeOptions.setSnapshotThrottle(snapshotThrottle);
         nodeOptions.setSnapshotIntervalSecs(snapshotIntervalSecs);
@@ -221,6 +228,7 @@ public class TestCluster {
 
         final NodeOptions nodeOptions = new NodeOptions();
         nodeOptions.setElectionTimeoutMs(this.electionTimeoutMs);
+        nodeOptions.setHibernateTimeoutMs(this.hibernateTimeoutMs);
         nodeOptions.setEnableMetrics(enableMetrics);
         nodeOptions.setSnapshotThrottle(snapshotThrottle);
         nodeOptions.setSnapshotIntervalSecs(snapshotIntervalSecs);
@@ -134,4 +134,26 @@ public abstract class BaseLogEntryCodecFactoryTest {
         assertNull(nentry.getOldPeers());
     }
 
+    @Test
+    public void testEncodeDecodeWithReadOnlySliceData() {
+        final ByteBuffer all = ByteBuffer.wrap("xxhelloyy".getBytes()).asReadOnlyBuffer();
+        all.position(2);
+        final ByteBuffer buf = all.slice();
+        buf.limit(5);
+        LogEntry entry = new LogEntry(EnumOutter.EntryType.ENTRY_TYPE_DATA);
+        entry.setId(new LogId(100, 3));
+        entry.setData(buf);
+
+        byte[] content = this.encoder.encode(entry);
+
+        assertNotNull(content);
+        assertEquals(0, buf.position());
+
+        LogEntry nentry = this.decoder.decode(content);
+        assertNotNull(nentry);
+        assertEquals(100, nentry.getId().getIndex());
+        assertEquals(3, nentry.getId().getTerm());
+        assertEquals(ByteBuffer.wrap("hello".getBytes()), nentry.getData());
+    }
+
 }
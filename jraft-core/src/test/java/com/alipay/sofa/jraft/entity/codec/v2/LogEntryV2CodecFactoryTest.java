@@ -31,8 +31,13 @@ import com.alipay.sofa.jraft.entity.PeerId;
 import com.alipay.sofa.jraft.entity.codec.BaseLogEntryCodecFactoryTest;
 import com.alipay.sofa.jraft.entity.codec.LogEntryCodecFactory;
 import com.alipay.sofa.jraft.entity.codec.v1.V1Encoder;
+import com.alipay.sofa.jraft.entity.codec.v2.LogOutter.PBLogEntry;
+import com.alipay.sofa.jraft.util.AsciiStringUtil;
+import com.google.protobuf.ByteString;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
@@ -138,4 +143,96 @@ public class LogEntryV2CodecFactoryTest extends BaseLogEntryCodecFactoryTest {
         assertEquals(5, nentry.getData().remaining());
         assertNull(nentry.getOldPeers());
     }
+
+    private LogEntry newConfEntry() {
+        LogEntry entry = new LogEntry(EnumOutter.EntryType.ENTRY_TYPE_CONFIGURATION);
+        entry.setId(new LogId(Long.MAX_VALUE - 1, 300));
+        entry.setPeers(Arrays.asList(new PeerId("localhost", 99, 1), new PeerId("localhost", 100, 2)));
+        entry.setOldPeers(Arrays.asList(new PeerId("localhost", 99, 1)));
+        entry.setLearners(createLearners("192.168.1.1:8081", "192.168.1.2:8081"));
+        entry.setOldLearners(createLearners("192.168.1.1:8081"));
+        entry.setData(ByteBuffer.wrap(new byte[300]));
+        entry.setChecksum(-1L);
+        return entry;
+    }
+
+    @Test
+    public void testEncodeSameAsProtobuf() {
+        LogEntry entry = newConfEntry();
+        PBLogEntry.Builder builder = PBLogEntry.newBuilder() //
+            .setType(entry.getType()) //
+            .setIndex(entry.getId().getIndex()) //
+            .setTerm(entry.getId().getTerm()) //
+            .setChecksum(entry.getChecksum()) //
+            .setData(ByteString.copyFrom(entry.getData().duplicate()));
+        for (PeerId peer : entry.getPeers()) {
+            builder.addPeers(ByteString.copyFrom(AsciiStringUtil.unsafeEncode(peer.toString())));
+        }
+        for (PeerId peer : entry.getOldPeers()) {
+            builder.addOldPeers(ByteString.copyFrom(AsciiStringUtil.unsafeEncode(peer.toString())));
+        }
+        for (PeerId peer : entry.getLearners()) {
+            builder.addLearners(ByteString.copyFrom(AsciiStringUtil.unsafeEncode(peer.toString())));
+        }
+        for (PeerId peer : entry.getOldLearners()) {
+            builder.addOldLearners(ByteString.copyFrom(AsciiStringUtil.unsafeEncode(peer.toString())));
+        }
+        byte[] body = builder.build().toByteArray();
+
+        byte[] content = this.encoder.encode(entry);
+        assertEquals(LogEntryV2CodecFactory.HEADER_SIZE + body.length, content.length);
+        assertEquals(content.length, this.encoder.encodedSize(entry));
+        assertArrayEquals(body, Arrays.copyOfRange(content, LogEntryV2CodecFactory.HEADER_SIZE, content.length));
+        assertEquals(0, entry.getData().position());
+    }
+
+    @Test
+    public void testEncodeDecodeDirectBuffer() {
+        LogEntry entry = newConfEntry();
+        ByteBuffer buf = ByteBuffer.allocateDirect(1024);
+        buf.position(10);
+        this.encoder.encode(entry, buf);
+        assertEquals(10 + this.encoder.encodedSize(entry), buf.position());
+        buf.flip();
+        buf.position(10);
+
+        // decode into a reused entry with a large enough data buffer
+        ByteBuffer reused = ByteBuffer.allocate(512);
+        LogEntry nentry = new LogEntry(EnumOutter.EntryType.ENTRY_TYPE_DATA);
+        nentry.setData(reused);
+        assertTrue(this.decoder.decode(buf, nentry));
+        assertEquals(10, buf.position());
+        assertSame(reused, nentry.getData());
+        assertEquals(entry, nentry);
+        assertEquals(entry.getOldPeers(), nentry.getOldPeers());
+        assertEquals(entry.getLearners(), nentry.getLearners());
+        assertEquals(entry.getOldLearners(), nentry.getOldLearners());
+        assertTrue(nentry.hasChecksum());
+        assertEquals(entry.getChecksum(), nentry.getChecksum());
+
+        // decode a smaller entry into the same one, stale fields are dropped
+        LogEntry small = new LogEntry(EnumOutter.EntryType.ENTRY_TYPE_DATA);
+        small.setId(new LogId(1, 1));
+        small.setData(ByteBuffer.wrap("hello".getBytes()));
+        assertTrue(this.decoder.decode(ByteBuffer.wrap(this.encoder.encode(small)), nentry));
+        assertSame(reused, nentry.getData());
+        assertEquals(small, nentry);
+        assertNull(nentry.getPeers());
+        assertNull(nentry.getOldLearners());
+        assertFalse(nentry.hasChecksum());
+    }
+
+    @Test
+    public void testDecodeTruncated() {
+        // data is the last field of a data entry without checksum
+        LogEntry entry = new LogEntry(EnumOutter.EntryType.ENTRY_TYPE_DATA);
+        entry.setId(new LogId(1000, 10));
+        entry.setData(ByteBuffer.wrap("hello".getBytes()));
+        byte[] content = this.encoder.encode(entry);
+        assertNotNull(this.decoder.decode(content));
+        for (int len = 0; len < content.length; len++) {
+            assertFalse(this.decoder.decode(ByteBuffer.wrap(content, 0, len), new LogEntry()));
+            assertNull(this.decoder.decode(Arrays.copyOf(content, len)));
+        }
+    }
 }
@@ -16,6 +16,8 @@
  */
 package com.alipay.sofa.jraft.rpc.impl.core;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -24,23 +26,29 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 
 import com.alipay.sofa.jraft.NodeManager;
+import com.alipay.sofa.jraft.entity.EnumOutter;
 import com.alipay.sofa.jraft.entity.PeerId;
+import com.alipay.sofa.jraft.entity.RaftOutter.EntryMeta;
+import com.alipay.sofa.jraft.error.RaftError;
 import com.alipay.sofa.jraft.rpc.Connection;
 import com.alipay.sofa.jraft.rpc.RaftServerService;
 import com.alipay.sofa.jraft.rpc.RpcContext;
 import com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest;
+import com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse;
 import com.alipay.sofa.jraft.rpc.RpcRequests.PingRequest;
 import com.alipay.sofa.jraft.rpc.impl.core.AppendEntriesRequestProcessor.PeerPair;
 import com.alipay.sofa.jraft.rpc.impl.core.AppendEntriesRequestProcessor.PeerRequestContext;
 import com.alipay.sofa.jraft.test.MockAsyncContext;
 import com.alipay.sofa.jraft.test.TestUtils;
 import com.alipay.sofa.jraft.util.concurrent.ConcurrentHashSet;
+import com.google.protobuf.ByteString;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.eq;
 
 public class AppendEntriesRequestProcessorTest extends BaseNodeRequestProcessorTest<AppendEntriesRequest> {
@@ -164,6 +172,64 @@ public class AppendEntriesRequestProcessorTest extends BaseNodeRequestProcessorT
         assertFalse(newCtx.hasTooManyPendingResponses());
     }
 
+    private AppendEntriesRequest createDataRequest(final long prevLogIndex, final long committedIndex,
+                                                   final String... datas) {
+        final AppendEntriesRequest.Builder rb = this.request.toBuilder().setPrevLogIndex(prevLogIndex)
+            .setPrevLogTerm(1).setTerm(1).setCommittedIndex(committedIndex);
+        ByteString data = ByteString.EMPTY;
+        for (final String s : datas) {
+            rb.addEntries(EntryMeta.newBuilder().setTerm(1).setType(EnumOutter.EntryType.ENTRY_TYPE_DATA)
+                .setDataLen(s.length()));
+            data = data.concat(ByteString.copyFromUtf8(s));
+        }
+        return rb.setData(data).build();
+    }
+
+    @Test
+    public void testCoalesce() {
+        createRequest(this.groupId, new PeerId());
+        final AppendEntriesRequest r1 = createDataRequest(0, 0, "a", "bc");
+        final AppendEntriesRequest r2 = createDataRequest(2, 1, "def");
+        final AppendEntriesRequest r3 = createDataRequest(4, 2, "g");
+
+        assertTrue(AppendEntriesRequestProcessor.canCoalesce(r1, r2));
+        assertFalse(AppendEntriesRequestProcessor.canCoalesce(r1, r3));
+        assertFalse(AppendEntriesRequestProcessor.canCoalesce(r1, r2.toBuilder().setTerm(2).build()));
+        assertFalse(AppendEntriesRequestProcessor.canCoalesce(r1, this.request));
+
+        final AppendEntriesRequest merged = AppendEntriesRequestProcessor.coalesce(Arrays.asList(r1, r2));
+        assertEquals(0, merged.getPrevLogIndex());
+        assertEquals(3, merged.getEntriesCount());
+        assertEquals(1, merged.getCommittedIndex());
+        assertEquals("abcdef", merged.getData().toStringUtf8());
+        assertSame(r1, AppendEntriesRequestProcessor.coalesce(Arrays.asList(r1)));
+    }
+
+    @Test
+    public void testCoalescedHeartbeats() throws Exception {
+        final PeerId peer = mockNode();
+        final RaftServerService service = (RaftServerService) NodeManager.getInstance().get(this.groupId, peer);
+        final AppendEntriesRequest heartbeat = createRequest(this.groupId, peer);
+        final AppendEntriesResponse response = AppendEntriesResponse.newBuilder().setTerm(5).setSuccess(true)
+            .setLastLogIndex(10).build();
+        Mockito.when(service.handleAppendEntriesRequest(eq(heartbeat), Mockito.any())).thenReturn(response);
+
+        final AppendEntriesRequest carrier = HeartbeatCoalescer.newCarrierRequest(peer.getEndpoint(),
+            Arrays.asList(heartbeat, createRequest("unknown", peer)));
+        assertTrue(HeartbeatCoalescer.isCarrier(carrier));
+        assertFalse(HeartbeatCoalescer.isCarrier(heartbeat));
+
+        final AppendEntriesRequestProcessor processor = (AppendEntriesRequestProcessor) newProcessor();
+        processor.handleRequest(this.asyncContext, carrier);
+        final AppendEntriesResponse carrierResp = this.asyncContext.as(AppendEntriesResponse.class);
+        final List<ByteString> responses = carrierResp.getHeartbeatResponsesList();
+        assertEquals(2, responses.size());
+        assertEquals(response, AppendEntriesResponse.parseFrom(responses.get(0)));
+        final AppendEntriesResponse notFound = AppendEntriesResponse.parseFrom(responses.get(1));
+        assertTrue(notFound.hasErrorResponse());
+        assertEquals(RaftError.ENOENT.getNumber(), notFound.getErrorResponse().getErrorCode());
+    }
+
     @Test
     public void testSendSequenceResponse() {
         mockNode();
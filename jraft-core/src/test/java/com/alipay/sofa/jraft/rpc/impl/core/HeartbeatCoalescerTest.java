@@ -0,0 +1,263 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.jraft.rpc.impl.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Matchers;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.alipay.sofa.jraft.Status;
+import com.alipay.sofa.jraft.error.RaftError;
+import com.alipay.sofa.jraft.rpc.RaftClientService;
+import com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesRequest;
+import com.alipay.sofa.jraft.rpc.RpcRequests.AppendEntriesResponse;
+import com.alipay.sofa.jraft.rpc.RpcRequests.ErrorResponse;
+import com.alipay.sofa.jraft.rpc.RpcResponseClosure;
+import com.alipay.sofa.jraft.rpc.RpcResponseClosureAdapter;
+import com.alipay.sofa.jraft.rpc.impl.FutureImpl;
+import com.alipay.sofa.jraft.util.Endpoint;
+import com.google.protobuf.Message;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(value = MockitoJUnitRunner.class)
+public class HeartbeatCoalescerTest {
+
+    private static final class Call {
+        final AppendEntriesRequest                      request;
+        final RpcResponseClosure<AppendEntriesResponse> done;
+
+        Call(final AppendEntriesRequest request, final RpcResponseClosure<AppendEntriesResponse> done) {
+            this.request = request;
+            this.done = done;
+        }
+
+        void respond(final Status status, final AppendEntriesResponse response) {
+            if (response != null) {
+                this.done.setResponse(response);
+            }
+            this.done.run(status);
+        }
+    }
+
+    private static final class Result extends RpcResponseClosureAdapter<AppendEntriesResponse> {
+        Status status;
+
+        @Override
+        public void run(final Status status) {
+            this.status = status;
+        }
+    }
+
+    @Mock
+    private RaftClientService           service;
+    private final Endpoint              endpoint = new Endpoint("localhost", 8081);
+    private final BlockingQueue<Call>   calls    = new LinkedBlockingQueue<>();
+    private HeartbeatCoalescer          coalescer;
+
+    @SuppressWarnings("unchecked")
+    @Before
+    public void setup() {
+        this.coalescer = new HeartbeatCoalescer(HeartbeatCoalescer.PROBE_INTERVAL_MS);
+        Mockito.when(
+            this.service.appendEntries(Matchers.eq(this.endpoint), Matchers.any(AppendEntriesRequest.class),
+                Matchers.anyInt(), Matchers.any(RpcResponseClosure.class))).thenAnswer(invocation -> {
+            this.calls.add(new Call((AppendEntriesRequest) invocation.getArguments()[1],
+                (RpcResponseClosure<AppendEntriesResponse>) invocation.getArguments()[3]));
+            return new FutureImpl<Message>();
+        });
+    }
+
+    private static AppendEntriesRequest heartbeat(final String groupId) {
+        return AppendEntriesRequest.newBuilder() //
+            .setGroupId(groupId) //
+            .setServerId("localhost:8082") //
+            .setPeerId("localhost:8081") //
+            .setTerm(1) //
+            .setPrevLogTerm(1) //
+            .setPrevLogIndex(10) //
+            .setCommittedIndex(10) //
+            .build();
+    }
+
+    private static AppendEntriesResponse response(final long term) {
+        return AppendEntriesResponse.newBuilder().setTerm(term).setSuccess(true).setLastLogIndex(10).build();
+    }
+
+    private List<Result> queue(final int n) {
+        final List<Result> results = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            final Result result = new Result();
+            this.coalescer.heartbeat(this.service, this.endpoint, heartbeat("group" + i), 1000, result);
+            results.add(result);
+        }
+        return results;
+    }
+
+    private Call nextCall() throws InterruptedException {
+        final Call call = this.calls.poll(5, TimeUnit.SECONDS);
+        assertNotNull(call);
+        return call;
+    }
+
+    private void assertNoMoreCalls() throws InterruptedException {
+        assertNull(this.calls.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testCoalesceHeartbeatsInOneTick() throws Exception {
+        queue(3);
+        final Call carrier = nextCall();
+        assertTrue(HeartbeatCoalescer.isCarrier(carrier.request));
+        assertEquals(HeartbeatCoalescer.CARRIER_GROUP_ID, carrier.request.getGroupId());
+        assertEquals(3, carrier.request.getHeartbeatsCount());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(heartbeat("group" + i), AppendEntriesRequest.parseFrom(carrier.request.getHeartbeats(i)));
+        }
+        assertNoMoreCalls();
+    }
+
+    @Test
+    public void testSendSingleHeartbeatDirectly() throws Exception {
+        final List<Result> results = queue(1);
+        final Call call = nextCall();
+        assertFalse(HeartbeatCoalescer.isCarrier(call.request));
+        assertEquals(heartbeat("group0"), call.request);
+        assertNoMoreCalls();
+
+        call.respond(Status.OK(), response(1));
+        assertTrue(results.get(0).status.isOk());
+        assertEquals(response(1), results.get(0).getResponse());
+    }
+
+    @Test
+    public void testFanOutResponsesInOrder() throws Exception {
+        final List<Result> results = queue(3);
+        nextCall().respond(Status.OK(),
+            HeartbeatCoalescer.newCarrierResponse(Arrays.asList(response(1), response(2), response(3))));
+        for (int i = 0; i < 3; i++) {
+            assertTrue(results.get(i).status.isOk());
+            assertEquals(response(i + 1), results.get(i).getResponse());
+        }
+    }
+
+    @Test
+    public void testErrorResponseInCarrier() throws Exception {
+        final List<Result> results = queue(2);
+        final AppendEntriesResponse notFound = AppendEntriesResponse.newBuilder() //
+            .setTerm(0) //
+            .setSuccess(false) //
+            .setErrorResponse(ErrorResponse.newBuilder() //
+                .setErrorCode(RaftError.ENOENT.getNumber()) //
+                .setErrorMsg("Peer id not found")) //
+            .build();
+        nextCall().respond(Status.OK(), HeartbeatCoalescer.newCarrierResponse(Arrays.asList(response(1), notFound)));
+        assertTrue(results.get(0).status.isOk());
+        assertEquals(response(1), results.get(0).getResponse());
+        assertEquals(RaftError.ENOENT, results.get(1).status.getRaftError());
+        assertEquals("Peer id not found", results.get(1).status.getErrorMsg());
+        assertNull(results.get(1).getResponse());
+    }
+
+    @Test
+    public void testMissingResponses() throws Exception {
+        final List<Result> results = queue(3);
+        nextCall().respond(Status.OK(), HeartbeatCoalescer.newCarrierResponse(Arrays.asList(response(1))));
+        assertTrue(results.get(0).status.isOk());
+        assertEquals(RaftError.EINTERNAL, results.get(1).status.getRaftError());
+        assertEquals(RaftError.EINTERNAL, results.get(2).status.getRaftError());
+    }
+
+    @Test
+    public void testFallbackToDirectHeartbeats() throws Exception {
+        List<Result> results = queue(2);
+        nextCall().respond(new Status(RaftError.ENOENT, "Peer id not found"), null);
+        // resent one by one
+        for (int i = 0; i < 2; i++) {
+            final Call call = nextCall();
+            assertEquals(heartbeat("group" + i), call.request);
+            call.respond(Status.OK(), response(i + 1));
+            assertTrue(results.get(i).status.isOk());
+            assertEquals(response(i + 1), results.get(i).getResponse());
+        }
+        assertNoMoreCalls();
+
+        // not coalesced any more
+        queue(2);
+        for (int i = 0; i < 2; i++) {
+            assertEquals(heartbeat("group" + i), nextCall().request);
+        }
+        assertNoMoreCalls();
+    }
+
+    @Test
+    public void testProbeAgainAfterInterval() throws Exception {
+        this.coalescer = new HeartbeatCoalescer(200);
+        queue(2);
+        nextCall().respond(new Status(RaftError.ENOENT, "Peer id not found"), null);
+        nextCall();
+        nextCall();
+        queue(2);
+        assertFalse(HeartbeatCoalescer.isCarrier(nextCall().request));
+        assertFalse(HeartbeatCoalescer.isCarrier(nextCall().request));
+
+        Thread.sleep(300);
+        queue(2);
+        assertTrue(HeartbeatCoalescer.isCarrier(nextCall().request));
+        assertNoMoreCalls();
+    }
+
+    @Test
+    public void testOtherErrorsFailHeartbeats() throws Exception {
+        final List<Result> results = queue(2);
+        nextCall().respond(new Status(RaftError.ETIMEDOUT, "timeout"), null);
+        assertEquals(RaftError.ETIMEDOUT, results.get(0).status.getRaftError());
+        assertEquals(RaftError.ETIMEDOUT, results.get(1).status.getRaftError());
+        assertNoMoreCalls();
+    }
+
+    @Test
+    public void testCancelledHeartbeat() throws Exception {
+        final Result cancelled = new Result();
+        final Future<Message> future = this.coalescer.heartbeat(this.service, this.endpoint, heartbeat("group0"),
+            1000, cancelled);
+        final Result result = new Result();
+        this.coalescer.heartbeat(this.service, this.endpoint, heartbeat("group1"), 1000, result);
+        future.cancel(true);
+
+        nextCall().respond(Status.OK(), HeartbeatCoalescer.newCarrierResponse(Arrays.asList(response(1), response(2))));
+        assertEquals(RaftError.ECANCELED, cancelled.status.getRaftError());
+        assertTrue(result.status.isOk());
+        assertEquals(response(2), result.getResponse());
+    }
+}
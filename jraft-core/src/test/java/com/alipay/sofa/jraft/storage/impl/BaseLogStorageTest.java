@@ -163,6 +163,23 @@ public abstract class BaseLogStorageTest extends BaseStorageTest {
         assertEquals(5, this.logStorage.getTerm(5));
     }
 
+    @Test
+    public void testGetEntries() {
+        final List<LogEntry> entries = TestUtils.mockEntries();
+        assertEquals(10, this.logStorage.appendEntries(entries));
+
+        List<LogEntry> got = this.logStorage.getEntries(2, 5, Long.MAX_VALUE);
+        assertEquals(5, got.size());
+        for (int i = 0; i < 5; i++) {
+            Assert.assertEquals(entries.get(i + 2), got.get(i));
+        }
+        // stops at the last entry
+        assertEquals(3, this.logStorage.getEntries(7, 100, Long.MAX_VALUE).size());
+        // stops when reaching max bytes, but always returns the first one
+        assertEquals(1, this.logStorage.getEntries(2, 5, 1).size());
+        assertTrue(this.logStorage.getEntries(10, 5, Long.MAX_VALUE).isEmpty());
+    }
+
     @Test
     public void testTruncatePrefix() {
         final List<LogEntry> entries = TestUtils.mockEntries();
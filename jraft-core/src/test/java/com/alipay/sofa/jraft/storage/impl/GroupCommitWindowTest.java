@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.jraft.storage.impl;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class GroupCommitWindowTest {
+
+    @Test
+    public void testDisabled() {
+        final GroupCommitWindow window = new GroupCommitWindow(0, 1024);
+        assertFalse(window.isEnabled());
+        window.onGroupStart(0);
+        window.onFlushed(TimeUnit.MILLISECONDS.toNanos(1));
+        assertEquals(0, window.lingerDeadline(0, 0));
+    }
+
+    @Test
+    public void testWindowFollowsFlushLatency() {
+        final GroupCommitWindow window = new GroupCommitWindow(200, 1024);
+        assertTrue(window.isEnabled());
+        // no flush observed yet
+        assertEquals(0, window.windowNanos());
+
+        window.onFlushed(TimeUnit.MICROSECONDS.toNanos(100));
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(50), window.windowNanos());
+
+        // capped by max delay
+        for (int i = 0; i < 100; i++) {
+            window.onFlushed(TimeUnit.MILLISECONDS.toNanos(5));
+        }
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(200), window.windowNanos());
+    }
+
+    @Test
+    public void testLingerDeadline() {
+        final GroupCommitWindow window = new GroupCommitWindow(200, 1024);
+        window.onFlushed(TimeUnit.MILLISECONDS.toNanos(1));
+        final long start = 1000;
+        window.onGroupStart(start);
+        final long deadline = start + TimeUnit.MICROSECONDS.toNanos(200);
+        assertEquals(deadline, window.lingerDeadline(10, start));
+        assertEquals(deadline, window.lingerDeadline(10, deadline - 1));
+        // window elapsed
+        assertEquals(0, window.lingerDeadline(10, deadline));
+        // group is full
+        assertEquals(0, window.lingerDeadline(1024, start));
+    }
+}
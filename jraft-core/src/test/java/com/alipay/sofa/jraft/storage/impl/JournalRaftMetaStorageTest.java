@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.jraft.storage.impl;
+
+import java.io.File;
+import java.io.FileOutputStream;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.alipay.sofa.jraft.core.NodeImpl;
+import com.alipay.sofa.jraft.entity.PeerId;
+import com.alipay.sofa.jraft.option.RaftMetaStorageOptions;
+import com.alipay.sofa.jraft.option.RaftOptions;
+import com.alipay.sofa.jraft.storage.BaseStorageTest;
+import com.alipay.sofa.jraft.storage.RaftMetaStorage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent (agent@local)
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class JournalRaftMetaStorageTest extends BaseStorageTest {
+    private RaftMetaStorage raftMetaStorage;
+
+    @Mock
+    private NodeImpl        node;
+
+    @Override
+    @Before
+    public void setup() throws Exception {
+        super.setup();
+        Mockito.when(this.node.getNodeMetrics()).thenReturn(null);
+        this.raftMetaStorage = newStorage();
+    }
+
+    private RaftMetaStorage newStorage() {
+        final RaftMetaStorage storage = new JournalRaftMetaStorage(this.path, new RaftOptions());
+        assertTrue(storage.init(newOptions()));
+        return storage;
+    }
+
+    private RaftMetaStorageOptions newOptions() {
+        RaftMetaStorageOptions raftMetaStorageOptions = new RaftMetaStorageOptions();
+        raftMetaStorageOptions.setNode(this.node);
+        return raftMetaStorageOptions;
+    }
+
+    @Test
+    public void testGetAndSetReload() {
+        assertEquals(0, this.raftMetaStorage.getTerm());
+        assertTrue(this.raftMetaStorage.getVotedFor().isEmpty());
+
+        this.raftMetaStorage.setTerm(99);
+        assertEquals(99, this.raftMetaStorage.getTerm());
+        assertTrue(this.raftMetaStorage.getVotedFor().isEmpty());
+
+        assertTrue(this.raftMetaStorage.setVotedFor(new PeerId("localhost", 8081)));
+        assertEquals(99, this.raftMetaStorage.getTerm());
+        Assert.assertEquals(new PeerId("localhost", 8081), this.raftMetaStorage.getVotedFor());
+
+        assertTrue(this.raftMetaStorage.setTermAndVotedFor(100, new PeerId("localhost", 8083)));
+
+        // reload without shutdown
+        this.raftMetaStorage = newStorage();
+        assertEquals(100, this.raftMetaStorage.getTerm());
+        Assert.assertEquals(new PeerId("localhost", 8083), this.raftMetaStorage.getVotedFor());
+    }
+
+    @Test
+    public void testCompact() {
+        for (int i = 1; i <= 3000; i++) {
+            assertTrue(this.raftMetaStorage.setTermAndVotedFor(i, new PeerId("localhost", i)));
+        }
+        // compacted at least twice
+        assertTrue(new File(this.path, "raft_meta.journal").length() < 1024 * 40);
+        this.raftMetaStorage = newStorage();
+        assertEquals(3000, this.raftMetaStorage.getTerm());
+        Assert.assertEquals(new PeerId("localhost", 3000), this.raftMetaStorage.getVotedFor());
+    }
+
+    @Test
+    public void testTornTail() throws Exception {
+        assertTrue(this.raftMetaStorage.setTermAndVotedFor(5, new PeerId("localhost", 8081)));
+        try (FileOutputStream out = new FileOutputStream(new File(this.path, "raft_meta.journal"), true)) {
+            out.write(new byte[] { 0, 0, 0, 30, 1, 2, 3 });
+        }
+        this.raftMetaStorage = newStorage();
+        assertEquals(5, this.raftMetaStorage.getTerm());
+        Assert.assertEquals(new PeerId("localhost", 8081), this.raftMetaStorage.getVotedFor());
+        assertTrue(this.raftMetaStorage.setTerm(6));
+        this.raftMetaStorage = newStorage();
+        assertEquals(6, this.raftMetaStorage.getTerm());
+    }
+
+    @Test
+    public void testSwitchWithLocalRaftMetaStorage() {
+        assertTrue(this.raftMetaStorage.setTermAndVotedFor(7, new PeerId("localhost", 8081)));
+        this.raftMetaStorage.shutdown();
+        assertFalse(new File(this.path, "raft_meta.journal").exists());
+
+        this.raftMetaStorage = new LocalRaftMetaStorage(this.path, new RaftOptions());
+        assertTrue(this.raftMetaStorage.init(newOptions()));
+        assertEquals(7, this.raftMetaStorage.getTerm());
+        assertTrue(this.raftMetaStorage.setTerm(8));
+        this.raftMetaStorage.shutdown();
+
+        this.raftMetaStorage = newStorage();
+        assertEquals(8, this.raftMetaStorage.getTerm());
+        Assert.assertEquals(new PeerId("localhost", 8081), this.raftMetaStorage.getVotedFor());
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.jraft.storage.impl;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.alipay.sofa.jraft.entity.LogEntry;
+import com.alipay.sofa.jraft.test.TestUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class LogEntryCacheTest {
+
+    @Test
+    public void testPutAndGet() {
+        final LogEntryCache cache = new LogEntryCache(1024 * 1024);
+        final List<LogEntry> entries = TestUtils.mockEntries();
+        cache.putAll(entries, cache.getGeneration());
+        assertEquals(10, cache.size());
+        for (int i = 0; i < 10; i++) {
+            assertSame(entries.get(i), cache.get(i));
+        }
+        assertNull(cache.get(10));
+    }
+
+    @Test
+    public void testEvictByBytes() {
+        final LogEntryCache cache = new LogEntryCache(3 * (128 + 1024));
+        for (int i = 0; i < 10; i++) {
+            cache.putAll(Collections.singletonList(TestUtils.mockEntry(i, 1, 1024)), cache.getGeneration());
+        }
+        assertEquals(3, cache.size());
+        assertNull(cache.get(6));
+        assertNotNull(cache.get(7));
+        assertNotNull(cache.get(9));
+        assertEquals(3 * (128 + 1024), cache.getBytes());
+    }
+
+    @Test
+    public void testStaleGenerationIsIgnored() {
+        final LogEntryCache cache = new LogEntryCache(1024 * 1024);
+        final long generation = cache.getGeneration();
+        cache.clear();
+        cache.putAll(TestUtils.mockEntries(), generation);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testTruncatePrefix() {
+        final LogEntryCache cache = new LogEntryCache(1024 * 1024);
+        cache.putAll(TestUtils.mockEntries(), cache.getGeneration());
+        cache.truncatePrefix(5);
+        assertEquals(5, cache.size());
+        assertNull(cache.get(4));
+        assertNotNull(cache.get(5));
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.jraft.storage.impl;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import com.alipay.sofa.jraft.entity.EnumOutter;
+import com.alipay.sofa.jraft.entity.LogEntry;
+import com.alipay.sofa.jraft.entity.LogId;
+import com.alipay.sofa.jraft.entity.codec.LogEntryDecoder;
+import com.alipay.sofa.jraft.entity.codec.LogEntryEncoder;
+import com.alipay.sofa.jraft.entity.codec.v2.LogEntryV2CodecFactory;
+import com.alipay.sofa.jraft.entity.codec.v2.LogOutter.PBLogEntry;
+import com.google.protobuf.ZeroByteStringHelper;
+
+/**
+ * Benchmarks the log entry codec on the log write path. Run with the gc profiler
+ * (as {@link #main(String[])} does) and check {@code gc.alloc.rate.norm}: encoding
+ * into a reused heap or direct buffer, which is what the segment log storage does
+ * with its mapped segments, and decoding into a reused entry should allocate
+ * nothing, while {@code protobufEncode} is the former encoder through PBLogEntry.
+ *
+ * It measures the codec only, the log write path is not allocation free. The segment
+ * log storage reuses the encode jobs and the view of the segment buffer, but each
+ * append still allocates a write context, a pending append and a flush task, and the
+ * metrics of the default write pool time each job.
+ *
+ * @author agent (agent@local)
+ */
+@State(Scope.Thread)
+public class LogEntryCodecBenchmark {
+
+    @Param({ "64", "1024", "16384" })
+    private int             logSize;
+
+    private LogEntryEncoder encoder;
+    private LogEntryDecoder decoder;
+    private LogEntry        entry;
+    private LogEntry        reusedEntry;
+    private ByteBuffer      heapBuf;
+    private ByteBuffer      directBuf;
+    private ByteBuffer      encoded;
+
+    @Setup
+    public void setup() {
+        this.encoder = LogEntryV2CodecFactory.getInstance().encoder();
+        this.decoder = LogEntryV2CodecFactory.getInstance().decoder();
+        final byte[] data = new byte[this.logSize];
+        ThreadLocalRandom.current().nextBytes(data);
+        this.entry = new LogEntry(EnumOutter.EntryType.ENTRY_TYPE_DATA);
+        this.entry.setId(new LogId(1000000, 10));
+        this.entry.setData(ByteBuffer.wrap(data));
+        this.entry.setChecksum(this.entry.checksum());
+
+        final int size = this.encoder.encodedSize(this.entry);
+        this.heapBuf = ByteBuffer.allocate(size);
+        this.directBuf = ByteBuffer.allocateDirect(size);
+        this.encoded = ByteBuffer.wrap(this.encoder.encode(this.entry));
+        this.reusedEntry = new LogEntry();
+        this.reusedEntry.setData(ByteBuffer.allocate(this.logSize));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public byte[] protobufEncode() {
+        final PBLogEntry pbLogEntry = PBLogEntry.newBuilder() //
+            .setType(this.entry.getType()) //
+            .setIndex(this.entry.getId().getIndex()) //
+            .setTerm(this.entry.getId().getTerm()) //
+            .setChecksum(this.entry.getChecksum()) //
+            .setData(ZeroByteStringHelper.wrap(this.entry.getData())) //
+            .build();
+        final byte[] body = pbLogEntry.toByteArray();
+        final byte[] ret = new byte[LogEntryV2CodecFactory.HEADER_SIZE + body.length];
+        System.arraycopy(body, 0, ret, LogEntryV2CodecFactory.HEADER_SIZE, body.length);
+        return ret;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public byte[] encodeToArray() {
+        return this.encoder.encode(this.entry);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void encodeToHeapBuffer(final Blackhole bh) {
+        this.heapBuf.clear();
+        this.encoder.encode(this.entry, this.heapBuf);
+        bh.consume(this.heapBuf);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void encodeToDirectBuffer(final Blackhole bh) {
+        this.directBuf.clear();
+        this.encoder.encode(this.entry, this.directBuf);
+        bh.consume(this.directBuf);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public LogEntry decode() {
+        return this.decoder.decode(this.encoded.array());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public boolean decodeIntoReusedEntry() {
+        return this.decoder.decode(this.encoded, this.reusedEntry);
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        final Options opt = new OptionsBuilder() //
+            .include(LogEntryCodecBenchmark.class.getSimpleName()) //
+            .addProfiler(GCProfiler.class) //
+            .warmupIterations(3) //
+            .warmupTime(TimeValue.seconds(5)) //
+            .measurementIterations(3) //
+            .measurementTime(TimeValue.seconds(5)) //
+            .forks(1) //
+            .build();
+
+        new Runner(opt).run();
+    }
+}
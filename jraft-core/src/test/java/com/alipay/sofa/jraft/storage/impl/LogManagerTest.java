@@ -39,6 +39,7 @@ import com.alipay.sofa.jraft.entity.LogEntry;
 import com.alipay.sofa.jraft.entity.LogId;
 import com.alipay.sofa.jraft.entity.RaftOutter;
 import com.alipay.sofa.jraft.entity.codec.v2.LogEntryV2CodecFactory;
+import com.alipay.sofa.jraft.error.LogEntryCorruptedException;
 import com.alipay.sofa.jraft.option.LogManagerOptions;
 import com.alipay.sofa.jraft.option.RaftOptions;
 import com.alipay.sofa.jraft.storage.BaseStorageTest;
@@ -80,7 +81,7 @@ public class LogManagerTest extends BaseStorageTest {
         assertTrue(this.logManager.init(opts));
     }
 
-    protected RocksDBLogStorage newLogStorage(final RaftOptions raftOptions) {
+    protected LogStorage newLogStorage(final RaftOptions raftOptions) {
         return new RocksDBLogStorage(this.path, raftOptions);
     }
 
@@ -407,4 +408,51 @@ public class LogManagerTest extends BaseStorageTest {
         assertEquals("localhost:8081,localhost:8082", lastEntry.getOldConf().toString());
     }
 
+
+    @Test
+    public void testCacheVerifiedEntriesOnly() throws Exception {
+        // Stores the entries with a corrupted one in the middle, bypassing the log manager.
+        final List<LogEntry> entries = new ArrayList<>();
+        for (int i = 1; i <= 10; i++) {
+            final LogEntry entry = TestUtils.mockEntry(i, 1, 16);
+            entry.setChecksum(i == 5 ? entry.checksum() + 1 : entry.checksum());
+            entries.add(entry);
+        }
+        assertEquals(10, this.logStorage.appendEntries(entries));
+        this.logManager.shutdown();
+        this.logManager.join();
+        this.logStorage.shutdown();
+
+        final RaftOptions raftOptions = new RaftOptions();
+        raftOptions.setEnableLogEntryChecksum(true);
+        raftOptions.setLogEntryCacheBytes(1024 * 1024);
+        this.logStorage = newLogStorage(raftOptions);
+        this.logManager = new LogManagerImpl();
+        final LogManagerOptions opts = new LogManagerOptions();
+        opts.setConfigurationManager(this.confManager);
+        opts.setLogEntryCodecFactory(LogEntryV2CodecFactory.getInstance());
+        opts.setFsmCaller(this.fsmCaller);
+        opts.setNodeMetrics(new NodeMetrics(false));
+        opts.setLogStorage(this.logStorage);
+        opts.setRaftOptions(raftOptions);
+        assertTrue(this.logManager.init(opts));
+        assertEquals(10, this.logManager.getLastLogIndex());
+
+        // Reads ahead all the entries, but the ones since the corrupted entry are not cached.
+        assertEquals(entries.get(0), this.logManager.getEntry(1));
+        assertEquals(entries.get(3), this.logManager.getEntry(4));
+        try {
+            this.logManager.getEntry(5);
+            Assert.fail();
+        } catch (final LogEntryCorruptedException e) {
+            // expected
+        }
+        try {
+            this.logManager.getEntries(1, 10);
+            Assert.fail();
+        } catch (final LogEntryCorruptedException e) {
+            // expected
+        }
+        assertEquals(entries.get(5), this.logManager.getEntry(6));
+    }
 }
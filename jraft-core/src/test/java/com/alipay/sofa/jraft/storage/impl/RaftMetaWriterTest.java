@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.jraft.storage.impl;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.alipay.sofa.jraft.entity.PeerId;
+import com.alipay.sofa.jraft.storage.RaftMetaStorage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent (agent@local)
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class RaftMetaWriterTest {
+
+    @Mock
+    private RaftMetaStorage metaStorage;
+    private ExecutorService executor;
+    private RaftMetaWriter  writer;
+
+    @Before
+    public void setup() {
+        this.executor = Executors.newSingleThreadExecutor();
+        this.writer = new RaftMetaWriter(this.metaStorage, this.executor);
+    }
+
+    @After
+    public void teardown() {
+        this.executor.shutdownNow();
+    }
+
+    @Test
+    public void testWrite() {
+        final PeerId peer = new PeerId("localhost", 8081);
+        Mockito.when(this.metaStorage.setTermAndVotedFor(2, peer)).thenReturn(true);
+        assertTrue(this.writer.write(2, peer));
+        Mockito.verify(this.metaStorage).setTermAndVotedFor(2, peer);
+    }
+
+    @Test
+    public void testWriteFailed() {
+        Mockito.when(this.metaStorage.setTermAndVotedFor(Mockito.anyLong(), Mockito.any())).thenReturn(false);
+        assertFalse(this.writer.write(2, PeerId.emptyPeer()));
+    }
+
+    @Test
+    public void testCoalesceWrites() throws Exception {
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        Mockito.when(this.metaStorage.setTermAndVotedFor(Mockito.anyLong(), Mockito.any())).thenAnswer(invocation -> {
+            blocked.countDown();
+            release.await();
+            return true;
+        });
+        this.writer.submit(1, PeerId.emptyPeer());
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        for (int i = 2; i <= 10; i++) {
+            this.writer.submit(i, PeerId.emptyPeer());
+        }
+        assertEquals(10, this.writer.getSubmittedVersion());
+        release.countDown();
+        assertTrue(this.writer.flush());
+        Mockito.verify(this.metaStorage).setTermAndVotedFor(1, PeerId.emptyPeer());
+        Mockito.verify(this.metaStorage).setTermAndVotedFor(10, PeerId.emptyPeer());
+        Mockito.verify(this.metaStorage, Mockito.times(2)).setTermAndVotedFor(Mockito.anyLong(), Mockito.any());
+    }
+
+    @Test
+    public void testShutdown() throws Exception {
+        Mockito.when(this.metaStorage.setTermAndVotedFor(Mockito.anyLong(), Mockito.any())).thenReturn(true);
+        this.writer.submit(3, PeerId.emptyPeer());
+        this.writer.shutdown();
+        this.writer.join();
+        Mockito.verify(this.metaStorage).setTermAndVotedFor(3, PeerId.emptyPeer());
+        Mockito.verify(this.metaStorage).shutdown();
+        assertEquals(0, this.writer.submit(4, PeerId.emptyPeer()));
+    }
+}
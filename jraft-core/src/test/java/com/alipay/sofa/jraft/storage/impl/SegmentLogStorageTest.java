@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.jraft.storage.impl;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import com.alipay.sofa.jraft.entity.LogEntry;
+import com.alipay.sofa.jraft.option.RaftOptions;
+import com.alipay.sofa.jraft.storage.LogStorage;
+import com.alipay.sofa.jraft.storage.log.SegmentLogStorage;
+import com.alipay.sofa.jraft.test.TestUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SegmentLogStorageTest extends BaseLogStorageTest {
+
+    @Override
+    protected LogStorage newLogStorage() {
+        return new SegmentLogStorage(this.path, new RaftOptions(), 1024 * 1024);
+    }
+
+    private LogStorage newSmallSegmentLogStorage(final String path) {
+        final LogStorage logStorage = new SegmentLogStorage(path, new RaftOptions(), 256);
+        assertTrue(logStorage.init(newLogStorageOptions()));
+        return logStorage;
+    }
+
+    @Test
+    public void testTruncateAcrossSegmentsAndReload() {
+        this.logStorage.shutdown();
+        this.logStorage = newSmallSegmentLogStorage(this.path);
+        for (int i = 1; i <= 100; i++) {
+            assertTrue(this.logStorage.appendEntry(TestUtils.mockEntry(i, 1, 50)));
+        }
+        assertTrue(this.logStorage.truncateSuffix(60));
+        assertTrue(this.logStorage.truncatePrefix(20));
+        assertEquals(20, this.logStorage.getFirstLogIndex());
+        assertEquals(60, this.logStorage.getLastLogIndex());
+        assertNull(this.logStorage.getEntry(61));
+        for (int i = 61; i <= 70; i++) {
+            assertTrue(this.logStorage.appendEntry(TestUtils.mockEntry(i, 2, 50)));
+        }
+
+        this.logStorage.shutdown();
+        this.logStorage = newSmallSegmentLogStorage(this.path);
+        assertEquals(20, this.logStorage.getFirstLogIndex());
+        assertEquals(70, this.logStorage.getLastLogIndex());
+        assertNull(this.logStorage.getEntry(19));
+        for (int i = 20; i <= 70; i++) {
+            final LogEntry entry = this.logStorage.getEntry(i);
+            assertNotNull(entry);
+            assertEquals(i > 60 ? 2 : 1, entry.getId().getTerm());
+        }
+    }
+
+    @Test
+    public void testRecoverAfterAbnormalExit() throws Exception {
+        final List<LogEntry> entries = TestUtils.mockEntries(50);
+        assertEquals(50, this.logStorage.appendEntries(entries));
+        // Copy the files of a running storage, it looks like the process exited abnormally.
+        final String copyPath = TestUtils.mkTempDir();
+        FileUtils.copyDirectory(new File(this.path), new File(copyPath));
+        assertTrue(new File(copyPath, "abort").exists());
+
+        final LogStorage recovered = newSmallSegmentLogStorage(copyPath);
+        try {
+            assertEquals(0, recovered.getFirstLogIndex());
+            assertEquals(49, recovered.getLastLogIndex());
+            for (int i = 0; i < 50; i++) {
+                assertEquals(entries.get(i), recovered.getEntry(i));
+            }
+            assertTrue(recovered.appendEntry(TestUtils.mockEntry(50, 50)));
+            assertEquals(50, recovered.getLastLogIndex());
+        } finally {
+            recovered.shutdown();
+            FileUtils.deleteDirectory(new File(copyPath));
+        }
+    }
+
+    @Test
+    public void testAppendEntriesAsync() throws Exception {
+        final int batches = 10;
+        final List<Integer> appended = new ArrayList<>();
+        final CountDownLatch latch = new CountDownLatch(batches);
+        for (int i = 0; i < batches; i++) {
+            final List<LogEntry> entries = new ArrayList<>();
+            for (int j = 0; j < 10; j++) {
+                entries.add(TestUtils.mockEntry(i * 10 + j, 1));
+            }
+            this.logStorage.appendEntriesAsync(entries, n -> {
+                synchronized (appended) {
+                    appended.add(n);
+                }
+                // The entries are readable once the callback is called.
+                assertNotNull(this.logStorage.getEntry(entries.get(n - 1).getId().getIndex()));
+                latch.countDown();
+            });
+        }
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(batches, appended.size());
+        for (final int n : appended) {
+            assertEquals(10, n);
+        }
+        assertEquals(0, this.logStorage.getFirstLogIndex());
+        assertEquals(99, this.logStorage.getLastLogIndex());
+        assertTrue(this.logStorage.truncateSuffix(49));
+        assertEquals(49, this.logStorage.getLastLogIndex());
+    }
+}
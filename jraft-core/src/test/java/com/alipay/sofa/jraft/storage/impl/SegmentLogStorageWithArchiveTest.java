@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.jraft.storage.impl;
+
+import java.io.File;
+
+import org.junit.Test;
+
+import com.alipay.sofa.jraft.entity.LogEntry;
+import com.alipay.sofa.jraft.option.LogArchiveOptions;
+import com.alipay.sofa.jraft.option.RaftOptions;
+import com.alipay.sofa.jraft.storage.LogStorage;
+import com.alipay.sofa.jraft.storage.log.FileLogArchiveStore;
+import com.alipay.sofa.jraft.storage.log.SegmentLogStorage;
+import com.alipay.sofa.jraft.test.TestUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SegmentLogStorageWithArchiveTest extends BaseLogStorageTest {
+
+    private FileLogArchiveStore archiveStore;
+
+    @Override
+    protected LogStorage newLogStorage() {
+        this.archiveStore = new FileLogArchiveStore(this.path + File.separator + "archive", false);
+        final LogArchiveOptions archiveOpts = new LogArchiveOptions();
+        archiveOpts.setArchiveStore(this.archiveStore);
+        archiveOpts.setHotSegments(1);
+        archiveOpts.setMaxPendingSegments(2);
+        archiveOpts.setBlockBytes(512);
+        return new SegmentLogStorage(this.path, new RaftOptions(), 1024, null, archiveOpts);
+    }
+
+    private void waitForArchived(final int minObjects) throws Exception {
+        for (int i = 0; i < 100 && this.archiveStore.list().size() < minObjects; i++) {
+            Thread.sleep(50);
+        }
+        assertTrue(this.archiveStore.list().size() >= minObjects);
+    }
+
+    @Test
+    public void testReadArchivedLogs() throws Exception {
+        for (int i = 1; i <= 200; i++) {
+            assertTrue(this.logStorage.appendEntry(TestUtils.mockEntry(i, 1, 50)));
+        }
+        waitForArchived(4);
+        assertEquals(1, this.logStorage.getFirstLogIndex());
+        assertEquals(200, this.logStorage.getLastLogIndex());
+        for (int i = 1; i <= 200; i++) {
+            final LogEntry entry = this.logStorage.getEntry(i);
+            assertNotNull(entry);
+            assertEquals(i, entry.getId().getIndex());
+        }
+
+        this.logStorage.shutdown();
+        this.logStorage = newLogStorage();
+        assertTrue(this.logStorage.init(newLogStorageOptions()));
+        assertEquals(1, this.logStorage.getFirstLogIndex());
+        assertEquals(200, this.logStorage.getLastLogIndex());
+        for (int i = 1; i <= 200; i++) {
+            assertEquals(i, this.logStorage.getEntry(i).getId().getIndex());
+        }
+    }
+
+    @Test
+    public void testTruncateArchivedLogs() throws Exception {
+        for (int i = 1; i <= 200; i++) {
+            assertTrue(this.logStorage.appendEntry(TestUtils.mockEntry(i, 1, 50)));
+        }
+        waitForArchived(4);
+        assertTrue(this.logStorage.truncatePrefix(20));
+        assertEquals(20, this.logStorage.getFirstLogIndex());
+        assertNull(this.logStorage.getEntry(19));
+        assertNotNull(this.logStorage.getEntry(20));
+
+        // Truncates into the archived logs and appends again.
+        assertTrue(this.logStorage.truncateSuffix(30));
+        assertEquals(30, this.logStorage.getLastLogIndex());
+        assertNull(this.logStorage.getEntry(31));
+        for (int i = 31; i <= 40; i++) {
+            assertTrue(this.logStorage.appendEntry(TestUtils.mockEntry(i, 2, 50)));
+        }
+
+        this.logStorage.shutdown();
+        this.logStorage = newLogStorage();
+        assertTrue(this.logStorage.init(newLogStorageOptions()));
+        assertEquals(20, this.logStorage.getFirstLogIndex());
+        assertEquals(40, this.logStorage.getLastLogIndex());
+        for (int i = 20; i <= 40; i++) {
+            assertEquals(i > 30 ? 2 : 1, this.logStorage.getEntry(i).getId().getTerm());
+        }
+    }
+
+    @Test
+    public void testLocalSegmentsBounded() throws Exception {
+        // Every large log takes a segment of its own, the appender archives the cold ones itself.
+        for (int i = 1; i <= 200; i++) {
+            assertTrue(this.logStorage.appendEntry(TestUtils.mockEntry(i, 1, 2048)));
+            final File[] segments = new File(this.path).listFiles((dir, name) -> name.endsWith(".s"));
+            assertNotNull(segments);
+            // 1 hot and 2 pending segments, and the one which the background archiving is deleting.
+            assertTrue(segments.length <= 4);
+        }
+        for (int i = 1; i <= 200; i++) {
+            assertEquals(i, this.logStorage.getEntry(i).getId().getIndex());
+        }
+    }
+}
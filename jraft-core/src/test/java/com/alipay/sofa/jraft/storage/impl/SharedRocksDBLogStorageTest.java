@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.jraft.storage.impl;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.alipay.sofa.jraft.entity.LogEntry;
+import com.alipay.sofa.jraft.option.RaftOptions;
+import com.alipay.sofa.jraft.storage.LogStorage;
+import com.alipay.sofa.jraft.test.TestUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class SharedRocksDBLogStorageTest extends BaseLogStorageTest {
+
+    private RocksDBSharedLogEngine engine;
+
+    @Override
+    protected LogStorage newLogStorage() {
+        this.engine = new RocksDBSharedLogEngine(this.path, new RaftOptions());
+        return this.engine.createLogStorage("group1");
+    }
+
+    @Test
+    public void testGroupsAreIsolated() {
+        final LogStorage other = this.engine.createLogStorage("group2");
+        try {
+            Assert.assertTrue(other.init(newLogStorageOptions()));
+            final List<LogEntry> entries = TestUtils.mockEntries();
+            assertEquals(10, this.logStorage.appendEntries(entries));
+            assertEquals(0, other.getLastLogIndex());
+            assertNull(other.getEntry(1));
+
+            assertEquals(10, other.appendEntries(TestUtils.mockEntries()));
+            this.logStorage.truncateSuffix(5);
+            assertEquals(5, this.logStorage.getLastLogIndex());
+            assertEquals(9, other.getLastLogIndex());
+
+            other.reset(3);
+            assertEquals(3, other.getFirstLogIndex());
+            assertEquals(3, other.getLastLogIndex());
+            assertEquals(5, this.logStorage.getLastLogIndex());
+            for (int i = 0; i <= 5; i++) {
+                Assert.assertEquals(entries.get(i), this.logStorage.getEntry(i));
+            }
+        } finally {
+            other.shutdown();
+        }
+    }
+
+    @Test
+    public void testReloadGroup() {
+        final List<LogEntry> entries = TestUtils.mockEntries();
+        assertEquals(10, this.logStorage.appendEntries(entries));
+        this.logStorage.truncatePrefix(3);
+        this.logStorage.shutdown();
+
+        this.logStorage = this.engine.createLogStorage("group1");
+        Assert.assertTrue(this.logStorage.init(newLogStorageOptions()));
+        assertEquals(3, this.logStorage.getFirstLogIndex());
+        assertEquals(9, this.logStorage.getLastLogIndex());
+        Assert.assertEquals(entries.get(9), this.logStorage.getEntry(9));
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.jraft.storage.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+import com.alipay.sofa.jraft.rpc.RpcRequests.GetFileRequest;
+import com.alipay.sofa.jraft.rpc.RpcRequests.GetFileResponse;
+import com.google.protobuf.ByteString;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class FileChunkCodecsTest {
+
+    private static GetFileRequest newRequest(final String codecName) {
+        final GetFileRequest.Builder rb = GetFileRequest.newBuilder() //
+            .setReaderId(99) //
+            .setFilename("data") //
+            .setOffset(0) //
+            .setCount(4096);
+        if (codecName != null) {
+            rb.setCodec(codecName);
+        }
+        return rb.build();
+    }
+
+    @Test
+    public void testLoadCodec() {
+        assertNotNull(FileChunkCodecs.getCodec(DeflateFileChunkCodec.NAME));
+        assertNull(FileChunkCodecs.getCodec("unknown"));
+        assertNull(FileChunkCodecs.getCodec(null));
+    }
+
+    @Test
+    public void testCompressedRoundTrip() throws Exception {
+        final byte[] data = new byte[4096];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i % 7);
+        }
+        final GetFileRequest request = GetFileRequest.parseFrom(newRequest(DeflateFileChunkCodec.NAME).toByteArray());
+        assertEquals(DeflateFileChunkCodec.NAME, request.getCodec());
+
+        final GetFileResponse.Builder builder = GetFileResponse.newBuilder().setEof(true);
+        FileChunkCodecs.setData(builder, request, ByteBuffer.wrap(data));
+        final GetFileResponse response = GetFileResponse.parseFrom(builder.build().toByteArray());
+        assertEquals(DeflateFileChunkCodec.NAME, response.getCodec());
+        assertTrue(response.getData().size() < data.length);
+        assertArrayEquals(data, FileChunkCodecs.getData(response, 4096).toByteArray());
+    }
+
+    @Test
+    public void testRawData() throws Exception {
+        final byte[] data = "jraft is great!".getBytes();
+        // no codec requested
+        GetFileResponse.Builder builder = GetFileResponse.newBuilder().setEof(true);
+        FileChunkCodecs.setData(builder, newRequest(null), ByteBuffer.wrap(data));
+        GetFileResponse response = builder.build();
+        assertFalse(response.hasCodec());
+        assertArrayEquals(data, FileChunkCodecs.getData(response, 4096).toByteArray());
+
+        // unknown codec
+        builder = GetFileResponse.newBuilder().setEof(true);
+        FileChunkCodecs.setData(builder, newRequest("unknown"), ByteBuffer.wrap(data));
+        response = builder.build();
+        assertFalse(response.hasCodec());
+        assertArrayEquals(data, FileChunkCodecs.getData(response, 4096).toByteArray());
+
+        // empty data
+        builder = GetFileResponse.newBuilder().setEof(true);
+        FileChunkCodecs.setData(builder, newRequest(DeflateFileChunkCodec.NAME), ByteBuffer.allocate(0));
+        response = builder.build();
+        assertEquals(ByteString.EMPTY, response.getData());
+    }
+
+    @Test
+    public void testRejectOversizedChunk() throws Exception {
+        final byte[] data = new byte[4096];
+        final GetFileResponse.Builder builder = GetFileResponse.newBuilder().setEof(true);
+        FileChunkCodecs.setData(builder, newRequest(DeflateFileChunkCodec.NAME), ByteBuffer.wrap(data));
+        final GetFileResponse response = builder.build();
+        assertEquals(DeflateFileChunkCodec.NAME, response.getCodec());
+        // more than requested
+        try {
+            FileChunkCodecs.getData(response, 4095);
+            fail();
+        } catch (final IOException e) {
+            assertTrue(e.getMessage().startsWith("Invalid compressed chunk size"));
+        }
+        // a corrupt raw size is rejected before allocating
+        final ByteBuffer corrupt = response.getData().asReadOnlyByteBuffer().duplicate();
+        final ByteBuffer buf = ByteBuffer.allocate(corrupt.remaining());
+        buf.put(corrupt).putInt(0, Integer.MAX_VALUE).flip();
+        try {
+            FileChunkCodecs.getData(response.toBuilder().setData(ByteString.copyFrom(buf)).build(), Long.MAX_VALUE);
+            fail();
+        } catch (final IOException e) {
+            assertTrue(e.getMessage().startsWith("Invalid compressed chunk size"));
+        }
+    }
+}
@@ -17,11 +17,15 @@
 package com.alipay.sofa.jraft.storage.io;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 
 import org.apache.commons.io.FileUtils;
 import org.junit.Before;
@@ -103,4 +107,74 @@ public class LocalFileReaderTest extends BaseStorageTest {
         assertEquals(data, new String(bs));
 
     }
+
+    @Test
+    public void testReadFileChunk() throws Exception {
+        final File file = new File(this.path + File.separator + "data");
+        final byte[] data = new byte[256 * 1024];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        FileUtils.writeByteArrayToFile(file, data);
+
+        // small chunk is read into heap
+        FileChunk chunk = this.fileReader.readFileChunk("data", 0, 1024);
+        assertFalse(chunk.getData() instanceof MappedByteBuffer);
+        assertFalse(chunk.isEof());
+        assertChunkData(data, 0, chunk.getData());
+
+        // large chunk is mapped
+        chunk = this.fileReader.readFileChunk("data", 1024, 128 * 1024);
+        assertTrue(chunk.getData() instanceof MappedByteBuffer);
+        assertFalse(chunk.isEof());
+        assertChunkData(data, 1024, chunk.getData());
+
+        chunk = this.fileReader.readFileChunk("data", 1024 + 128 * 1024, 1024 * 1024);
+        assertTrue(chunk.isEof());
+        assertChunkData(data, 1024 + 128 * 1024, chunk.getData());
+
+        chunk = this.fileReader.readFileChunk("data", data.length, 1024);
+        assertTrue(chunk.isEof());
+        assertEquals(0, chunk.getData().remaining());
+
+        this.fileReader.close();
+        try {
+            this.fileReader.readFileChunk("data", 0, 1024);
+            fail();
+        } catch (final IOException e) {
+
+        }
+    }
+
+    @Test
+    public void testReadFileChunksSlicedFromMapping() throws Exception {
+        final File file = new File(this.path + File.separator + "data");
+        final byte[] data = new byte[1024 * 1024 + 100];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i * 31);
+        }
+        FileUtils.writeByteArrayToFile(file, data);
+
+        final int chunkSize = 64 * 1024;
+        int offset = 0;
+        while (true) {
+            final FileChunk chunk = this.fileReader.readFileChunk("data", offset, chunkSize);
+            final ByteBuffer buf = chunk.getData();
+            assertEquals(0, buf.position());
+            assertEquals(Math.min(chunkSize, data.length - offset), buf.remaining());
+            assertChunkData(data, offset, buf);
+            offset += buf.remaining();
+            if (chunk.isEof()) {
+                break;
+            }
+        }
+        assertEquals(data.length, offset);
+    }
+
+    private void assertChunkData(final byte[] data, final int offset, final ByteBuffer buf) {
+        final int len = buf.remaining();
+        for (int i = 0; i < len; i++) {
+            assertEquals(data[offset + i], buf.get(i));
+        }
+    }
 }
@@ -29,6 +29,7 @@ import org.mockito.Mockito;
 import org.mockito.runners.MockitoJUnitRunner;
 
 import com.alipay.sofa.jraft.Status;
+import com.alipay.sofa.jraft.StreamingSnapshotStateMachine;
 import com.alipay.sofa.jraft.core.Scheduler;
 import com.alipay.sofa.jraft.core.TimerManager;
 import com.alipay.sofa.jraft.entity.LocalFileMetaOutter;
@@ -164,8 +165,29 @@ public class LocalSnapshotCopierTest extends BaseStorageTest {
     }
 
     @Test
-    @SuppressWarnings({ "rawtypes", "unchecked" })
     public void testStartJoinFinishOK() throws Exception {
+        startJoinFinishOK();
+    }
+
+    @Test
+    public void testStartJoinFinishOKWithStreaming() throws Exception {
+        final StreamingSnapshotStateMachine fsm = Mockito.mock(StreamingSnapshotStateMachine.class);
+        final NodeOptions nodeOptions = new NodeOptions();
+        nodeOptions.setFsm(fsm);
+        this.copier.close();
+        this.copier = new LocalSnapshotCopier();
+        assertTrue(this.copier.init(this.uri, new SnapshotCopierOptions(this.raftClientService, this.timerManager,
+            this.raftOptions, nodeOptions)));
+        this.copier.setStorage(this.snapshotStorage);
+
+        startJoinFinishOK();
+        Mockito.verify(fsm).onSnapshotStreamStart(this.table.getMeta());
+        Mockito.verify(fsm).onSnapshotFileReceived(this.path, "testFile", this.writer.getFileMeta("testFile"));
+        Mockito.verify(fsm, Mockito.never()).onSnapshotStreamAborted(Mockito.any(Status.class));
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private void startJoinFinishOK() throws Exception {
         final FutureImpl<Message> future = new FutureImpl<>();
         final RpcRequests.GetFileRequest.Builder rb = RpcRequests.GetFileRequest.newBuilder().setReaderId(99)
             .setFilename(Snapshot.JRAFT_SNAPSHOT_META_FILE).setCount(Integer.MAX_VALUE).setOffset(0)
@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.jraft.storage.snapshot.local;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.alipay.sofa.jraft.storage.BaseStorageTest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SnapshotFileBlocksTest extends BaseStorageTest {
+
+    @Override
+    @Before
+    public void setup() throws Exception {
+        super.setup();
+    }
+
+    private String writeFile(final String name, final byte[] data) throws Exception {
+        final File file = new File(this.path + File.separator + name);
+        FileUtils.writeByteArrayToFile(file, data);
+        return file.getAbsolutePath();
+    }
+
+    @Test
+    public void testComputeAndCompare() throws Exception {
+        final byte[] data = new byte[1000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        final SnapshotFileBlocks blocks = SnapshotFileBlocks.compute(writeFile("a", data), 128);
+        assertEquals(8, blocks.getBlockCount());
+        assertEquals(1000, blocks.getFileSize());
+        assertEquals(896, blocks.getBlockOffset(7));
+        assertEquals(104, blocks.getBlockLength(7));
+
+        // change the second block and append some bytes
+        final byte[] changed = new byte[1100];
+        System.arraycopy(data, 0, changed, 0, data.length);
+        changed[200] = 0;
+        final SnapshotFileBlocks changedBlocks = SnapshotFileBlocks.compute(writeFile("b", changed), 128);
+        assertEquals(9, changedBlocks.getBlockCount());
+        for (int i = 0; i < changedBlocks.getBlockCount(); i++) {
+            if (i == 1 || i >= 7) {
+                assertFalse(changedBlocks.isSameBlock(blocks, i));
+            } else {
+                assertTrue(changedBlocks.isSameBlock(blocks, i));
+            }
+        }
+    }
+
+    @Test
+    public void testEncodeDecode() throws Exception {
+        final SnapshotFileBlocks blocks = SnapshotFileBlocks.compute(writeFile("a", new byte[300]), 128);
+        final SnapshotFileBlocks decoded = SnapshotFileBlocks.decode(blocks.encode());
+        assertNotNull(decoded);
+        assertEquals(blocks.getBlockSize(), decoded.getBlockSize());
+        assertEquals(blocks.getFileSize(), decoded.getFileSize());
+        assertEquals(blocks.getBlockCount(), decoded.getBlockCount());
+        for (int i = 0; i < blocks.getBlockCount(); i++) {
+            assertTrue(decoded.isSameBlock(blocks, i));
+        }
+
+        final SnapshotFileBlocks empty = SnapshotFileBlocks.decode(SnapshotFileBlocks.compute(
+            writeFile("empty", new byte[0]), 128).encode());
+        assertNotNull(empty);
+        assertEquals(0, empty.getBlockCount());
+
+        final ByteBuffer bad = blocks.encode();
+        bad.limit(bad.limit() - 1);
+        assertNull(SnapshotFileBlocks.decode(bad));
+    }
+}
@@ -24,12 +24,16 @@ import org.junit.Before;
 import org.junit.Test;
 
 import com.alipay.sofa.jraft.entity.LocalFileMetaOutter;
+import com.alipay.sofa.jraft.error.RetryAgainException;
 import com.alipay.sofa.jraft.option.RaftOptions;
 import com.alipay.sofa.jraft.storage.BaseStorageTest;
 import com.alipay.sofa.jraft.storage.snapshot.Snapshot;
 import com.alipay.sofa.jraft.util.ByteBufferCollector;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 public class SnapshotFileReaderTest extends BaseStorageTest {
@@ -88,4 +92,38 @@ public class SnapshotFileReaderTest extends BaseStorageTest {
         assertEquals(data, new String(bs));
 
     }
+
+    @Test
+    public void testReadFileBlocks() throws Exception {
+        final String data = writeData();
+        addDataMeta();
+
+        final ByteBufferCollector bufRef = ByteBufferCollector.allocate(0);
+        // The blocks are computed in background, retry until it's done.
+        int retries = 0;
+        while (true) {
+            try {
+                assertEquals(-1,
+                    this.reader.readFile(bufRef, "data" + SnapshotFileBlocks.FILE_SUFFIX, 0, Integer.MAX_VALUE));
+                break;
+            } catch (final RetryAgainException e) {
+                assertTrue(++retries < 1000);
+                Thread.sleep(10);
+            }
+        }
+        final ByteBuffer buf = bufRef.getBuffer();
+        buf.flip();
+        final SnapshotFileBlocks blocks = SnapshotFileBlocks.decode(buf);
+        assertNotNull(blocks);
+        assertEquals(data.length(), blocks.getFileSize());
+        assertEquals(1, blocks.getBlockCount());
+        assertNull(this.reader.readFileChunk("data" + SnapshotFileBlocks.FILE_SUFFIX, 0, Integer.MAX_VALUE));
+
+        try {
+            this.reader.readFile(bufRef, "unfound" + SnapshotFileBlocks.FILE_SUFFIX, 0, Integer.MAX_VALUE);
+            fail();
+        } catch (final FileNotFoundException e) {
+
+        }
+    }
 }
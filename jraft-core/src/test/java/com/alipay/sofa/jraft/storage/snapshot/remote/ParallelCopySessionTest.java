@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.jraft.storage.snapshot.remote;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Matchers;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.alipay.sofa.jraft.Status;
+import com.alipay.sofa.jraft.core.TimerManager;
+import com.alipay.sofa.jraft.error.RaftError;
+import com.alipay.sofa.jraft.rpc.RaftClientService;
+import com.alipay.sofa.jraft.rpc.RpcRequests;
+import com.alipay.sofa.jraft.rpc.RpcResponseClosure;
+import com.alipay.sofa.jraft.rpc.impl.FutureImpl;
+import com.alipay.sofa.jraft.test.TestUtils;
+import com.alipay.sofa.jraft.util.Endpoint;
+import com.alipay.sofa.jraft.util.Utils;
+import com.google.protobuf.ByteString;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(value = MockitoJUnitRunner.class)
+public class ParallelCopySessionTest {
+    @Mock
+    private RaftClientService         rpcService;
+    private final Endpoint            address     = new Endpoint("localhost", 8081);
+    private TimerManager              timerManager;
+    private String                    path;
+    private final Map<String, byte[]> remoteFiles = new HashMap<>();
+
+    @Before
+    public void setup() {
+        this.timerManager = new TimerManager(5);
+        this.path = TestUtils.mkTempDir();
+        new File(this.path).mkdirs();
+    }
+
+    @After
+    public void teardown() throws Exception {
+        this.timerManager.shutdown();
+        Utils.delete(new File(this.path));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void mockRemoteFiles(final int failTimes) {
+        final AtomicInteger fails = new AtomicInteger(failTimes);
+        Mockito.when(
+            this.rpcService.getFile(Matchers.eq(this.address), Matchers.any(RpcRequests.GetFileRequest.class),
+                Matchers.anyLong(), Matchers.any(RpcResponseClosure.class))).thenAnswer(invocation -> {
+            final RpcRequests.GetFileRequest request = (RpcRequests.GetFileRequest) invocation.getArguments()[1];
+            final RpcResponseClosure<RpcRequests.GetFileResponse> done = (RpcResponseClosure<RpcRequests.GetFileResponse>) invocation
+                .getArguments()[3];
+            if (fails.getAndDecrement() > 0) {
+                done.run(new Status(RaftError.EINTR, "test"));
+                return new FutureImpl<>();
+            }
+            final byte[] content = this.remoteFiles.get(request.getFilename());
+            final int offset = (int) Math.min(request.getOffset(), content.length);
+            final int end = (int) Math.min(offset + request.getCount(), content.length);
+            done.setResponse(RpcRequests.GetFileResponse.newBuilder() //
+                .setReadSize(end - offset) //
+                .setEof(end == content.length) //
+                .setData(ByteString.copyFrom(content, offset, end - offset)) //
+                .build());
+            done.run(Status.OK());
+            return new FutureImpl<>();
+        });
+    }
+
+    private static byte[] content(final int size) {
+        final byte[] bs = new byte[size];
+        for (int i = 0; i < size; i++) {
+            bs[i] = (byte) i;
+        }
+        return bs;
+    }
+
+    @Test
+    public void testCopyFiles() throws Exception {
+        final byte[] big = content(1000);
+        final byte[] small = content(10);
+        final byte[] empty = new byte[0];
+        this.remoteFiles.put("big", big);
+        this.remoteFiles.put("small", small);
+        this.remoteFiles.put("empty", empty);
+        mockRemoteFiles(0);
+
+        final ParallelCopySession session = new ParallelCopySession(this.rpcService, this.timerManager, null,
+            this.address, 99, 64, 4);
+        session.addFile("big", this.path + File.separator + "big");
+        session.addFile("small", this.path + File.separator + "small");
+        session.addFile("empty", this.path + File.separator + "empty");
+        session.start();
+        session.join();
+        assertTrue(session.status().isOk());
+        assertEquals(Arrays.asList("big", "small", "empty"), session.getFinishedFiles());
+        assertArrayEquals(big, Files.readAllBytes(new File(this.path, "big").toPath()));
+        assertArrayEquals(small, Files.readAllBytes(new File(this.path, "small").toPath()));
+        assertArrayEquals(empty, Files.readAllBytes(new File(this.path, "empty").toPath()));
+        session.close();
+    }
+
+    @Test
+    public void testCopyFilesRetry() throws Exception {
+        final byte[] big = content(300);
+        this.remoteFiles.put("big", big);
+        mockRemoteFiles(2);
+
+        final ParallelCopySession session = new ParallelCopySession(this.rpcService, this.timerManager, null,
+            this.address, 99, 64, 2);
+        session.addFile("big", this.path + File.separator + "big");
+        session.start();
+        session.join();
+        assertTrue(session.status().isOk());
+        assertArrayEquals(big, Files.readAllBytes(new File(this.path, "big").toPath()));
+        session.close();
+    }
+
+    @Test
+    public void testCopyFilesFail() throws Exception {
+        this.remoteFiles.put("big", content(300));
+        mockRemoteFiles(Integer.MAX_VALUE);
+
+        final ParallelCopySession session = new ParallelCopySession(this.rpcService, this.timerManager, null,
+            this.address, 99, 64, 2);
+        session.addFile("big", this.path + File.separator + "big");
+        session.start();
+        session.join();
+        assertFalse(session.status().isOk());
+        assertTrue(session.getFinishedFiles().isEmpty());
+        session.close();
+    }
+}
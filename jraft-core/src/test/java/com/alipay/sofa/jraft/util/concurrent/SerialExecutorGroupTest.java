@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.jraft.util.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.codahale.metrics.Gauge;
+
+/**
+ * @author agent (agent@local)
+ */
+public class SerialExecutorGroupTest {
+
+    private SerialExecutorGroup group;
+
+    @Before
+    public void setup() {
+        this.group = new SerialExecutorGroup("test", 2, 1024);
+    }
+
+    @After
+    public void teardown() {
+        this.group.shutdownGracefully();
+    }
+
+    @Test
+    public void testOrderPerExecutor() throws InterruptedException {
+        final int executorCount = 100;
+        final int taskCount = 1000;
+        final List<SingleThreadExecutor> executors = new ArrayList<>();
+        final List<List<Integer>> results = new ArrayList<>();
+        final CountDownLatch latch = new CountDownLatch(executorCount * taskCount);
+        for (int i = 0; i < executorCount; i++) {
+            executors.add(this.group.newExecutor());
+            results.add(new ArrayList<>());
+        }
+        for (int j = 0; j < taskCount; j++) {
+            for (int i = 0; i < executorCount; i++) {
+                final List<Integer> result = results.get(i);
+                final int n = j;
+                executors.get(i).execute(() -> {
+                    // not thread-safe, the tasks of an executor never run concurrently.
+                    result.add(n);
+                    latch.countDown();
+                });
+            }
+        }
+        Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+        for (final List<Integer> result : results) {
+            Assert.assertEquals(taskCount, result.size());
+            for (int j = 0; j < taskCount; j++) {
+                Assert.assertEquals(j, (int) result.get(j));
+            }
+        }
+        Assert.assertEquals(0L, getGauge("pending-tasks"));
+        Assert.assertEquals(executorCount, getGauge("executors"));
+    }
+
+    @Test
+    public void testExecutorIsShutdownWithTask() throws InterruptedException {
+        final SingleThreadExecutor executor = this.group.newExecutor();
+        final AtomicLong ret = new AtomicLong(0);
+        for (int i = 0; i < 10; i++) {
+            executor.execute(() -> {
+                try {
+                    Thread.sleep(50);
+                    ret.incrementAndGet();
+                } catch (final InterruptedException e) {
+                    e.printStackTrace();
+                }
+            });
+        }
+        Assert.assertTrue(executor.shutdownGracefully());
+        Assert.assertEquals(10, ret.get());
+        executeShouldFail(executor);
+        Assert.assertEquals(0, getGauge("executors"));
+    }
+
+    @Test
+    public void testShutdownInTask() throws InterruptedException {
+        final SingleThreadExecutor executor = this.group.newExecutor();
+        final CountDownLatch latch = new CountDownLatch(2);
+        executor.execute(() -> {
+            Assert.assertFalse(executor.shutdownGracefully());
+            latch.countDown();
+        });
+        executor.execute(latch::countDown);
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(executor.shutdownGracefully());
+    }
+
+    @Test
+    public void testExecutorRejected() throws InterruptedException {
+        // 2048 is the minimum of maxPendingTasks
+        final int minMaxPendingTasks = 2048;
+        final SingleThreadExecutor executor = this.group.newExecutor();
+        final CountDownLatch latch1 = new CountDownLatch(1);
+        final CountDownLatch latch2 = new CountDownLatch(1);
+
+        // add a block task
+        executor.execute(() -> {
+            try {
+                latch1.await();
+            } catch (final InterruptedException e) {
+                e.printStackTrace();
+            }
+            latch2.countDown();
+        });
+
+        // wait until the work is blocked
+        Thread.sleep(500);
+
+        // fill the task queue
+        for (int i = 0; i < minMaxPendingTasks; i++) {
+            executor.execute(() -> {});
+        }
+
+        executeShouldFail(executor);
+
+        latch1.countDown();
+        latch2.await();
+        Assert.assertTrue(executor.shutdownGracefully());
+    }
+
+    private Object getGauge(final String name) {
+        return ((Gauge<?>) this.group.metricSet().getMetrics().get(name)).getValue();
+    }
+
+    private static void executeShouldFail(final Executor executor) {
+        try {
+            executor.execute(() -> {
+                // Noop.
+            });
+            Assert.fail();
+        } catch (final RejectedExecutionException expected) {
+            // expected
+        }
+    }
+}